@@ -0,0 +1,93 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two result files of {@link MatsimBenchmarks} in the JMH JSON format, e.g. of two MATSim versions, and
+ * prints the relative change of every benchmark contained in both files. Changes larger than the sum of the two score
+ * errors (99.9% confidence intervals as reported by JMH) are marked as significant.
+ * <p>
+ * Usage: <code>CompareBenchmarkResults baseline.json candidate.json</code>
+ */
+public final class CompareBenchmarkResults {
+
+	private CompareBenchmarkResults() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: CompareBenchmarkResults baseline.json candidate.json");
+			System.exit(1);
+		}
+		Map<String, Result> baseline = read(new File(args[0]));
+		Map<String, Result> candidate = read(new File(args[1]));
+
+		System.out.printf("%-80s %14s %14s %-10s %9s%n", "benchmark", "baseline", "candidate", "unit", "change");
+		for (Map.Entry<String, Result> e : baseline.entrySet()) {
+			Result before = e.getValue();
+			Result after = candidate.get(e.getKey());
+			if (after == null) {
+				System.out.printf("%-80s %14.3f %14s %-10s%n", e.getKey(), before.score, "-", before.unit);
+				continue;
+			}
+			double change = (after.score - before.score) / before.score;
+			boolean significant = Math.abs(after.score - before.score) > before.error + after.error;
+			System.out.printf("%-80s %14.3f %14.3f %-10s %+8.1f%%%s%n", e.getKey(), before.score, after.score, after.unit,
+					change * 100, significant ? " *" : "");
+		}
+		for (Map.Entry<String, Result> e : candidate.entrySet()) {
+			if (!baseline.containsKey(e.getKey())) {
+				System.out.printf("%-80s %14s %14.3f %-10s%n", e.getKey(), "-", e.getValue().score, e.getValue().unit);
+			}
+		}
+		System.out.println("* the change is larger than the score errors");
+	}
+
+	static Map<String, Result> read(File file) throws IOException {
+		Map<String, Result> results = new LinkedHashMap<>();
+		for (JsonNode run : new ObjectMapper().readTree(file)) {
+			StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+			// sort the parameters so that the keys do not depend on their order in the file
+			Map<String, String> params = new TreeMap<>();
+			run.path("params").fields().forEachRemaining(p -> params.put(p.getKey(), p.getValue().asText()));
+			params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+
+			JsonNode metric = run.path("primaryMetric");
+			double error = metric.path("scoreError").asDouble(0);
+			results.put(key.toString(), new Result(metric.path("score").asDouble(), Double.isNaN(error) ? 0 : error,
+					metric.path("scoreUnit").asText()));
+		}
+		return results;
+	}
+
+	record Result(double score, double error, String unit) {
+	}
+
+}
@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a typical mix of events as XML, to a stream discarding all data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EventWriterXMLBenchmark {
+
+	private static final int NUMBER_OF_EVENTS = 100_000;
+
+	private final List<Event> events = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		Random random = new Random(SyntheticScenarios.SEED);
+		double time = 6 * 3600;
+		while (this.events.size() < NUMBER_OF_EVENTS) {
+			Id<Person> personId = Id.createPersonId(random.nextInt(10_000));
+			Id<Vehicle> vehicleId = Id.createVehicleId(personId);
+			Id<Link> linkId = Id.createLinkId(random.nextInt(20_000));
+			Coord coord = new Coord(random.nextDouble() * 10_000, random.nextDouble() * 10_000);
+			time += random.nextInt(3);
+			this.events.add(new ActivityEndEvent(time, personId, linkId, null, "home", coord));
+			this.events.add(new PersonDepartureEvent(time, personId, linkId, TransportMode.car, TransportMode.car));
+			for (int i = 0; i < 8; i++) {
+				this.events.add(new LinkLeaveEvent(time, vehicleId, linkId));
+				linkId = Id.createLinkId(random.nextInt(20_000));
+				this.events.add(new LinkEnterEvent(time, vehicleId, linkId));
+			}
+			this.events.add(new PersonArrivalEvent(time, personId, linkId, TransportMode.car));
+			this.events.add(new ActivityStartEvent(time, personId, linkId, null, "work", coord));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_EVENTS)
+	public void writeEvents() {
+		EventWriterXML writer = new EventWriterXML(OutputStream.nullOutputStream());
+		for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+			writer.handleEvent(this.events.get(i));
+		}
+		writer.closeFile();
+	}
+
+}
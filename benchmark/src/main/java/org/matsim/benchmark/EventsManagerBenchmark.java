@@ -0,0 +1,145 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes a synthetic stream of link enter/leave events through each events manager implementation that can be
+ * selected in the eventsManager config group and reports the throughput. Every invocation processes the events of
+ * one sim step, including the synchronization in {@link EventsManager#afterSimStep(double)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EventsManagerBenchmark {
+
+	private static final int EVENTS_PER_SIM_STEP = 5_000;
+
+	@Param({"EventsManagerImpl", "SimStepParallelEventsManagerImpl", "ParallelEventsManagerImpl", "ParallelEventsManager",
+			"RingBufferEventsManager"})
+	public String implementation;
+
+	@Param({"4"})
+	public int numberOfThreads;
+
+	@Param({"8"})
+	public int handlers;
+
+	private final Id<Link>[] linkIds = createIds(1000, Link.class);
+	private final Id<Vehicle>[] vehicleIds = createIds(10000, Vehicle.class);
+	private EventsManager events;
+	private int step;
+	private int v;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		if (this.implementation.equals("EventsManagerImpl")) {
+			this.events = EventsUtils.createEventsManager();
+		} else {
+			Config config = ConfigUtils.createConfig();
+			config.eventsManager().setNumberOfThreads(this.numberOfThreads);
+			switch (this.implementation) {
+				case "SimStepParallelEventsManagerImpl" -> config.eventsManager().setSynchronizeOnSimSteps(true);
+				case "ParallelEventsManagerImpl" -> config.eventsManager().setSynchronizeOnSimSteps(false);
+				case "ParallelEventsManager" -> config.eventsManager().setOneThreadPerHandler(true);
+				case "RingBufferEventsManager" -> config.eventsManager().setUseRingBuffer(true);
+				default -> throw new IllegalArgumentException("unknown events manager: " + this.implementation);
+			}
+			this.events = EventsUtils.createEventsManager(config);
+		}
+		for (int h = 0; h < this.handlers; h++) {
+			this.events.addHandler(new CountingHandler());
+		}
+		this.step = 0;
+		this.v = 0;
+		this.events.initProcessing();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		this.events.finishProcessing();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS_PER_SIM_STEP)
+	public void processSimStep() {
+		int step = this.step++;
+		for (int i = 0; i < EVENTS_PER_SIM_STEP; i += 2) {
+			Id<Link> linkId = this.linkIds[this.v % this.linkIds.length];
+			Id<Vehicle> vehicleId = this.vehicleIds[this.v % this.vehicleIds.length];
+			this.events.processEvent(new LinkEnterEvent(step, vehicleId, linkId));
+			this.events.processEvent(new LinkLeaveEvent(step, vehicleId, linkId));
+			this.v++;
+		}
+		this.events.afterSimStep(step);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Id<T>[] createIds(int count, Class<T> type) {
+		Id<T>[] ids = new Id[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = Id.create(i, type);
+		}
+		return ids;
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		private long count = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.count += event.getLinkId().index();
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.count -= event.getVehicleId().index();
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.count = 0;
+		}
+	}
+}
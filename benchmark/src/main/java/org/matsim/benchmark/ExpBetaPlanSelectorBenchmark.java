@@ -0,0 +1,84 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.replanning.selectors.ExpBetaPlanSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selects a plan for every person of a population, as done by the ChangeExpBeta and SelectExpBeta strategies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExpBetaPlanSelectorBenchmark {
+
+	private static final int NUMBER_OF_PERSONS = 10_000;
+
+	@Param({"5"})
+	public int plansPerPerson;
+
+	private final List<Person> persons = new ArrayList<>();
+	private final ExpBetaPlanSelector<Plan, Person> selector = new ExpBetaPlanSelector<>(1.0);
+
+	@Setup
+	public void setup() {
+		MatsimRandom.reset(SyntheticScenarios.SEED);
+		Random random = new Random(SyntheticScenarios.SEED);
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId(i));
+			for (int p = 0; p < this.plansPerPerson; p++) {
+				Plan plan = PopulationUtils.createPlan(person);
+				plan.setScore(100 + random.nextGaussian() * 5);
+				person.addPlan(plan);
+			}
+			this.persons.add(person);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_PERSONS)
+	public void selectPlans(Blackhole blackhole) {
+		for (Person person : this.persons) {
+			blackhole.consume(this.selector.selectPlan(person));
+		}
+	}
+
+}
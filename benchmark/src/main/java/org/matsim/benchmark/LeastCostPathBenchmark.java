@@ -0,0 +1,100 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.speedy.SpeedyALTFactory;
+import org.matsim.core.router.speedy.SpeedyCHFactory;
+import org.matsim.core.router.speedy.SpeedyDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.StaticTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Least cost path queries between random nodes of a grid network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LeastCostPathBenchmark {
+
+	private static final int NUMBER_OF_QUERIES = 1000;
+
+	@Param({"SpeedyDijkstra", "SpeedyALT", "SpeedyCH"})
+	public String router;
+
+	@Param({"100"})
+	public int gridSize;
+
+	private LeastCostPathCalculator calculator;
+	private final List<Node> fromNodes = new ArrayList<>();
+	private final List<Node> toNodes = new ArrayList<>();
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		Network network = NetworkUtils.createNetwork();
+		SyntheticScenarios.createGridNetwork(network, this.gridSize);
+		FreeSpeedTravelTime travelTime = new FreeSpeedTravelTime();
+		// free speed travel times on a network without change events do not depend on the time
+		TravelDisutility travelDisutility = StaticTravelDisutility.of(new OnlyTimeDependentTravelDisutility(travelTime));
+		LeastCostPathCalculatorFactory factory = switch (this.router) {
+			case "SpeedyDijkstra" -> new SpeedyDijkstraFactory();
+			case "SpeedyALT" -> new SpeedyALTFactory();
+			case "SpeedyCH" -> new SpeedyCHFactory();
+			default -> throw new IllegalArgumentException("unknown router " + this.router);
+		};
+		this.calculator = factory.createPathCalculator(network, travelDisutility, travelTime);
+
+		Random random = new Random(SyntheticScenarios.SEED);
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			this.fromNodes.add(nodes.get(random.nextInt(nodes.size())));
+			this.toNodes.add(nodes.get(random.nextInt(nodes.size())));
+		}
+	}
+
+	@Benchmark
+	public LeastCostPathCalculator.Path calcLeastCostPath() {
+		int i = this.next;
+		this.next = (i + 1) % NUMBER_OF_QUERIES;
+		return this.calculator.calcLeastCostPath(this.fromNodes.get(i), this.toNodes.get(i), 8 * 3600, null, null);
+	}
+
+}
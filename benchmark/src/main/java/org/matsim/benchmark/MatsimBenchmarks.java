@@ -0,0 +1,69 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Runs the JMH micro benchmarks of this module. Accepts the usual JMH command line options, e.g.
+ * <code>java -jar benchmarks.jar LeastCostPath -p router=SpeedyALT</code>, but writes the results to
+ * <code>{@value #DEFAULT_RESULT_FILE}</code> in the JSON format unless specified otherwise with <code>-rf</code> and
+ * <code>-rff</code>. Two such files, e.g. from two MATSim versions, can be compared with {@link CompareBenchmarkResults}.
+ */
+public final class MatsimBenchmarks {
+
+	public static final String DEFAULT_RESULT_FILE = "matsim-benchmarks.json";
+
+	private MatsimBenchmarks() {
+	}
+
+	public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+		CommandLineOptions cmdOptions = new CommandLineOptions(args);
+		if (cmdOptions.shouldHelp()) {
+			cmdOptions.showHelp();
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+		if (!cmdOptions.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+			if (!cmdOptions.getResult().hasValue()) {
+				options.result(DEFAULT_RESULT_FILE);
+			}
+		}
+
+		Runner runner = new Runner(options.build());
+		if (cmdOptions.shouldList()) {
+			runner.list();
+		} else {
+			runner.run();
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ScoringConfigGroup;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the QSim on a congested grid network. Most of the time is spent in the queue links
+ * (<code>QueueWithBuffer</code>) moving vehicles through the lanes and buffers, which cannot be benchmarked in
+ * isolation as they are internal to the QSim.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QSimBenchmark {
+
+	@Param({"30"})
+	public int gridSize;
+
+	@Param({"20000"})
+	public int numberOfPersons;
+
+	@Param({"1"})
+	public int numberOfThreads;
+
+	private Scenario scenario;
+
+	@Setup
+	public void setup() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setEndTime(30 * 3600);
+		config.qsim().setNumberOfThreads(this.numberOfThreads);
+		config.scoring().addActivityParams(new ScoringConfigGroup.ActivityParams("home").setTypicalDuration(12 * 3600));
+		config.scoring().addActivityParams(new ScoringConfigGroup.ActivityParams("work").setTypicalDuration(8 * 3600));
+		this.scenario = ScenarioUtils.createScenario(config);
+		SyntheticScenarios.createGridNetwork(this.scenario.getNetwork(), this.gridSize);
+		SyntheticScenarios.createPopulation(this.scenario, this.numberOfPersons, true);
+		PrepareForSimUtils.createDefaultPrepareForSim(this.scenario).run();
+	}
+
+	@Benchmark
+	public void runQSim() {
+		EventsManager events = EventsUtils.createEventsManager(this.scenario.getConfig());
+		new QSimBuilder(this.scenario.getConfig()).useDefaults().build(this.scenario, events).run();
+	}
+
+}
@@ -0,0 +1,102 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import ch.sbb.matsim.routing.pt.raptor.RaptorUtils;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptor;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DefaultRoutingRequest;
+import org.matsim.core.router.RoutingRequest;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.facilities.FacilitiesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transit routing requests between random coordinates on a grid of bus lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SwissRailRaptorBenchmark {
+
+	private static final int NUMBER_OF_QUERIES = 1000;
+
+	@Param({"60"})
+	public int gridSize;
+
+	@Param({"3"})
+	public int lineSpacing;
+
+	private SwissRailRaptor raptor;
+	private final List<RoutingRequest> requests = new ArrayList<>();
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		Config config = ConfigUtils.createConfig();
+		config.transit().setUseTransit(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		SyntheticScenarios.createGridNetwork(scenario.getNetwork(), this.gridSize);
+		SyntheticScenarios.createTransitSchedule(scenario, this.gridSize, this.lineSpacing);
+
+		SwissRailRaptorData data = SwissRailRaptorData.create(scenario.getTransitSchedule(), null,
+				RaptorUtils.createStaticConfig(config), scenario.getNetwork(), null);
+		this.raptor = new SwissRailRaptor.Builder(data, config).build();
+
+		Random random = new Random(SyntheticScenarios.SEED);
+		double extent = (this.gridSize - 1) * SyntheticScenarios.NODE_DISTANCE;
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			Coord from = new Coord(random.nextDouble() * extent, random.nextDouble() * extent);
+			Coord to = new Coord(random.nextDouble() * extent, random.nextDouble() * extent);
+			double departureTime = 6 * 3600 + random.nextInt(14 * 3600);
+			this.requests.add(DefaultRoutingRequest.withoutAttributes(
+					FacilitiesUtils.wrapLinkAndCoord(NetworkUtils.getNearestLink(scenario.getNetwork(), from), from),
+					FacilitiesUtils.wrapLinkAndCoord(NetworkUtils.getNearestLink(scenario.getNetwork(), to), to),
+					departureTime, null));
+		}
+	}
+
+	@Benchmark
+	public List<? extends PlanElement> calcRoute() {
+		int i = this.next;
+		this.next = (i + 1) % NUMBER_OF_QUERIES;
+		return this.raptor.calcRoute(this.requests.get(i));
+	}
+
+}
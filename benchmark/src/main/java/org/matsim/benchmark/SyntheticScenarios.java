@@ -0,0 +1,224 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.speedy.SpeedyDijkstra;
+import org.matsim.core.router.speedy.SpeedyGraphBuilder;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates the synthetic scenarios used by the benchmarks. All of them only depend on their arguments and a fixed
+ * random seed, so every run and every MATSim version works on exactly the same data.
+ */
+final class SyntheticScenarios {
+
+	static final long SEED = 4711;
+	static final double NODE_DISTANCE = 200.0;
+
+	private SyntheticScenarios() {
+	}
+
+	/**
+	 * Creates a grid of <code>size x size</code> nodes, connected by links in both directions. Every fifth row and
+	 * column is an arterial road with a higher speed and capacity.
+	 */
+	static void createGridNetwork(Network network, int size) {
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				NetworkUtils.createAndAddNode(network, nodeId(x, y), new Coord(x * NODE_DISTANCE, y * NODE_DISTANCE));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(nodeId(x, y));
+				if (x + 1 < size) {
+					Node east = network.getNodes().get(nodeId(x + 1, y));
+					boolean arterial = y % 5 == 0;
+					addLink(network, linkId(x, y, 'e'), node, east, arterial);
+					addLink(network, linkId(x + 1, y, 'w'), east, node, arterial);
+				}
+				if (y + 1 < size) {
+					Node north = network.getNodes().get(nodeId(x, y + 1));
+					boolean arterial = x % 5 == 0;
+					addLink(network, linkId(x, y, 'n'), node, north, arterial);
+					addLink(network, linkId(x, y + 1, 's'), north, node, arterial);
+				}
+			}
+		}
+	}
+
+	private static void addLink(Network network, Id<Link> id, Node from, Node to, boolean arterial) {
+		NetworkUtils.createAndAddLink(network, id, from, to, NODE_DISTANCE, arterial ? 50 / 3.6 : 30 / 3.6, arterial ? 1800 : 600, arterial ? 2 : 1);
+	}
+
+	static Id<Node> nodeId(int x, int y) {
+		return Id.createNodeId(x + "_" + y);
+	}
+
+	/**
+	 * @param direction one of <code>e, w, n, s</code>, the link leads from node <code>(x, y)</code> in this direction
+	 */
+	static Id<Link> linkId(int x, int y, char direction) {
+		return Id.createLinkId(x + "_" + y + direction);
+	}
+
+	/**
+	 * Creates persons with a home-work-home plan by car. If <code>routed</code> is set, the car legs get the free speed
+	 * fastest route.
+	 */
+	static void createPopulation(Scenario scenario, int numberOfPersons, boolean routed) {
+		Random random = new Random(SEED);
+		Network network = scenario.getNetwork();
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		LeastCostPathCalculator router = null;
+		if (routed) {
+			FreeSpeedTravelTime travelTime = new FreeSpeedTravelTime();
+			router = new SpeedyDijkstra(SpeedyGraphBuilder.build(network), travelTime, new OnlyTimeDependentTravelDisutility(travelTime));
+		}
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Link homeLink = links.get(random.nextInt(links.size()));
+			Link workLink = links.get(random.nextInt(links.size()));
+
+			Activity home = pf.createActivityFromLinkId("home", homeLink.getId());
+			home.setCoord(homeLink.getToNode().getCoord());
+			home.setEndTime(6 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(home);
+			Leg toWork = pf.createLeg(TransportMode.car);
+			plan.addLeg(toWork);
+			Activity work = pf.createActivityFromLinkId("work", workLink.getId());
+			work.setCoord(workLink.getToNode().getCoord());
+			work.setEndTime(15 * 3600 + random.nextInt(4 * 3600));
+			work.getAttributes().putAttribute("sector", random.nextInt(10));
+			plan.addActivity(work);
+			Leg toHome = pf.createLeg(TransportMode.car);
+			plan.addLeg(toHome);
+			Activity home2 = pf.createActivityFromLinkId("home", homeLink.getId());
+			home2.setCoord(homeLink.getToNode().getCoord());
+			plan.addActivity(home2);
+
+			if (router != null) {
+				route(router, toWork, homeLink, workLink, home.getEndTime().seconds());
+				route(router, toHome, workLink, homeLink, work.getEndTime().seconds());
+			}
+			person.addPlan(plan);
+			person.getAttributes().putAttribute("age", 18 + random.nextInt(60));
+			scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	private static void route(LeastCostPathCalculator router, Leg leg, Link fromLink, Link toLink, double departureTime) {
+		List<Id<Link>> linkIds = new ArrayList<>();
+		double travelTime = 0;
+		if (fromLink != toLink) {
+			LeastCostPathCalculator.Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null, null);
+			for (Link link : path.links) {
+				linkIds.add(link.getId());
+			}
+			travelTime = path.travelTime;
+		}
+		leg.setDepartureTime(departureTime);
+		leg.setTravelTime(travelTime);
+		leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(fromLink.getId(), linkIds, toLink.getId()));
+	}
+
+	/**
+	 * Creates bus lines in both directions along every <code>lineSpacing</code>-th row and column of the grid network,
+	 * with a stop at the end of every link and a departure every 10 minutes between 05:00 and 23:00.
+	 */
+	static void createTransitSchedule(Scenario scenario, int size, int lineSpacing) {
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		TransitScheduleFactory f = schedule.getFactory();
+		for (int i = 0; i < size; i += lineSpacing) {
+			List<Id<Link>> east = new ArrayList<>();
+			List<Id<Link>> west = new ArrayList<>();
+			List<Id<Link>> north = new ArrayList<>();
+			List<Id<Link>> south = new ArrayList<>();
+			for (int j = 0; j + 1 < size; j++) {
+				east.add(linkId(j, i, 'e'));
+				west.add(linkId(size - 1 - j, i, 'w'));
+				north.add(linkId(i, j, 'n'));
+				south.add(linkId(i, size - 1 - j, 's'));
+			}
+			addLine(scenario, f, "row" + i + "e", east);
+			addLine(scenario, f, "row" + i + "w", west);
+			addLine(scenario, f, "col" + i + "n", north);
+			addLine(scenario, f, "col" + i + "s", south);
+		}
+	}
+
+	private static void addLine(Scenario scenario, TransitScheduleFactory f, String name, List<Id<Link>> linkIds) {
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		List<TransitRouteStop> stops = new ArrayList<>();
+		double offset = 0;
+		for (Id<Link> linkId : linkIds) {
+			Link link = scenario.getNetwork().getLinks().get(linkId);
+			Id<TransitStopFacility> stopId = Id.create(linkId.toString(), TransitStopFacility.class);
+			TransitStopFacility stop = schedule.getFacilities().get(stopId);
+			if (stop == null) {
+				stop = f.createTransitStopFacility(stopId, link.getToNode().getCoord(), false);
+				stop.setLinkId(linkId);
+				schedule.addStopFacility(stop);
+			}
+			stops.add(f.createTransitRouteStop(stop, offset, offset + 20));
+			offset += 20 + link.getLength() / link.getFreespeed();
+		}
+		TransitRoute route = f.createTransitRoute(Id.create(name, TransitRoute.class),
+				RouteUtils.createNetworkRoute(linkIds), stops, "bus");
+		for (int time = 5 * 3600, i = 0; time <= 23 * 3600; time += 600, i++) {
+			Departure departure = f.createDeparture(Id.create(name + "_" + i, Departure.class), time);
+			route.addDeparture(departure);
+		}
+		TransitLine line = f.createTransitLine(Id.create(name, TransitLine.class));
+		line.addRoute(route);
+		schedule.addTransitLine(line);
+	}
+
+}
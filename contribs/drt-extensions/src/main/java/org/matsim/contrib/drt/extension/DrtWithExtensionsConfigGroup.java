@@ -21,6 +21,8 @@ package org.matsim.contrib.drt.extension;
 
 import org.matsim.contrib.drt.extension.companions.DrtCompanionParams;
 import org.matsim.contrib.drt.extension.insertion.spatialFilter.DrtSpatialRequestFleetFilterParams;
+import org.matsim.contrib.drt.extension.insertion.batch.DrtBatchInsertionParams;
+import org.matsim.contrib.drt.extension.insertion.waypointFilter.DrtWaypointRequestFleetFilterParams;
 import org.matsim.contrib.drt.extension.operations.DrtOperationsParams;
 import org.matsim.contrib.drt.extension.services.services.params.DrtServicesParams;
 import org.matsim.contrib.drt.optimizer.constraints.DefaultDrtOptimizationConstraintsSet;
@@ -50,6 +52,12 @@ public class DrtWithExtensionsConfigGroup extends DrtConfigGroup {
 	@Nullable
 	private DrtSpatialRequestFleetFilterParams drtSpatialRequestFleetFilterParams;
 
+	@Nullable
+	private DrtWaypointRequestFleetFilterParams drtWaypointRequestFleetFilterParams;
+
+	@Nullable
+	private DrtBatchInsertionParams drtBatchInsertionParams;
+
 	public DrtWithExtensionsConfigGroup() {
 		this(DefaultDrtOptimizationConstraintsSet::new);
 	}
@@ -71,6 +79,14 @@ public class DrtWithExtensionsConfigGroup extends DrtConfigGroup {
 		// Optional
 		addDefinition(DrtSpatialRequestFleetFilterParams.SET_NAME, DrtSpatialRequestFleetFilterParams::new, () -> drtSpatialRequestFleetFilterParams,
 			params -> drtSpatialRequestFleetFilterParams = (DrtSpatialRequestFleetFilterParams) params);
+
+		// Optional
+		addDefinition(DrtWaypointRequestFleetFilterParams.SET_NAME, DrtWaypointRequestFleetFilterParams::new, () -> drtWaypointRequestFleetFilterParams,
+			params -> drtWaypointRequestFleetFilterParams = (DrtWaypointRequestFleetFilterParams) params);
+
+		// Optional
+		addDefinition(DrtBatchInsertionParams.SET_NAME, DrtBatchInsertionParams::new, () -> drtBatchInsertionParams,
+			params -> drtBatchInsertionParams = (DrtBatchInsertionParams) params);
 	}
 
 	public Optional<DrtCompanionParams> getDrtCompanionParams() {
@@ -88,4 +104,12 @@ public class DrtWithExtensionsConfigGroup extends DrtConfigGroup {
 	public Optional<DrtSpatialRequestFleetFilterParams> getSpatialRequestFleetFilterParams() {
 		return Optional.ofNullable(drtSpatialRequestFleetFilterParams);
 	}
+
+	public Optional<DrtWaypointRequestFleetFilterParams> getWaypointRequestFleetFilterParams() {
+		return Optional.ofNullable(drtWaypointRequestFleetFilterParams);
+	}
+
+	public Optional<DrtBatchInsertionParams> getBatchInsertionParams() {
+		return Optional.ofNullable(drtBatchInsertionParams);
+	}
 }
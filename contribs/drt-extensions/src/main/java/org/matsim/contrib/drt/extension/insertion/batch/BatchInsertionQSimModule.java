@@ -0,0 +1,82 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.drt.extension.insertion.batch;
+
+import org.matsim.contrib.drt.extension.DrtWithExtensionsConfigGroup;
+import org.matsim.contrib.drt.optimizer.DrtRequestInsertionRetryQueue;
+import org.matsim.contrib.drt.optimizer.QSimScopeForkJoinPoolHolder;
+import org.matsim.contrib.drt.optimizer.VehicleEntry;
+import org.matsim.contrib.drt.optimizer.insertion.DetourTimeEstimator;
+import org.matsim.contrib.drt.optimizer.insertion.DrtInsertionSearch;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionGenerator;
+import org.matsim.contrib.drt.optimizer.insertion.RequestFleetFilter;
+import org.matsim.contrib.drt.optimizer.insertion.UnplannedRequestInserter;
+import org.matsim.contrib.drt.passenger.DrtOfferAcceptor;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
+import org.matsim.contrib.drt.stops.PassengerStopDurationProvider;
+import org.matsim.contrib.drt.stops.StopTimeCalculator;
+import org.matsim.contrib.dvrp.fleet.Fleet;
+import org.matsim.contrib.dvrp.run.AbstractDvrpModeQSimModule;
+import org.matsim.contrib.zone.skims.TravelTimeMatrix;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.controler.MatsimServices;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Replaces the default {@link UnplannedRequestInserter} by the {@link BatchUnplannedRequestInserter}. Has to be
+ * installed as an overriding QSim module.
+ */
+public class BatchInsertionQSimModule extends AbstractDvrpModeQSimModule {
+
+	private final DrtBatchInsertionParams drtBatchInsertionParams;
+
+	public BatchInsertionQSimModule(DrtConfigGroup drtCfg) {
+		super(drtCfg.getMode());
+		if (drtCfg instanceof DrtWithExtensionsConfigGroup withExtensionsConfigGroup &&
+			withExtensionsConfigGroup.getBatchInsertionParams().isPresent()) {
+			drtBatchInsertionParams = withExtensionsConfigGroup.getBatchInsertionParams().get();
+		} else {
+			throw new RuntimeException("Requires DrtBatchInsertionParams to be set. Use DrtWithExtensionsConfigGroup " +
+				"to do so.");
+		}
+	}
+
+	@Override
+	protected void configureQSim() {
+		addModalComponent(BatchUnplannedRequestInserter.class, modalProvider(getter -> {
+			var detourTimeEstimator = DetourTimeEstimator.createMatrixBasedEstimator(
+				drtBatchInsertionParams.detourTimeEstimationSpeedFactor, getter.getModal(TravelTimeMatrix.class),
+				getter.getModal(TravelTime.class));
+			var insertionGenerator = new InsertionGenerator(getter.getModal(StopTimeCalculator.class),
+				detourTimeEstimator);
+			return new BatchUnplannedRequestInserter(getMode(), getter.getModal(Fleet.class),
+				getter.get(MobsimTimer.class), getter.get(EventsManager.class),
+				getter.getModal(RequestInsertionScheduler.class), getter.getModal(VehicleEntry.EntryFactory.class),
+				getter.getModal(DrtInsertionSearch.class), insertionGenerator,
+				getter.getModal(InsertionCostCalculator.class), getter.getModal(DrtRequestInsertionRetryQueue.class),
+				getter.getModal(DrtOfferAcceptor.class), getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool(),
+				getter.getModal(PassengerStopDurationProvider.class), getter.getModal(RequestFleetFilter.class),
+				drtBatchInsertionParams, getter.get(MatsimServices.class));
+		}));
+		bindModal(UnplannedRequestInserter.class).to(modalKey(BatchUnplannedRequestInserter.class));
+	}
+}
@@ -0,0 +1,378 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.drt.extension.insertion.batch;
+
+import static org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter.NO_INSERTION_FOUND_CAUSE;
+import static org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter.OFFER_REJECTED_CAUSE;
+import static org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator.INFEASIBLE_SOLUTION_COST;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleSupplier;
+import java.util.function.ToDoubleBiFunction;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.contrib.drt.optimizer.DrtRequestInsertionRetryQueue;
+import org.matsim.contrib.drt.optimizer.VehicleEntry;
+import org.matsim.contrib.drt.optimizer.insertion.DrtInsertionSearch;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionGenerator;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionWithDetourData;
+import org.matsim.contrib.drt.optimizer.insertion.RequestFleetFilter;
+import org.matsim.contrib.drt.optimizer.insertion.UnplannedRequestInserter;
+import org.matsim.contrib.drt.passenger.DrtOfferAcceptor;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
+import org.matsim.contrib.drt.stops.PassengerStopDurationProvider;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.Fleet;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestScheduledEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.controler.MatsimServices;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.opencsv.CSVWriter;
+
+/**
+ * Inserts the unplanned requests in batches instead of one by one: all requests submitted (or due for a retry) since
+ * the previous batch are collected and inserted jointly every {@link DrtBatchInsertionParams#batchInterval} seconds.
+ * <p>
+ * For each batch, a (sparse) request x vehicle cost matrix is computed in parallel: for each request and each vehicle
+ * returned by the {@link RequestFleetFilter}, the cost of the best insertion according to the {@link InsertionGenerator}
+ * (with estimated detour times) and the {@link InsertionCostCalculator}. The requests are then assigned with a regret
+ * heuristic: the request with the largest cost difference between its best and second best vehicle is inserted first
+ * (or, if regret is switched off, the cheapest request-vehicle pair). The actual insertion into the chosen vehicle is
+ * found by the {@link DrtInsertionSearch}; afterwards, only the matrix column of this vehicle is updated.
+ * <p>
+ * The time spent on each batch is written to {@code <mode>_batch_insertion_stats.csv} in the iteration directory.
+ */
+public class BatchUnplannedRequestInserter implements UnplannedRequestInserter, MobsimBeforeCleanupListener {
+	private static final Logger log = LogManager.getLogger(BatchUnplannedRequestInserter.class);
+
+	private final String mode;
+	private final Fleet fleet;
+	private final DoubleSupplier timeOfDay;
+	private final EventsManager eventsManager;
+	private final RequestInsertionScheduler insertionScheduler;
+	private final VehicleEntry.EntryFactory vehicleEntryFactory;
+	private final DrtInsertionSearch insertionSearch;
+	private final ToDoubleBiFunction<DrtRequest, VehicleEntry> insertionCostEstimator;
+	private final DrtRequestInsertionRetryQueue insertionRetryQueue;
+	private final DrtOfferAcceptor drtOfferAcceptor;
+	private final ForkJoinPool forkJoinPool;
+	private final PassengerStopDurationProvider stopDurationProvider;
+	private final RequestFleetFilter requestFleetFilter;
+	private final DrtBatchInsertionParams params;
+	private final MatsimServices matsimServices;
+
+	private final List<BatchStats> batchStats = new ArrayList<>();
+
+	public BatchUnplannedRequestInserter(String mode, Fleet fleet, MobsimTimer mobsimTimer, EventsManager eventsManager,
+			RequestInsertionScheduler insertionScheduler, VehicleEntry.EntryFactory vehicleEntryFactory,
+			DrtInsertionSearch insertionSearch, InsertionGenerator insertionGenerator,
+			InsertionCostCalculator insertionCostCalculator, DrtRequestInsertionRetryQueue insertionRetryQueue,
+			DrtOfferAcceptor drtOfferAcceptor, ForkJoinPool forkJoinPool, PassengerStopDurationProvider stopDurationProvider,
+			RequestFleetFilter requestFleetFilter, DrtBatchInsertionParams params, MatsimServices matsimServices) {
+		this(mode, fleet, mobsimTimer::getTimeOfDay, eventsManager, insertionScheduler, vehicleEntryFactory, insertionSearch,
+				(request, vehicleEntry) -> estimateInsertionCost(insertionGenerator, insertionCostCalculator, request,
+						vehicleEntry), insertionRetryQueue, drtOfferAcceptor, forkJoinPool, stopDurationProvider,
+				requestFleetFilter, params, matsimServices);
+	}
+
+	@VisibleForTesting
+	BatchUnplannedRequestInserter(String mode, Fleet fleet, DoubleSupplier timeOfDay, EventsManager eventsManager,
+			RequestInsertionScheduler insertionScheduler, VehicleEntry.EntryFactory vehicleEntryFactory,
+			DrtInsertionSearch insertionSearch, ToDoubleBiFunction<DrtRequest, VehicleEntry> insertionCostEstimator,
+			DrtRequestInsertionRetryQueue insertionRetryQueue, DrtOfferAcceptor drtOfferAcceptor, ForkJoinPool forkJoinPool,
+			PassengerStopDurationProvider stopDurationProvider, RequestFleetFilter requestFleetFilter,
+			DrtBatchInsertionParams params, MatsimServices matsimServices) {
+		this.mode = mode;
+		this.fleet = fleet;
+		this.timeOfDay = timeOfDay;
+		this.eventsManager = eventsManager;
+		this.insertionScheduler = insertionScheduler;
+		this.vehicleEntryFactory = vehicleEntryFactory;
+		this.insertionSearch = insertionSearch;
+		this.insertionCostEstimator = insertionCostEstimator;
+		this.insertionRetryQueue = insertionRetryQueue;
+		this.drtOfferAcceptor = drtOfferAcceptor;
+		this.forkJoinPool = forkJoinPool;
+		this.stopDurationProvider = stopDurationProvider;
+		this.requestFleetFilter = requestFleetFilter;
+		this.params = params;
+		this.matsimServices = matsimServices;
+	}
+
+	private static double estimateInsertionCost(InsertionGenerator insertionGenerator,
+			InsertionCostCalculator insertionCostCalculator, DrtRequest request, VehicleEntry vehicleEntry) {
+		double bestCost = INFEASIBLE_SOLUTION_COST;
+		for (InsertionWithDetourData insertion : insertionGenerator.generateInsertions(request, vehicleEntry)) {
+			bestCost = Math.min(bestCost,
+					insertionCostCalculator.calculate(request, insertion.insertion, insertion.detourTimeInfo));
+		}
+		return bestCost;
+	}
+
+	@Override
+	public boolean isSchedulingTime(double now) {
+		return now % params.batchInterval == 0;
+	}
+
+	@Override
+	public void scheduleUnplannedRequests(Collection<DrtRequest> unplannedRequests) {
+		double now = timeOfDay.getAsDouble();
+		if (!isSchedulingTime(now)) {
+			return;// the requests remain unplanned until the next batch
+		}
+
+		List<DrtRequest> requests = new ArrayList<>(insertionRetryQueue.getRequestsToRetryNow(now));
+		requests.addAll(unplannedRequests);
+		unplannedRequests.clear();
+		if (requests.isEmpty()) {
+			return;
+		}
+
+		long startTime = System.nanoTime();
+		Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries = forkJoinPool.submit(() -> fleet.getVehicles()
+				.values()
+				.parallelStream()
+				.map(v -> vehicleEntryFactory.create(v, now))
+				.filter(Objects::nonNull)
+				.collect(Collectors.toMap(e -> e.vehicle.getId(), e -> e))).join();
+
+		// request fleet filters are not necessarily thread safe
+		List<BatchRequest> openRequests = new ArrayList<>(requests.size());
+		for (DrtRequest request : requests) {
+			openRequests.add(new BatchRequest(request, requestFleetFilter.filter(request, vehicleEntries, now)));
+		}
+		forkJoinPool.submit(() -> openRequests.parallelStream().forEach(BatchRequest::calcCosts)).join();
+		long matrixTime = System.nanoTime() - startTime;
+
+		int scheduledRequests = 0;
+		while (true) {
+			for (Iterator<BatchRequest> iter = openRequests.iterator(); iter.hasNext(); ) {
+				BatchRequest batchRequest = iter.next();
+				if (batchRequest.bestVehicleId == null) {
+					retryOrReject(batchRequest.request, now, NO_INSERTION_FOUND_CAUSE);
+					iter.remove();
+				}
+			}
+			if (openRequests.isEmpty()) {
+				break;
+			}
+
+			BatchRequest next = openRequests.get(0);
+			for (BatchRequest batchRequest : openRequests) {
+				if (isPreferred(batchRequest, next)) {
+					next = batchRequest;
+				}
+			}
+
+			Id<DvrpVehicle> vehicleId = next.bestVehicleId;
+			Optional<InsertionWithDetourData> insertion = insertionSearch.findBestInsertion(next.request,
+					List.of(vehicleEntries.get(vehicleId)));
+			if (insertion.isEmpty()) {
+				// the estimated insertion is not feasible
+				next.updateCost(vehicleId, null);
+				continue;
+			}
+
+			openRequests.remove(next);
+			if (scheduleRequest(next.request, insertion.get(), vehicleEntries, now)) {
+				scheduledRequests++;
+				VehicleEntry newVehicleEntry = vehicleEntries.get(vehicleId);
+				forkJoinPool.submit(() -> openRequests.parallelStream()
+						.forEach(r -> r.updateCost(vehicleId, newVehicleEntry))).join();
+			}
+		}
+
+		var stats = new BatchStats(now, requests.size(), scheduledRequests, (System.nanoTime() - startTime) / 1e6,
+				matrixTime / 1e6);
+		batchStats.add(stats);
+		log.debug("Batch insertion at {}: {}/{} requests scheduled in {} ms ({} ms for the cost matrix)", stats.time,
+				stats.scheduledRequests, stats.requests, stats.solverTime, stats.matrixTime);
+	}
+
+	private boolean isPreferred(BatchRequest batchRequest, BatchRequest other) {
+		if (params.useRegret) {
+			double regret = batchRequest.secondBestCost - batchRequest.bestCost;
+			double otherRegret = other.secondBestCost - other.bestCost;
+			if (regret != otherRegret) {
+				return regret > otherRegret;
+			}
+		}
+		return batchRequest.bestCost < other.bestCost;
+	}
+
+	private boolean scheduleRequest(DrtRequest req, InsertionWithDetourData insertion,
+			Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries, double now) {
+		// accept offered drt ride
+		var acceptedRequest = drtOfferAcceptor.acceptDrtOffer(req,
+				insertion.detourTimeInfo.pickupDetourInfo.departureTime,
+				insertion.detourTimeInfo.dropoffDetourInfo.arrivalTime);
+		if (acceptedRequest.isEmpty()) {
+			retryOrReject(req, now, OFFER_REJECTED_CAUSE);
+			return false;
+		}
+
+		var vehicle = insertion.insertion.vehicleEntry.vehicle;
+		var pickupDropoffTaskPair = insertionScheduler.scheduleRequest(acceptedRequest.get(), insertion);
+
+		VehicleEntry newVehicleEntry = vehicleEntryFactory.create(vehicle, now);
+		if (newVehicleEntry != null) {
+			vehicleEntries.put(vehicle.getId(), newVehicleEntry);
+		} else {
+			vehicleEntries.remove(vehicle.getId());
+		}
+
+		double expectedPickupTime = pickupDropoffTaskPair.pickupTask.getBeginTime();
+		expectedPickupTime = Math.max(expectedPickupTime, acceptedRequest.get().getEarliestStartTime());
+		expectedPickupTime += stopDurationProvider.calcPickupDuration(vehicle, req);
+
+		double expectedDropoffTime = pickupDropoffTaskPair.dropoffTask.getBeginTime();
+		expectedDropoffTime += stopDurationProvider.calcDropoffDuration(vehicle, req);
+
+		eventsManager.processEvent(
+				new PassengerRequestScheduledEvent(now, mode, req.getId(), req.getPassengerIds(), vehicle.getId(),
+						expectedPickupTime, expectedDropoffTime));
+		return true;
+	}
+
+	private void retryOrReject(DrtRequest req, double now, String cause) {
+		if (!insertionRetryQueue.tryAddFailedRequest(req, now)) {
+			eventsManager.processEvent(
+					new PassengerRequestRejectedEvent(now, mode, req.getId(), req.getPassengerIds(), cause));
+		}
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent event) {
+		if (batchStats.isEmpty()) {
+			return;
+		}
+		double totalSolverTime = batchStats.stream().mapToDouble(s -> s.solverTime).sum();
+		double maxSolverTime = batchStats.stream().mapToDouble(s -> s.solverTime).max().orElseThrow();
+		int totalRequests = batchStats.stream().mapToInt(s -> s.requests).sum();
+		log.info("Batch insertion ({}): {} batches with {} requests, solver time: total {} ms, max {} ms per batch", mode,
+				batchStats.size(), totalRequests, totalSolverTime, maxSolverTime);
+
+		String filename = matsimServices.getControlerIO()
+				.getIterationFilename(matsimServices.getIterationNumber(), mode + "_batch_insertion_stats.csv");
+		try (CSVWriter writer = new CSVWriter(Files.newBufferedWriter(Paths.get(filename)), ';', '"', '"', "\n")) {
+			writer.writeNext(new String[] { "time", "requests", "scheduled", "solver_time_ms", "matrix_time_ms" },
+					false);
+			for (BatchStats stats : batchStats) {
+				writer.writeNext(new String[] { stats.time + "", stats.requests + "", stats.scheduledRequests + "",
+						stats.solverTime + "", stats.matrixTime + "" }, false);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@VisibleForTesting
+	List<BatchStats> getBatchStats() {
+		return batchStats;
+	}
+
+	@VisibleForTesting
+	record BatchStats(double time, int requests, int scheduledRequests, double solverTime, double matrixTime) {
+	}
+
+	/**
+	 * A request of the current batch with its row of the cost matrix (only feasible insertions are stored).
+	 */
+	private final class BatchRequest {
+		private final DrtRequest request;
+		private final Collection<VehicleEntry> candidates;
+		private final Set<Id<DvrpVehicle>> candidateIds = new HashSet<>();
+		private final Map<Id<DvrpVehicle>, Double> costs = new HashMap<>();
+
+		private Id<DvrpVehicle> bestVehicleId;
+		private double bestCost;
+		private double secondBestCost;
+
+		private BatchRequest(DrtRequest request, Collection<VehicleEntry> candidates) {
+			this.request = request;
+			this.candidates = candidates;
+		}
+
+		private void calcCosts() {
+			for (VehicleEntry vehicleEntry : candidates) {
+				candidateIds.add(vehicleEntry.vehicle.getId());
+				double cost = insertionCostEstimator.applyAsDouble(request, vehicleEntry);
+				if (cost < INFEASIBLE_SOLUTION_COST) {
+					costs.put(vehicleEntry.vehicle.getId(), cost);
+				}
+			}
+			updateBestCosts();
+		}
+
+		private void updateCost(Id<DvrpVehicle> vehicleId, VehicleEntry vehicleEntry) {
+			if (!candidateIds.contains(vehicleId)) {
+				return;
+			}
+			double cost = vehicleEntry == null ?
+					INFEASIBLE_SOLUTION_COST :
+					insertionCostEstimator.applyAsDouble(request, vehicleEntry);
+			if (cost < INFEASIBLE_SOLUTION_COST) {
+				costs.put(vehicleId, cost);
+			} else if (costs.remove(vehicleId) == null) {
+				return;// nothing changed
+			}
+			updateBestCosts();
+		}
+
+		private void updateBestCosts() {
+			bestVehicleId = null;
+			bestCost = Double.POSITIVE_INFINITY;
+			secondBestCost = Double.POSITIVE_INFINITY;
+			for (Map.Entry<Id<DvrpVehicle>, Double> e : costs.entrySet()) {
+				double cost = e.getValue();
+				if (bestVehicleId == null || cost < bestCost || (cost == bestCost
+						&& e.getKey().compareTo(bestVehicleId) < 0)) {
+					secondBestCost = bestCost;
+					bestCost = cost;
+					bestVehicleId = e.getKey();
+				} else if (cost < secondBestCost) {
+					secondBestCost = cost;
+				}
+			}
+		}
+	}
+}
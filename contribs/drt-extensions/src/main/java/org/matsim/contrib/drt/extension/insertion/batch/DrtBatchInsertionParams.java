@@ -0,0 +1,60 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.drt.extension.insertion.batch;
+
+import com.google.common.base.Verify;
+import jakarta.validation.constraints.Positive;
+import org.matsim.contrib.common.util.ReflectiveConfigGroupWithConfigurableParameterSets;
+import org.matsim.core.config.Config;
+
+/**
+ * Parameters of the {@link BatchUnplannedRequestInserter}.
+ */
+public class DrtBatchInsertionParams extends ReflectiveConfigGroupWithConfigurableParameterSets {
+
+	public static final String SET_NAME = "batchInsertion";
+
+	public DrtBatchInsertionParams() {
+		super(SET_NAME);
+	}
+
+	@Parameter
+	@Positive
+	@Comment("Requests are collected and inserted jointly every batchInterval seconds (whenever the simulation time is"
+			+ " a multiple of it). Longer intervals give the assignment more choice, but increase the wait times.")
+	public int batchInterval = 30;
+
+	@Parameter
+	@Comment("If true, the request with the highest regret (the cost difference between its best and second best vehicle)"
+			+ " is inserted first. If false, the cheapest request-vehicle pair is inserted first (greedy).")
+	public boolean useRegret = true;
+
+	@Parameter
+	@Positive
+	@Comment("Speed factor applied to the travel times of the travel time matrix when estimating the detour times for the"
+			+ " request x vehicle cost matrix. Values below 1.0 make the estimates more restrictive.")
+	public double detourTimeEstimationSpeedFactor = 1.0;
+
+	@Override
+	protected void checkConsistency(Config config) {
+		super.checkConsistency(config);
+		Verify.verify(batchInterval > 0, "Batch interval must be positive");
+		Verify.verify(detourTimeEstimationSpeedFactor > 0, "Detour time estimation speed factor must be positive");
+	}
+}
@@ -0,0 +1,61 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.extension.insertion.waypointFilter;
+
+import com.google.common.base.Verify;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Positive;
+import org.matsim.contrib.common.util.ReflectiveConfigGroupWithConfigurableParameterSets;
+import org.matsim.core.config.Config;
+
+/**
+ * Parameters of the {@link WaypointRequestFleetFilter}.
+ */
+public class DrtWaypointRequestFleetFilterParams extends ReflectiveConfigGroupWithConfigurableParameterSets {
+
+	public static final String SET_NAME = "waypointRequestFleetFilter";
+
+	public DrtWaypointRequestFleetFilterParams() {
+		super(SET_NAME);
+	}
+
+	@Parameter
+	@Positive
+	@Comment("Size of the grid cells in which the waypoints of the vehicles are indexed, in map units (meters in most projections).")
+	public double cellSize = 1000;
+
+	@Parameter
+	@DecimalMin("1.0")
+	@Comment("The travel times of the travel time matrix are divided by this factor to estimate the travel time from a waypoint"
+			+ " to the pickup link. Zonal matrices are not a lower bound of the travel times between nodes close to the zone"
+			+ " borders, so the default of 2.0 only filters out vehicles if the matrix travel time is more than twice the time"
+			+ " left until the latest start time. Increase it (or set it to Infinity, which disables the matrix and only uses"
+			+ " the beeline distance at the highest free speed) if the zones are large compared to the distance that can be"
+			+ " driven within the max wait time, or if the matrix may overestimate the travel times, e.g. because of"
+			+ " congestion in the matrix or network change events increasing the speed. Must be at least 1.0.")
+	public double admissibleSpeedFactor = 2.0;
+
+	@Override
+	protected void checkConsistency(Config config) {
+		super.checkConsistency(config);
+		Verify.verify(cellSize > 0, "Cell size must be positive");
+		Verify.verify(admissibleSpeedFactor >= 1.0, "Admissible speed factor must not be smaller than 1.0");
+	}
+}
@@ -0,0 +1,61 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.extension.insertion.waypointFilter;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.extension.DrtWithExtensionsConfigGroup;
+import org.matsim.contrib.drt.optimizer.insertion.CostCalculationStrategy;
+import org.matsim.contrib.drt.optimizer.insertion.RequestFleetFilter;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.dvrp.run.AbstractDvrpModeQSimModule;
+import org.matsim.contrib.zone.skims.TravelTimeMatrix;
+
+public class WaypointFilterInsertionSearchQSimModule extends AbstractDvrpModeQSimModule {
+
+	private final DrtWaypointRequestFleetFilterParams drtWaypointRequestFleetFilterParams;
+
+	public WaypointFilterInsertionSearchQSimModule(DrtConfigGroup drtCfg) {
+		super(drtCfg.getMode());
+		if (drtCfg instanceof DrtWithExtensionsConfigGroup withExtensionsConfigGroup &&
+			withExtensionsConfigGroup.getWaypointRequestFleetFilterParams().isPresent()) {
+			drtWaypointRequestFleetFilterParams = withExtensionsConfigGroup.getWaypointRequestFleetFilterParams().get();
+		} else {
+			throw new RuntimeException("Requires DrtWaypointRequestFleetFilterParams to be set. Use DrtWithExtensionsConfigGroup " +
+				"to do so.");
+		}
+		// the filter drops vehicles that cannot pick up the passenger before the latest start time
+		if (!drtCfg.addOrGetDrtOptimizationConstraintsParams().addOrGetDefaultDrtOptimizationConstraintsSet().rejectRequestIfMaxWaitOrTravelTimeViolated) {
+			throw new IllegalArgumentException("The waypoint request fleet filter of mode " + drtCfg.getMode() + " requires requests"
+				+ " violating the max wait time to be rejected (rejectRequestIfMaxWaitOrTravelTimeViolated = true).");
+		}
+	}
+
+	@Override
+	protected void configureQSim() {
+		bindModal(RequestFleetFilter.class).toProvider(modalProvider(getter -> {
+			if (!(getter.getModal(CostCalculationStrategy.class) instanceof CostCalculationStrategy.RejectSoftConstraintViolations)) {
+				throw new IllegalStateException("The waypoint request fleet filter of mode " + getMode() + " requires the "
+					+ CostCalculationStrategy.RejectSoftConstraintViolations.class.getSimpleName() + " cost calculation strategy.");
+			}
+			return new WaypointRequestFleetFilter(getter.getModal(Network.class), getter.getModal(TravelTimeMatrix.class),
+				drtWaypointRequestFleetFilterParams);
+		}));
+	}
+}
@@ -0,0 +1,247 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.extension.insertion.waypointFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.common.util.DistanceUtils;
+import org.matsim.contrib.drt.optimizer.VehicleEntry;
+import org.matsim.contrib.drt.optimizer.Waypoint;
+import org.matsim.contrib.drt.optimizer.insertion.RequestFleetFilter;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.zone.skims.TravelTimeMatrix;
+
+/**
+ * Filter that only returns vehicles which could reach the pickup link of a request before its latest start time, when
+ * leaving from any of their waypoints (start or stops) at the waypoint's departure time.
+ * <p>
+ * The waypoints of all vehicles are kept in a grid index. It is updated incrementally for the vehicles whose
+ * {@link VehicleEntry} changed since the last request, i.e. for all vehicles once per call of the unplanned request
+ * inserter and for the vehicle that got a request inserted after every insertion. For a request, only the grid cells
+ * that could be reached with the highest free speed of the network before the latest start time are searched. For
+ * each waypoint found there, the travel time to the pickup link is estimated by the beeline distance at the highest
+ * free speed, and by the {@link TravelTimeMatrix} travel time divided by the admissible speed factor.
+ * <p>
+ * The beeline distance at the highest free speed is a lower bound of the travel time, as long as no network change
+ * events increase the free speeds. The travel time matrix, however, is usually not a lower bound: zonal matrices
+ * contain the travel times between the central nodes of the zones, which may be larger than the travel times between
+ * nodes close to the zone borders. The admissible speed factor (2.0 by default) leaves a margin for this error; with a
+ * factor of infinity, the matrix is not used at all.
+ * <p>
+ * Vehicles that cannot pick up the passenger before the latest start time are filtered out, so this filter must only
+ * be used if such insertions are infeasible, i.e. with
+ * {@link org.matsim.contrib.drt.optimizer.insertion.CostCalculationStrategy.RejectSoftConstraintViolations}.
+ */
+public class WaypointRequestFleetFilter implements RequestFleetFilter {
+
+	private final TravelTimeMatrix travelTimeMatrix;
+	private final double admissibleSpeedFactor;
+	private final double maxSpeed;
+	private final double cellSize;
+
+	private final Map<Long, List<IndexedWaypoint>> cells = new HashMap<>();
+	private final Map<Id<DvrpVehicle>, IndexedVehicle> vehicles = new HashMap<>();
+	private int updateCount = 0;
+	private int queryCount = 0;
+
+	public WaypointRequestFleetFilter(Network network, TravelTimeMatrix travelTimeMatrix, DrtWaypointRequestFleetFilterParams params) {
+		this.travelTimeMatrix = travelTimeMatrix;
+		this.admissibleSpeedFactor = params.admissibleSpeedFactor;
+		this.cellSize = params.cellSize;
+		double maxSpeed = 0;
+		for (Link link : network.getLinks().values()) {
+			maxSpeed = Math.max(maxSpeed, link.getFreespeed());
+		}
+		this.maxSpeed = maxSpeed;
+	}
+
+	@Override
+	public Collection<VehicleEntry> filter(DrtRequest drtRequest, Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries, double now) {
+		update(vehicleEntries);
+
+		Link pickupLink = drtRequest.getFromLink();
+		double latestStartTime = drtRequest.getLatestStartTime();
+		List<VehicleEntry> result = new ArrayList<>();
+		this.queryCount++;
+
+		// all waypoints are left at now or later, so waypoints further away cannot reach the pickup in time
+		int range = (int) Math.ceil(Math.max(0, latestStartTime - now) * this.maxSpeed / this.cellSize);
+		if (range >= 1 << 15 || (2L * range + 1) * (2L * range + 1) >= this.cells.size()) {
+			for (List<IndexedWaypoint> cell : this.cells.values()) {
+				collect(cell, pickupLink, latestStartTime, result);
+			}
+		} else {
+			Coord coord = pickupLink.getFromNode().getCoord();
+			int cellX = getCellIndex(coord.getX());
+			int cellY = getCellIndex(coord.getY());
+			for (int x = cellX - range; x <= cellX + range; x++) {
+				for (int y = cellY - range; y <= cellY + range; y++) {
+					List<IndexedWaypoint> cell = this.cells.get(getCellKey(x, y));
+					if (cell != null) {
+						collect(cell, pickupLink, latestStartTime, result);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private void collect(List<IndexedWaypoint> cell, Link pickupLink, double latestStartTime, List<VehicleEntry> result) {
+		for (IndexedWaypoint waypoint : cell) {
+			IndexedVehicle vehicle = waypoint.vehicle;
+			if (vehicle.lastQuery != this.queryCount && canReachInTime(waypoint, pickupLink, latestStartTime)) {
+				vehicle.lastQuery = this.queryCount;
+				result.add(vehicle.entry);
+			}
+		}
+	}
+
+	private boolean canReachInTime(IndexedWaypoint waypoint, Link pickupLink, double latestStartTime) {
+		if (waypoint.departureTime > latestStartTime) {
+			return false;
+		}
+		if (waypoint.link == pickupLink) {
+			return true;
+		}
+		double beelineDistance = DistanceUtils.calculateDistance(waypoint.link.getToNode(), pickupLink.getFromNode());
+		if (waypoint.departureTime + beelineDistance / this.maxSpeed > latestStartTime) {
+			return false;
+		}
+		if (Double.isInfinite(this.admissibleSpeedFactor)) {
+			return true;
+		}
+		double travelTime = this.travelTimeMatrix.getTravelTime(waypoint.link.getToNode(), pickupLink.getFromNode(), waypoint.departureTime);
+		return waypoint.departureTime + travelTime / this.admissibleSpeedFactor <= latestStartTime;
+	}
+
+	private void update(Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries) {
+		this.updateCount++;
+		for (VehicleEntry entry : vehicleEntries.values()) {
+			IndexedVehicle vehicle = this.vehicles.computeIfAbsent(entry.vehicle.getId(), id -> new IndexedVehicle());
+			vehicle.lastUpdate = this.updateCount;
+			if (vehicle.entry != entry) {
+				reindex(vehicle, entry);
+			}
+		}
+		if (this.vehicles.size() > vehicleEntries.size()) {
+			// some vehicles have no entry anymore, e.g. because they are out of service
+			for (Iterator<IndexedVehicle> iter = this.vehicles.values().iterator(); iter.hasNext(); ) {
+				IndexedVehicle vehicle = iter.next();
+				if (vehicle.lastUpdate != this.updateCount) {
+					for (IndexedWaypoint waypoint : vehicle.waypoints) {
+						remove(waypoint);
+					}
+					iter.remove();
+				}
+			}
+		}
+	}
+
+	private void reindex(IndexedVehicle vehicle, VehicleEntry entry) {
+		vehicle.entry = entry;
+		List<IndexedWaypoint> waypoints = vehicle.waypoints;
+		int count = entry.stops.size() + 1;
+		for (int i = 0; i < count; i++) {
+			Waypoint waypoint = i == 0 ? entry.start : entry.stops.get(i - 1);
+			Link link = waypoint.getLink();
+			long cellKey = getCellKey(link);
+			if (i < waypoints.size()) {
+				IndexedWaypoint indexed = waypoints.get(i);
+				if (indexed.cellKey != cellKey) {
+					remove(indexed);
+					indexed.cellKey = cellKey;
+					add(indexed);
+				}
+				indexed.link = link;
+				indexed.departureTime = waypoint.getDepartureTime();
+			} else {
+				IndexedWaypoint indexed = new IndexedWaypoint(vehicle, link, waypoint.getDepartureTime(), cellKey);
+				add(indexed);
+				waypoints.add(indexed);
+			}
+		}
+		while (waypoints.size() > count) {
+			remove(waypoints.remove(waypoints.size() - 1));
+		}
+	}
+
+	private void add(IndexedWaypoint waypoint) {
+		List<IndexedWaypoint> cell = this.cells.computeIfAbsent(waypoint.cellKey, key -> new ArrayList<>());
+		waypoint.indexInCell = cell.size();
+		cell.add(waypoint);
+	}
+
+	private void remove(IndexedWaypoint waypoint) {
+		List<IndexedWaypoint> cell = this.cells.get(waypoint.cellKey);
+		IndexedWaypoint last = cell.remove(cell.size() - 1);
+		if (last != waypoint) {
+			cell.set(waypoint.indexInCell, last);
+			last.indexInCell = waypoint.indexInCell;
+		}
+		if (cell.isEmpty()) {
+			this.cells.remove(waypoint.cellKey);
+		}
+	}
+
+	private long getCellKey(Link link) {
+		Coord coord = link.getToNode().getCoord();
+		return getCellKey(getCellIndex(coord.getX()), getCellIndex(coord.getY()));
+	}
+
+	private int getCellIndex(double coordinate) {
+		return (int) Math.floor(coordinate / this.cellSize);
+	}
+
+	private static long getCellKey(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+
+	private static final class IndexedVehicle {
+		private VehicleEntry entry;
+		private final List<IndexedWaypoint> waypoints = new ArrayList<>();
+		private int lastUpdate;
+		private int lastQuery;
+	}
+
+	private static final class IndexedWaypoint {
+		private final IndexedVehicle vehicle;
+		private Link link;
+		private double departureTime;
+		private long cellKey;
+		private int indexInCell;
+
+		private IndexedWaypoint(IndexedVehicle vehicle, Link link, double departureTime, long cellKey) {
+			this.vehicle = vehicle;
+			this.link = link;
+			this.departureTime = departureTime;
+			this.cellKey = cellKey;
+		}
+	}
+}
@@ -57,20 +57,24 @@ public class ShiftBreakTaskImpl extends DefaultStayTask implements ShiftBreakTas
 	@Override
 	public void addDropoffRequest(AcceptedDrtRequest request) {
 		delegate.addDropoffRequest(request);
+		markScheduleModified();
 	}
 
 	@Override
 	public void addPickupRequest(AcceptedDrtRequest request) {
 		delegate.addPickupRequest(request);
+		markScheduleModified();
 	}
 
 	@Override
 	public void removePickupRequest(Id<Request> requestId) {
 		delegate.removePickupRequest(requestId);
+		markScheduleModified();
 	}
 
 	@Override
 	public void removeDropoffRequest(Id<Request> requestId) {
 		delegate.removeDropoffRequest(requestId);
+		markScheduleModified();
 	}
 }
@@ -58,21 +58,25 @@ public class ShiftChangeoverTaskImpl extends DefaultStayTask implements ShiftCha
 	@Override
 	public void addDropoffRequest(AcceptedDrtRequest request) {
 		delegate.addDropoffRequest(request);
+		markScheduleModified();
 	}
 
 	@Override
 	public void addPickupRequest(AcceptedDrtRequest request) {
 		delegate.addPickupRequest(request);
+		markScheduleModified();
 	}
 
 	@Override
 	public void removePickupRequest(Id<Request> requestId) {
 		delegate.removePickupRequest(requestId);
+		markScheduleModified();
 	}
 
 	@Override
 	public void removeDropoffRequest(Id<Request> requestId) {
 		delegate.removeDropoffRequest(requestId);
+		markScheduleModified();
 	}
 }
 
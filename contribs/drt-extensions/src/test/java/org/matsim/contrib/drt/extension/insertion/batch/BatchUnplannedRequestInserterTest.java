@@ -0,0 +1,220 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.drt.extension.insertion.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter.NO_INSERTION_FOUND_CAUSE;
+import static org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator.INFEASIBLE_SOLUTION_COST;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Identifiable;
+import org.matsim.contrib.drt.optimizer.DrtRequestInsertionRetryParams;
+import org.matsim.contrib.drt.optimizer.DrtRequestInsertionRetryQueue;
+import org.matsim.contrib.drt.optimizer.VehicleEntry;
+import org.matsim.contrib.drt.optimizer.insertion.DrtInsertionSearch;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionDetourTimeCalculator;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionGenerator;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionWithDetourData;
+import org.matsim.contrib.drt.optimizer.insertion.RequestFleetFilter;
+import org.matsim.contrib.drt.passenger.AcceptedDrtRequest;
+import org.matsim.contrib.drt.passenger.DefaultOfferAcceptor;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.schedule.DefaultDrtStopTask;
+import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
+import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler.PickupDropoffTaskPair;
+import org.matsim.contrib.drt.stops.StaticPassengerStopDurationProvider;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.Fleet;
+import org.matsim.contrib.dvrp.load.IntegerLoadType;
+import org.matsim.contrib.dvrp.optimizer.Request;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.testcases.fakes.FakeLink;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.collect.ImmutableMap;
+
+public class BatchUnplannedRequestInserterTest {
+	private static final String mode = "DRT_MODE";
+
+	private final EventsManager eventsManager = mock(EventsManager.class);
+	private final IntegerLoadType loadType = new IntegerLoadType("passengers");
+	private final ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+
+	private final DrtRequest request1 = request("r1");
+	private final DrtRequest request2 = request("r2");
+	private final DvrpVehicle vehicle1 = vehicle("v1");
+	private final DvrpVehicle vehicle2 = vehicle("v2");
+
+	// each vehicle can serve one request: r1 is almost equally cheap with both vehicles, r2 is much cheaper with v1
+	private final Map<String, Double> costs = Map.of(//
+			"r1-v1", 10., "r1-v2", 11., //
+			"r2-v1", 12., "r2-v2", 30.);
+
+	private final Set<DvrpVehicle> occupiedVehicles = new HashSet<>();
+	private final Map<DrtRequest, DvrpVehicle> assignments = new LinkedHashMap<>();
+
+	@AfterEach
+	void shutdownPool() {
+		forkJoinPool.shutdown();
+	}
+
+	@Test
+	void noDispatchBetweenBatches() {
+		var unplannedRequests = requests(request1, request2);
+		var inserter = newInserter(15, true);
+		assertThat(inserter.isSchedulingTime(15)).isFalse();
+		assertThat(inserter.isSchedulingTime(30)).isTrue();
+		inserter.scheduleUnplannedRequests(unplannedRequests);
+
+		//requests are kept until the next batch
+		assertThat(unplannedRequests).containsExactly(request1, request2);
+		assertThat(assignments).isEmpty();
+		assertThat(inserter.getBatchStats()).isEmpty();
+	}
+
+	@Test
+	void regretBasedAssignment() {
+		var unplannedRequests = requests(request1, request2);
+		var inserter = newInserter(60, true);
+		inserter.scheduleUnplannedRequests(unplannedRequests);
+
+		assertThat(unplannedRequests).isEmpty();
+		//r2 has the higher regret (18 vs 1), so it gets v1 first; total cost: 23
+		assertThat(assignments).containsExactly(Map.entry(request2, vehicle1), Map.entry(request1, vehicle2));
+		assertThat(inserter.getBatchStats()).singleElement().satisfies(stats -> {
+			assertThat(stats.time()).isEqualTo(60);
+			assertThat(stats.requests()).isEqualTo(2);
+			assertThat(stats.scheduledRequests()).isEqualTo(2);
+		});
+	}
+
+	@Test
+	void greedyAssignment() {
+		var unplannedRequests = requests(request1, request2);
+		newInserter(60, false).scheduleUnplannedRequests(unplannedRequests);
+
+		//the cheapest pair (r1, v1) is assigned first; total cost: 40
+		assertThat(assignments).containsExactly(Map.entry(request1, vehicle1), Map.entry(request2, vehicle2));
+	}
+
+	@Test
+	void noFeasibleVehicle_rejected() {
+		var request3 = request("r3");//no costs defined -> infeasible
+		var unplannedRequests = requests(request1, request3);
+		newInserter(60, true).scheduleUnplannedRequests(unplannedRequests);
+
+		assertThat(assignments).containsExactly(Map.entry(request1, vehicle1));
+
+		ArgumentCaptor<PassengerRequestRejectedEvent> captor = ArgumentCaptor.forClass(
+				PassengerRequestRejectedEvent.class);
+		verify(eventsManager, times(1)).processEvent(captor.capture());
+		assertThat(captor.getValue()).usingRecursiveComparison()
+				.isEqualTo(new PassengerRequestRejectedEvent(60, mode, request3.getId(), request3.getPassengerIds(),
+						NO_INSERTION_FOUND_CAUSE));
+	}
+
+	private BatchUnplannedRequestInserter newInserter(double now, boolean useRegret) {
+		var params = new DrtBatchInsertionParams();
+		params.batchInterval = 30;
+		params.useRegret = useRegret;
+
+		VehicleEntry.EntryFactory entryFactory = (vehicle, currentTime) -> new VehicleEntry(vehicle, null, null, null,
+				null, 0);
+
+		DrtInsertionSearch insertionSearch = (drtRequest, vEntries) -> {
+			assertThat(vEntries).hasSize(1);
+			var vEntry = vEntries.iterator().next();
+			return occupiedVehicles.contains(vEntry.vehicle) ?
+					Optional.empty() :
+					Optional.of(new InsertionWithDetourData(
+							new InsertionGenerator.Insertion(vEntry, null, null, loadType.fromInt(1)), null,
+							new InsertionDetourTimeCalculator.DetourTimeInfo(
+									mock(InsertionDetourTimeCalculator.PickupDetourInfo.class),
+									mock(InsertionDetourTimeCalculator.DropoffDetourInfo.class))));
+		};
+
+		RequestInsertionScheduler insertionScheduler = (request, insertion) -> {
+			var vehicle = insertion.insertion.vehicleEntry.vehicle;
+			occupiedVehicles.add(vehicle);
+			assignments.put(request.getRequest(), vehicle);
+			var acceptedRequest = AcceptedDrtRequest.createFromOriginalRequest(request.getRequest());
+			var pickupTask = new DefaultDrtStopTask(now + 10, now + 20, request.getFromLink());
+			pickupTask.addPickupRequest(acceptedRequest);
+			var dropoffTask = new DefaultDrtStopTask(now + 40, now + 50, request.getToLink());
+			dropoffTask.addDropoffRequest(acceptedRequest);
+			return new PickupDropoffTaskPair(pickupTask, dropoffTask);
+		};
+
+		return new BatchUnplannedRequestInserter(mode, fleet(vehicle1, vehicle2), () -> now, eventsManager,
+				insertionScheduler, entryFactory, insertionSearch, this::estimateCost,
+				new DrtRequestInsertionRetryQueue(new DrtRequestInsertionRetryParams()), new DefaultOfferAcceptor(),
+				forkJoinPool, StaticPassengerStopDurationProvider.of(10.0, 0.0), RequestFleetFilter.none, params, null);
+	}
+
+	private double estimateCost(DrtRequest request, VehicleEntry vehicleEntry) {
+		if (occupiedVehicles.contains(vehicleEntry.vehicle)) {
+			return INFEASIBLE_SOLUTION_COST;
+		}
+		return costs.getOrDefault(request.getId() + "-" + vehicleEntry.vehicle.getId(), INFEASIBLE_SOLUTION_COST);
+	}
+
+	private Collection<DrtRequest> requests(DrtRequest... requests) {
+		return new ArrayList<>(Arrays.asList(requests));//returned collection needs to be modifiable
+	}
+
+	private Fleet fleet(DvrpVehicle... vehicles) {
+		var map = Arrays.stream(vehicles).collect(ImmutableMap.toImmutableMap(Identifiable::getId, v -> v));
+		return () -> map;
+	}
+
+	private DvrpVehicle vehicle(String vehicleId) {
+		var id = Id.create(vehicleId, DvrpVehicle.class);
+		var vehicle = mock(DvrpVehicle.class);
+		when(vehicle.getId()).thenReturn(id);
+		return vehicle;
+	}
+
+	private DrtRequest request(String id) {
+		return DrtRequest.newBuilder()
+				.id(Id.create(id, Request.class))
+				.passengerIds(List.of(Id.createPersonId(id)))
+				.fromLink(new FakeLink(Id.createLinkId("from_" + id)))
+				.toLink(new FakeLink(Id.createLinkId("to_" + id)))
+				.mode(mode)
+				.build();
+	}
+}
@@ -0,0 +1,255 @@
+package org.matsim.contrib.drt.extension.insertion.waypointFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.common.util.DistanceUtils;
+import org.matsim.contrib.drt.extension.DrtWithExtensionsConfigGroup;
+import org.matsim.contrib.drt.optimizer.VehicleEntry;
+import org.matsim.contrib.drt.optimizer.Waypoint;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.schedule.DefaultDrtStopTask;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.Fleet;
+import org.matsim.contrib.dvrp.fleet.FleetSpecificationImpl;
+import org.matsim.contrib.dvrp.fleet.Fleets;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.contrib.dvrp.load.IntegersLoadType;
+import org.matsim.contrib.dvrp.optimizer.Request;
+import org.matsim.contrib.zone.skims.TravelTimeMatrix;
+import org.matsim.core.network.NetworkUtils;
+
+import com.google.common.collect.ImmutableList;
+
+public class WaypointRequestFleetFilterTest {
+
+	private static final IntegersLoadType loadType = new IntegersLoadType("passengers");
+
+	private static final double FREESPEED = 10;
+
+	@Test
+	void testFilterByBeelineAndMatrix() {
+		Network network = NetworkUtils.createNetwork();
+		Node n0 = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0, 0));
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(500, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(10000, 0));
+		Link pickupLink = addLink(network, "pickup", n0, n1);
+		Link nearLink = addLink(network, "near", n1, n0);
+		Link midLink = addLink(network, "mid", n2, n1);
+		Link farLink = addLink(network, "far", n1, n2);
+
+		Fleet fleet = getFleet(nearLink, 3);
+		Map<Id<DvrpVehicle>, VehicleEntry> entries = new HashMap<>();
+		addEntry(entries, fleet, 0, nearLink, 0);
+		addEntry(entries, fleet, 1, midLink, 0);
+		addEntry(entries, fleet, 2, farLink, 0);
+
+		DrtRequest request = request(pickupLink, 100);
+
+		// the mid vehicle is within beeline reach, but too slow according to the matrix
+		TravelTimeMatrix slowFromN1 = (fromNode, toNode, departureTime) -> fromNode == n1 ? 1000 : 0;
+		Collection<VehicleEntry> filtered = new WaypointRequestFleetFilter(network, slowFromN1, params(1000)).filter(request, entries, 0);
+		Assertions.assertThat(filtered).containsExactlyInAnyOrder(entries.get(vehicleId(0)));
+
+		Collection<VehicleEntry> filteredBeeline = new WaypointRequestFleetFilter(network, beelineMatrix(), params(1000)).filter(request, entries, 0);
+		Assertions.assertThat(filteredBeeline).containsExactlyInAnyOrder(entries.get(vehicleId(0)), entries.get(vehicleId(1)));
+
+		// by default, the matrix travel times are halved
+		DrtWaypointRequestFleetFilterParams defaultParams = new DrtWaypointRequestFleetFilterParams();
+		defaultParams.cellSize = 1000;
+		TravelTimeMatrix slightlySlowFromN1 = (fromNode, toNode, departureTime) -> fromNode == n1 ? 150 : 0;
+		Collection<VehicleEntry> filteredDefault = new WaypointRequestFleetFilter(network, slightlySlowFromN1, defaultParams).filter(request, entries, 0);
+		Assertions.assertThat(filteredDefault).containsExactlyInAnyOrder(entries.get(vehicleId(0)), entries.get(vehicleId(1)));
+		Collection<VehicleEntry> filteredDefaultSlow = new WaypointRequestFleetFilter(network, slowFromN1, defaultParams).filter(request, entries, 0);
+		Assertions.assertThat(filteredDefaultSlow).containsExactlyInAnyOrder(entries.get(vehicleId(0)));
+		Collection<VehicleEntry> filteredExact = new WaypointRequestFleetFilter(network, slightlySlowFromN1, params(1000)).filter(request, entries, 0);
+		Assertions.assertThat(filteredExact).containsExactlyInAnyOrder(entries.get(vehicleId(0)));
+	}
+
+	@Test
+	void testRequiresRejectingRequestsViolatingMaxWaitTime() {
+		DrtWithExtensionsConfigGroup drtCfg = new DrtWithExtensionsConfigGroup();
+		drtCfg.addParameterSet(new DrtWaypointRequestFleetFilterParams());
+		new WaypointFilterInsertionSearchQSimModule(drtCfg);
+
+		drtCfg.addOrGetDrtOptimizationConstraintsParams().addOrGetDefaultDrtOptimizationConstraintsSet().rejectRequestIfMaxWaitOrTravelTimeViolated = false;
+		Assertions.assertThatThrownBy(() -> new WaypointFilterInsertionSearchQSimModule(drtCfg))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void testStopsAndIncrementalUpdates() {
+		Network network = NetworkUtils.createNetwork();
+		Node n0 = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0, 0));
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(10000, 0));
+		Link pickupLink = addLink(network, "pickup", n0, n1);
+		Link nearLink = addLink(network, "near", n1, n0);
+		Link farLink = addLink(network, "far", n0, n1);
+
+		Fleet fleet = getFleet(farLink, 2);
+		Map<Id<DvrpVehicle>, VehicleEntry> entries = new HashMap<>();
+		addEntry(entries, fleet, 0, farLink, 0);
+		addEntry(entries, fleet, 1, farLink, 0);
+
+		WaypointRequestFleetFilter filter = new WaypointRequestFleetFilter(network, beelineMatrix(), params(100));
+		DrtRequest request = request(pickupLink, 100);
+		Assertions.assertThat(filter.filter(request, entries, 0)).isEmpty();
+
+		// vehicle 0 gets a stop close to the pickup, but leaves it too late
+		addEntry(entries, fleet, 0, farLink, 0, stop(nearLink, 200));
+		Assertions.assertThat(filter.filter(request, entries, 0)).isEmpty();
+
+		// vehicle 0 now leaves the stop in time
+		addEntry(entries, fleet, 0, farLink, 0, stop(nearLink, 50));
+		Assertions.assertThat(filter.filter(request, entries, 0)).containsExactly(entries.get(vehicleId(0)));
+
+		// vehicle 1 moved close to the pickup, vehicle 0 has no stops anymore
+		addEntry(entries, fleet, 0, farLink, 0);
+		addEntry(entries, fleet, 1, nearLink, 0);
+		Assertions.assertThat(filter.filter(request, entries, 0)).containsExactly(entries.get(vehicleId(1)));
+
+		// vehicle 1 is not available anymore
+		entries.remove(vehicleId(1));
+		Assertions.assertThat(filter.filter(request, entries, 0)).isEmpty();
+	}
+
+	@Test
+	void testSameResultAsFullScan() {
+		Network network = NetworkUtils.createNetwork();
+		List<Link> links = new ArrayList<>();
+		int size = 40;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 250, y * 250));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					Node east = network.getNodes().get(Id.createNodeId((x + 1) + "_" + y));
+					links.add(addLink(network, node.getId() + "e", node, east));
+					links.add(addLink(network, node.getId() + "w", east, node));
+				}
+				if (y + 1 < size) {
+					Node north = network.getNodes().get(Id.createNodeId(x + "_" + (y + 1)));
+					links.add(addLink(network, node.getId() + "n", node, north));
+					links.add(addLink(network, node.getId() + "s", north, node));
+				}
+			}
+		}
+
+		Random random = new Random(42);
+		int vehicleCount = 200;
+		Fleet fleet = getFleet(links.get(0), vehicleCount);
+		Map<Id<DvrpVehicle>, VehicleEntry> entries = new HashMap<>();
+		TravelTimeMatrix matrix = (fromNode, toNode, departureTime) -> (int) (1.3 * DistanceUtils.calculateDistance(fromNode, toNode) / FREESPEED);
+		WaypointRequestFleetFilter filter = new WaypointRequestFleetFilter(network, matrix, params(300));
+
+		// the entries not updated in a round must not depart before now
+		double now = 0;
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < vehicleCount; i++) {
+				if (round == 0 || random.nextDouble() < 0.2) {
+					Waypoint.Stop[] stops = new Waypoint.Stop[random.nextInt(4)];
+					double time = now + random.nextInt(100);
+					for (int s = 0; s < stops.length; s++) {
+						time += random.nextInt(100);
+						stops[s] = stop(links.get(random.nextInt(links.size())), time);
+					}
+					addEntry(entries, fleet, i, links.get(random.nextInt(links.size())), now + random.nextInt(60), stops);
+				}
+			}
+			DrtRequest request = request(links.get(random.nextInt(links.size())), now + 30 + random.nextInt(150));
+
+			List<VehicleEntry> expected = new ArrayList<>();
+			for (VehicleEntry entry : entries.values()) {
+				List<Waypoint> waypoints = new ArrayList<>(entry.stops);
+				waypoints.add(entry.start);
+				for (Waypoint waypoint : waypoints) {
+					double arrival = waypoint.getLink() == request.getFromLink() ?
+						waypoint.getDepartureTime() :
+						waypoint.getDepartureTime() + matrix.getTravelTime(waypoint.getLink().getToNode(), request.getFromLink().getFromNode(), 0);
+					if (arrival <= request.getLatestStartTime()) {
+						expected.add(entry);
+						break;
+					}
+				}
+			}
+			Assertions.assertThat(filter.filter(request, entries, now)).containsExactlyInAnyOrderElementsOf(expected);
+		}
+	}
+
+	private static Link addLink(Network network, String id, Node fromNode, Node toNode) {
+		double length = DistanceUtils.calculateDistance(fromNode, toNode);
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(id), fromNode, toNode, length, FREESPEED, 1000, 1);
+	}
+
+	private static TravelTimeMatrix beelineMatrix() {
+		return (fromNode, toNode, departureTime) -> (int) (DistanceUtils.calculateDistance(fromNode, toNode) / FREESPEED);
+	}
+
+	private static DrtWaypointRequestFleetFilterParams params(double cellSize) {
+		DrtWaypointRequestFleetFilterParams params = new DrtWaypointRequestFleetFilterParams();
+		params.cellSize = cellSize;
+		params.admissibleSpeedFactor = 1.0;
+		return params;
+	}
+
+	private static Id<DvrpVehicle> vehicleId(int i) {
+		return Id.create("v" + i, DvrpVehicle.class);
+	}
+
+	private static Fleet getFleet(Link link, int vehicleCount) {
+		FleetSpecificationImpl fleetSpecification = new FleetSpecificationImpl();
+		for (int i = 0; i < vehicleCount; i++) {
+			fleetSpecification.addVehicleSpecification(ImmutableDvrpVehicleSpecification.newBuilder()
+				.id(vehicleId(i))
+				.startLinkId(link.getId())
+				.capacity(6)
+				.serviceBeginTime(0)
+				.serviceEndTime(10000)
+				.build());
+		}
+		return Fleets.createDefaultFleet(fleetSpecification, dvrpVehicleSpecification -> link);
+	}
+
+	private static void addEntry(Map<Id<DvrpVehicle>, VehicleEntry> entries, Fleet fleet, int i, Link startLink, double startTime,
+								 Waypoint.Stop... stops) {
+		DvrpVehicle vehicle = fleet.getVehicles().get(vehicleId(i));
+		Waypoint.Start start = new Waypoint.Start(null, startLink, startTime, loadType.fromArray(0));
+		List<Double> precedingStayTimes = Collections.nCopies(stops.length, 0.0);
+		entries.put(vehicle.getId(), new VehicleEntry(vehicle, start, ImmutableList.copyOf(stops), null, precedingStayTimes, 0));
+	}
+
+	private static Waypoint.Stop stop(Link link, double departureTime) {
+		return new Waypoint.Stop(new DefaultDrtStopTask(departureTime, departureTime, link), departureTime, departureTime, loadType.fromArray(0),
+			loadType);
+	}
+
+	private static DrtRequest request(Link fromLink, double latestStartTime) {
+		return DrtRequest.newBuilder()
+			.id(Id.create("r", Request.class))
+			.passengerIds(List.of(Id.createPersonId("p")))
+			.submissionTime(0)
+			.earliestStartTime(0)
+			.latestStartTime(latestStartTime)
+			.latestArrivalTime(latestStartTime + 3600)
+			.fromLink(fromLink)
+			.toLink(fromLink)
+			.mode("drt")
+			.build();
+	}
+}
@@ -23,8 +23,12 @@ import static org.matsim.contrib.drt.schedule.DrtTaskBaseType.STOP;
 import static org.matsim.contrib.drt.schedule.DrtTaskBaseType.getBaseTypeOrElseThrow;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.matsim.api.core.v01.Id;
 import org.matsim.contrib.drt.schedule.DrtStopTask;
 import org.matsim.contrib.drt.schedule.DrtCapacityChangeTask;
 import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
@@ -42,6 +46,7 @@ import com.google.common.collect.ImmutableList;
  */
 public class VehicleDataEntryFactoryImpl implements VehicleEntry.EntryFactory {
 	private final DvrpLoadType loadType;
+	private final Map<Id<DvrpVehicle>, ScheduledStops> scheduledStopsCache = new ConcurrentHashMap<>();
 
 	public VehicleDataEntryFactoryImpl(DvrpLoadType loadType) {
 		this.loadType = loadType;
@@ -73,20 +78,57 @@ public class VehicleDataEntryFactoryImpl implements VehicleEntry.EntryFactory {
 			nextTaskIdx = 0;
 		}
 
+		ScheduledStops scheduledStops = getScheduledStops(vehicle, startTask, nextTaskIdx);
+
+		List<Double> precedingStayTimes = scheduledStops.precedingStayTimes;
+		if (startTask != null && STAY.isBaseTypeOf(startTask) && !precedingStayTimes.isEmpty()) {
+			// the remaining time of the ongoing stay task precedes the first stop
+			double accumulatedStayTime = Math.max(0.0, startTask.getEndTime() - currentTime);
+			for (double stayTime : scheduledStops.stayTimesBeforeFirstStop) {
+				accumulatedStayTime += stayTime;
+			}
+			precedingStayTimes = new ArrayList<>(precedingStayTimes);
+			precedingStayTimes.set(0, accumulatedStayTime);
+		}
+
+		var slackTimes = computeSlackTimes(vehicle, currentTime, scheduledStops.stops, scheduledStops.startStop, precedingStayTimes);
+
+		return new VehicleEntry(vehicle, new Waypoint.Start(startTask, start.link, start.time, scheduledStops.startOccupancy),
+				scheduledStops.stopList, slackTimes, precedingStayTimes, currentTime);
+	}
+
+	/**
+	 * The stops only change if the schedule is modified (which includes switching to the next task), so they are
+	 * re-created only if the modification count of the schedule changed since they were created the last time.
+	 */
+	private ScheduledStops getScheduledStops(DvrpVehicle vehicle, Task startTask, int nextTaskIdx) {
+		Schedule schedule = vehicle.getSchedule();
+		ScheduledStops cached = scheduledStopsCache.get(vehicle.getId());
+		if (cached != null && cached.schedule == schedule && cached.modificationCount == schedule.getModificationCount()) {
+			return cached;
+		}
+		ScheduledStops scheduledStops = createScheduledStops(schedule, startTask, nextTaskIdx);
+		scheduledStopsCache.put(vehicle.getId(), scheduledStops);
+		return scheduledStops;
+	}
+
+	private ScheduledStops createScheduledStops(Schedule schedule, Task startTask, int nextTaskIdx) {
+		int modificationCount = schedule.getModificationCount();
 		List<? extends Task> tasks = schedule.getTasks();
 		List<DrtStopTask> stopTasks = new ArrayList<>();
 
 		// find stop tasks and note down stay time before each task
 		double accumulatedStayTime = 0.0;
-		if (startTask != null && STAY.isBaseTypeOf(startTask)) {
-			accumulatedStayTime = Math.max(0.0, startTask.getEndTime() - currentTime);
-		}
-
+		List<Double> stayTimesBeforeFirstStop = new ArrayList<>();
 		List<Double> precedingStayTimes = new ArrayList<>();
 
 		for (Task task : tasks.subList(nextTaskIdx, tasks.size())) {
 			if (STAY.isBaseTypeOf(task)) {
-				accumulatedStayTime += task.getEndTime() - task.getBeginTime();
+				double stayTime = task.getEndTime() - task.getBeginTime();
+				accumulatedStayTime += stayTime;
+				if (stopTasks.isEmpty()) {
+					stayTimesBeforeFirstStop.add(stayTime);
+				}
 			} else if (STOP.isBaseTypeOf(task)) {
 				stopTasks.add((DrtStopTask)task);
 				precedingStayTimes.add(accumulatedStayTime);
@@ -112,10 +154,9 @@ public class VehicleDataEntryFactoryImpl implements VehicleEntry.EntryFactory {
 				? startTask instanceof DrtCapacityChangeTask capacityChangeTask ? new Waypoint.Stop(capacityChangeTask, loadType) : new Waypoint.Stop((DrtStopTask) startTask, loadType.getEmptyLoad(), loadType)
 				: null;
 
-		var slackTimes = computeSlackTimes(vehicle, currentTime, stops, startStop, precedingStayTimes);
-
-		return new VehicleEntry(vehicle, new Waypoint.Start(startTask, start.link, start.time, outgoingOccupancy),
-				ImmutableList.copyOf(stops), slackTimes, precedingStayTimes, currentTime);
+		return new ScheduledStops(schedule, modificationCount, stops, ImmutableList.copyOf(stops),
+				Collections.unmodifiableList(precedingStayTimes),
+				stayTimesBeforeFirstStop.stream().mapToDouble(Double::doubleValue).toArray(), outgoingOccupancy, startStop);
 	}
 
 	static double[] computeSlackTimes(DvrpVehicle vehicle, double now, Waypoint.Stop[] stops, Waypoint.Stop start, List<Double> precedingStayTimes) {
@@ -148,4 +189,9 @@ public class VehicleDataEntryFactoryImpl implements VehicleEntry.EntryFactory {
 		//for an already delayed vehicle, assume slack is 0 (instead of a negative number)
 		return Math.max(0, vehicle.getServiceEndTime() - availableFromTime);
 	}
+
+	private record ScheduledStops(Schedule schedule, int modificationCount, Waypoint.Stop[] stops,
+								  ImmutableList<Waypoint.Stop> stopList, List<Double> precedingStayTimes,
+								  double[] stayTimesBeforeFirstStop, DvrpLoad startOccupancy, Waypoint.Stop startStop) {
+	}
 }
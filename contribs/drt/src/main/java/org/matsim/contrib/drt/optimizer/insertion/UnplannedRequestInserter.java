@@ -28,4 +28,12 @@ import org.matsim.contrib.drt.passenger.DrtRequest;
  */
 public interface UnplannedRequestInserter {
 	void scheduleUnplannedRequests(Collection<DrtRequest> unplannedRequests);
+
+	/**
+	 * Returns whether unplanned requests are scheduled at the given time. If not, the optimizer neither has to update
+	 * the schedule timings nor to call {@link #scheduleUnplannedRequests}, the requests remain unplanned.
+	 */
+	default boolean isSchedulingTime(double now) {
+		return true;
+	}
 }
@@ -30,12 +30,15 @@ import org.junit.jupiter.api.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.contrib.drt.optimizer.Waypoint.Stop;
+import org.matsim.contrib.drt.passenger.AcceptedDrtRequest;
+import org.matsim.contrib.drt.passenger.DrtRequest;
 import org.matsim.contrib.drt.schedule.DefaultDrtStopTask;
 import org.matsim.contrib.drt.schedule.DrtStayTask;
 import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
 import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
 import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
 import org.matsim.contrib.dvrp.load.IntegerLoadType;
+import org.matsim.contrib.dvrp.optimizer.Request;
 import org.matsim.testcases.fakes.FakeLink;
 
 /**
@@ -126,6 +129,53 @@ public class VehicleDataEntryFactoryImplTest {
 		assertThat(computeSlackTimes(vehicle(500, 490), 100, new Stop[] { stop0, stop1 }, null, precedingStayTimes)).containsExactly(20, 20, 43, 10);
 	}
 
+	@Test
+	void create_reusesStopsUntilScheduleModified() {
+		var factory = new VehicleDataEntryFactoryImpl(loadType);
+		var vehicle = vehicle(500, 130);
+		var schedule = vehicle.getSchedule();
+		schedule.addTask(0, new DrtStayTask(0, 100, depot));
+		var stopTask = new DefaultDrtStopTask(100, 130, depot);
+		schedule.addTask(1, stopTask);
+		stopTask.addDropoffRequest(request("r1", 1));
+
+		var entry = factory.create(vehicle, 0);
+		assertThat(entry.stops).hasSize(1);
+		assertThat(entry.start.getOutgoingOccupancy()).isEqualTo(loadType.fromInt(1));
+
+		// nothing changed
+		assertThat(factory.create(vehicle, 10).stops).isSameAs(entry.stops);
+
+		// more passengers dropped off
+		stopTask.addDropoffRequest(request("r2", 2));
+		var modifiedEntry = factory.create(vehicle, 10);
+		assertThat(modifiedEntry.stops).isNotSameAs(entry.stops);
+		assertThat(modifiedEntry.start.getOutgoingOccupancy()).isEqualTo(loadType.fromInt(3));
+
+		// stop delayed (setting the same time again is not a modification)
+		stopTask.setEndTime(130);
+		assertThat(factory.create(vehicle, 10).stops).isSameAs(modifiedEntry.stops);
+		stopTask.setEndTime(140);
+		assertThat(factory.create(vehicle, 10).stops).isNotSameAs(modifiedEntry.stops);
+
+		// the stay time before the first stop decreases over time, even if the schedule is not modified
+		schedule.nextTask();
+		assertThat(factory.create(vehicle, 20).getPrecedingStayTime(0)).isEqualTo(80);
+		assertThat(factory.create(vehicle, 60).getPrecedingStayTime(0)).isEqualTo(40);
+	}
+
+	private AcceptedDrtRequest request(String id, int passengers) {
+		return AcceptedDrtRequest.createFromOriginalRequest(DrtRequest.newBuilder()
+				.id(Id.create(id, Request.class))
+				.fromLink(depot)
+				.toLink(depot)
+				.passengerIds(List.of(Id.createPersonId(id)))
+				.load(loadType.fromInt(passengers))
+				.latestStartTime(1000)
+				.latestArrivalTime(1000)
+				.build());
+	}
+
 	private Stop stop(double beginTime, double latestArrivalTime, double endTime, double latestDepartureTime) {
 		return new Waypoint.Stop(new DefaultDrtStopTask(beginTime, endTime, null), latestArrivalTime, latestDepartureTime, loadType.getEmptyLoad(), loadType);
 	}
@@ -32,6 +32,7 @@ import org.matsim.contrib.dvrp.run.AbstractDvrpModeModule;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.contrib.zone.skims.DvrpTravelTimeMatrixParams;
 import org.matsim.contrib.zone.skims.FreeSpeedTravelTimeMatrix;
+import org.matsim.contrib.zone.skims.TimeDependentTravelTimeMatrix;
 import org.matsim.contrib.zone.skims.TravelTimeMatrix;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigGroup;
@@ -97,7 +98,10 @@ public class DvrpModeRoutingNetworkModule extends AbstractDvrpModeModule {
 							matrixParams.getZoneSystemParams(), getConfig().global().getCoordinateSystem(), zone -> true);
 						
 						
-						if (modalCachePath == null) {
+						if (matrixParams.timeBinSize > 0 || matrixParams.cacheDirectory != null) {
+							return TimeDependentTravelTimeMatrix.createFreeSpeedMatrix(network, zoneSystem, matrixParams,
+								globalConfigGroup.getNumberOfThreads(), qSimConfigGroup, getConfig().getContext());
+						} else if (modalCachePath == null) {
 							return FreeSpeedTravelTimeMatrix.createFreeSpeedMatrix(network, zoneSystem, matrixParams, globalConfigGroup.getNumberOfThreads(),
 								qSimConfigGroup.getTimeStepSize());
 						} else {
@@ -32,6 +32,7 @@ import org.matsim.contrib.dvrp.vrpagent.VrpAgentQueryHelper;
 import org.matsim.contrib.dynagent.run.DynActivityEngine;
 import org.matsim.contrib.zone.skims.DvrpTravelTimeMatrixParams;
 import org.matsim.contrib.zone.skims.FreeSpeedTravelTimeMatrix;
+import org.matsim.contrib.zone.skims.TimeDependentTravelTimeMatrix;
 import org.matsim.contrib.zone.skims.TravelTimeMatrix;
 import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup;
@@ -94,7 +95,10 @@ public final class DvrpModule extends AbstractModule {
 				ZoneSystem zoneSystem = ZoneSystemUtils.createZoneSystem(getConfig().getContext(), network,
 					matrixParams.getZoneSystemParams(), getConfig().global().getCoordinateSystem(), zone -> true);
 				
-				if (params.cachePath == null) {
+				if (params.timeBinSize > 0 || params.cacheDirectory != null) {
+					return TimeDependentTravelTimeMatrix.createFreeSpeedMatrix(network, zoneSystem, params, numberOfThreads,
+						qSimConfigGroup, getConfig().getContext());
+				} else if (params.cachePath == null) {
 					return FreeSpeedTravelTimeMatrix.createFreeSpeedMatrix(network, zoneSystem, params, numberOfThreads,
 						qSimConfigGroup.getTimeStepSize());
 				} else {
@@ -83,6 +83,13 @@ public interface Schedule {
 	 */
 	double getEndTime();
 
+	/**
+	 * Number of modifications made so far: adding or removing tasks, switching to the next task and changes of the
+	 * tasks themselves (begin/end times, or e.g. requests served at stops). Can be used to detect that data derived from
+	 * the schedule is up to date.
+	 */
+	int getModificationCount();
+
 	// schedule modification functionality:
 
 	/**
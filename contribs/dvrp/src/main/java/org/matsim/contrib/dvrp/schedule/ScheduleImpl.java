@@ -41,6 +41,7 @@ final class ScheduleImpl implements Schedule {
 
 	private ScheduleStatus status = ScheduleStatus.UNPLANNED;
 	private AbstractTask currentTask = null;
+	int modificationCount = 0;// also incremented by AbstractTask
 
 	ScheduleImpl(DvrpVehicleSpecification vehicleSpecification) {
 		this.vehicleSpecification = vehicleSpecification;
@@ -78,6 +79,8 @@ final class ScheduleImpl implements Schedule {
 		tasks.add(taskIdx, t);
 		t.taskIdx = taskIdx;
 		t.status = TaskStatus.PLANNED;
+		t.schedule = this;
+		modificationCount++;
 
 		// update idx of the existing tasks
 		for (int i = taskIdx + 1; i < tasks.size(); i++) {
@@ -123,7 +126,8 @@ final class ScheduleImpl implements Schedule {
 		failIfCompleted();
 
 		Preconditions.checkState(tasks.get(taskIdx).getStatus() == TaskStatus.PLANNED);
-		tasks.remove(taskIdx);
+		tasks.remove(taskIdx).schedule = null;
+		modificationCount++;
 
 		for (int i = taskIdx; i < tasks.size(); i++) {
 			tasks.get(i).taskIdx = i;
@@ -151,6 +155,7 @@ final class ScheduleImpl implements Schedule {
 	}
 
 	private void nextTaskImpl() {
+		modificationCount++;
 		int nextIdx;
 
 		if (status == ScheduleStatus.PLANNED) {
@@ -176,6 +181,11 @@ final class ScheduleImpl implements Schedule {
 		return status;
 	}
 
+	@Override
+	public int getModificationCount() {
+		return modificationCount;
+	}
+
 	@Override
 	public double getBeginTime() {
 		failIfUnplanned();
@@ -64,6 +64,22 @@ public class DvrpTravelTimeMatrixParams extends ReflectiveConfigGroupWithConfigu
 	@Comment("Caches the travel time matrix data into a binary file. If the file exists, the matrix will be read from the file, if not, the file will be created.")
 	public String cachePath = null;
 
+	@Parameter
+	@Comment("Size of the time bins of the zonal travel time matrix. For each time bin, the zonal travel times are calculated"
+			+ " with the minimal link travel times within the bin (useful for time-variant networks), so they are lower bounds"
+			+ " of the travel times between the central nodes of the zones for trips within the bin. The sparse matrix is calculated"
+			+ " once, with the minimal link travel times over all bins. The unit is seconds. Default value is 0 s (a single,"
+			+ " time-independent matrix).")
+	@PositiveOrZero
+	public double timeBinSize = 0; //[s]
+
+	@Parameter
+	@Comment("Directory for caching the travel time matrices. The name of each cache file contains a checksum of the network,"
+			+ " the link travel times, the zone system and the matrix params, so a cached matrix is only reused for the same inputs"
+			+ " (also for mode-specific networks). The zonal matrices are memory-mapped from the cache files."
+			+ " If set, 'cachePath' is ignored.")
+	public String cacheDirectory = null;
+
 	public DvrpTravelTimeMatrixParams() {
 		super(SET_NAME);
 		initSingletonParameterSets();
@@ -112,6 +112,14 @@ public final class SparseMatrix {
 		int get(int toNodeIndex) {
 			return presentNodes.get(toNodeIndex) ? buckets[toNodeIndex & mask].get(toNodeIndex) : -1; // value not present in the row
 		}
+
+		List<NodeAndTime> getNodeAndTimes() {
+			List<NodeAndTime> nodeAndTimes = new ArrayList<>(presentNodes.cardinality());
+			for (int i = presentNodes.nextSetBit(0); i >= 0; i = presentNodes.nextSetBit(i + 1)) {
+				nodeAndTimes.add(new NodeAndTime(i, Short.toUnsignedInt((short)get(i))));
+			}
+			return nodeAndTimes;
+		}
 	}
 
 	private final SparseRow[] rows = new SparseRow[Id.getNumberOfIds(Node.class)];
@@ -126,6 +134,15 @@ public final class SparseMatrix {
 		return get(fromNode.getId().index(), toNode.getId().index());
 	}
 
+	/**
+	 * @return the neighbours of the node with their travel times (ordered by node index), or an empty list if the node
+	 * has no row
+	 */
+	List<NodeAndTime> getRow(Node fromNode) {
+		var row = rows[fromNode.getId().index()];
+		return row != null ? row.getNodeAndTimes() : List.of();
+	}
+
 	void setRow(Node fromNode, SparseRow row) {
 		rows[fromNode.getId().index()] = row;
 	}
@@ -0,0 +1,509 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.zone.skims;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ShortBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nullable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.common.zones.Zone;
+import org.matsim.contrib.common.zones.ZoneSystem;
+import org.matsim.contrib.common.zones.ZoneSystemUtils;
+import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
+import org.matsim.contrib.dvrp.trafficmonitoring.QSimFreeSpeedTravelTime;
+import org.matsim.contrib.zone.skims.SparseMatrix.NodeAndTime;
+import org.matsim.contrib.zone.skims.SparseMatrix.SparseRow;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.TimeDependentNetwork;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Zonal travel time matrix with one layer per time bin, e.g. for time-variant networks. For each time bin, the link
+ * travel times are replaced by their minimum within the bin (evaluated at the start of the bin and at the start times
+ * of the network change events within the bin), and the zonal travel times are calculated with these minimal link
+ * travel times. Thus, the zonal travel times of a time bin are lower bounds of the travel times between the central
+ * nodes of the zones for departures within the bin, as long as the trips end within the bin. For other nodes of the
+ * zones, they are not lower bounds, as the zonal travel times are those between the central nodes.
+ * <p>
+ * Like in {@link FreeSpeedTravelTimeMatrix}, the travel times between neighbouring nodes are taken from a
+ * {@link SparseMatrix}. It is calculated only once, with the minimal link travel times over all time bins, so its
+ * values do not depend on the departure time.
+ * <p>
+ * The minimum is only exact if the link travel times change only with network change events, as the free speed
+ * travel times do. Other travel times are only evaluated at the start of each bin.
+ * <p>
+ * Optionally, the matrix is cached in a directory. The name of the cache file contains a checksum of all the inputs:
+ * the network, the minimal link travel times of each time bin, the network change events, the zone system and the
+ * matrix params. A run with the same inputs reads the matrix from the cache file instead of calculating it, while
+ * changed inputs lead to a new file. The zonal layers are memory-mapped, i.e. they are not copied into the heap. Cache
+ * files that cannot be read, e.g. because they are truncated, are ignored and overwritten.
+ */
+public final class TimeDependentTravelTimeMatrix implements TravelTimeMatrix {
+	private static final Logger log = LogManager.getLogger(TimeDependentTravelTimeMatrix.class);
+
+	private static final double DEFAULT_MAX_TIME = 30 * 3600;
+
+	private static final int FILE_MAGIC_NUMBER = 0x44545454;
+	private static final int FILE_FORMAT_VERSION = 2;
+	private static final int FILE_HEADER_SIZE = 4 + 4 + 4 + 4 + 8;
+
+	// the layers are calculated in a single run, departing at bin * BIN_TIME_OFFSET, much later than any trip of the previous bin ends
+	private static final double BIN_TIME_OFFSET = 1e7;
+
+	/**
+	 * Creates the matrix for the {@link QSimFreeSpeedTravelTime} as used in {@link org.matsim.contrib.dvrp.run.DvrpModule},
+	 * with one time bin per {@link DvrpTravelTimeMatrixParams#timeBinSize} until the QSim end time (or 30 hours, if not
+	 * set). If {@link DvrpTravelTimeMatrixParams#cacheDirectory} is set, the cache is used.
+	 */
+	public static TimeDependentTravelTimeMatrix createFreeSpeedMatrix(Network dvrpNetwork, ZoneSystem zoneSystem,
+		DvrpTravelTimeMatrixParams params, int numberOfThreads, QSimConfigGroup qSimConfigGroup, URL context) {
+		Path cacheDirectory = null;
+		if (params.cacheDirectory != null) {
+			try {
+				cacheDirectory = Path.of(ConfigGroup.getInputFileURL(context, params.cacheDirectory).toURI());
+			} catch (URISyntaxException e) {
+				throw new IllegalArgumentException("Invalid cache directory: " + params.cacheDirectory, e);
+			}
+		}
+		return create(dvrpNetwork, zoneSystem, params, numberOfThreads, new QSimFreeSpeedTravelTime(qSimConfigGroup.getTimeStepSize()),
+			qSimConfigGroup.getEndTime().orElse(DEFAULT_MAX_TIME), cacheDirectory);
+	}
+
+	/**
+	 * @param maxTime        the time bins cover the interval [0, maxTime); later departures use the last time bin
+	 * @param cacheDirectory if <code>null</code>, the matrix is always calculated
+	 */
+	public static TimeDependentTravelTimeMatrix create(Network network, ZoneSystem zoneSystem, DvrpTravelTimeMatrixParams params,
+		int numberOfThreads, TravelTime travelTime, double maxTime, @Nullable Path cacheDirectory) {
+		int numberOfTimeBins = params.timeBinSize > 0 ? Math.max((int)Math.ceil(maxTime / params.timeBinSize), 1) : 1;
+		var minLinkTravelTimes = new MinLinkTravelTimes(network, travelTime, params.timeBinSize, numberOfTimeBins);
+		if (cacheDirectory == null) {
+			return calculate(network, zoneSystem, params, numberOfThreads, minLinkTravelTimes);
+		}
+
+		Path cacheFile = cacheDirectory.resolve(
+			"dvrp-travel-time-matrix-" + calcChecksum(network, zoneSystem, params, minLinkTravelTimes) + ".bin");
+		if (Files.exists(cacheFile)) {
+			log.info("Reading the travel time matrix from the cache file: " + cacheFile);
+			var matrix = read(cacheFile, network, zoneSystem, params.timeBinSize, numberOfTimeBins);
+			if (matrix != null) {
+				return matrix;
+			}
+			log.warn("The cached travel time matrix could not be read, will be calculated and written again: " + cacheFile);
+		} else {
+			log.info("Travel time matrix not found in the cache, will be calculated and written to: " + cacheFile);
+		}
+		var matrix = calculate(network, zoneSystem, params, numberOfThreads, minLinkTravelTimes);
+		matrix.write(cacheFile, network);
+		return matrix;
+	}
+
+	private final ZoneSystem zoneSystem;
+	private final int[] zoneIndex2matrixIndex = new int[Id.getNumberOfIds(Zone.class)];
+	private final int numberOfZones;
+	private final double timeBinSize;
+	private final ShortBuffer[] layers; // unsigned shorts, as in Matrix; row-major order
+	@Nullable
+	private final SparseMatrix sparseMatrix;
+
+	private TimeDependentTravelTimeMatrix(ZoneSystem zoneSystem, List<Zone> zones, double timeBinSize, ShortBuffer[] layers,
+		@Nullable SparseMatrix sparseMatrix) {
+		checkArgument((long)zones.size() * zones.size() <= Integer.MAX_VALUE / 2, "Too many zones: %s", zones.size());
+		this.zoneSystem = zoneSystem;
+		this.numberOfZones = zones.size();
+		this.timeBinSize = timeBinSize;
+		this.layers = layers;
+		this.sparseMatrix = sparseMatrix;
+
+		Arrays.fill(zoneIndex2matrixIndex, -1);
+		for (int i = 0; i < zones.size(); i++) {
+			zoneIndex2matrixIndex[zones.get(i).getId().index()] = i;
+		}
+	}
+
+	@Override
+	public int getTravelTime(Node fromNode, Node toNode, double departureTime) {
+		if (fromNode == toNode) {
+			return 0;
+		}
+		if (sparseMatrix != null) {
+			int time = sparseMatrix.get(fromNode, toNode);
+			if (time >= 0) {// value is present
+				return time;
+			}
+		}
+		return getZonalTravelTime(fromNode, toNode, departureTime);
+	}
+
+	public int getZonalTravelTime(Node fromNode, Node toNode, double departureTime) {
+		int fromIndex = matrixIndex(zoneSystem.getZoneForNodeId(fromNode.getId()).orElseThrow());
+		int toIndex = matrixIndex(zoneSystem.getZoneForNodeId(toNode.getId()).orElseThrow());
+		return Short.toUnsignedInt(layers[getTimeBin(departureTime)].get(fromIndex * numberOfZones + toIndex));
+	}
+
+	public int getNumberOfTimeBins() {
+		return layers.length;
+	}
+
+	int getTimeBin(double departureTime) {
+		if (layers.length == 1) {
+			return 0;
+		}
+		// (int)NaN == 0
+		return Math.max(0, Math.min((int)(departureTime / timeBinSize), layers.length - 1));
+	}
+
+	private int matrixIndex(Zone zone) {
+		int index = zone.getId().index() < zoneIndex2matrixIndex.length ? zoneIndex2matrixIndex[zone.getId().index()] : -1;
+		checkArgument(index >= 0, "Matrix was not created for zone: (%s)", zone);
+		return index;
+	}
+
+	private static TimeDependentTravelTimeMatrix calculate(Network network, ZoneSystem zoneSystem, DvrpTravelTimeMatrixParams params,
+		int numberOfThreads, MinLinkTravelTimes minLinkTravelTimes) {
+		int numberOfTimeBins = minLinkTravelTimes.numberOfTimeBins;
+		var centralNodes = ZoneSystemUtils.computeMostCentralNodes(network.getNodes().values(), zoneSystem);
+		TravelTime binTravelTime = (link, time, person, vehicle) -> minLinkTravelTimes.get(link,
+			Math.min((int)(time / BIN_TIME_OFFSET), numberOfTimeBins - 1));
+		var routingParams = new TravelTimeMatrices.RoutingParams(network, binTravelTime, new TimeAsTravelDisutility(binTravelTime),
+			numberOfThreads);
+		double[] departureTimes = IntStream.range(0, numberOfTimeBins).mapToDouble(bin -> bin * BIN_TIME_OFFSET).toArray();
+		List<Matrix> matrices = TravelTimeMatrices.calculateTravelTimeMatrices(routingParams, centralNodes, departureTimes);
+
+		List<Zone> zones = getZonesWithNodes(network, zoneSystem);
+		ShortBuffer[] layers = new ShortBuffer[numberOfTimeBins];
+		for (int bin = 0; bin < numberOfTimeBins; bin++) {
+			Matrix matrix = matrices.get(bin);
+			short[] values = new short[zones.size() * zones.size()];
+			for (int i = 0; i < zones.size(); i++) {
+				for (int j = 0; j < zones.size(); j++) {
+					values[i * zones.size() + j] = (short)matrix.get(zones.get(i), zones.get(j));
+				}
+			}
+			layers[bin] = ShortBuffer.wrap(values);
+		}
+
+		double[] overallMinLinkTravelTimes = new double[Id.getNumberOfIds(Link.class)];
+		for (Link link : network.getLinks().values()) {
+			double min = Double.POSITIVE_INFINITY;
+			for (int bin = 0; bin < numberOfTimeBins; bin++) {
+				min = Math.min(min, minLinkTravelTimes.get(link, bin));
+			}
+			overallMinLinkTravelTimes[link.getId().index()] = min;
+		}
+		TravelTime overallMinTravelTime = (link, time, person, vehicle) -> overallMinLinkTravelTimes[link.getId().index()];
+		var sparseRoutingParams = new TravelTimeMatrices.RoutingParams(network, overallMinTravelTime,
+			new TimeAsTravelDisutility(overallMinTravelTime), numberOfThreads);
+		var sparseMatrix = TravelTimeMatrices.calculateTravelTimeSparseMatrix(sparseRoutingParams, params.maxNeighborDistance,
+			params.maxNeighborTravelTime, 0).orElse(null);
+		return new TimeDependentTravelTimeMatrix(zoneSystem, zones, params.timeBinSize, layers, sparseMatrix);
+	}
+
+	/**
+	 * The minimal travel time of each link within each time bin. The last time bin also covers all later times. The
+	 * travel times are evaluated at the start of the bin and at the start times of the network change events of the
+	 * link within the bin.
+	 */
+	private static final class MinLinkTravelTimes {
+		private final TravelTime travelTime;
+		private final double timeBinSize;
+		private final int numberOfTimeBins;
+		private final Map<Id<Link>, double[]> changeTimes = new HashMap<>(); // sorted
+
+		private MinLinkTravelTimes(Network network, TravelTime travelTime, double timeBinSize, int numberOfTimeBins) {
+			this.travelTime = travelTime;
+			this.timeBinSize = timeBinSize;
+			this.numberOfTimeBins = numberOfTimeBins;
+			if (network instanceof TimeDependentNetwork timeDependentNetwork) {
+				Map<Id<Link>, List<Double>> times = new HashMap<>();
+				for (NetworkChangeEvent event : timeDependentNetwork.getNetworkChangeEvents()) {
+					for (Link link : event.getLinks()) {
+						times.computeIfAbsent(link.getId(), id -> new ArrayList<>()).add(event.getStartTime());
+					}
+				}
+				times.forEach((linkId, list) -> changeTimes.put(linkId, list.stream().mapToDouble(t -> t).sorted().toArray()));
+			}
+		}
+
+		double get(Link link, int bin) {
+			double startTime = bin * timeBinSize;
+			double min = travelTime.getLinkTravelTime(link, startTime, null, null);
+			double[] times = changeTimes.get(link.getId());
+			if (times != null) {
+				double endTime = bin == numberOfTimeBins - 1 ? Double.POSITIVE_INFINITY : startTime + timeBinSize;
+				for (double time : times) {
+					if (time >= endTime) {
+						break;
+					}
+					if (time > startTime) {
+						min = Math.min(min, travelTime.getLinkTravelTime(link, time, null, null));
+					}
+				}
+			}
+			return min;
+		}
+	}
+
+	/**
+	 * The zones containing at least one node (i.e. the zones with a central node), ordered by id.
+	 */
+	private static List<Zone> getZonesWithNodes(Network network, ZoneSystem zoneSystem) {
+		return network.getNodes()
+			.values()
+			.stream()
+			.map(n -> zoneSystem.getZoneForNodeId(n.getId()).orElseThrow())
+			.distinct()
+			.sorted(Comparator.comparing(z -> z.getId().toString()))
+			.toList();
+	}
+
+	private static List<Node> getSortedNodes(Network network) {
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		nodes.sort(Comparator.comparing(n -> n.getId().toString()));
+		return nodes;
+	}
+
+	/**
+	 * Calculates a checksum over the nodes (with coordinates and zones), the links (with their minimal travel times in
+	 * each time bin), the freespeed changes of the network change events and the matrix params.
+	 */
+	private static String calcChecksum(Network network, ZoneSystem zoneSystem, DvrpTravelTimeMatrixParams params,
+		MinLinkTravelTimes minLinkTravelTimes) {
+		int numberOfTimeBins = minLinkTravelTimes.numberOfTimeBins;
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		try (var out = new DataOutputStream(new BufferedOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest)))) {
+			out.writeInt(FILE_FORMAT_VERSION);
+			out.writeInt(numberOfTimeBins);
+			out.writeDouble(params.timeBinSize);
+			out.writeDouble(params.maxNeighborDistance);
+			out.writeDouble(params.maxNeighborTravelTime);
+
+			for (Node node : getSortedNodes(network)) {
+				out.writeUTF(node.getId().toString());
+				out.writeDouble(node.getCoord().getX());
+				out.writeDouble(node.getCoord().getY());
+				out.writeUTF(zoneSystem.getZoneForNodeId(node.getId()).orElseThrow().getId().toString());
+			}
+
+			List<Link> links = new ArrayList<>(network.getLinks().values());
+			links.sort(Comparator.comparing(l -> l.getId().toString()));
+			for (Link link : links) {
+				out.writeUTF(link.getId().toString());
+				out.writeUTF(link.getFromNode().getId().toString());
+				out.writeUTF(link.getToNode().getId().toString());
+				out.writeDouble(link.getLength());
+				for (int bin = 0; bin < numberOfTimeBins; bin++) {
+					out.writeDouble(minLinkTravelTimes.get(link, bin));
+				}
+			}
+
+			if (network instanceof TimeDependentNetwork timeDependentNetwork) {
+				// the iteration order of the queue is not defined, so sort the events
+				List<String> changeEvents = new ArrayList<>();
+				for (NetworkChangeEvent event : timeDependentNetwork.getNetworkChangeEvents()) {
+					if (event.getFreespeedChange() != null) {
+						var sb = new StringBuilder().append(event.getStartTime())
+							.append(';')
+							.append(event.getFreespeedChange().getType())
+							.append(';')
+							.append(event.getFreespeedChange().getValue());
+						event.getLinks().stream().map(l -> l.getId().toString()).sorted().forEach(id -> sb.append(';').append(id));
+						changeEvents.add(sb.toString());
+					}
+				}
+				changeEvents.sort(null);
+				for (String changeEvent : changeEvents) {
+					out.writeUTF(changeEvent);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return HexFormat.of().formatHex(digest.digest(), 0, 16);
+	}
+
+	/**
+	 * Writes the matrix to the given file. The data is first written to a temporary file which is then moved to its
+	 * final location, so concurrent runs sharing a cache directory never see partial files.
+	 */
+	void write(Path file, Network network) {
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			Path tmpFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+			try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				out.writeInt(FILE_MAGIC_NUMBER);
+				out.writeInt(FILE_FORMAT_VERSION);
+				out.writeInt(numberOfZones);
+				out.writeInt(layers.length);
+				out.writeDouble(timeBinSize);
+
+				for (ShortBuffer layer : layers) {
+					for (int i = 0; i < numberOfZones * numberOfZones; i++) {
+						out.writeShort(layer.get(i));
+					}
+				}
+
+				out.writeBoolean(sparseMatrix != null);
+				if (sparseMatrix != null) {
+					List<Node> nodes = getSortedNodes(network);
+					int[] nodeIndex2Position = new int[Id.getNumberOfIds(Node.class)];
+					for (int i = 0; i < nodes.size(); i++) {
+						nodeIndex2Position[nodes.get(i).getId().index()] = i;
+					}
+
+					out.writeInt(nodes.size());
+					for (Node from : nodes) {
+						List<NodeAndTime> row = sparseMatrix.getRow(from);
+						out.writeInt(row.size());
+						for (NodeAndTime nodeAndTime : row) {
+							out.writeInt(nodeIndex2Position[nodeAndTime.nodeIdx()]);
+							out.writeShort((int)nodeAndTime.time());
+						}
+					}
+				}
+			}
+			Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the matrix written with {@link #write}. Returns <code>null</code> if the file does not contain a matrix for
+	 * the given network, zones and time bins, or if it cannot be read, e.g. because it is truncated or corrupt.
+	 */
+	@Nullable
+	static TimeDependentTravelTimeMatrix read(Path file, Network network, ZoneSystem zoneSystem, double timeBinSize,
+		int numberOfTimeBins) {
+		List<Zone> zones = getZonesWithNodes(network, zoneSystem);
+		long layerSize = 2L * zones.size() * zones.size();
+		long sparseMatrixStart = FILE_HEADER_SIZE + numberOfTimeBins * layerSize;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < FILE_HEADER_SIZE) {
+				log.warn("Ignoring the travel time matrix cache file " + file + ", it is truncated.");
+				return null;
+			}
+			var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_HEADER_SIZE);
+			if (header.getInt() != FILE_MAGIC_NUMBER || header.getInt() != FILE_FORMAT_VERSION) {
+				log.warn("Ignoring the travel time matrix cache file " + file + ", it has an unknown format.");
+				return null;
+			}
+			if (header.getInt() != zones.size() || header.getInt() != numberOfTimeBins || header.getDouble() != timeBinSize) {
+				log.warn("Ignoring the travel time matrix cache file " + file + ", it does not match the zones or time bins.");
+				return null;
+			}
+			if (channel.size() <= sparseMatrixStart) {
+				log.warn("Ignoring the travel time matrix cache file " + file + ", it is truncated.");
+				return null;
+			}
+
+			// the mapped buffers remain valid after closing the channel
+			ShortBuffer[] layers = new ShortBuffer[numberOfTimeBins];
+			for (int bin = 0; bin < numberOfTimeBins; bin++) {
+				layers[bin] = channel.map(FileChannel.MapMode.READ_ONLY, FILE_HEADER_SIZE + bin * layerSize, layerSize)
+					.asShortBuffer();
+			}
+
+			channel.position(sparseMatrixStart);
+			var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			SparseMatrix sparseMatrix = null;
+			if (in.readBoolean()) {
+				sparseMatrix = new SparseMatrix();
+				List<Node> nodes = getSortedNodes(network);
+				if (in.readInt() != nodes.size()) {
+					log.warn("Ignoring the travel time matrix cache file " + file + ", it does not match the network.");
+					return null;
+				}
+				for (Node from : nodes) {
+					int numberOfElements = in.readInt();
+					if (numberOfElements < 0 || numberOfElements > nodes.size()) {
+						log.warn("Ignoring the travel time matrix cache file " + file + ", it is corrupt.");
+						return null;
+					}
+					if (numberOfElements > 0) {
+						List<NodeAndTime> nodeTimeList = new ArrayList<>(numberOfElements);
+						for (int j = 0; j < numberOfElements; j++) {
+							int position = in.readInt();
+							if (position < 0 || position >= nodes.size()) {
+								log.warn("Ignoring the travel time matrix cache file " + file + ", it is corrupt.");
+								return null;
+							}
+							nodeTimeList.add(new NodeAndTime(nodes.get(position).getId().index(), in.readUnsignedShort()));
+						}
+						sparseMatrix.setRow(from, new SparseRow(nodeTimeList));
+					}
+				}
+			}
+			if (in.read() != -1) {
+				log.warn("Ignoring the travel time matrix cache file " + file + ", it is corrupt.");
+				return null;
+			}
+			return new TimeDependentTravelTimeMatrix(zoneSystem, zones, timeBinSize, layers, sparseMatrix);
+		} catch (EOFException e) {
+			log.warn("Ignoring the travel time matrix cache file " + file + ", it is truncated.");
+			return null;
+		} catch (IOException e) {
+			log.warn("Ignoring the travel time matrix cache file " + file + ", it could not be read.", e);
+			return null;
+		}
+	}
+}
@@ -20,6 +20,7 @@
 package org.matsim.contrib.zone.skims;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -57,6 +58,21 @@ public final class TravelTimeMatrices {
 		return travelTimeMatrix;
 	}
 
+	/**
+	 * Calculates one matrix per departure time. For each departure zone, all matrices are calculated by the same
+	 * thread, so the routing graph is built only once per thread.
+	 */
+	public static List<Matrix> calculateTravelTimeMatrices(RoutingParams params, Map<Zone, Node> centralNodes, double[] departureTimes) {
+		List<Matrix> travelTimeMatrices = Arrays.stream(departureTimes).mapToObj(t -> new Matrix(centralNodes.keySet())).toList();
+		Calculation<Zone> calculation = (lcpTree, z) -> {
+			for (int i = 0; i < departureTimes.length; i++) {
+				computeForDepartureZone(z, centralNodes, departureTimes[i], travelTimeMatrices.get(i), lcpTree);
+			}
+		};
+		calculate(params, centralNodes.keySet(), calculation, "DVRP time-dependent TT matrix: zone ");
+		return travelTimeMatrices;
+	}
+
 	private static void computeForDepartureZone(Zone fromZone, Map<Zone, Node> centralNodes, double departureTime, Matrix travelTimeMatrix,
 		LeastCostPathTree lcpTree) {
 		Node fromNode = centralNodes.get(fromZone);
@@ -0,0 +1,239 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.zone.skims;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.common.zones.Zone;
+import org.matsim.contrib.common.zones.ZoneImpl;
+import org.matsim.contrib.common.zones.ZoneSystem;
+import org.matsim.core.config.groups.NetworkConfigGroup;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class TimeDependentTravelTimeMatrixTest {
+
+	@RegisterExtension
+	MatsimTestUtils utils = new MatsimTestUtils();
+
+	private final Network network = createTimeVariantNetwork();
+	private final Node nodeA = NetworkUtils.createAndAddNode(network, Id.createNodeId("A"), new Coord(0, 0));
+	private final Node nodeB = NetworkUtils.createAndAddNode(network, Id.createNodeId("B"), new Coord(150, 150));
+	private final Node nodeC = NetworkUtils.createAndAddNode(network, Id.createNodeId("C"), new Coord(-10, -10));
+
+	// A and C are in the same zone; A is the central node
+	private final Zone zoneAC = new ZoneImpl(Id.create("AC", Zone.class), null, new Coord(0, 0), null);
+	private final Zone zoneB = new ZoneImpl(Id.create("B", Zone.class), null, new Coord(150, 150), null);
+	private final Map<Id<Node>, Zone> nodeZones = Map.of(nodeA.getId(), zoneAC, nodeB.getId(), zoneB, nodeC.getId(), zoneAC);
+	private final ZoneSystem zoneSystem = new ZoneSystem() {
+		@Override
+		public Optional<Zone> getZoneForLinkId(Id<Link> link) {
+			return Optional.ofNullable(nodeZones.get(network.getLinks().get(link).getToNode().getId()));
+		}
+
+		@Override
+		public Optional<Zone> getZoneForNodeId(Id<Node> nodeId) {
+			return Optional.ofNullable(nodeZones.get(nodeId));
+		}
+
+		@Override
+		public List<Link> getLinksForZoneId(Id<Zone> zone) {
+			return List.of();
+		}
+
+		@Override
+		public Map<Id<Zone>, Zone> getZones() {
+			return Map.of(zoneAC.getId(), zoneAC, zoneB.getId(), zoneB);
+		}
+	};
+
+	public TimeDependentTravelTimeMatrixTest() {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("AB"), nodeA, nodeB, 150, 15, 20, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("BA"), nodeB, nodeA, 300, 15, 40, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("AC"), nodeA, nodeC, 165, 15, 20, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("CA"), nodeC, nodeA, 135, 15, 20, 1);
+	}
+
+	@Test
+	void timeBins() {
+		var params = params(0);
+		var matrix = TimeDependentTravelTimeMatrix.create(network, zoneSystem, params, 1, congestedAfterOneHour(2), 7200, null);
+		assertThat(matrix.getNumberOfTimeBins()).isEqualTo(2);
+		assertTravelTimes(matrix, 2);
+	}
+
+	@Test
+	void singleTimeBin() {
+		var params = params(0);
+		params.timeBinSize = 0;
+		var matrix = TimeDependentTravelTimeMatrix.create(network, zoneSystem, params, 1, congestedAfterOneHour(2), 7200, null);
+		assertThat(matrix.getNumberOfTimeBins()).isEqualTo(1);
+		assertThat(matrix.getTravelTime(nodeA, nodeB, 0)).isEqualTo(10);
+		assertThat(matrix.getTravelTime(nodeA, nodeB, 5000)).isEqualTo(10);
+	}
+
+	@Test
+	void sparseMatrix() {
+		var params = params(9999);
+		var matrix = TimeDependentTravelTimeMatrix.create(network, zoneSystem, params, 1, congestedAfterOneHour(2), 7200, null);
+		assertSparseTravelTimes(matrix);
+	}
+
+	@Test
+	void cache() throws IOException {
+		Path cacheDirectory = Path.of(utils.getOutputDirectory(), "cache");
+		var params = params(9999);
+
+		// calculate and write
+		var matrix = TimeDependentTravelTimeMatrix.create(network, zoneSystem, params, 1, congestedAfterOneHour(2), 7200, cacheDirectory);
+		assertTravelTimes(matrix, 2);
+		assertSparseTravelTimes(matrix);
+		assertThat(listFiles(cacheDirectory)).hasSize(1);
+
+		// read
+		matrix = TimeDependentTravelTimeMatrix.create(network, zoneSystem, params, 1, congestedAfterOneHour(2), 7200, cacheDirectory);
+		assertTravelTimes(matrix, 2);
+		assertSparseTravelTimes(matrix);
+		assertThat(listFiles(cacheDirectory)).hasSize(1);
+
+		// different travel times -> new cache file
+		matrix = TimeDependentTravelTimeMatrix.create(network, zoneSystem, params, 1, congestedAfterOneHour(3), 7200, cacheDirectory);
+		assertTravelTimes(matrix, 3);
+		assertThat(listFiles(cacheDirectory)).hasSize(2);
+	}
+
+	@Test
+	void minimumWithinTimeBin() {
+		// AB is faster between 1800 and 2400
+		changeFreespeedOfAB(1800, 30);
+		changeFreespeedOfAB(2400, 15);
+		var params = params(9999);
+		TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed(time);
+		var matrix = TimeDependentTravelTimeMatrix.create(network, zoneSystem, params, 1, travelTime, 7200, null);
+		assertThat(matrix.getZonalTravelTime(nodeA, nodeB, 0)).isEqualTo(5);
+		assertThat(matrix.getZonalTravelTime(nodeA, nodeB, 3599)).isEqualTo(5);
+		assertThat(matrix.getZonalTravelTime(nodeA, nodeB, 3600)).isEqualTo(10);
+		// the sparse matrix uses the minimum over all time bins
+		assertThat(matrix.getTravelTime(nodeC, nodeB, 5000)).isEqualTo(9 + 5);
+	}
+
+	@Test
+	void corruptCache() throws IOException {
+		Path cacheDirectory = Path.of(utils.getOutputDirectory(), "cache");
+		var params = params(9999);
+		TimeDependentTravelTimeMatrix.create(network, zoneSystem, params, 1, congestedAfterOneHour(2), 7200, cacheDirectory);
+		Path cacheFile = listFiles(cacheDirectory).get(0);
+		byte[] content = Files.readAllBytes(cacheFile);
+
+		// a truncated file is ignored, and the matrix is calculated and written again
+		Files.write(cacheFile, Arrays.copyOf(content, content.length - 3));
+		assertRecalculated(cacheDirectory, cacheFile, content);
+
+		// same for a file with a different number of time bins in the header
+		byte[] wrongHeader = content.clone();
+		wrongHeader[15] ^= 1;
+		Files.write(cacheFile, wrongHeader);
+		assertRecalculated(cacheDirectory, cacheFile, content);
+
+		// same for a file with garbage after the zonal layers
+		byte[] corrupt = content.clone();
+		Arrays.fill(corrupt, corrupt.length - 20, corrupt.length, (byte)0xff);
+		Files.write(cacheFile, corrupt);
+		assertRecalculated(cacheDirectory, cacheFile, content);
+	}
+
+	private void assertRecalculated(Path cacheDirectory, Path cacheFile, byte[] expectedContent) throws IOException {
+		var matrix = TimeDependentTravelTimeMatrix.create(network, zoneSystem, params(9999), 1, congestedAfterOneHour(2), 7200, cacheDirectory);
+		assertTravelTimes(matrix, 2);
+		assertSparseTravelTimes(matrix);
+		assertThat(Files.readAllBytes(cacheFile)).isEqualTo(expectedContent);
+		assertThat(listFiles(cacheDirectory)).hasSize(1);
+	}
+
+	private void changeFreespeedOfAB(double time, double freespeed) {
+		NetworkChangeEvent event = new NetworkChangeEvent(time);
+		event.addLink(network.getLinks().get(Id.createLinkId("AB")));
+		event.setFreespeedChange(new NetworkChangeEvent.ChangeValue(NetworkChangeEvent.ChangeType.ABSOLUTE_IN_SI_UNITS, freespeed));
+		NetworkUtils.addNetworkChangeEvent(network, event);
+	}
+
+	private void assertTravelTimes(TimeDependentTravelTimeMatrix matrix, int congestionFactor) {
+		// zonal travel times: A and B are central nodes
+		assertThat(matrix.getZonalTravelTime(nodeA, nodeB, 0)).isEqualTo(10);
+		assertThat(matrix.getZonalTravelTime(nodeB, nodeA, 0)).isEqualTo(20);
+		assertThat(matrix.getZonalTravelTime(nodeA, nodeB, 3599)).isEqualTo(10);
+		assertThat(matrix.getZonalTravelTime(nodeA, nodeB, 3600)).isEqualTo(10 * congestionFactor);
+		assertThat(matrix.getZonalTravelTime(nodeB, nodeA, 5000)).isEqualTo(20 * congestionFactor);
+		// departures after the last time bin
+		assertThat(matrix.getZonalTravelTime(nodeA, nodeB, 100000)).isEqualTo(10 * congestionFactor);
+
+		// C and A are in the same zone
+		assertThat(matrix.getZonalTravelTime(nodeC, nodeB, 5000)).isEqualTo(10 * congestionFactor);
+		assertThat(matrix.getZonalTravelTime(nodeA, nodeC, 5000)).isEqualTo(0);
+	}
+
+	private void assertSparseTravelTimes(TimeDependentTravelTimeMatrix matrix) {
+		// the sparse matrix does not depend on the departure time, it uses the minimal link travel times
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 0)).isEqualTo(11);
+		assertThat(matrix.getTravelTime(nodeC, nodeA, 5000)).isEqualTo(9);
+		assertThat(matrix.getTravelTime(nodeB, nodeC, 5000)).isEqualTo(20 + 11);
+		assertThat(matrix.getTravelTime(nodeC, nodeB, 0)).isEqualTo(9 + 10);
+	}
+
+	private static DvrpTravelTimeMatrixParams params(double maxNeighborDistance) {
+		DvrpTravelTimeMatrixParams params = new DvrpTravelTimeMatrixParams();
+		params.maxNeighborDistance = maxNeighborDistance;
+		params.timeBinSize = 3600;
+		return params;
+	}
+
+	private static TravelTime congestedAfterOneHour(int congestionFactor) {
+		return (link, time, person, vehicle) -> link.getLength() / link.getFreespeed() * (time < 3600 ? 1 : congestionFactor);
+	}
+
+	private static Network createTimeVariantNetwork() {
+		NetworkConfigGroup networkConfigGroup = new NetworkConfigGroup();
+		networkConfigGroup.setTimeVariantNetwork(true);
+		return NetworkUtils.createNetwork(networkConfigGroup);
+	}
+
+	private static List<Path> listFiles(Path directory) throws IOException {
+		try (var files = Files.list(directory)) {
+			return files.toList();
+		}
+	}
+}
@@ -48,11 +48,21 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 	// cannot make non-public: used at least twice outside package.  kai, jan'19
 
 	private static final Logger logger = LogManager.getLogger(WarmEmissionAnalysisModule.class);
+	private static final int NUMBER_OF_POLLUTANTS = Pollutant.values().length;
 
 	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor>  avgHbefaWarmTable;
 	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
 	private final Map<HbefaRoadVehicleCategoryKey, Map<HbefaTrafficSituation, Double>> hbefaRoadTrafficSpeeds;
 	private final Set<Pollutant> warmPollutants;
+	private final Pollutant[] warmPollutantsArray;
+
+	// the emission factors are looked up in the tables above only once per vehicle class, road type, traffic situation and pollutant,
+	// afterwards they are taken from the arrays of the VehicleClass/RoadTypeFactors below.
+	// The vehicle class of a vehicle type is memorized by identity until the next reset, so changes of the hbefa attributes
+	// of a vehicle type within an iteration are not picked up:
+	private final Map<VehicleType, VehicleClass> vehicleClassPerType = new IdentityHashMap<>();
+	private final Map<Tuple<HbefaVehicleCategory, HbefaVehicleAttributes>, VehicleClass> vehicleClasses = new HashMap<>();
+	private final Map<String, Integer> roadTypeIndices = new HashMap<>();
 
 	private final EventsManager eventsManager;
 	private final EmissionsConfigGroup ecg;
@@ -90,6 +100,7 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		this.detailedHbefaWarmTable = detailedHbefaWarmTable;
 		this.hbefaRoadTrafficSpeeds = hbefaRoadTrafficSpeeds;
 		this.warmPollutants = warmPollutants;
+		this.warmPollutantsArray = warmPollutants.toArray(new Pollutant[0]);
 
 		Gbl.assertNotNull( eventsManager );
 		this.eventsManager = eventsManager;
@@ -177,6 +188,7 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 	void reset() {
 		logger.info("resetting counters...");
+		vehicleClassPerType.clear();
 
 		freeFlowCounter = 0;
 		saturatedCounter = 0;
@@ -199,6 +211,15 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		this.eventsManager.processEvent(warmEmissionEvent);
 	}
 
+	/**
+	 * Like {@link #throwWarmEmissionEvent(double, Id, Id, Map)}, but takes the warm emissions as written by
+	 * {@link #checkVehicleInfoAndCalculateWarmEmissions(VehicleType, Link, double, double[])}.
+	 */
+	void throwWarmEmissionEvent(double leaveTime, Id<Link> linkId, Id<Vehicle> vehicleId, double[] warmEmissions) {
+		// the array is reused by the caller, while the event and its map may be kept by event handlers, so the map is needed here
+		throwWarmEmissionEvent(leaveTime, linkId, vehicleId, toMap(warmEmissions));
+	}
+
 	@Override
 	public Map<Pollutant, Double> checkVehicleInfoAndCalculateWarmEmissions(Vehicle vehicle, Link link, double travelTime) {
 		return checkVehicleInfoAndCalculateWarmEmissions(vehicle.getType(), vehicle.getId(), link, travelTime);
@@ -208,34 +229,70 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 	/*package-private*/ Map<Pollutant, Double> checkVehicleInfoAndCalculateWarmEmissions(VehicleType vehicleType, Id<Vehicle> vehicleId,
 																						 Link link, double travelTime) {
-		{
-			String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription(vehicleType, this.ecg);
-			// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
-			Gbl.assertNotNull(hbefaVehicleTypeDescription);
-		}
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType);
-		Gbl.assertNotNull(vehicleInformationTuple);
+		double[] warmEmissions = new double[NUMBER_OF_POLLUTANTS];
+		checkVehicleInfoAndCalculateWarmEmissions(vehicleType, link, travelTime, warmEmissions);
+		return toMap(warmEmissions);
+	}
+
+	/**
+	 * Computes the warm emissions of the vehicle type on the link without allocating any objects (once the emission
+	 * factors of the vehicle type and road type are known). The emissions are written to the given array, indexed by
+	 * {@link Pollutant#ordinal()}; only the entries of the warm pollutants are set.
+	 */
+	/*package-private*/ void checkVehicleInfoAndCalculateWarmEmissions(VehicleType vehicleType, Link link, double travelTime, double[] warmEmissions) {
+		double freeVelocity = link.getFreespeed(); //TODO: what about time dependence
 
-		if (vehicleInformationTuple.getFirst() == null) {
-			throw new RuntimeException("Vehicle category for vehicle " + vehicleType + " is not valid. " +
-					"Please make sure that requirements for emission vehicles in " +
-					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+		calculateWarmEmissions(travelTime, EmissionUtils.getHbefaRoadType(link), freeVelocity, link.getLength(), getVehicleClass(vehicleType), warmEmissions);
+	}
+
+	private VehicleClass getVehicleClass(VehicleType vehicleType) {
+		VehicleClass vehicleClass = this.vehicleClassPerType.get(vehicleType);
+		if (vehicleClass == null) {
+			{
+				String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription(vehicleType, this.ecg);
+				// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
+				Gbl.assertNotNull(hbefaVehicleTypeDescription);
+			}
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType);
+			Gbl.assertNotNull(vehicleInformationTuple);
+
+			if (vehicleInformationTuple.getFirst() == null) {
+				throw new RuntimeException("Vehicle category for vehicle " + vehicleType + " is not valid. " +
+						"Please make sure that requirements for emission vehicles in " +
+						EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+			}
+			vehicleClass = getVehicleClass(vehicleInformationTuple);
+			this.vehicleClassPerType.put(vehicleType, vehicleClass);
 		}
+		return vehicleClass;
+	}
 
-		double freeVelocity = link.getFreespeed(); //TODO: what about time dependence
+	private VehicleClass getVehicleClass(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+		return this.vehicleClasses.computeIfAbsent(vehicleInformationTuple, VehicleClass::new);
+	}
 
-		return calculateWarmEmissions(travelTime, EmissionUtils.getHbefaRoadType(link), freeVelocity, link.getLength(), vehicleInformationTuple);
+	private Map<Pollutant, Double> toMap(double[] warmEmissions) {
+		Map<Pollutant, Double> warmEmissionsOfEvent = new EnumMap<>(Pollutant.class);
+		for (Pollutant warmPollutant : this.warmPollutantsArray) {
+			warmEmissionsOfEvent.put(warmPollutant, warmEmissions[warmPollutant.ordinal()]);
+		}
+		return warmEmissionsOfEvent;
 	}
 
 	Map<Pollutant, Double> calculateWarmEmissions(double travelTime_sec, String roadType, double freeVelocity_ms,
 												  double linkLength_m, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+		double[] warmEmissions = new double[NUMBER_OF_POLLUTANTS];
+		calculateWarmEmissions(travelTime_sec, roadType, freeVelocity_ms, linkLength_m, getVehicleClass(vehicleInformationTuple), warmEmissions);
+		return toMap(warmEmissions);
+	}
 
-		Map<Pollutant, Double> warmEmissionsOfEvent = new EnumMap<>(Pollutant.class);
+	private void calculateWarmEmissions(double travelTime_sec, String roadType, double freeVelocity_ms,
+										double linkLength_m, VehicleClass vehicleClass, double[] warmEmissions) {
 
 		// fallback vehicle types that we cannot or do not want to map onto a hbefa vehicle type:
-		if (vehicleInformationTuple.getFirst() == HbefaVehicleCategory.NON_HBEFA_VEHICLE) {
-			for (Pollutant warmPollutant : warmPollutants) {
-				warmEmissionsOfEvent.put(warmPollutant, 0.0);
+		if (vehicleClass.vehicleInformationTuple.getFirst() == HbefaVehicleCategory.NON_HBEFA_VEHICLE) {
+			for (Pollutant warmPollutant : warmPollutantsArray) {
+				warmEmissions[warmPollutant.ordinal()] = 0.0;
 				// yyyyyy todo replace by something more meaningful. kai, jan'20
 			}
 			if (cnt > 0) {
@@ -246,21 +303,10 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 					logger.warn(Gbl.FUTURE_SUPPRESSED);
 				}
 			}
-			return warmEmissionsOfEvent;
-		}
-
-		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
-		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
-		efkey.setVehicleCategory(vehicleInformationTuple.getFirst());
-		efkey.setRoadCategory(roadType);
-		if (this.detailedHbefaWarmTable != null) {
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			efkey.setVehicleAttributes(hbefaVehicleAttributes);
+			return;
 		}
 
+		RoadTypeFactors factors = vehicleClass.getRoadTypeFactors(roadType);
 
 		double averageSpeed_kmh = (linkLength_m / 1000) / (travelTime_sec / 3600);
 
@@ -279,40 +325,32 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		}
 
 		// for the average speed method, the traffic situation is already known here:
+		HbefaTrafficSituation trafficSituation = null;
 		if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-			final HbefaTrafficSituation trafficSituation = getTrafficSituation(efkey, averageSpeed_kmh, freeVelocity_ms * 3.6);
-//			logger.warn( "trafficSituation=" + trafficSituation );
-			efkey.setTrafficSituation(trafficSituation);
+			trafficSituation = getTrafficSituation(factors, averageSpeed_kmh);
 		}
 
 		double fractionStopGo = 0;
 
 		// for each pollutant, compute and memorize emissions:
-		for ( Pollutant warmPollutant : warmPollutants) {
-
-			efkey.setComponent(warmPollutant);
+		for ( Pollutant warmPollutant : warmPollutantsArray) {
 
 			double ef_gpkm;
 			if (ecg.getEmissionsComputationMethod() == StopAndGoFraction) {
 
-				// compute faction.  This cannot be done earlier since efkey.component is needed.
-				fractionStopGo = getFractionStopAndGo(freeVelocity_ms * 3.6, averageSpeed_kmh, vehicleInformationTuple, efkey);
+				// compute faction.  This cannot be done earlier since the stop-go speed depends on the pollutant.
+				fractionStopGo = getFractionStopAndGo(freeVelocity_ms * 3.6, averageSpeed_kmh, factors.getSpeed(STOPANDGO, warmPollutant));
 
 				double efStopGo_gpkm = 0.;
 				if (fractionStopGo > 0) {
 					// compute emissions from stop-go fraction:
-					efkey.setTrafficSituation(STOPANDGO);
-					efStopGo_gpkm = getEf(vehicleInformationTuple, efkey).getFactor();
-					logger.debug("pollutant={}; efStopGo={}", warmPollutant, efStopGo_gpkm);
-
+					efStopGo_gpkm = factors.getFactor(STOPANDGO, warmPollutant);
 				}
 
 				double efFreeFlow_gpkm = 0. ;
 				if ( fractionStopGo<1.) {
 					// compute emissions for free-flow fraction:
-					efkey.setTrafficSituation(FREEFLOW);
-					efFreeFlow_gpkm = getEf(vehicleInformationTuple, efkey).getFactor();
-					logger.debug("pollutant={}; efFreeFlow={}", warmPollutant, efFreeFlow_gpkm);
+					efFreeFlow_gpkm = factors.getFactor(FREEFLOW, warmPollutant);
 				}
 
 				// sum them up:
@@ -320,13 +358,13 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 				ef_gpkm = (fractionFreeFlow * efFreeFlow_gpkm) + (fractionStopGo * efStopGo_gpkm);
 
 			} else if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-				ef_gpkm = getEf(vehicleInformationTuple, efkey).getFactor();
+				ef_gpkm = factors.getFactor(trafficSituation, warmPollutant);
 			} else {
 				throw new RuntimeException( Gbl.NOT_IMPLEMENTED );
 			}
 
 			double generatedEmissions = (linkLength_m / 1000) * ef_gpkm;
-			warmEmissionsOfEvent.put(warmPollutant, generatedEmissions);
+			warmEmissions[warmPollutant.ordinal()] = generatedEmissions;
 		}
 
 		// update counters:
@@ -335,20 +373,13 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 			incrementCountersFractional( linkLength_m / 1000, fractionStopGo );
 		}
 		else if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-			incrementCountersAverage(efkey.getTrafficSituation(), linkLength_m / 1000);
+			incrementCountersAverage(trafficSituation, linkLength_m / 1000);
 		} else {
 			throw new RuntimeException( Gbl.NOT_IMPLEMENTED );
 		}
-
-		return warmEmissionsOfEvent;
 	}
 
-	private double getFractionStopAndGo(double freeFlowSpeed_kmh, double averageSpeed_kmh,
-										Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
-										HbefaWarmEmissionFactorKey efkey) {
-
-		efkey.setTrafficSituation(STOPANDGO);
-		double stopGoSpeedFromTable_kmh = getEf(vehicleInformationTuple, efkey).getSpeed();
+	private double getFractionStopAndGo(double freeFlowSpeed_kmh, double averageSpeed_kmh, double stopGoSpeedFromTable_kmh) {
 
 		double fractionStopGo;
 
@@ -547,35 +578,28 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 
 	//TODO: this is based on looking at the speeds in the HBEFA files, using an MFP, maybe from A.Loder would be nicer, jm  oct'18
-	private HbefaTrafficSituation getTrafficSituation(HbefaWarmEmissionFactorKey efkey, double averageSpeed_kmh, double freeFlowSpeed_kmh) {
-		//TODO: should this be generated only once much earlier?
-		HbefaRoadVehicleCategoryKey hbefaRoadVehicleCategoryKey = new HbefaRoadVehicleCategoryKey(efkey);
-		Map<HbefaTrafficSituation, Double> trafficSpeeds = this.hbefaRoadTrafficSpeeds.get(hbefaRoadVehicleCategoryKey);
-
+	private static HbefaTrafficSituation getTrafficSituation(RoadTypeFactors factors, double averageSpeed_kmh) {
 		//TODO: Hier die Berechnung einfügen, die die trafficSpeedTabelle entsprechend aus den Werten erstellt?
 		//Frage Laufzeit: Einmal berechnen ha
-
-		if (trafficSpeeds == null || !trafficSpeeds.containsKey(FREEFLOW)) {
-			throw new RuntimeException("At least the FREEFLOW condition must be specified for all emission factor keys. " +
-					"It was not found for " + efkey);
-		}
+		// (the traffic speeds are now looked up only once per vehicle class and road type, missing ones are NaN, thus all comparisons with them are false)
+		double[] trafficSpeeds = factors.getTrafficSpeeds();
 
 		HbefaTrafficSituation trafficSituation  = FREEFLOW;
-		if (trafficSpeeds.containsKey(HEAVY) && averageSpeed_kmh <= trafficSpeeds.get(HEAVY)) {
+		if (averageSpeed_kmh <= trafficSpeeds[HEAVY.ordinal()]) {
 			trafficSituation = HEAVY;
 		}
-		if (trafficSpeeds.containsKey(SATURATED) && averageSpeed_kmh <= trafficSpeeds.get(SATURATED)) {
+		if (averageSpeed_kmh <= trafficSpeeds[SATURATED.ordinal()]) {
 			trafficSituation = SATURATED;
 		}
-		if (trafficSpeeds.containsKey(STOPANDGO) && averageSpeed_kmh <= trafficSpeeds.get(STOPANDGO)) {
-			if (averageSpeed_kmh != trafficSpeeds.get(FREEFLOW)) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
+		if (averageSpeed_kmh <= trafficSpeeds[STOPANDGO.ordinal()]) {
+			if (averageSpeed_kmh != trafficSpeeds[FREEFLOW.ordinal()]) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
 				trafficSituation = STOPANDGO;
 			}
 		}
 		/*FIXME The following lines should be added to account for the HBEFA 4.1's additional traffic situation,
 		   but it currently causes a test failure (jwj, Nov'20) */
-//		if (trafficSpeeds.containsKey(STOPANDGO_HEAVY) && averageSpeed_kmh <= trafficSpeeds.get(STOPANDGO_HEAVY)) {
-//			if (averageSpeed_kmh != trafficSpeeds.get(FREEFLOW)) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
+//		if (averageSpeed_kmh <= trafficSpeeds[STOPANDGO_HEAVY.ordinal()]) {
+//			if (averageSpeed_kmh != trafficSpeeds[FREEFLOW.ordinal()]) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
 //				trafficSituation = STOPANDGO_HEAVY;
 //			}
 //		}
@@ -661,4 +685,115 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		return ecg;
 	}
 
+	/**
+	 * A HBEFA vehicle category together with the HBEFA vehicle attributes, i.e. everything of a vehicle type that
+	 * matters for the warm emission factors. Holds the factors per road type in an array indexed by the road type
+	 * index of the module.
+	 */
+	private final class VehicleClass {
+		private final Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
+		private RoadTypeFactors[] roadTypeFactors = new RoadTypeFactors[0];
+
+		VehicleClass(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+			this.vehicleInformationTuple = vehicleInformationTuple;
+		}
+
+		RoadTypeFactors getRoadTypeFactors(String roadType) {
+			Integer index = roadTypeIndices.get(roadType);
+			if (index == null) {
+				index = roadTypeIndices.size();
+				roadTypeIndices.put(roadType, index);
+			}
+			if (index >= this.roadTypeFactors.length) {
+				this.roadTypeFactors = Arrays.copyOf(this.roadTypeFactors, roadTypeIndices.size());
+			}
+			RoadTypeFactors factors = this.roadTypeFactors[index];
+			if (factors == null) {
+				factors = new RoadTypeFactors(this, roadType);
+				this.roadTypeFactors[index] = factors;
+			}
+			return factors;
+		}
+	}
+
+	/**
+	 * The emission factors and speeds of one vehicle class on one road type, indexed by traffic situation and pollutant.
+	 * An entry is looked up by {@link #getEf} when it is needed for the first time, so the fallbacks and errors of the
+	 * lookup stay the same; entries which cannot be found are not memorized.
+	 */
+	private final class RoadTypeFactors {
+		private final VehicleClass vehicleClass;
+		private final String roadType;
+		private final double[] factors = new double[HbefaTrafficSituation.values().length * NUMBER_OF_POLLUTANTS];
+		private final double[] speeds = new double[HbefaTrafficSituation.values().length * NUMBER_OF_POLLUTANTS];
+		private double[] trafficSpeeds = null;
+
+		RoadTypeFactors(VehicleClass vehicleClass, String roadType) {
+			this.vehicleClass = vehicleClass;
+			this.roadType = roadType;
+			Arrays.fill(this.factors, Double.NaN);
+			Arrays.fill(this.speeds, Double.NaN);
+		}
+
+		double getFactor(HbefaTrafficSituation trafficSituation, Pollutant pollutant) {
+			int index = trafficSituation.ordinal() * NUMBER_OF_POLLUTANTS + pollutant.ordinal();
+			if (Double.isNaN(this.factors[index])) {
+				lookup(trafficSituation, pollutant, index);
+			}
+			return this.factors[index];
+		}
+
+		double getSpeed(HbefaTrafficSituation trafficSituation, Pollutant pollutant) {
+			int index = trafficSituation.ordinal() * NUMBER_OF_POLLUTANTS + pollutant.ordinal();
+			if (Double.isNaN(this.speeds[index])) {
+				lookup(trafficSituation, pollutant, index);
+			}
+			return this.speeds[index];
+		}
+
+		private void lookup(HbefaTrafficSituation trafficSituation, Pollutant pollutant, int index) {
+			// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = this.vehicleClass.vehicleInformationTuple;
+			HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
+			efkey.setVehicleCategory(vehicleInformationTuple.getFirst());
+			efkey.setRoadCategory(this.roadType);
+			if (detailedHbefaWarmTable != null) {
+				HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
+				hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
+				hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
+				hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
+				efkey.setVehicleAttributes(hbefaVehicleAttributes);
+			}
+			efkey.setTrafficSituation(trafficSituation);
+			efkey.setComponent(pollutant);
+
+			HbefaWarmEmissionFactor ef = getEf(vehicleInformationTuple, efkey);
+			this.factors[index] = ef.getFactor();
+			this.speeds[index] = ef.getSpeed();
+		}
+
+		/**
+		 * @return the speeds of the traffic situations from the HBEFA table, indexed by traffic situation; NaN if not specified
+		 */
+		double[] getTrafficSpeeds() {
+			if (this.trafficSpeeds == null) {
+				HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
+				efkey.setVehicleCategory(this.vehicleClass.vehicleInformationTuple.getFirst());
+				efkey.setRoadCategory(this.roadType);
+				Map<HbefaTrafficSituation, Double> speeds = hbefaRoadTrafficSpeeds.get(new HbefaRoadVehicleCategoryKey(efkey));
+
+				if (speeds == null || !speeds.containsKey(FREEFLOW)) {
+					throw new RuntimeException("At least the FREEFLOW condition must be specified for all emission factor keys. " +
+							"It was not found for " + efkey);
+				}
+
+				double[] trafficSpeeds = new double[HbefaTrafficSituation.values().length];
+				Arrays.fill(trafficSpeeds, Double.NaN);
+				speeds.forEach((trafficSituation, speed) -> trafficSpeeds[trafficSituation.ordinal()] = speed);
+				this.trafficSpeeds = trafficSpeeds;
+			}
+			return this.trafficSpeeds;
+		}
+	}
+
 }
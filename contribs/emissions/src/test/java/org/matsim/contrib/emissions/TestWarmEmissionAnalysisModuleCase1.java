@@ -146,6 +146,41 @@ public class TestWarmEmissionAnalysisModuleCase1{
 		warmEmissions.clear();
 	}
 
+	//this test method computes the warm emissions of the same vehicle type for different average speeds into one reused array
+	//the results are compared to the factors of the detailed table, also after the emission factors have been memorized by the module
+	@ParameterizedTest
+	@EnumSource(EmissionsConfigGroup.EmissionsComputationMethod.class)
+	void testCheckVehicleInfoAndCalculateWarmEmissions_intoReusedArray(EmissionsConfigGroup.EmissionsComputationMethod emissionsComputationMethod){
+		WarmEmissionAnalysisModule warmEmissionAnalysisModule = setUp(emissionsComputationMethod);
+		double linkLength = 200.;
+		Link mockLink = createMockLink("link 1", linkLength, PETROL_SPEED_FF / 3.6 );
+		Id<VehicleType> vehicleTypeId = Id.create( PASSENGER_CAR + ";"+ PETROL_TECHNOLOGY +";"+ PETROL_SIZE_CLASS +";"+ PETROL_CONCEPT, VehicleType.class );
+		VehicleType vehicleType = VehicleUtils.getFactory().createVehicleType(vehicleTypeId);
+		double detailedPetrolFactorSG = .01; // as in fillDetailedTable
+
+		// at 15 km/h, a third of the link is driven in stop&go: 1/15 = 2/3 * 1/20 + 1/3 * 1/10
+		// the average speed method has no traffic situation between stop&go and free flow in this table and uses free flow
+		double mixedFactor = switch( emissionsComputationMethod ) {
+			case StopAndGoFraction -> 2./3. * DETAILED_PETROL_FACTOR_FF + 1./3. * detailedPetrolFactorSG;
+			case AverageSpeed -> DETAILED_PETROL_FACTOR_FF;
+		};
+		double[] averageSpeeds = {PETROL_SPEED_FF, (PETROL_SPEED_FF + PETROL_SPEED_SG) / 2, PETROL_SPEED_SG};
+		double[] expectedFactors = {DETAILED_PETROL_FACTOR_FF, mixedFactor, detailedPetrolFactorSG};
+
+		double[] warmEmissions = new double[Pollutant.values().length];
+		for (int i = 0; i < 2; i++) {
+			for (int s = 0; s < averageSpeeds.length; s++) {
+				double travelTime = linkLength / averageSpeeds[s] * 3.6;
+				warmEmissionAnalysisModule.checkVehicleInfoAndCalculateWarmEmissions(vehicleType, mockLink, travelTime, warmEmissions);
+				for (Pollutant pollutant : pollutants) {
+					Assertions.assertEquals(expectedFactors[s] * linkLength / 1000., warmEmissions[pollutant.ordinal()], MatsimTestUtils.EPSILON,
+							pollutant + " at " + averageSpeeds[s] + " km/h");
+				}
+			}
+		}
+		Assertions.assertEquals(6, warmEmissionAnalysisModule.getWarmEmissionEventCounter());
+	}
+
 
 	/*
 	* this test method creates a mock link and mock vehicle (petrol technology) with a complete vehicleTypId --> detailed values are used
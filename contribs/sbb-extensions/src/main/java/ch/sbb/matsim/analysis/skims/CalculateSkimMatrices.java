@@ -113,6 +113,7 @@ public class CalculateSkimMatrices {
     private final String outputDirectory;
     private final int numberOfThreads;
     private Map<String, Coord[]> coordsPerZone = null;
+    private boolean useRangeTrees = false;
 
     public CalculateSkimMatrices(String outputDirectory, int numberOfThreads) {
         this.outputDirectory = outputDirectory;
@@ -132,6 +133,14 @@ public class CalculateSkimMatrices {
         this.numberOfThreads = numberOfThreads;
     }
 
+    /**
+     * Calculates the PT matrices from range trees instead of least cost trees every 120 seconds (default: false),
+     * see {@link PTSkimMatrices#calculateSkimMatricesFromRangeTrees}.
+     */
+    public void setUseRangeTrees(boolean useRangeTrees) {
+        this.useRangeTrees = useRangeTrees;
+    }
+
     private static <T> void combineMatrices(FloatMatrix<T> matrix1, FloatMatrix<T> matrix2) {
         Set<T> ids = matrix2.id2index.keySet();
         for (T fromId : ids) {
@@ -518,8 +527,11 @@ public class CalculateSkimMatrices {
         RaptorParameters raptorParameters = RaptorUtils.createParameters(config);
 
         log.info("calc PT matrices for " + Time.writeTime(startTime) + " - " + Time.writeTime(endTime));
-        PTSkimMatrices.PtIndicators<String> matrices = PTSkimMatrices.calculateSkimMatrices(
-			raptorData, this.coordsPerZone, startTime, endTime, 120, raptorParameters, this.numberOfThreads, trainDetector, coordAggregator);
+        PTSkimMatrices.PtIndicators<String> matrices = this.useRangeTrees
+			? PTSkimMatrices.calculateSkimMatricesFromRangeTrees(
+				raptorData, this.coordsPerZone, startTime, endTime, raptorParameters, this.numberOfThreads, trainDetector, coordAggregator)
+			: PTSkimMatrices.calculateSkimMatrices(
+				raptorData, this.coordsPerZone, startTime, endTime, 120, raptorParameters, this.numberOfThreads, trainDetector, coordAggregator);
         return matrices;
 
     }
@@ -61,6 +61,9 @@ import java.util.stream.Collectors;
  * LeastCostPathTrees, reducing the computational effort down to the calculation of m*n LeastCostPathTrees. In addition, it supports running the calculation in parallel to reduce the time required to
  * compute one matrix.
  * <p>
+ * Optionally, {@link #calculateSkimMatricesFromRangeTrees} uses one range tree per point instead of one least cost tree per point and time step, see
+ * {@link SwissRailRaptor#calcRangeTree(Collection, double, double, RaptorParameters, org.matsim.api.core.v01.population.Person)}.
+ * <p>
  * If no connection can be found between two zones (can happen when there is no transit stop in a zone), the corresponding matrix cells contain the value "0" for the perceived frequency, and
  * "Infinity" for all other skim matrices.
  *
@@ -73,6 +76,29 @@ public class PTSkimMatrices {
 
     public static <T> PTSkimMatrices.PtIndicators<T> calculateSkimMatrices(SwissRailRaptorData raptorData, Map<T, Coord[]> coordsPerZone, double minDepartureTime, double maxDepartureTime,
             double stepSize_seconds, RaptorParameters parameters, int numberOfThreads, BiPredicate<TransitLine, TransitRoute> trainDetector, CoordAggregator coordAggregator) {
+        if (stepSize_seconds <= 0) {
+            throw new IllegalArgumentException("stepSize_seconds must be positive, but is " + stepSize_seconds);
+        }
+        return calculate(raptorData, coordsPerZone, minDepartureTime, maxDepartureTime, stepSize_seconds, parameters, numberOfThreads, trainDetector, coordAggregator);
+    }
+
+    /**
+     * Calculates the skim matrices from range trees instead of least cost trees calculated at fixed time steps. The range trees contain all connections
+     * departing in the time window, also the ones departing between two time steps, so the results may differ from
+     * {@link #calculateSkimMatrices(SwissRailRaptorData, Map, double, double, double, RaptorParameters, int, BiPredicate, CoordAggregator)}: the connections
+     * are Pareto-optimal regarding arrival time and number of transfers, the travel costs are not optimized. The calculation is only moderately faster, about
+     * 1.2-1.9 times on schedules with regular headways.
+     */
+    public static <T> PTSkimMatrices.PtIndicators<T> calculateSkimMatricesFromRangeTrees(SwissRailRaptorData raptorData, Map<T, Coord[]> coordsPerZone, double minDepartureTime,
+            double maxDepartureTime, RaptorParameters parameters, int numberOfThreads, BiPredicate<TransitLine, TransitRoute> trainDetector, CoordAggregator coordAggregator) {
+        return calculate(raptorData, coordsPerZone, minDepartureTime, maxDepartureTime, 0, parameters, numberOfThreads, trainDetector, coordAggregator);
+    }
+
+    /**
+     * @param stepSize the time step between two least cost trees, or 0 to use range trees
+     */
+    private static <T> PTSkimMatrices.PtIndicators<T> calculate(SwissRailRaptorData raptorData, Map<T, Coord[]> coordsPerZone, double minDepartureTime, double maxDepartureTime,
+            double stepSize, RaptorParameters parameters, int numberOfThreads, BiPredicate<TransitLine, TransitRoute> trainDetector, CoordAggregator coordAggregator) {
         // prepare calculation
         Set<T> zoneIds = coordsPerZone.keySet();
         PtIndicators<T> pti = new PtIndicators<>(zoneIds);
@@ -85,7 +111,7 @@ public class PTSkimMatrices {
         Thread[] threads = new Thread[numberOfThreads];
         for (int i = 0; i < numberOfThreads; i++) {
             SwissRailRaptor raptor = new SwissRailRaptor.Builder(raptorData, config).build();
-            RowWorker<T> worker = new RowWorker<>(originZones, zoneIds, coordsPerZone, pti, raptor, parameters, minDepartureTime, maxDepartureTime, stepSize_seconds, counter, trainDetector, coordAggregator);
+            RowWorker<T> worker = new RowWorker<>(originZones, zoneIds, coordsPerZone, pti, raptor, parameters, minDepartureTime, maxDepartureTime, stepSize, counter, trainDetector, coordAggregator);
             threads[i] = new Thread(worker, "PT-FrequencyMatrix-" + Time.writeTime(minDepartureTime) + "-" + Time.writeTime(maxDepartureTime) + "-" + i);
             threads[i].start();
         }
@@ -202,26 +228,39 @@ public class PTSkimMatrices {
                 accessTimes.put(stop.getId(), accessTime);
             }
 
-            List<Map<Id<TransitStopFacility>, TravelInfo>> trees = new ArrayList<>();
-
             double timeWindow = this.maxDepartureTime - this.minDepartureTime;
-            double endTime = this.maxDepartureTime + timeWindow;
-            for (double time = this.minDepartureTime - timeWindow; time < endTime; time += this.stepSize) {
-                Map<Id<TransitStopFacility>, TravelInfo> tree = this.raptor.calcTree(fromStops, time, this.parameters, null);
-                trees.add(tree);
-            }
+            Map<Id<TransitStopFacility>, List<TravelInfo>> profiles = this.stepSize > 0
+                    ? calcTreeProfiles(fromStops, this.minDepartureTime - timeWindow, this.maxDepartureTime + timeWindow)
+                    : this.raptor.calcRangeTree(fromStops, this.minDepartureTime - timeWindow, this.maxDepartureTime + timeWindow, this.parameters, null);
 
             for (T toZoneId : this.destinationZones) {
                 Coord[] toCoords = this.coordsPerZone.get(toZoneId);
                 if (toCoords != null) {
                     for (Coord toCoord : toCoords) {
-                        calcForOD(fromZoneId, toZoneId, toCoord, accessTimes, trees, (float) fromCoordWeight);
+                        calcForOD(fromZoneId, toZoneId, toCoord, accessTimes, profiles, (float) fromCoordWeight);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Collects the connections of least cost trees calculated every {@link #stepSize} seconds, grouped by the reached stop.
+         */
+        private Map<Id<TransitStopFacility>, List<TravelInfo>> calcTreeProfiles(Collection<TransitStopFacility> fromStops, double startTime, double endTime) {
+            Map<Id<TransitStopFacility>, List<TravelInfo>> profiles = new HashMap<>();
+            for (double time = startTime; time < endTime; time += this.stepSize) {
+                Map<Id<TransitStopFacility>, TravelInfo> tree = this.raptor.calcTree(fromStops, time, this.parameters, null);
+                for (Map.Entry<Id<TransitStopFacility>, TravelInfo> e : tree.entrySet()) {
+                    TravelInfo info = e.getValue();
+                    if (!info.isWalkOnly()) {
+                        profiles.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add(info);
                     }
                 }
             }
+            return profiles;
         }
 
-        private void calcForOD(T fromZoneId, T toZoneId, Coord toCoord, Map<Id<TransitStopFacility>, Double> accessTimes, List<Map<Id<TransitStopFacility>, TravelInfo>> trees, float fromCoordWeight) {
+        private void calcForOD(T fromZoneId, T toZoneId, Coord toCoord, Map<Id<TransitStopFacility>, Double> accessTimes, Map<Id<TransitStopFacility>, List<TravelInfo>> profiles, float fromCoordWeight) {
             double walkSpeed = this.parameters.getBeelineWalkSpeed();
 
             Collection<TransitStopFacility> toStops = findStopCandidates(toCoord, this.raptor, this.parameters);
@@ -232,7 +271,7 @@ public class PTSkimMatrices {
                 egressTimes.put(stop.getId(), egressTime);
             }
 
-            List<ODConnection> connections = buildODConnections(trees, accessTimes, egressTimes);
+            List<ODConnection> connections = buildODConnections(profiles, accessTimes, egressTimes);
             if (connections.isEmpty()) {
                 return;
             }
@@ -307,16 +346,16 @@ public class PTSkimMatrices {
             this.pti.dataCountMatrix.add(fromZoneId, toZoneId, fromCoordWeight);
         }
 
-        private List<ODConnection> buildODConnections(List<Map<Id<TransitStopFacility>, TravelInfo>> trees, Map<Id<TransitStopFacility>, Double> accessTimes,
+        private List<ODConnection> buildODConnections(Map<Id<TransitStopFacility>, List<TravelInfo>> profiles, Map<Id<TransitStopFacility>, Double> accessTimes,
                 Map<Id<TransitStopFacility>, Double> egressTimes) {
             List<ODConnection> connections = new ArrayList<>();
 
-            for (Map<Id<TransitStopFacility>, TravelInfo> tree : trees) {
-                for (Map.Entry<Id<TransitStopFacility>, Double> egressEntry : egressTimes.entrySet()) {
-                    Id<TransitStopFacility> egressStopId = egressEntry.getKey();
-                    Double egressTime = egressEntry.getValue();
-                    TravelInfo info = tree.get(egressStopId);
-                    if (info != null && !info.isWalkOnly()) {
+            for (Map.Entry<Id<TransitStopFacility>, Double> egressEntry : egressTimes.entrySet()) {
+                Id<TransitStopFacility> egressStopId = egressEntry.getKey();
+                Double egressTime = egressEntry.getValue();
+                List<TravelInfo> profile = profiles.get(egressStopId);
+                if (profile != null) {
+                    for (TravelInfo info : profile) {
                         Double accessTime = accessTimes.get(info.departureStop);
                         ODConnection connection = new ODConnection(info.ptDepartureTime, info.ptTravelTime, accessTime, egressTime, info.transferCount, info);
                         connections.add(connection);
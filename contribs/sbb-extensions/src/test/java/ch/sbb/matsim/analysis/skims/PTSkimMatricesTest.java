@@ -0,0 +1,166 @@
+/* *********************************************************************** *
+ * project: org.matsim.* 												   *
+ *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package ch.sbb.matsim.analysis.skims;
+
+import ch.sbb.matsim.routing.pt.raptor.RaptorParameters;
+import ch.sbb.matsim.routing.pt.raptor.RaptorStaticConfig;
+import ch.sbb.matsim.routing.pt.raptor.RaptorUtils;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the skims calculated from range trees with the ones calculated from least cost trees at fixed time steps.
+ */
+public class PTSkimMatricesTest {
+
+	@Test
+	@SuppressWarnings("deprecation")
+	void testRangeTreesMatchFixedStepTrees() {
+		Config config = ConfigUtils.createConfig();
+		config.transit().setUseTransit(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		buildSchedule(scenario);
+
+		RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(config);
+		raptorConfig.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+		SwissRailRaptorData data = SwissRailRaptorData.create(scenario.getTransitSchedule(), null, raptorConfig, scenario.getNetwork(), null);
+		RaptorParameters parameters = RaptorUtils.createParameters(config);
+
+		Map<String, Coord[]> coordsPerZone = new TreeMap<>();
+		coordsPerZone.put("A", new Coord[] {new Coord(0, 100), new Coord(0, -100)});
+		coordsPerZone.put("B", new Coord[] {new Coord(2000, 100)});
+		coordsPerZone.put("C", new Coord[] {new Coord(4000, 100)});
+		coordsPerZone.put("D", new Coord[] {new Coord(4000, 2100), new Coord(4100, 2000)});
+		PTSkimMatrices.CoordAggregator coordAggregator = new PTSkimMatrices.CoordAggregator() {};
+
+		double minDepartureTime = 7 * 3600;
+		double maxDepartureTime = 8 * 3600;
+		PTSkimMatrices.PtIndicators<String> expected = PTSkimMatrices.calculateSkimMatrices(data, coordsPerZone, minDepartureTime, maxDepartureTime, 60,
+				parameters, 2, (line, route) -> line.getId().toString().equals("red"), coordAggregator);
+		PTSkimMatrices.PtIndicators<String> actual = PTSkimMatrices.calculateSkimMatricesFromRangeTrees(data, coordsPerZone, minDepartureTime, maxDepartureTime,
+				parameters, 2, (line, route) -> line.getId().toString().equals("red"), coordAggregator);
+
+		Assertions.assertTrue(actual.dataCountMatrix.get("A", "D") > 0, "A-D should be connected with a transfer at C.");
+		Assertions.assertEquals(1, actual.transferCountMatrix.get("A", "D"), 1e-5);
+		Assertions.assertEquals(6, actual.frequencyMatrix.get("A", "C"), 1e-5);
+
+		for (String fromZone : coordsPerZone.keySet()) {
+			for (String toZone : coordsPerZone.keySet()) {
+				String od = fromZone + "-" + toZone + ": ";
+				Assertions.assertEquals(expected.dataCountMatrix.get(fromZone, toZone), actual.dataCountMatrix.get(fromZone, toZone), 1e-5, od + "data count");
+				Assertions.assertEquals(expected.adaptionTimeMatrix.get(fromZone, toZone), actual.adaptionTimeMatrix.get(fromZone, toZone), 1e-2, od + "adaption time");
+				Assertions.assertEquals(expected.frequencyMatrix.get(fromZone, toZone), actual.frequencyMatrix.get(fromZone, toZone), 1e-5, od + "frequency");
+				Assertions.assertEquals(expected.travelTimeMatrix.get(fromZone, toZone), actual.travelTimeMatrix.get(fromZone, toZone), 1e-2, od + "travel time");
+				Assertions.assertEquals(expected.distanceMatrix.get(fromZone, toZone), actual.distanceMatrix.get(fromZone, toZone), 1e-2, od + "distance");
+				Assertions.assertEquals(expected.accessTimeMatrix.get(fromZone, toZone), actual.accessTimeMatrix.get(fromZone, toZone), 1e-2, od + "access time");
+				Assertions.assertEquals(expected.egressTimeMatrix.get(fromZone, toZone), actual.egressTimeMatrix.get(fromZone, toZone), 1e-2, od + "egress time");
+				Assertions.assertEquals(expected.transferCountMatrix.get(fromZone, toZone), actual.transferCountMatrix.get(fromZone, toZone), 1e-5, od + "transfer count");
+				Assertions.assertEquals(expected.trainDistanceShareMatrix.get(fromZone, toZone), actual.trainDistanceShareMatrix.get(fromZone, toZone), 1e-5, od + "train distance share");
+				Assertions.assertEquals(expected.trainTravelTimeShareMatrix.get(fromZone, toZone), actual.trainTravelTimeShareMatrix.get(fromZone, toZone), 1e-5, od + "train travel time share");
+			}
+		}
+	}
+
+	/**
+	 * The red line runs from A via B to C every 10 minutes, the blue line from C to D every 15 minutes.
+	 */
+	private static void buildSchedule(Scenario scenario) {
+		Network network = scenario.getNetwork();
+		Node n0 = network.getFactory().createNode(Id.createNodeId("0"), new Coord(-2000, 0));
+		Node n1 = network.getFactory().createNode(Id.createNodeId("1"), new Coord(0, 0));
+		Node n2 = network.getFactory().createNode(Id.createNodeId("2"), new Coord(2000, 0));
+		Node n3 = network.getFactory().createNode(Id.createNodeId("3"), new Coord(4000, 0));
+		Node n4 = network.getFactory().createNode(Id.createNodeId("4"), new Coord(4000, 2000));
+		for (Node node : List.of(n0, n1, n2, n3, n4)) {
+			network.addNode(node);
+		}
+		Link linkA = network.getFactory().createLink(Id.createLinkId("A"), n0, n1);
+		Link linkB = network.getFactory().createLink(Id.createLinkId("B"), n1, n2);
+		Link linkC = network.getFactory().createLink(Id.createLinkId("C"), n2, n3);
+		Link linkD = network.getFactory().createLink(Id.createLinkId("D"), n3, n4);
+		for (Link link : List.of(linkA, linkB, linkC, linkD)) {
+			link.setLength(2000);
+			network.addLink(link);
+		}
+
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		TransitScheduleFactory f = schedule.getFactory();
+		TransitStopFacility stopA = createStop(f, schedule, "A", new Coord(0, 0), linkA);
+		TransitStopFacility stopB = createStop(f, schedule, "B", new Coord(2000, 0), linkB);
+		TransitStopFacility stopC = createStop(f, schedule, "C", new Coord(4000, 0), linkC);
+		TransitStopFacility stopD = createStop(f, schedule, "D", new Coord(4000, 2000), linkD);
+
+		TransitLine red = f.createTransitLine(Id.create("red", TransitLine.class));
+		NetworkRoute redNetRoute = RouteUtils.createLinkNetworkRouteImpl(linkA.getId(), List.of(linkB.getId()), linkC.getId());
+		List<TransitRouteStop> redStops = List.of(
+				f.createTransitRouteStop(stopA, 0, 0),
+				f.createTransitRouteStop(stopB, 180, 180),
+				f.createTransitRouteStop(stopC, 360, 360));
+		TransitRoute redRoute = f.createTransitRoute(Id.create("red", TransitRoute.class), redNetRoute, redStops, "train");
+		for (int i = 0; i < 24; i++) {
+			redRoute.addDeparture(f.createDeparture(Id.create("red" + i, Departure.class), 5 * 3600 + i * 600));
+		}
+		red.addRoute(redRoute);
+		schedule.addTransitLine(red);
+
+		TransitLine blue = f.createTransitLine(Id.create("blue", TransitLine.class));
+		NetworkRoute blueNetRoute = RouteUtils.createLinkNetworkRouteImpl(linkC.getId(), linkD.getId());
+		List<TransitRouteStop> blueStops = List.of(
+				f.createTransitRouteStop(stopC, 0, 0),
+				f.createTransitRouteStop(stopD, 240, 240));
+		TransitRoute blueRoute = f.createTransitRoute(Id.create("blue", TransitRoute.class), blueNetRoute, blueStops, "bus");
+		for (int i = 0; i < 16; i++) {
+			blueRoute.addDeparture(f.createDeparture(Id.create("blue" + i, Departure.class), 5 * 3600 + 120 + i * 900));
+		}
+		blue.addRoute(blueRoute);
+		schedule.addTransitLine(blue);
+	}
+
+	private static TransitStopFacility createStop(TransitScheduleFactory f, TransitSchedule schedule, String id, Coord coord, Link link) {
+		TransitStopFacility stop = f.createTransitStopFacility(Id.create(id, TransitStopFacility.class), coord, false);
+		stop.setLinkId(link.getId());
+		schedule.addStopFacility(stop);
+		return stop;
+	}
+
+}
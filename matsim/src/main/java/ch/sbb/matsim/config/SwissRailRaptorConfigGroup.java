@@ -66,6 +66,8 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private static final String PARAM_INTERMODAL_LEG_ONLYHANDLING_DESC = "Define how routes containing only intermodal legs are handled: Useful options: alllow, avoid, forbid";
     private static final String PARAM_TRANSFER_CALCULATION = "transferCalculation";
     private static final String PARAM_TRANFER_CALCULATION_DESC = "Defines whether all potential transfers are precomputed at the beginning of the simulation (Initial) or whether they are constructed on-demand when needed (Adaptive). The former incurs potentially long up-front caclulations, but quicker routing. The latter avoids any initial computation, but may require longer routing time.";
+    private static final String PARAM_TRANSFER_CACHE_DIRECTORY = "transferCacheDirectory";
+    private static final String PARAM_TRANSFER_CACHE_DIRECTORY_DESC = "Directory where the transfers precomputed with transferCalculation=Initial are stored and re-used by later runs with the same schedule and transfer settings. If not set, the transfers are calculated at every start.";
 
     private boolean useRangeQuery = false;
     private boolean useIntermodality = false;
@@ -80,6 +82,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private double transferWalkMargin = 5;
 	private IntermodalLegOnlyHandling intermodalLegOnlyHandling = IntermodalLegOnlyHandling.forbid;
 	private RaptorTransferCalculation transferCalculation = RaptorTransferCalculation.Initial;
+	private String transferCacheDirectory = null;
 
     private ScoringParameters scoringParameters = ScoringParameters.Default;
 
@@ -149,6 +152,16 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
 		return transferCalculation;
 	}
 
+	@StringSetter(PARAM_TRANSFER_CACHE_DIRECTORY)
+	public void setTransferCacheDirectory(String transferCacheDirectory) {
+		this.transferCacheDirectory = transferCacheDirectory;
+	}
+
+	@StringGetter(PARAM_TRANSFER_CACHE_DIRECTORY)
+	public String getTransferCacheDirectory() {
+		return transferCacheDirectory;
+	}
+
 	@StringGetter(PARAM_USE_RANGE_QUERY)
     public boolean isUseRangeQuery() {
         return this.useRangeQuery;
@@ -724,6 +737,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         comments.put(PARAM_TRANSFER_WALK_MARGIN, PARAM_TRANSFER_WALK_MARGIN_DESC);
 		comments.put(PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION,PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION_DESC);
 		comments.put(PARAM_TRANSFER_CALCULATION, PARAM_TRANFER_CALCULATION_DESC);
+		comments.put(PARAM_TRANSFER_CACHE_DIRECTORY, PARAM_TRANSFER_CACHE_DIRECTORY_DESC);
         return comments;
     }
 
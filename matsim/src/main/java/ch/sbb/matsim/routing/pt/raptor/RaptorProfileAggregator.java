@@ -0,0 +1,93 @@
+/* *********************************************************************** *
+ * project: org.matsim.* 												   *
+ *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package ch.sbb.matsim.routing.pt.raptor;
+
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorCore.TravelInfo;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aggregates the connections to a stop, as calculated by {@link SwissRailRaptor#calcRangeTree}, to a single value,
+ * e.g. for skim matrices or accessibility calculations.
+ */
+@FunctionalInterface
+public interface RaptorProfileAggregator<T> {
+
+	/**
+	 * @param profile the connections to a stop, ordered by departure time
+	 * @return the aggregated value, or <code>null</code> if the stop should not be contained in the result
+	 */
+	T aggregate(List<TravelInfo> profile);
+
+	/**
+	 * The average travel time when departing at the origin every <code>stepSize</code> seconds between
+	 * <code>fromTime</code> (inclusive) and <code>toTime</code> (exclusive), see {@link #calcTravelTimes}. The range
+	 * tree should contain departures until at least one headway after <code>toTime</code>, otherwise the last
+	 * departure times might not have a connection.
+	 */
+	static RaptorProfileAggregator<Double> averageTravelTime(double fromTime, double toTime, double stepSize) {
+		return profile -> Arrays.stream(calcTravelTimes(profile, fromTime, toTime, stepSize)).average().orElse(Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * The given percentile (0 &lt; percentile &le; 100) of the travel times when departing at the origin every
+	 * <code>stepSize</code> seconds between <code>fromTime</code> (inclusive) and <code>toTime</code> (exclusive), see
+	 * {@link #calcTravelTimes}.
+	 */
+	static RaptorProfileAggregator<Double> travelTimePercentile(double fromTime, double toTime, double stepSize, double percentile) {
+		if (percentile <= 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be in (0, 100], but is " + percentile);
+		}
+		return profile -> {
+			double[] travelTimes = calcTravelTimes(profile, fromTime, toTime, stepSize);
+			if (travelTimes.length == 0) {
+				return Double.POSITIVE_INFINITY;
+			}
+			Arrays.sort(travelTimes);
+			int rank = (int) Math.ceil(percentile / 100.0 * travelTimes.length);
+			return travelTimes[Math.max(rank, 1) - 1];
+		};
+	}
+
+	/**
+	 * Calculates, for every departure time at the origin between <code>fromTime</code> (inclusive) and
+	 * <code>toTime</code> (exclusive) in steps of <code>stepSize</code>, the travel time to the stop using the connection
+	 * that arrives first among those that can still be reached. The travel time includes the access time and the waiting
+	 * time at the first stop. It is {@link Double#POSITIVE_INFINITY} if no connection can be reached anymore.
+	 */
+	static double[] calcTravelTimes(List<TravelInfo> profile, double fromTime, double toTime, double stepSize) {
+		int count = (int) Math.max(0, Math.ceil((toTime - fromTime) / stepSize));
+		double[] travelTimes = new double[count];
+		for (int i = 0; i < count; i++) {
+			double depTime = fromTime + i * stepSize;
+			double earliestArrival = Double.POSITIVE_INFINITY;
+			for (TravelInfo info : profile) {
+				double originDepTime = info.ptDepartureTime - info.waitingTime - info.accessTime;
+				if (originDepTime >= depTime && info.ptArrivalTime < earliestArrival) {
+					earliestArrival = info.ptArrivalTime;
+				}
+			}
+			travelTimes[i] = earliestArrival - depTime;
+		}
+		return travelTimes;
+	}
+
+}
@@ -91,6 +91,9 @@ public class RaptorStaticConfig {
 
 	private SwissRailRaptorConfigGroup.IntermodalLegOnlyHandling intermodalLegOnlyHandling = SwissRailRaptorConfigGroup.IntermodalLegOnlyHandling.forbid;
 
+    private int numberOfThreads = 1;
+    private String transferCacheDirectory = null;
+
     public double getBeelineWalkConnectionDistance() {
         return this.beelineWalkConnectionDistance;
     }
@@ -192,4 +195,27 @@ public class RaptorStaticConfig {
     public void setTransferCalculation(RaptorTransferCalculation transferCalculation) {
         this.transferCalculation = transferCalculation;
     }
+
+    public int getNumberOfThreads() {
+        return this.numberOfThreads;
+    }
+
+    /**
+     * Sets the number of threads used to calculate the transfers between route stops when preparing the data.
+     */
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    public String getTransferCacheDirectory() {
+        return this.transferCacheDirectory;
+    }
+
+    /**
+     * Sets the directory where the transfers calculated with {@link RaptorTransferCalculation#Initial} are stored, to
+     * be re-used when preparing the data for the same schedule and configuration again. <code>null</code> disables the cache.
+     */
+    public void setTransferCacheDirectory(String transferCacheDirectory) {
+        this.transferCacheDirectory = transferCacheDirectory;
+    }
 }
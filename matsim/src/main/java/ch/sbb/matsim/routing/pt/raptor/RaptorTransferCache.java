@@ -0,0 +1,210 @@
+/* *********************************************************************** *
+ * project: org.matsim.* 												   *
+ *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package ch.sbb.matsim.routing.pt.raptor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRouteStop;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfer;
+
+/**
+ * Stores the transfers between route stops calculated by {@link SwissRailRaptorData} in a binary file, so they do not
+ * have to be calculated again when the same schedule is used with the same configuration.
+ *
+ * The transfers refer to route stops by their index, which only depends on the order of the transit lines, routes and
+ * route stops in the schedule. Thus a file is identified by a checksum over the route stops with everything the
+ * calculation of the transfers depends on, see {@link #calcChecksum}.
+ */
+final class RaptorTransferCache {
+
+    private static final long MAGIC = 0x5241505452414E53L; // "RAPTRANS"
+    private static final int VERSION = 1;
+    private static final Logger log = LogManager.getLogger(RaptorTransferCache.class);
+
+    private RaptorTransferCache() {
+    }
+
+    static Path getCacheFile(String cacheDirectory, String checksum) {
+        return Path.of(cacheDirectory).resolve("raptor-transfers-" + checksum + ".bin");
+    }
+
+    /**
+     * Calculates a checksum over the route stops (their order, stop facilities, coordinates, offsets and whether
+     * boarding and alighting are allowed), the earliest and latest departure of each route, the minimal transfer times
+     * of the schedule and the configuration values used for calculating the transfers.
+     */
+    static String calcChecksum(TransitSchedule schedule, RRouteStop[] routeStops, double[] earliestDepartures, double[] latestDepartures, RaptorStaticConfig config) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(config.getBeelineWalkConnectionDistance()).append(';')
+            .append(config.getBeelineWalkSpeed()).append(';')
+            .append(config.getBeelineWalkDistanceFactor()).append(';')
+            .append(config.getMinimalTransferTime()).append(';')
+            .append(config.getOptimization()).append(';')
+            .append(routeStops.length).append(';')
+            .append(earliestDepartures.length).append(';');
+        for (RRouteStop routeStop : routeStops) {
+            TransitStopFacility stop = routeStop.routeStop.getStopFacility();
+            sb.append(routeStop.transitRouteIndex).append(';')
+                .append(stop.getId()).append(';')
+                .append(stop.getCoord().getX()).append(';')
+                .append(stop.getCoord().getY()).append(';')
+                .append(routeStop.arrivalOffset).append(';')
+                .append(routeStop.departureOffset).append(';')
+                .append(routeStop.routeStop.isAllowBoarding()).append(';')
+                .append(routeStop.routeStop.isAllowAlighting()).append(';');
+            if (sb.length() > 8192) {
+                digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+                sb.setLength(0);
+            }
+        }
+        for (int i = 0; i < earliestDepartures.length; i++) {
+            sb.append(earliestDepartures[i]).append(';').append(latestDepartures[i]).append(';');
+            if (sb.length() > 8192) {
+                digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+                sb.setLength(0);
+            }
+        }
+        // the iteration order of the minimal transfer times is not defined, so sort them
+        List<String> minimalTransferTimes = new ArrayList<>();
+        MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+        while (iter.hasNext()) {
+            iter.next();
+            TransitStopFacility toStop = schedule.getFacilities().get(iter.getToStopId());
+            minimalTransferTimes.add(iter.getFromStopId() + ";" + iter.getToStopId() + ";" + iter.getSeconds() + ";"
+                + (toStop == null ? "" : toStop.getCoord().getX() + ";" + toStop.getCoord().getY()) + ";");
+        }
+        minimalTransferTimes.sort(null);
+        for (String mtt : minimalTransferTimes) {
+            sb.append(mtt);
+            if (sb.length() > 8192) {
+                digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+                sb.setLength(0);
+            }
+        }
+        digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    /**
+     * Writes the transfers per route stop to the given file. The data is first written to a temporary file which is
+     * then moved to its final location, so concurrent runs sharing a cache directory never see partial files.
+     */
+    static void write(Path file, String checksum, RTransfer[][] transfersPerRouteStop) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path tmpFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile), 1 << 16))) {
+                out.writeLong(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(checksum);
+                out.writeInt(transfersPerRouteStop.length);
+                for (RTransfer[] transfers : transfersPerRouteStop) {
+                    if (transfers == null) {
+                        out.writeInt(0);
+                        continue;
+                    }
+                    out.writeInt(transfers.length);
+                    for (RTransfer transfer : transfers) {
+                        out.writeInt(transfer.toRouteStop);
+                        out.writeInt(transfer.transferTime);
+                        out.writeInt(transfer.transferDistance);
+                    }
+                }
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the transfers previously written with {@link #write}. Returns <code>null</code> if the file does not
+     * contain data for the given checksum and number of route stops, or if it cannot be read, e.g. because it is
+     * truncated or corrupt. The transfers then have to be calculated again.
+     */
+    static RTransfer[][] read(Path file, String checksum, int countRouteStops) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readLong() != MAGIC || in.readInt() != VERSION) {
+                log.warn("ignoring transfer cache file " + file + ", it has an unknown format.");
+                return null;
+            }
+            if (!in.readUTF().equals(checksum) || in.readInt() != countRouteStops) {
+                log.warn("ignoring transfer cache file " + file + ", it does not match the schedule.");
+                return null;
+            }
+            RTransfer[][] transfersPerRouteStop = new RTransfer[countRouteStops][];
+            for (int fromRouteStop = 0; fromRouteStop < countRouteStops; fromRouteStop++) {
+                int count = in.readInt();
+                if (count == 0) {
+                    continue;
+                }
+                if (count < 0 || count > countRouteStops) {
+                    log.warn("ignoring transfer cache file " + file + ", it is corrupt.");
+                    return null;
+                }
+                RTransfer[] transfers = new RTransfer[count];
+                for (int i = 0; i < count; i++) {
+                    int toRouteStop = in.readInt();
+                    if (toRouteStop < 0 || toRouteStop >= countRouteStops) {
+                        log.warn("ignoring transfer cache file " + file + ", it is corrupt.");
+                        return null;
+                    }
+                    transfers[i] = new RTransfer(fromRouteStop, toRouteStop, in.readInt(), in.readInt());
+                }
+                transfersPerRouteStop[fromRouteStop] = transfers;
+            }
+            return transfersPerRouteStop;
+        } catch (EOFException e) {
+            log.warn("ignoring transfer cache file " + file + ", it is truncated.");
+            return null;
+        } catch (IOException e) {
+            log.warn("ignoring transfer cache file " + file + ", it could not be read.", e);
+            return null;
+        }
+    }
+}
@@ -64,6 +64,8 @@ public final class RaptorUtils {
 		staticConfig.setIntermodalLegOnlyHandling(srrConfig.getIntermodalLegOnlyHandling());
 		staticConfig.setMinimalTransferTime(config.transitRouter().getAdditionalTransferTime());
 		staticConfig.setTransferCalculation(srrConfig.getTransferCalculation());
+		staticConfig.setTransferCacheDirectory(srrConfig.getTransferCacheDirectory());
+		staticConfig.setNumberOfThreads(Math.max(1, config.global().getNumberOfThreads()));
 
         staticConfig.setUseModeMappingForPassengers(srrConfig.isUseModeMappingForPassengers());
         if (srrConfig.isUseModeMappingForPassengers()) {
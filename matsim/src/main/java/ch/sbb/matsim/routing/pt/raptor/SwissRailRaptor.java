@@ -23,6 +23,7 @@ package ch.sbb.matsim.routing.pt.raptor;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -240,6 +241,39 @@ public class SwissRailRaptor implements TransitRouter {
         return this.calcLeastCostTree(accessStops, departureTime, parameters, person, null);
     }
 
+    /**
+     * Calculates the connections from the given stops to all other stops for all departures between
+     * <code>earliestDepartureTime</code> and <code>latestDepartureTime</code>, see
+     * {@link SwissRailRaptorCore#calcRangeTree(double, double, Collection, RaptorParameters, Person)}. This is much
+     * faster than calculating a tree for every departure time.
+     */
+    public Map<Id<TransitStopFacility>, List<SwissRailRaptorCore.TravelInfo>> calcRangeTree(Collection<TransitStopFacility> fromStops, double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters, Person person) {
+        if (this.data.config.getOptimization() != RaptorStaticConfig.RaptorOptimization.OneToAllRouting && !this.treeWarningShown) {
+            log.warn("SwissRailRaptorData was not initialized with full support for tree calculations and may result in unexpected results. Use `RaptorStaticConfig.setOptimization(RaptorOptimization.OneToAllRouting)` to fix this issue.");
+            this.treeWarningShown = true;
+        }
+        List<InitialStop> accessStops = new ArrayList<>();
+        for (TransitStopFacility stop : fromStops) {
+            accessStops.add(new InitialStop(stop, 0, 0, 0, null));
+        }
+        return this.raptor.calcRangeTree(earliestDepartureTime, latestDepartureTime, accessStops, parameters, person);
+    }
+
+    /**
+     * Like {@link #calcRangeTree(Collection, double, double, RaptorParameters, Person)}, but aggregates the connections
+     * to each stop to a single value, e.g. an average travel time.
+     */
+    public <T> Map<Id<TransitStopFacility>, T> calcRangeTree(Collection<TransitStopFacility> fromStops, double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters, Person person, RaptorProfileAggregator<T> aggregator) {
+        Map<Id<TransitStopFacility>, T> result = new HashMap<>();
+        for (Map.Entry<Id<TransitStopFacility>, List<SwissRailRaptorCore.TravelInfo>> e : calcRangeTree(fromStops, earliestDepartureTime, latestDepartureTime, parameters, person).entrySet()) {
+            T value = aggregator.aggregate(e.getValue());
+            if (value != null) {
+                result.put(e.getKey(), value);
+            }
+        }
+        return result;
+    }
+
 	/** Calculates a least-cost-tree for every actual departure time between <code>earliestDepartureTime</code>
 	 *  and <code>latestDepartureTime</code> at the provided stop-facility.
 	 *  This method returns nothing, instead users have to use the <code>observer</code> to collect
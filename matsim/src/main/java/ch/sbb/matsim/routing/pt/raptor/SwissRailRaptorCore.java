@@ -28,6 +28,7 @@ import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.CachingTransferProvid
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRoute;
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRouteStop;
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfer;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.population.Person;
@@ -68,6 +69,13 @@ public class SwissRailRaptorCore {
     private final RaptorTransferCostCalculator transferCostCalculator;
     private final RouteSegmentIteratorImpl routeSegmentIterator;
 
+    // labels of the range tree calculation, one row per round. Only allocated when needed.
+    private final List<int[]> rangeArrivalTimesAtStop = new ArrayList<>();
+    private final List<PathElement[]> rangeArrivalPathsAtStop = new ArrayList<>();
+    private final List<int[]> rangeBoardingTimesAtRouteStop = new ArrayList<>();
+    private final List<PathElement[]> rangeBoardingPathsAtRouteStop = new ArrayList<>();
+    private int rangeRoundCount = 0;
+
     private final static int TIME_UNDEFINED = Integer.MIN_VALUE;
 
     SwissRailRaptorCore(SwissRailRaptorData data, RaptorInVehicleCostCalculator inVehicleCostCalculator, RaptorTransferCostCalculator transferCostCalculator) {
@@ -617,6 +625,330 @@ public class SwissRailRaptorCore {
 			}
 		}
 
+    /**
+     * Calculates the connections from the start stops to all other stops for all departures between
+     * <code>earliestDepTime</code> and <code>latestDepTime</code>, based on rRAPTOR (the range variant of RAPTOR,
+     * see Delling et al.). The departures at the start stops are processed from the latest to the earliest one,
+     * and the labels of each round are kept from one departure to the next: a connection is only recorded if it
+     * arrives earlier than all connections with at most the same number of transfers that depart later. Each
+     * departure thus only explores a small part of the network, which is much cheaper than calculating a
+     * {@link #calcLeastCostTree least cost tree} for each departure time.
+     * <p>
+     * In contrast to the least cost tree, the connections are optimized by arrival time and number of transfers,
+     * not by cost. For each reached stop, the result contains the Pareto-optimal connections with respect to
+     * departure time, arrival time and number of transfers, ordered by departure time. The costs of the
+     * connections are calculated the same way as for the least cost tree. The start stops and stops that can only be
+     * reached by walking are not contained in the result.
+     */
+    public Map<Id<TransitStopFacility>, List<TravelInfo>> calcRangeTree(double earliestDepTime, double latestDepTime, Collection<InitialStop> startStops, RaptorParameters parameters, Person person) {
+        reset();
+        resetRangeLabels();
+
+        CachingTransferProvider transferProvider = this.data.new CachingTransferProvider();
+        int maxRounds = parameters.getMaxTransfers() == Integer.MAX_VALUE ? Integer.MAX_VALUE : parameters.getMaxTransfers() + 1;
+        @SuppressWarnings("unchecked")
+        List<RangeConnection>[] profiles = new List[this.data.countStops];
+
+        int[] departureTimes = collectRangeDepartureTimes(earliestDepTime, latestDepTime, startStops);
+        for (int i = departureTimes.length - 1; i >= 0; i--) {
+            int depTime = departureTimes[i];
+
+            // round 0: access to the start stops, and walking from there to nearby stops
+            ensureRangeRound(0);
+            this.improvedRouteStopIndices.clear();
+            this.improvedStops.clear();
+            for (InitialStop stop : startStops) {
+                int arrivalTime = (int) (depTime + stop.accessTime);
+                for (int routeStopIndex : this.data.routeStopsPerStopFacility.get(stop.stop)) {
+                    RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+                    if (routeStop.routeStop.isAllowBoarding()) {
+                        PathElement pe = new PathElement(null, routeStop, TIME_UNDEFINED, TIME_UNDEFINED, TIME_UNDEFINED, arrivalTime, stop.accessCost, 0, stop.distance, 0, true, null, stop);
+                        improveRangeBoarding(0, routeStopIndex, pe);
+                        improveRangeArrival(0, routeStop.stopFacilityIndex, pe); // prevents connections returning to a start stop
+                        this.arrivalPathPerStop[routeStop.stopFacilityIndex] = pe;
+                        this.improvedStops.set(routeStop.stopFacilityIndex);
+                    }
+                }
+            }
+            handleRangeTransfers(0, this.arrivalPathPerStop, depTime, profiles, parameters, transferProvider);
+
+            int round = 0;
+            while (!this.improvedRouteStopIndices.isEmpty() && round < maxRounds) {
+                round++;
+                ensureRangeRound(round);
+                exploreRangeRoutes(round, depTime, profiles, parameters, person, transferProvider);
+                if (this.improvedStops.isEmpty()) {
+                    break;
+                }
+                this.improvedRouteStopIndices.clear();
+                handleRangeTransfers(round, this.rangeArrivalPathsAtStop.get(round), depTime, profiles, parameters, transferProvider);
+            }
+        }
+
+        // collect the profile of each stop, ordered by departure time
+        Map<Id<TransitStopFacility>, List<TravelInfo>> result = new HashMap<>((int) (this.data.countStops / 0.75) + 1);
+        for (Map.Entry<TransitStopFacility, Integer> e : this.data.stopFacilityIndices.entrySet()) {
+            List<RangeConnection> profile = profiles[e.getValue()];
+            if (profile != null) {
+                List<TravelInfo> travelInfos = new ArrayList<>(profile.size());
+                for (int i = profile.size() - 1; i >= 0; i--) {
+                    travelInfos.add(getTravelInfo(profile.get(i).path, parameters));
+                }
+                result.put(e.getKey().getId(), travelInfos);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects the departure times at the origin that allow to catch a departure at one of the start stops, or at a
+     * stop that can be reached from a start stop by walking.
+     */
+    private int[] collectRangeDepartureTimes(double earliestDepTime, double latestDepTime, Collection<InitialStop> startStops) {
+        IntArrayList departureTimes = new IntArrayList();
+        for (InitialStop stop : startStops) {
+            int accessTime = (int) Math.ceil(stop.accessTime);
+            for (int routeStopIndex : this.data.routeStopsPerStopFacility.get(stop.stop)) {
+                RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+                collectRangeDepartureTimes(earliestDepTime, latestDepTime, routeStop, accessTime, departureTimes);
+
+                final int firstTransferIndex;
+                final int lastTransferIndex;
+                final RTransfer[] transfers;
+                if (!this.useAdaptiveTransferCalculation) {
+                    transfers = this.data.transfers;
+                    firstTransferIndex = routeStop.indexFirstTransfer;
+                    lastTransferIndex = firstTransferIndex + routeStop.countTransfers;
+                } else {
+                    transfers = this.data.calculateTransfers(routeStop);
+                    firstTransferIndex = 0;
+                    lastTransferIndex = transfers.length;
+                }
+                for (int transferIndex = firstTransferIndex; transferIndex < lastTransferIndex; transferIndex++) {
+                    RTransfer transfer = transfers[transferIndex];
+                    collectRangeDepartureTimes(earliestDepTime, latestDepTime, this.data.routeStops[transfer.toRouteStop], accessTime + transfer.transferTime, departureTimes);
+                }
+            }
+        }
+        return Arrays.stream(departureTimes.elements(), 0, departureTimes.size()).sorted().distinct().toArray();
+    }
+
+    private void collectRangeDepartureTimes(double earliestDepTime, double latestDepTime, RRouteStop routeStop, int timeToStop, IntArrayList departureTimes) {
+        if (!routeStop.routeStop.isAllowBoarding()) {
+            return;
+        }
+        RRoute route = this.data.routes[routeStop.transitRouteIndex];
+        for (int depIndex = route.indexFirstDeparture; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
+            // the departure time at the origin such that the agent arrives at the stop exactly when the vehicle departs
+            int depTime = this.data.departures[depIndex] + routeStop.departureOffset - timeToStop;
+            if (depTime >= earliestDepTime && depTime <= latestDepTime) {
+                departureTimes.add(depTime);
+            }
+        }
+    }
+
+    private void resetRangeLabels() {
+        this.rangeRoundCount = 0;
+    }
+
+    /**
+     * Makes sure the labels for the given round exist. The labels of a round are initialized with the labels of the
+     * previous round, as a connection with fewer transfers is also valid if more transfers are allowed.
+     */
+    private void ensureRangeRound(int round) {
+        while (this.rangeRoundCount <= round) {
+            if (this.rangeArrivalTimesAtStop.size() == this.rangeRoundCount) {
+                this.rangeArrivalTimesAtStop.add(new int[this.data.countStops]);
+                this.rangeArrivalPathsAtStop.add(new PathElement[this.data.countStops]);
+                this.rangeBoardingTimesAtRouteStop.add(new int[this.data.countRouteStops]);
+                this.rangeBoardingPathsAtRouteStop.add(new PathElement[this.data.countRouteStops]);
+            }
+            int r = this.rangeRoundCount;
+            if (r == 0) {
+                Arrays.fill(this.rangeArrivalTimesAtStop.get(0), Integer.MAX_VALUE);
+                Arrays.fill(this.rangeArrivalPathsAtStop.get(0), null);
+                Arrays.fill(this.rangeBoardingTimesAtRouteStop.get(0), Integer.MAX_VALUE);
+                Arrays.fill(this.rangeBoardingPathsAtRouteStop.get(0), null);
+            } else {
+                System.arraycopy(this.rangeArrivalTimesAtStop.get(r - 1), 0, this.rangeArrivalTimesAtStop.get(r), 0, this.data.countStops);
+                System.arraycopy(this.rangeArrivalPathsAtStop.get(r - 1), 0, this.rangeArrivalPathsAtStop.get(r), 0, this.data.countStops);
+                System.arraycopy(this.rangeBoardingTimesAtRouteStop.get(r - 1), 0, this.rangeBoardingTimesAtRouteStop.get(r), 0, this.data.countRouteStops);
+                System.arraycopy(this.rangeBoardingPathsAtRouteStop.get(r - 1), 0, this.rangeBoardingPathsAtRouteStop.get(r), 0, this.data.countRouteStops);
+            }
+            this.rangeRoundCount++;
+        }
+    }
+
+    /**
+     * Sets the label of the stop in the given round and all later rounds, as far as it is an improvement.
+     */
+    private void improveRangeArrival(int round, int stopIndex, PathElement pe) {
+        for (int r = round; r < this.rangeRoundCount; r++) {
+            int[] times = this.rangeArrivalTimesAtStop.get(r);
+            if (pe.arrivalTime >= times[stopIndex]) {
+                break; // the labels never increase with the round, so no later round can be improved either
+            }
+            times[stopIndex] = pe.arrivalTime;
+            this.rangeArrivalPathsAtStop.get(r)[stopIndex] = pe;
+        }
+    }
+
+    private void improveRangeBoarding(int round, int routeStopIndex, PathElement pe) {
+        for (int r = round; r < this.rangeRoundCount; r++) {
+            int[] times = this.rangeBoardingTimesAtRouteStop.get(r);
+            if (pe.arrivalTime >= times[routeStopIndex]) {
+                break;
+            }
+            times[routeStopIndex] = pe.arrivalTime;
+            this.rangeBoardingPathsAtRouteStop.get(r)[routeStopIndex] = pe;
+            if (r == round) {
+                this.improvedRouteStopIndices.set(routeStopIndex);
+            }
+        }
+    }
+
+    private void exploreRangeRoutes(int round, int depTime, List<RangeConnection>[] profiles, RaptorParameters parameters, Person person, CachingTransferProvider transferProvider) {
+        this.improvedStops.clear();
+        int[] boardingTimes = this.rangeBoardingTimesAtRouteStop.get(round - 1);
+        PathElement[] boardingPaths = this.rangeBoardingPathsAtRouteStop.get(round - 1);
+        int[] arrivalTimes = this.rangeArrivalTimesAtStop.get(round);
+
+        double marginalUtilityOfWaitingPt_utl_s = parameters.getMarginalUtilityOfWaitingPt_utl_s();
+        boolean useTransportModeUtilities = parameters.isUseTransportModeUtilities();
+
+        for (int firstRouteStopIndex = this.improvedRouteStopIndices.nextSetBit(0); firstRouteStopIndex >= 0; firstRouteStopIndex = this.improvedRouteStopIndices.nextSetBit(firstRouteStopIndex + 1)) {
+            RRouteStop firstRouteStop = this.data.routeStops[firstRouteStopIndex];
+            RRoute route = this.data.routes[firstRouteStop.transitRouteIndex];
+            int endRouteStopIndex = route.indexFirstRouteStop + route.countRouteStops;
+
+            // step along the route, boarding the earliest departure that can be reached at any of the stops
+            int currentDepartureIndex = -1;
+            PathElement boardingPE = null;
+            int boardingRouteStopIndex = -1;
+            for (int routeStopIndex = firstRouteStopIndex; routeStopIndex < endRouteStopIndex; routeStopIndex++) {
+                RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+                if (currentDepartureIndex >= 0 && routeStop.routeStop.isAllowAlighting()) {
+                    int arrivalTime = this.data.departures[currentDepartureIndex] + routeStop.arrivalOffset;
+                    if (arrivalTime < arrivalTimes[routeStop.stopFacilityIndex]) {
+                        PathElement pe = createRangeRoutePathElement(boardingPE, boardingRouteStopIndex, currentDepartureIndex, routeStopIndex, arrivalTime,
+                                marginalUtilityOfWaitingPt_utl_s, useTransportModeUtilities, parameters, person, transferProvider);
+                        improveRangeArrival(round, routeStop.stopFacilityIndex, pe);
+                        this.improvedStops.set(routeStop.stopFacilityIndex);
+                        addRangeConnection(profiles, routeStop.stopFacilityIndex, depTime, round, pe);
+                    }
+                }
+                PathElement pe = boardingPaths[routeStopIndex];
+                // only look for another departure if we arrive at the stop before the current departure leaves
+                if (pe != null && (currentDepartureIndex < 0 || boardingTimes[routeStopIndex] < this.data.departures[currentDepartureIndex] + routeStop.departureOffset)) {
+                    int departureIndex = findNextDepartureIndex(route, routeStop, boardingTimes[routeStopIndex]);
+                    if (departureIndex >= 0 && (currentDepartureIndex < 0 || departureIndex < currentDepartureIndex)) {
+                        currentDepartureIndex = departureIndex;
+                        boardingPE = pe;
+                        boardingRouteStopIndex = routeStopIndex;
+                    }
+                }
+            }
+            firstRouteStopIndex = endRouteStopIndex - 1; // we've handled this route, continue with the next one
+        }
+    }
+
+    private PathElement createRangeRoutePathElement(PathElement boardingPE, int boardingRouteStopIndex, int departureIndex, int toRouteStopIndex, int arrivalTime,
+                                                    double marginalUtilityOfWaitingPt_utl_s, boolean useTransportModeUtilities, RaptorParameters parameters, Person person, CachingTransferProvider transferProvider) {
+        RRouteStop boardingRouteStop = this.data.routeStops[boardingRouteStopIndex];
+        RRouteStop toRouteStop = this.data.routeStops[toRouteStopIndex];
+        int departureTime = this.data.departures[departureIndex];
+        Vehicle vehicle = this.data.departureVehicles[departureIndex];
+
+        int vehicleArrivalTime = departureTime + boardingRouteStop.arrivalOffset;
+        int agentBoardingTime = Math.max(boardingPE.arrivalTime, vehicleArrivalTime);
+        double waitingCost = -marginalUtilityOfWaitingPt_utl_s * (agentBoardingTime - boardingPE.arrivalTime);
+        double travelCostWhenBoarding = boardingPE.arrivalTravelCost + waitingCost;
+        int firstDepartureTime = (boardingPE.firstDepartureTime == TIME_UNDEFINED) ? agentBoardingTime : boardingPE.firstDepartureTime;
+
+        double marginalUtilityOfTravelTime_utl_s = parameters.getMarginalUtilityOfTravelTime_utl_s(
+                !useTransportModeUtilities ? boardingRouteStop.mode : boardingRouteStop.route.getTransportMode());
+        this.routeSegmentIterator.reset(departureIndex, agentBoardingTime, boardingRouteStopIndex, toRouteStopIndex);
+        double inVehicleCost = this.inVehicleCostCalculator.getInVehicleCost(arrivalTime - agentBoardingTime, marginalUtilityOfTravelTime_utl_s, person, vehicle, parameters, this.routeSegmentIterator);
+        double arrivalTravelCost = travelCostWhenBoarding + inVehicleCost;
+        transferProvider.reset(boardingPE.transfer);
+        double arrivalTransferCost = (boardingPE.firstDepartureTime != TIME_UNDEFINED) ? (boardingPE.arrivalTransferCost + this.transferCostCalculator.calcTransferCost(boardingPE, transferProvider, this.data.config, parameters, arrivalTime - firstDepartureTime, boardingPE.transferCount, boardingPE.arrivalTransferCost, boardingPE.arrivalTime)) : 0;
+        double distance = toRouteStop.distanceAlongRoute - boardingRouteStop.distanceAlongRoute;
+        return new PathElement(boardingPE, toRouteStop, firstDepartureTime, agentBoardingTime, departureTime + boardingRouteStop.departureOffset, arrivalTime, arrivalTravelCost, arrivalTransferCost, distance, boardingPE.transferCount, false, null, null);
+    }
+
+    /**
+     * Handles the transfers from the stops improved in the given round. Stops reached by a transfer are not used as
+     * starting point of further transfers in the same round.
+     */
+    private void handleRangeTransfers(int round, PathElement[] arrivalPaths, int depTime, List<RangeConnection>[] profiles, RaptorParameters raptorParams, CachingTransferProvider transferProvider) {
+        this.tmpImprovedStops.clear();
+        int[] arrivalTimes = this.rangeArrivalTimesAtStop.get(round);
+
+        double margUtilityTransitWalk = raptorParams.getMarginalUtilityOfTravelTime_utl_s(TransportMode.walk);
+
+        for (int stopIndex = this.improvedStops.nextSetBit(0); stopIndex >= 0; stopIndex = this.improvedStops.nextSetBit(stopIndex + 1)) {
+            PathElement fromPE = arrivalPaths[stopIndex];
+            RRouteStop fromRouteStop = fromPE.toRouteStop;
+
+            final int firstTransferIndex;
+            final int lastTransferIndex;
+            final RTransfer[] transfers;
+            if (!this.useAdaptiveTransferCalculation) {
+                transfers = this.data.transfers;
+                firstTransferIndex = fromRouteStop.indexFirstTransfer;
+                lastTransferIndex = firstTransferIndex + fromRouteStop.countTransfers;
+            } else {
+                transfers = this.data.calculateTransfers(fromRouteStop);
+                firstTransferIndex = 0;
+                lastTransferIndex = transfers.length;
+            }
+
+            for (int transferIndex = firstTransferIndex; transferIndex < lastTransferIndex; transferIndex++) {
+                RTransfer transfer = transfers[transferIndex];
+                RRouteStop toRouteStop = this.data.routeStops[transfer.toRouteStop];
+                int newArrivalTime = fromPE.arrivalTime + transfer.transferTime;
+                boolean improvesBoarding = newArrivalTime < this.rangeBoardingTimesAtRouteStop.get(round)[transfer.toRouteStop] && toRouteStop.routeStop.isAllowBoarding();
+                boolean improvesArrival = round > 0 && newArrivalTime < arrivalTimes[toRouteStop.stopFacilityIndex]
+                        && !(this.tmpImprovedStops.get(toRouteStop.stopFacilityIndex) && newArrivalTime >= this.tmpArrivalPathPerStop[toRouteStop.stopFacilityIndex].arrivalTime);
+                if (!improvesBoarding && !improvesArrival) {
+                    continue;
+                }
+                transferProvider.reset(transfer);
+                double newArrivalTravelCost = fromPE.arrivalTravelCost - transfer.transferTime * margUtilityTransitWalk;
+                double newArrivalTransferCost = (fromPE.firstDepartureTime != TIME_UNDEFINED) ? (fromPE.arrivalTransferCost + this.transferCostCalculator.calcTransferCost(fromPE, transferProvider, this.data.config, raptorParams, newArrivalTime - fromPE.firstDepartureTime, fromPE.transferCount + 1, fromPE.arrivalTransferCost, fromPE.arrivalTime)) : 0;
+                PathElement pe = new PathElement(fromPE, toRouteStop, fromPE.firstDepartureTime, TIME_UNDEFINED, TIME_UNDEFINED, newArrivalTime, newArrivalTravelCost, newArrivalTransferCost, transfer.transferDistance, fromPE.transferCount + 1, true, transfer, null);
+                if (improvesBoarding) {
+                    improveRangeBoarding(round, transfer.toRouteStop, pe);
+                }
+                if (improvesArrival) {
+                    // store it in tmp only, so it is not used as starting point of another transfer ("parallel update")
+                    this.tmpArrivalPathPerStop[toRouteStop.stopFacilityIndex] = pe;
+                    this.tmpImprovedStops.set(toRouteStop.stopFacilityIndex);
+                }
+            }
+        }
+        for (int stopIndex = this.tmpImprovedStops.nextSetBit(0); stopIndex >= 0; stopIndex = this.tmpImprovedStops.nextSetBit(stopIndex + 1)) {
+            PathElement pe = this.tmpArrivalPathPerStop[stopIndex];
+            improveRangeArrival(round, stopIndex, pe);
+            addRangeConnection(profiles, stopIndex, depTime, round, pe);
+        }
+    }
+
+    private static void addRangeConnection(List<RangeConnection>[] profiles, int stopIndex, int depTime, int round, PathElement pe) {
+        List<RangeConnection> profile = profiles[stopIndex];
+        if (profile == null) {
+            profile = new ArrayList<>(4);
+            profiles[stopIndex] = profile;
+        }
+        int last = profile.size() - 1;
+        if (last >= 0 && profile.get(last).departureTime == depTime && profile.get(last).round == round) {
+            // an earlier arrival for the same departure and number of transfers replaces the previous one
+            profile.set(last, new RangeConnection(depTime, round, pe));
+        } else {
+            profile.add(new RangeConnection(depTime, round, pe));
+        }
+    }
+
     private TravelInfo getTravelInfo(PathElement destination, RaptorParameters parameters) {
         PathElement firstStage = destination;
         PathElement secondStage = null;
@@ -1022,6 +1354,18 @@ public class SwissRailRaptorCore {
         }
     }
 
+    private static final class RangeConnection {
+        final int departureTime;
+        final int round;
+        final PathElement path;
+
+        RangeConnection(int departureTime, int round, PathElement path) {
+            this.departureTime = departureTime;
+            this.round = round;
+            this.path = path;
+        }
+    }
+
     public static final class TravelInfo {
         public final Id<TransitStopFacility> departureStop;
         public final int transferCount;
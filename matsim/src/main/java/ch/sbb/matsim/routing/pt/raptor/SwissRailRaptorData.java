@@ -20,8 +20,12 @@
 
 package ch.sbb.matsim.routing.pt.raptor;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import javax.annotation.Nullable;
 
@@ -61,6 +65,8 @@ public class SwissRailRaptorData {
     final int countStops;
     final int countRouteStops;
     final RRoute[] routes;
+    final double[] earliestDepartures; // per route, +inf if a route has no departures
+    final double[] latestDepartures; // per route, -inf if a route has no departures
     final int[] departures; // in the RAPTOR paper, this is usually called "trips", but I stick with the MATSim nomenclature
     final Vehicle[] departureVehicles; // the vehicle used for each departure
     final Id<Departure>[] departureIds;
@@ -77,7 +83,7 @@ public class SwissRailRaptorData {
     final RTransfer[][] transferCache;
 
     private SwissRailRaptorData(RaptorStaticConfig config, int countStops,
-                                RRoute[] routes, int[] departures, Vehicle[] departureVehicles, Id<Departure>[] departureIds, RRouteStop[] routeStops,
+                                RRoute[] routes, double[] earliestDepartures, double[] latestDepartures, int[] departures, Vehicle[] departureVehicles, Id<Departure>[] departureIds, RRouteStop[] routeStops,
                                 RTransfer[] transfers, Map<TransitStopFacility, Integer> stopFacilityIndices,
                                 Map<TransitStopFacility, int[]> routeStopsPerStopFacility, QuadTree<TransitStopFacility> stopsQT,
                                 OccupancyData occupancyData, IdMap<TransitStopFacility, Map<TransitStopFacility, Double>> staticTransferTimes) {
@@ -85,6 +91,8 @@ public class SwissRailRaptorData {
         this.countStops = countStops;
         this.countRouteStops = routeStops.length;
         this.routes = routes;
+        this.earliestDepartures = earliestDepartures;
+        this.latestDepartures = latestDepartures;
         this.departures = departures;
         this.departureVehicles = departureVehicles;
         this.departureIds = departureIds;
@@ -129,6 +137,8 @@ public class SwissRailRaptorData {
         Vehicle[] departureVehicles = new Vehicle[(int) countDepartures];
         Id<Departure>[] departureIds = new Id[(int) countDepartures];
         RRoute[] routes = new RRoute[countRoutes];
+        double[] earliestDepartures = new double[countRoutes];
+        double[] latestDepartures = new double[countRoutes];
         RRouteStop[] routeStops = new RRouteStop[(int) countRouteStops];
 
         int indexRoutes = 0;
@@ -189,7 +199,11 @@ public class SwissRailRaptorData {
                     });
                     indexRouteStops++;
                 }
+                earliestDepartures[indexRoutes] = Double.POSITIVE_INFINITY;
+                latestDepartures[indexRoutes] = Double.NEGATIVE_INFINITY;
                 for (Departure dep : route.getDepartures().values()) {
+                    earliestDepartures[indexRoutes] = Math.min(earliestDepartures[indexRoutes], dep.getDepartureTime());
+                    latestDepartures[indexRoutes] = Math.max(latestDepartures[indexRoutes], dep.getDepartureTime());
                     departures[indexDeparture] = (int) dep.getDepartureTime();
                     departureVehicles[indexDeparture] = vehicles.get(dep.getVehicleId());
                     departureIds[indexDeparture] = dep.getId();
@@ -206,18 +220,36 @@ public class SwissRailRaptorData {
         int countStopFacilities = stops.size();
 
         // if cached transfer calculation is active, don't generate any transfers here
-		final Map<Integer, RTransfer[]> allTransfers;
+		RTransfer[][] allTransfers = null;
 
 		if (staticConfig.getTransferCalculation().equals(RaptorTransferCalculation.Initial)) {
-			allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops,
-					staticConfig);
+			Path cacheFile = null;
+			String checksum = null;
+			if (staticConfig.getTransferCacheDirectory() != null) {
+				checksum = RaptorTransferCache.calcChecksum(schedule, routeStops, earliestDepartures, latestDepartures, staticConfig);
+				cacheFile = RaptorTransferCache.getCacheFile(staticConfig.getTransferCacheDirectory(), checksum);
+				if (Files.exists(cacheFile)) {
+					log.info("reading transfers from " + cacheFile);
+					allTransfers = RaptorTransferCache.read(cacheFile, checksum, routeStops.length);
+				}
+			}
+			if (allTransfers == null) {
+				allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops,
+						earliestDepartures, latestDepartures, staticConfig);
+				if (cacheFile != null) {
+					log.info("writing transfers to " + cacheFile);
+					RaptorTransferCache.write(cacheFile, checksum, allTransfers);
+				}
+			}
 		} else {
-			allTransfers = Collections.emptyMap();
+			allTransfers = new RTransfer[routeStops.length][];
 		}
 
         long countTransfers = 0;
-        for (RTransfer[] transfers : allTransfers.values()) {
-            countTransfers += transfers.length;
+        for (RTransfer[] transfers : allTransfers) {
+            if (transfers != null) {
+                countTransfers += transfers.length;
+            }
         }
         if (countTransfers > Integer.MAX_VALUE) {
             throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
@@ -225,7 +257,7 @@ public class SwissRailRaptorData {
         RTransfer[] transfers = new RTransfer[(int) countTransfers];
         int indexTransfer = 0;
         for (int routeStopIndex = 0; routeStopIndex < routeStops.length; routeStopIndex++) {
-            RTransfer[] stopTransfers = allTransfers.get(routeStopIndex);
+            RTransfer[] stopTransfers = allTransfers[routeStopIndex];
             int transferCount = stopTransfers == null ? 0 : stopTransfers.length;
             if (transferCount > 0) {
                 RRouteStop routeStop = routeStops[routeStopIndex];
@@ -252,7 +284,7 @@ public class SwissRailRaptorData {
 			}
 		}
 
-        SwissRailRaptorData data = new SwissRailRaptorData(staticConfig, countStopFacilities, routes, departures, departureVehicles, departureIds, routeStops, transfers, stopFacilityIndices, routeStopsPerStopFacility, stopsQT, occupancyData, staticTransferTimes);
+        SwissRailRaptorData data = new SwissRailRaptorData(staticConfig, countStopFacilities, routes, earliestDepartures, latestDepartures, departures, departureVehicles, departureIds, routeStops, transfers, stopFacilityIndices, routeStopsPerStopFacility, stopsQT, occupancyData, staticTransferTimes);
 
         long endMillis = System.currentTimeMillis();
         log.info("SwissRailRaptor data preparation done. Took " + (endMillis - startMillis) / 1000 + " seconds.");
@@ -265,12 +297,11 @@ public class SwissRailRaptorData {
     }
 
     // calculate possible transfers between TransitRouteStops
-    private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
-        Map<Integer, RTransfer[]> transfers = new HashMap<>(stopsQT.size() * 5);
+    // the transfers of all route stops of a stop facility are calculated by the same task, so the result does not depend on the number of threads
+    private static RTransfer[][] calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops,
+                                                             double[] earliestDepartures, double[] latestDepartures, RaptorStaticConfig config) {
+        RTransfer[][] transfers = new RTransfer[routeStops.length][];
         double maxBeelineWalkConnectionDistance = config.getBeelineWalkConnectionDistance();
-        double beelineWalkSpeed = config.getBeelineWalkSpeed();
-        double beelineDistanceFactor = config.getBeelineWalkDistanceFactor();
-        double minimalTransferTime = config.getMinimalTransferTime();
 
         Map<TransitStopFacility, List<TransitStopFacility>> stopToStopsTransfers = new HashMap<>();
 
@@ -297,53 +328,71 @@ public class SwissRailRaptorData {
 
         // now calculate the transfers between the route stops
         MinimalTransferTimes mtt = schedule.getMinimalTransferTimes();
-        ArrayList<RTransfer> stopTransfers = new ArrayList<>();
-        for (Map.Entry<TransitStopFacility, List<TransitStopFacility>> e : stopToStopsTransfers.entrySet()) {
-            TransitStopFacility fromStop = e.getKey();
-            Coord fromCoord = fromStop.getCoord();
-            int[] fromRouteStopIndices = routeStopsPerStopFacility.get(fromStop);
-            Collection<TransitStopFacility> nearbyStops = e.getValue();
-            for (TransitStopFacility toStop : nearbyStops) {
-                int[] toRouteStopIndices = routeStopsPerStopFacility.get(toStop);
-                double beelineDistance = CoordUtils.calcEuclideanDistance(fromCoord, toStop.getCoord());
-                double transferTime = beelineDistance / beelineWalkSpeed;
-                if (transferTime < minimalTransferTime) {
-                    transferTime = minimalTransferTime;
-                }
+        List<Map.Entry<TransitStopFacility, List<TransitStopFacility>>> entries = new ArrayList<>(stopToStopsTransfers.entrySet());
+        int numberOfThreads = Math.max(1, Math.min(config.getNumberOfThreads(), entries.size()));
+        log.info("calculating transfers between route stops using " + numberOfThreads + " threads...");
+        if (numberOfThreads == 1) {
+            for (Map.Entry<TransitStopFacility, List<TransitStopFacility>> e : entries) {
+                calculateStopFacilityTransfers(e.getKey(), e.getValue(), routeStopsPerStopFacility, routeStops, earliestDepartures, latestDepartures, mtt, config, transfers);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+            try {
+                pool.submit(() -> IntStream.range(0, entries.size()).parallel().forEach(i -> {
+                    Map.Entry<TransitStopFacility, List<TransitStopFacility>> e = entries.get(i);
+                    calculateStopFacilityTransfers(e.getKey(), e.getValue(), routeStopsPerStopFacility, routeStops, earliestDepartures, latestDepartures, mtt, config, transfers);
+                })).join();
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return transfers;
+    }
 
-                transferTime = mtt.get(fromStop.getId(), toStop.getId(), transferTime);
+    private static void calculateStopFacilityTransfers(TransitStopFacility fromStop, List<TransitStopFacility> nearbyStops, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops,
+                                                       double[] earliestDepartures, double[] latestDepartures, MinimalTransferTimes mtt, RaptorStaticConfig config, RTransfer[][] transfers) {
+        double maxBeelineWalkConnectionDistance = config.getBeelineWalkConnectionDistance();
+        double beelineWalkSpeed = config.getBeelineWalkSpeed();
+        double beelineDistanceFactor = config.getBeelineWalkDistanceFactor();
+        double minimalTransferTime = config.getMinimalTransferTime();
 
-                final double fixedTransferTime = transferTime; // variables must be effective final to be used in lambdas (below)
+        Coord fromCoord = fromStop.getCoord();
+        int[] fromRouteStopIndices = routeStopsPerStopFacility.get(fromStop);
+        List<List<RTransfer>> stopTransfers = new ArrayList<>(fromRouteStopIndices.length);
+        for (int i = 0; i < fromRouteStopIndices.length; i++) {
+            stopTransfers.add(new ArrayList<>());
+        }
+        for (TransitStopFacility toStop : nearbyStops) {
+            int[] toRouteStopIndices = routeStopsPerStopFacility.get(toStop);
+            double beelineDistance = CoordUtils.calcEuclideanDistance(fromCoord, toStop.getCoord());
+            double transferTime = beelineDistance / beelineWalkSpeed;
+            if (transferTime < minimalTransferTime) {
+                transferTime = minimalTransferTime;
+            }
 
-                for (int fromRouteStopIndex : fromRouteStopIndices) {
-                    RRouteStop fromRouteStop = routeStops[fromRouteStopIndex];
-                    stopTransfers.clear();
-                    for (int toRouteStopIndex : toRouteStopIndices) {
-                        RRouteStop toRouteStop = routeStops[toRouteStopIndex];
-                        if (isUsefulTransfer(fromRouteStop, toRouteStop, maxBeelineWalkConnectionDistance, config.getOptimization())
-                            && isTransferAllowed(fromRouteStop, toRouteStop)
-                        ) {
-                            RTransfer newTransfer = new RTransfer(fromRouteStopIndex, toRouteStopIndex, fixedTransferTime, beelineDistance * beelineDistanceFactor);
-                            stopTransfers.add(newTransfer);
-                        }
+            transferTime = mtt.get(fromStop.getId(), toStop.getId(), transferTime);
+
+            for (int i = 0; i < fromRouteStopIndices.length; i++) {
+                int fromRouteStopIndex = fromRouteStopIndices[i];
+                RRouteStop fromRouteStop = routeStops[fromRouteStopIndex];
+                for (int toRouteStopIndex : toRouteStopIndices) {
+                    RRouteStop toRouteStop = routeStops[toRouteStopIndex];
+                    if (isUsefulTransfer(fromRouteStop, toRouteStop, earliestDepartures, latestDepartures, maxBeelineWalkConnectionDistance, config.getOptimization())
+                        && isTransferAllowed(fromRouteStop, toRouteStop)
+                    ) {
+                        RTransfer newTransfer = new RTransfer(fromRouteStopIndex, toRouteStopIndex, transferTime, beelineDistance * beelineDistanceFactor);
+                        stopTransfers.get(i).add(newTransfer);
                     }
-                    RTransfer[] newTransfers = stopTransfers.toArray(new RTransfer[0]);
-                    transfers.compute(fromRouteStopIndex, (routeStopIndex, currentTransfers) -> {
-                        if (currentTransfers == null) {
-                            return newTransfers;
-                        }
-                        RTransfer[] tmp = new RTransfer[currentTransfers.length + newTransfers.length];
-                        System.arraycopy(currentTransfers, 0, tmp, 0, currentTransfers.length);
-                        System.arraycopy(newTransfers, 0, tmp, currentTransfers.length, newTransfers.length);
-                        return tmp;
-                    });
                 }
             }
         }
-        return transfers;
+        for (int i = 0; i < fromRouteStopIndices.length; i++) {
+            // every route stop belongs to exactly one stop facility, so no other task writes to this index
+            transfers[fromRouteStopIndices[i]] = stopTransfers.get(i).toArray(new RTransfer[0]);
+        }
     }
 
-    private static boolean isUsefulTransfer(RRouteStop fromRouteStop, RRouteStop toRouteStop, double maxBeelineWalkConnectionDistance, RaptorStaticConfig.RaptorOptimization optimization) {
+    private static boolean isUsefulTransfer(RRouteStop fromRouteStop, RRouteStop toRouteStop, double[] earliestDepartures, double[] latestDepartures, double maxBeelineWalkConnectionDistance, RaptorStaticConfig.RaptorOptimization optimization) {
         if (fromRouteStop == toRouteStop) {
             return false;
         }
@@ -357,7 +406,7 @@ public class SwissRailRaptorData {
         }
         // if the first departure at fromRouteStop arrives after the last departure at toRouteStop,
         // we'll never get any connection here
-        if (hasNoPossibleDeparture(fromRouteStop, toRouteStop)) {
+        if (hasNoPossibleDeparture(fromRouteStop, toRouteStop, earliestDepartures, latestDepartures)) {
             return false;
         }
         // if the stop facilities are different, and the destination stop is part
@@ -398,14 +447,15 @@ public class SwissRailRaptorData {
         return routeStop.routeStop == lastRouteStop;
     }
 
-    private static boolean hasNoPossibleDeparture(RRouteStop fromRouteStop, RRouteStop toRouteStop) {
-        Departure earliestDep = getEarliestDeparture(fromRouteStop.route);
-        Departure latestDep = getLatestDeparture(toRouteStop.route);
-        if (earliestDep == null || latestDep == null) {
+    private static boolean hasNoPossibleDeparture(RRouteStop fromRouteStop, RRouteStop toRouteStop, double[] earliestDepartures, double[] latestDepartures) {
+        // routes without departures have an infinite earliest and latest departure
+        double earliestDep = earliestDepartures[fromRouteStop.transitRouteIndex];
+        double latestDep = latestDepartures[toRouteStop.transitRouteIndex];
+        if (Double.isInfinite(earliestDep) || Double.isInfinite(latestDep)) {
             return true;
         }
-        double earliestArrival = earliestDep.getDepartureTime() + fromRouteStop.arrivalOffset;
-        double latestDeparture = latestDep.getDepartureTime() + toRouteStop.departureOffset;
+        double earliestArrival = earliestDep + fromRouteStop.arrivalOffset;
+        double latestDeparture = latestDep + toRouteStop.departureOffset;
         return earliestArrival > latestDeparture;
     }
 
@@ -419,16 +469,6 @@ public class SwissRailRaptorData {
         return earliest;
     }
 
-    private static Departure getLatestDeparture(TransitRoute route) {
-        Departure latest = null;
-        for (Departure dep : route.getDepartures().values()) {
-            if (latest == null || dep.getDepartureTime() > latest.getDepartureTime()) {
-                latest = dep;
-            }
-        }
-        return latest;
-    }
-
     private static boolean toStopIsPartOfRouteButNotSame(RRouteStop fromRouteStop, RRouteStop toRouteStop) {
         TransitStopFacility fromStopFacility = fromRouteStop.routeStop.getStopFacility();
         TransitStopFacility toStopFacility = toRouteStop.routeStop.getStopFacility();
@@ -696,7 +736,7 @@ public class SwissRailRaptorData {
                 	transferTime = transferTimes.getOrDefault(toRouteFacility, transferTime);
                 }
 
-        		if (SwissRailRaptorData.isUsefulTransfer(fromRouteStop, toRouteStop, beelineWalkConnectionDistance, optimization)) {
+        		if (SwissRailRaptorData.isUsefulTransfer(fromRouteStop, toRouteStop, this.earliestDepartures, this.latestDepartures, beelineWalkConnectionDistance, optimization)) {
         			transfers.add(new RTransfer(fromRouteStop.index, toRouteStop.index, transferTime, beelineDistance * beelineDistanceFactor));
         		}
         	}
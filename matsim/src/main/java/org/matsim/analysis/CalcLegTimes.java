@@ -23,6 +23,7 @@ package org.matsim.analysis;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.IdToDoubleMap;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.PersonArrivalEvent;
@@ -33,6 +34,7 @@ import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
 import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.gbl.Gbl;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.misc.Time;
 
@@ -59,8 +61,8 @@ public class CalcLegTimes implements PersonDepartureEventHandler, PersonArrivalE
 	private static final int SLOT_SIZE = 300;    // 5-min slots
 	private static final int MAXINDEX = 12; // slots 0..11 are regular slots, slot 12 is anything above
 
-	private final IdMap<Person, Double> agentDepartures = new IdMap<>(Person.class);
-	private final IdMap<Person, Double> agentArrivals = new IdMap<>(Person.class);
+	private final IdToDoubleMap<Person> agentDepartures = new IdToDoubleMap<>(Person.class);
+	private final IdToDoubleMap<Person> agentArrivals = new IdToDoubleMap<>(Person.class);
 	private final Map<String, int[]> legStats = new TreeMap<>();
 	private final IdMap<Person, String> previousActivityTypes = new IdMap<>(Person.class);
 	private double sumLegDurations = 0;
@@ -93,9 +95,11 @@ public class CalcLegTimes implements PersonDepartureEventHandler, PersonArrivalE
 
 	@Override
 	public void handleEvent(ActivityStartEvent event) {
-		Double depTime = this.agentDepartures.remove(event.getPersonId());
-		Double arrTime = this.agentArrivals.remove(event.getPersonId());
-		if (depTime != null) {
+		// NaN means there is no departure or arrival
+		double depTime = this.agentDepartures.remove(event.getPersonId());
+		double arrTime = this.agentArrivals.remove(event.getPersonId());
+		if (!Double.isNaN(depTime)) {
+			Gbl.assertIf(!Double.isNaN(arrTime));
 			double travTime = arrTime - depTime;
 			String fromActType = previousActivityTypes.remove(event.getPersonId());
 			String toActType = event.getActType();
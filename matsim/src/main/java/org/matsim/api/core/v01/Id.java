@@ -26,9 +26,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.vehicles.Vehicle;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -43,8 +41,7 @@ import java.util.concurrent.ConcurrentMap;
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static ConcurrentMap<Class<?>, ConcurrentMap<String, Id<?>>> cacheId = new ConcurrentHashMap<>();
-	private final static ConcurrentMap<Class<?>, List<Id<?>>> cacheIndex = new ConcurrentHashMap<>();
+	private final static ConcurrentMap<Class<?>, IdCache> caches = new ConcurrentHashMap<>();
 
 	/** Resets all internal caches used by this class.
 	 * <em>This method must only be called from JUnit-Tests.</em>
@@ -61,8 +58,7 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		if (!fromJUnit) {
 			throw new RuntimeException("This method can only be called from JUnit-Tests, but not in normal code!");
 		}
-		cacheId.clear();
-		cacheIndex.clear();
+		caches.clear();
 	}
 
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -82,25 +78,14 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	public static <T> Id<T> create(final String key, final Class<T> type) {
 		Gbl.assertNotNull(key);
 
-		ConcurrentMap<String, Id<?>> mapId = cacheId.computeIfAbsent(type, k -> new ConcurrentHashMap<>(1000));
-
-		Id<?> id = mapId.get(key);
+		IdCache cache = caches.computeIfAbsent(type, k -> new IdCache());
+		Id<?> id = cache.get(key);
 		if (id == null) {
-			//Double-Checked Locking works: mapId is concurrent and IdImpl is immutable
-			synchronized (mapId) {
-				id = mapId.get(key);
+			// only the creation of new ids is synchronized, looking up existing ids is lock-free
+			synchronized (cache) {
+				id = cache.get(key);
 				if (id == null) {
-					// cannot use cacheIndex.computeIfAbsent():
-					// split into cacheIndex.get() and put() so that mapIndex.add() "happens-before" mapIndex.get()
-					// alternatives:
-					// (1) synchronise mapIndex.get() calls (on mapIndex)
-					// (2) use cacheIndex.compute() instead of get() and put() ==> less readable code...
-					List<Id<?>> mapIndex = mapId.isEmpty() ? new ArrayList<>(1000) : cacheIndex.get(type);
-					int index = mapIndex.size();
-					id = new IdImpl<T>(key, index);
-					mapIndex.add(id);
-					cacheIndex.put(type, mapIndex);
-					mapId.put(key, id);
+					id = cache.add(key);
 				}
 			}
 		}
@@ -110,18 +95,18 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	public abstract int index();
 
 	public static <T> Id<T> get(int index, final Class<T> type) {
-		List<Id<?>> mapIndex = cacheIndex.get(type);
-		return mapIndex == null ? null : (Id<T>)mapIndex.get(index);
+		IdCache cache = caches.get(type);
+		return cache == null ? null : (Id<T>)cache.get(index);
 	}
 
 	public static <T> Id<T> get(String id, final Class<T> type) {
-		Map<String, Id<?>> mapId = cacheId.get(type);
-		return mapId == null ? null : (Id<T>)mapId.get(id);
+		IdCache cache = caches.get(type);
+		return cache == null ? null : (Id<T>)cache.get(id);
 	}
 
 	public static <T> int getNumberOfIds(final Class<T> type) {
-		Map<String, Id<?>> mapId = cacheId.get(type);
-		return mapId == null ? 0 : mapId.size();
+		IdCache cache = caches.get(type);
+		return cache == null ? 0 : cache.size;
 	}
 
 	/**
@@ -182,6 +167,98 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 
+	/**
+	 * The ids of one type. Instead of a map from the key to the id and a list of the ids by index, which costs about
+	 * 40 bytes per id in addition to the id itself, the ids are stored in an open-addressing hash table and in an
+	 * array of fixed-size chunks, which costs 12 to 20 bytes per id. The chunks are never copied when more ids are
+	 * added.
+	 * <p>
+	 * Reading is lock-free: new ids are only written into empty slots of the table, and a grown table is published
+	 * only after all ids were copied into it. If a reader misses an id that is concurrently added, it falls back to
+	 * {@link Id#create(String, Class)}'s synchronized block, which checks again. As {@link IdImpl} is immutable,
+	 * reading it from the plain arrays is safe.
+	 */
+	private static final class IdCache {
+
+		private static final int CHUNK_BITS = 12;
+		private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+		private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+		private static final int INITIAL_TABLE_BITS = 11;
+
+		private volatile Id<?>[] table = new Id<?>[1 << INITIAL_TABLE_BITS];
+		private volatile Id<?>[][] chunks = new Id<?>[16][];
+		private volatile int size = 0;
+
+		private static int slot(int hash, Id<?>[] table) {
+			// Fibonacci hashing, as the hash codes of numerical keys are often sequential
+			return (hash * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(table.length));
+		}
+
+		Id<?> get(String key) {
+			Id<?>[] tab = this.table;
+			int mask = tab.length - 1;
+			int i = slot(key.hashCode(), tab);
+			Id<?> id;
+			while ((id = tab[i]) != null) {
+				if (id.toString().equals(key)) {
+					return id;
+				}
+				i = (i + 1) & mask;
+			}
+			return null;
+		}
+
+		Id<?> get(int index) {
+			if (index >= this.size) {
+				throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.size);
+			}
+			return this.chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+		}
+
+		/** must only be called while holding the lock on this cache, and only if there is no id for this key yet. */
+		Id<?> add(String key) {
+			int index = this.size;
+			Id<?> id = new IdImpl<>(key, index);
+
+			int chunk = index >>> CHUNK_BITS;
+			Id<?>[][] chnks = this.chunks;
+			if (chunk >= chnks.length) {
+				chnks = Arrays.copyOf(chnks, chnks.length * 2);
+			}
+			if (chnks[chunk] == null) {
+				chnks[chunk] = new Id<?>[CHUNK_SIZE];
+			}
+			chnks[chunk][index & CHUNK_MASK] = id;
+			this.chunks = chnks;
+
+			Id<?>[] tab = this.table;
+			if (2 * (index + 1) > tab.length) {
+				// keep the load factor below 0.5, so that the probe sequences stay short
+				Id<?>[] newTab = new Id<?>[tab.length * 2];
+				for (Id<?> existing : tab) {
+					if (existing != null) {
+						insert(newTab, existing);
+					}
+				}
+				insert(newTab, id);
+				this.table = newTab;
+			} else {
+				insert(tab, id);
+			}
+			this.size = index + 1;
+			return id;
+		}
+
+		private static void insert(Id<?>[] tab, Id<?> id) {
+			int mask = tab.length - 1;
+			int i = slot(id.hashCode(), tab);
+			while (tab[i] != null) {
+				i = (i + 1) & mask;
+			}
+			tab[i] = id;
+		}
+	}
+
 	public static <T> String writeId( Id<T> id ) {
 		if ( id==null ) {
 			return "null" ;
@@ -0,0 +1,138 @@
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A map from ids to primitive <code>double</code> values, backed by an array indexed by {@link Id#index()} like
+ * {@link IdMap}. In contrast to an <code>IdMap&lt;T, Double&gt;</code>, the values are not boxed.
+ * <p>
+ * Methods returning a value return {@link Double#NaN} if there is no value for the id, like an
+ * <code>IdMap&lt;T, Double&gt;</code> would return <code>null</code>. Use {@link #containsKey(Id)} or
+ * {@link #getOrDefault(Id, double)} if NaN is a valid value.
+ */
+public class IdToDoubleMap<T> {
+
+	private static final int INCREMENT = 100;
+	private static final float INCREMENT_FACTOR = 1.5f;
+	private final Class<T> idClass;
+	private int size = 0;
+	private double[] data;
+	private final BitSet keys;
+
+	public IdToDoubleMap(Class<T> idClass) {
+		this(idClass, Math.max(Id.getNumberOfIds(idClass), INCREMENT));
+	}
+
+	public IdToDoubleMap(Class<T> idClass, int size) {
+		this.idClass = idClass;
+		this.data = new double[size];
+		this.keys = new BitSet(size);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean containsKey(Id<T> key) {
+		return this.keys.get(key.index());
+	}
+
+	public boolean containsKey(int index) {
+		return this.keys.get(index);
+	}
+
+	public double get(Id<T> key) {
+		return get(key.index());
+	}
+
+	public double get(int index) {
+		return this.keys.get(index) ? this.data[index] : Double.NaN;
+	}
+
+	public double getOrDefault(Id<T> key, double defaultValue) {
+		int index = key.index();
+		return this.keys.get(index) ? this.data[index] : defaultValue;
+	}
+
+	/**
+	 * @return the previous value, or {@link Double#NaN} if there was none
+	 */
+	public double put(Id<T> key, double value) {
+		int index = key.index();
+		ensureCapacity(index);
+		double oldValue = this.keys.get(index) ? this.data[index] : Double.NaN;
+		this.data[index] = value;
+		if (!this.keys.get(index)) {
+			this.keys.set(index);
+			this.size++;
+		}
+		return oldValue;
+	}
+
+	/**
+	 * Adds the value to the current value of the id, or puts it if there is no value yet.
+	 *
+	 * @return the new value
+	 */
+	public double add(Id<T> key, double value) {
+		int index = key.index();
+		ensureCapacity(index);
+		if (!this.keys.get(index)) {
+			this.keys.set(index);
+			this.size++;
+		}
+		return this.data[index] += value;
+	}
+
+	/**
+	 * @return the removed value, or {@link Double#NaN} if there was none
+	 */
+	public double remove(Id<T> key) {
+		int index = key.index();
+		if (!this.keys.get(index)) {
+			return Double.NaN;
+		}
+		double oldValue = this.data[index];
+		this.data[index] = 0;
+		this.keys.clear(index);
+		this.size--;
+		return oldValue;
+	}
+
+	public void clear() {
+		this.size = 0;
+		Arrays.fill(this.data, 0);
+		this.keys.clear();
+	}
+
+	public void forEach(ObjDoubleConsumer<? super Id<T>> action) {
+		for (int i = this.keys.nextSetBit(0); i >= 0; i = this.keys.nextSetBit(i + 1)) {
+			action.accept(Id.get(i, this.idClass), this.data[i]);
+		}
+	}
+
+	/**
+	 * @return a copy of the ids having a value
+	 */
+	public IdSet<T> keySet() {
+		IdSet<T> set = new IdSet<>(this.idClass, this.data.length);
+		for (int i = this.keys.nextSetBit(0); i >= 0; i = this.keys.nextSetBit(i + 1)) {
+			set.add(Id.get(i, this.idClass));
+		}
+		return set;
+	}
+
+	private void ensureCapacity(int index) {
+		if (index >= this.data.length) {
+			int newSize = Math.max(index + INCREMENT, (int) (this.data.length * INCREMENT_FACTOR));
+			this.data = Arrays.copyOf(this.data, newSize);
+		}
+	}
+
+}
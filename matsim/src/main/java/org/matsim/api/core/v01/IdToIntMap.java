@@ -0,0 +1,137 @@
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A map from ids to primitive <code>int</code> values, backed by an array indexed by {@link Id#index()} like
+ * {@link IdMap}. In contrast to an <code>IdMap&lt;T, Integer&gt;</code>, the values are not boxed.
+ * <p>
+ * Methods returning a value return <code>0</code> if there is no value for the id, use {@link #containsKey(Id)} or
+ * {@link #getOrDefault(Id, int)} to distinguish missing values.
+ */
+public class IdToIntMap<T> {
+
+	private static final int INCREMENT = 100;
+	private static final float INCREMENT_FACTOR = 1.5f;
+	private final Class<T> idClass;
+	private int size = 0;
+	private int[] data;
+	private final BitSet keys;
+
+	public IdToIntMap(Class<T> idClass) {
+		this(idClass, Math.max(Id.getNumberOfIds(idClass), INCREMENT));
+	}
+
+	public IdToIntMap(Class<T> idClass, int size) {
+		this.idClass = idClass;
+		this.data = new int[size];
+		this.keys = new BitSet(size);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean containsKey(Id<T> key) {
+		return this.keys.get(key.index());
+	}
+
+	public boolean containsKey(int index) {
+		return this.keys.get(index);
+	}
+
+	public int get(Id<T> key) {
+		return get(key.index());
+	}
+
+	public int get(int index) {
+		return index < this.data.length ? this.data[index] : 0;
+	}
+
+	public int getOrDefault(Id<T> key, int defaultValue) {
+		int index = key.index();
+		return this.keys.get(index) ? this.data[index] : defaultValue;
+	}
+
+	/**
+	 * @return the previous value, or <code>0</code> if there was none
+	 */
+	public int put(Id<T> key, int value) {
+		int index = key.index();
+		ensureCapacity(index);
+		int oldValue = this.data[index];
+		this.data[index] = value;
+		if (!this.keys.get(index)) {
+			this.keys.set(index);
+			this.size++;
+		}
+		return oldValue;
+	}
+
+	/**
+	 * Adds the value to the current value of the id, or puts it if there is no value yet.
+	 *
+	 * @return the new value
+	 */
+	public int add(Id<T> key, int value) {
+		int index = key.index();
+		ensureCapacity(index);
+		if (!this.keys.get(index)) {
+			this.keys.set(index);
+			this.size++;
+		}
+		return this.data[index] += value;
+	}
+
+	/**
+	 * @return the removed value, or <code>0</code> if there was none
+	 */
+	public int remove(Id<T> key) {
+		int index = key.index();
+		if (!this.keys.get(index)) {
+			return 0;
+		}
+		int oldValue = this.data[index];
+		this.data[index] = 0;
+		this.keys.clear(index);
+		this.size--;
+		return oldValue;
+	}
+
+	public void clear() {
+		this.size = 0;
+		Arrays.fill(this.data, 0);
+		this.keys.clear();
+	}
+
+	public void forEach(ObjIntConsumer<? super Id<T>> action) {
+		for (int i = this.keys.nextSetBit(0); i >= 0; i = this.keys.nextSetBit(i + 1)) {
+			action.accept(Id.get(i, this.idClass), this.data[i]);
+		}
+	}
+
+	/**
+	 * @return a copy of the ids having a value
+	 */
+	public IdSet<T> keySet() {
+		IdSet<T> set = new IdSet<>(this.idClass, this.data.length);
+		for (int i = this.keys.nextSetBit(0); i >= 0; i = this.keys.nextSetBit(i + 1)) {
+			set.add(Id.get(i, this.idClass));
+		}
+		return set;
+	}
+
+	private void ensureCapacity(int index) {
+		if (index >= this.data.length) {
+			int newSize = Math.max(index + INCREMENT, (int) (this.data.length * INCREMENT_FACTOR));
+			this.data = Arrays.copyOf(this.data, newSize);
+		}
+	}
+
+}
@@ -479,6 +479,8 @@ public final class VspConfigConsistencyCheckerImpl implements ConfigConsistencyC
 				System.out.flush();
 				break;
 			case SpeedyALT:
+			case SpeedyCH:
+			case SpeedyCCH:
 				break;
 		}
 
@@ -34,11 +34,11 @@ import java.util.*;
 public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = LogManager.getLogger( ControllerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, SpeedyALT}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, SpeedyALT, SpeedyCH, SpeedyCCH}
 
 	public enum EventTypeToCreateScoringFunctions {IterationStarts, BeforeMobsim}
 
-	public enum EventsFileFormat {xml, pb, json}
+	public enum EventsFileFormat {xml, pb, json, bin}
 
 	public enum CompressionType {
 		none(""),
@@ -70,6 +70,7 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
+	private static final String WRITE_BINARY_PLANS = "writeBinaryPlans";
 	private static final String WRITE_TRIPS_INTERVAL = "writeTripsInterval";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
@@ -78,6 +79,7 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 	private static final String CLEAN_ITERS_AT_END = "cleanItersAtEnd";
 	private static final String COMPRESSION_TYPE = "compressionType";
 	private static final String EVENT_TYPE_TO_CREATE_SCORING_FUNCTIONS = "createScoringFunctionType";
+	private static final String SCORING_SHARDS = "scoringShards";
 
 	private static final String MEMORY_OBSERVER_INTERVAL = "memoryObserverInterval";
 
@@ -91,6 +93,7 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.SpeedyALT;
 	private EventTypeToCreateScoringFunctions eventTypeToCreateScoringFunctions = EventTypeToCreateScoringFunctions.IterationStarts;
+	private int scoringShards = 1;
 
 	private boolean linkToLinkRoutingEnabled = false;
 
@@ -100,6 +103,7 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 
 	private int writeEventsInterval= 50;
 	private int writePlansInterval= 50;
+	private boolean writeBinaryPlans = false;
 	private int writeTripsInterval = 50;
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
@@ -120,7 +124,10 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 	@Override
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
-		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + Arrays.toString(RoutingAlgorithmType.values()));
+		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + Arrays.toString(RoutingAlgorithmType.values()) + ". " +
+				"SpeedyCH is only used for travel disutilities which are declared as StaticTravelDisutility, SpeedyALT for all others. " +
+				"SpeedyCCH routes time-dependently like SpeedyALT, but uses a customizable contraction hierarchy of the minimal link costs as a tighter estimate; " +
+				"it falls back to SpeedyALT for networks with turn restrictions.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
 		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: " + Arrays.toString(EventsFileFormat.values()) + IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
@@ -130,6 +137,8 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
                 "to a file. `0' disables trips writing completely.");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
                 "written to a file. `0' disables plans writing completely.  Some plans in early iterations are always written");
+		map.put(WRITE_BINARY_PLANS, "Default=false. If enabled, a binary snapshot of the population (plans.bin) is written in addition to the xml " +
+				"plans, as well as output_plans.bin at the end. It can be used as input plans file and loads much faster than xml.");
 		map.put(LINKTOLINK_ROUTING_ENABLED, "Default=false. If enabled, the router takes travel times needed for turning moves into account."
 		        + " Can only be used with Dijkstra routing. Cannot be used when TravelTimeCalculator.separateModes is enabled.");
 		map.put(FIRST_ITERATION, "Default=0. First Iteration of a simulation.");
@@ -145,6 +154,9 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 
 		map.put(COMPRESSION_TYPE, "Compression algorithm to use when writing out data to files. Possible values: " + Arrays.toString(CompressionType.values()));
 		map.put(EVENT_TYPE_TO_CREATE_SCORING_FUNCTIONS, "Defines when the scoring functions for the population are created. Default=IterationStarts. Possible values: " + Arrays.toString(EventTypeToCreateScoringFunctions.values()));
+		map.put(SCORING_SHARDS, "Number of partitions the population is split into for scoring. Each partition processes the events of its persons " +
+				"on its own thread while the mobsim is running. Default=1, i.e. all events are scored on the events handling thread. " +
+				"With more than one partition, leg and activity handlers registered with EventsToLegs and EventsToActivities must be thread-safe.");
 
 		map.put(MOBSIM, "Defines which mobility simulation will be used. Currently supported: " + Arrays.toString(MobsimType.values()) + IOUtils.NATIVE_NEWLINE + "\t\t" +
 				"Depending on the chosen mobsim, you'll have to add additional config modules to configure the corresponding mobsim." + IOUtils.NATIVE_NEWLINE + "\t\t" +
@@ -353,6 +365,16 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 		this.writePlansInterval = writePlansInterval;
 	}
 
+	@StringGetter( WRITE_BINARY_PLANS )
+	public boolean isWriteBinaryPlans() {
+		return this.writeBinaryPlans;
+	}
+
+	@StringSetter( WRITE_BINARY_PLANS )
+	public void setWriteBinaryPlans(final boolean writeBinaryPlans) {
+		this.writeBinaryPlans = writeBinaryPlans;
+	}
+
 	@StringGetter( WRITE_SNAPSHOTS_INTERVAL )
 	public int getWriteSnapshotsInterval() {
 		return writeSnapshotsInterval;
@@ -433,6 +455,16 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 		this.eventTypeToCreateScoringFunctions = eventTypeToCreateScoringFunctions;
 	}
 
+	@StringGetter(SCORING_SHARDS)
+	public int getScoringShards() {
+		return scoringShards;
+	}
+
+	@StringSetter(SCORING_SHARDS)
+	public void setScoringShards(int scoringShards) {
+		this.scoringShards = scoringShards;
+	}
+
 	@StringGetter(MEMORY_OBSERVER_INTERVAL)
 	public int getMemoryObserverInterval() {
 		return memoryObserverInterval;
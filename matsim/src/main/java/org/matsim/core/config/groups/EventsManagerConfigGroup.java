@@ -49,6 +49,11 @@ public final class EventsManagerConfigGroup extends ReflectiveConfigGroup {
 	private final static String EVENTS_QUEUE_SIZE_COMMENT = "Size of the events Queue. Increase for very large scenarios";
 	private int eventsQueueSize = 65536 * 2 ;
 
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private final static String USE_RING_BUFFER_COMMENT = "If enabled, events are passed to the " + NUMBER_OF_THREADS + " event handling threads through a pre-allocated ring buffer "
+			+ "of size " + EVENTS_QUEUE_SIZE + " instead of blocking queues. Events of a time step are always fully processed before the next time step is simulated. "
+			+ "Takes precedence over " + ONE_THREAD_PER_HANDLER + " and " + SYNCHRONIZE_ON_SIMSTEPS + ". This feature is still experimental!";
+	private Boolean useRingBuffer = false;
 
 
 	private boolean locked = false;
@@ -67,6 +72,7 @@ public final class EventsManagerConfigGroup extends ReflectiveConfigGroup {
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
 		comments.put(EVENTS_QUEUE_SIZE,EVENTS_QUEUE_SIZE_COMMENT);
+		comments.put(USE_RING_BUFFER, USE_RING_BUFFER_COMMENT);
 		return comments;
 	}
 
@@ -144,6 +150,26 @@ public final class EventsManagerConfigGroup extends ReflectiveConfigGroup {
 		}
 	}
 
+	/**
+	 * {@value #USE_RING_BUFFER_COMMENT}
+	 */
+	@StringGetter( USE_RING_BUFFER )
+	public Boolean getUseRingBuffer() {
+		return this.useRingBuffer;
+	}
+
+	/**
+	 * {@value #USE_RING_BUFFER_COMMENT}
+	 */
+	@StringSetter( USE_RING_BUFFER )
+	public void setUseRingBuffer(Boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
@@ -58,6 +58,9 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private static final String STUCK_TIME = "stuckTime";
 	private static final String REMOVE_STUCK_VEHICLES = "removeStuckVehicles";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
+	private static final String NETSIM_ENGINE_THREADING = "netsimEngineThreading";
+	private static final String NETSIM_NODE_PARTITIONING = "netsimNodePartitioning";
+	private static final String ACTIVITY_AND_TELEPORTATION_QUEUE = "activityAndTeleportationQueue";
 	private static final String TRAFFIC_DYNAMICS = "trafficDynamics";
 	private static final String SIM_STARTTIME_INTERPRETATION = "simStarttimeInterpretation";
 	private static final String USE_PERSON_ID_FOR_MISSING_VEHICLE_ID = "usePersonIdForMissingVehicleId";
@@ -91,6 +94,44 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private boolean usePersonIdForMissingVehicleId = true;
 	@Positive
 	private int numberOfThreads = 1;
+
+	/**
+	 * Defines how the nodes and links of the network are distributed over the threads of the QNetsimEngine.
+	 * <ul>
+	 * <li>{@link #staticPartitions}: every thread owns a fixed share of the nodes and links, see {@link NetsimNodePartitioning}.</li>
+	 * <li>{@link #workStealing}: the network is split into many small partitions which are processed as tasks of a
+	 * fork/join pool, so idle threads take over work from busy ones. The tasks are re-balanced in every time step
+	 * according to the currently active links.</li>
+	 * </ul>
+	 */
+	public enum NetsimEngineThreading {staticPartitions, workStealing}
+
+	private NetsimEngineThreading netsimEngineThreading = NetsimEngineThreading.staticPartitions;
+
+	/**
+	 * Defines how the nodes of the network are assigned to the partitions of the QNetsimEngine. A link always belongs to
+	 * the partition of its from-node.
+	 * <ul>
+	 * <li>{@link #roundRobin}: the nodes are assigned one after the other to the partitions, without any locality.</li>
+	 * <li>{@link #graph}: every partition gets a contiguous region of the network, with similar load per partition and as
+	 * few links as possible between the regions. The load is estimated from the link volumes of the previous iteration.</li>
+	 * </ul>
+	 */
+	public enum NetsimNodePartitioning {roundRobin, graph}
+
+	private NetsimNodePartitioning netsimNodePartitioning = NetsimNodePartitioning.roundRobin;
+
+	/**
+	 * Defines the data structure in which the activity engine and the teleportation engine keep the agents until
+	 * their activity ends or they arrive.
+	 * <ul>
+	 * <li>{@link #priorityQueue}: a priority queue, O(log n) per agent.</li>
+	 * <li>{@link #calendarQueue}: one bucket per simulated second, O(1) per agent. Agents leave in the same order.</li>
+	 * </ul>
+	 */
+	public enum ActivityAndTeleportationQueue {priorityQueue, calendarQueue}
+
+	private ActivityAndTeleportationQueue activityAndTeleportationQueue = ActivityAndTeleportationQueue.priorityQueue;
 	//	private static final String CREATING_VEHICLES_FOR_ALL_NETWORK_MODES = "creatingVehiclesForAllNetworkModes";
 //	private boolean creatingVehiclesForAllNetworkModes = true;
 	// ---
@@ -171,6 +212,17 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "Number of threads used for the QSim.  "
 				+ "Note that this setting is independent from the \"global\" threads setting.  "
 				+ "In contrast to earlier versions, the non-parallel special version is no longer there.");
+		map.put(NETSIM_ENGINE_THREADING, "Defines how nodes and links are distributed over the threads of the QNetsimEngine. "
+				+ NetsimEngineThreading.staticPartitions + " (default): each thread owns a fixed share of the network. "
+				+ NetsimEngineThreading.workStealing + ": small partitions are processed as fork/join tasks and re-balanced in every time step; "
+				+ "may be faster with many threads if the traffic is concentrated in a part of the network.");
+		map.put(NETSIM_NODE_PARTITIONING, "Defines how the nodes of the network are assigned to the partitions of the QNetsimEngine. "
+				+ NetsimNodePartitioning.roundRobin + " (default): one node after the other, without locality. "
+				+ NetsimNodePartitioning.graph + ": contiguous regions with similar load, based on the link volumes of the previous iteration, "
+				+ "so that fewer vehicles move between links handled by different threads.");
+		map.put(ACTIVITY_AND_TELEPORTATION_QUEUE, "Defines how the activity and teleportation engines keep the agents until their activity ends or they arrive. "
+				+ ActivityAndTeleportationQueue.priorityQueue + " (default) or " + ActivityAndTeleportationQueue.calendarQueue
+				+ ", which has one bucket per simulated second and is faster with many agents, e.g. many teleported legs.");
 		map.put(REMOVE_STUCK_VEHICLES, REMOVE_STUCK_VEHICLES_STRING);
 		map.put(STUCK_TIME, STUCK_TIME_STRING);
 
@@ -484,6 +536,36 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	@StringGetter(NETSIM_ENGINE_THREADING)
+	public NetsimEngineThreading getNetsimEngineThreading() {
+		return this.netsimEngineThreading;
+	}
+
+	@StringSetter(NETSIM_ENGINE_THREADING)
+	public void setNetsimEngineThreading(final NetsimEngineThreading netsimEngineThreading) {
+		this.netsimEngineThreading = netsimEngineThreading;
+	}
+
+	@StringGetter(NETSIM_NODE_PARTITIONING)
+	public NetsimNodePartitioning getNetsimNodePartitioning() {
+		return this.netsimNodePartitioning;
+	}
+
+	@StringSetter(NETSIM_NODE_PARTITIONING)
+	public void setNetsimNodePartitioning(final NetsimNodePartitioning netsimNodePartitioning) {
+		this.netsimNodePartitioning = netsimNodePartitioning;
+	}
+
+	@StringGetter(ACTIVITY_AND_TELEPORTATION_QUEUE)
+	public ActivityAndTeleportationQueue getActivityAndTeleportationQueue() {
+		return this.activityAndTeleportationQueue;
+	}
+
+	@StringSetter(ACTIVITY_AND_TELEPORTATION_QUEUE)
+	public void setActivityAndTeleportationQueue(final ActivityAndTeleportationQueue activityAndTeleportationQueue) {
+		this.activityAndTeleportationQueue = activityAndTeleportationQueue;
+	}
+
 	@StringGetter(SIM_STARTTIME_INTERPRETATION)
 	public StarttimeInterpretation getSimStarttimeInterpretation() {
 		return simStarttimeInterpretation;
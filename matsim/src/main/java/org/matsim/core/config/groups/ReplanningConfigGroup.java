@@ -30,6 +30,7 @@ import org.matsim.core.replanning.strategies.DefaultPlanStrategiesModule.Default
 import org.matsim.core.replanning.strategies.DefaultPlanStrategiesModule.DefaultSelector;
 import org.matsim.core.replanning.strategies.DefaultPlanStrategiesModule.DefaultStrategy;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 
@@ -45,6 +46,8 @@ public final class ReplanningConfigGroup extends ConfigGroup {
 
 	public static final String GROUP_NAME = "replanning";
 
+	public enum ReplanningThreading {threadsPerModule, sharedWorkerPool}
+
 	// in the following, it is still named "module", for the following reason:
 	// the "right" side is the outside interface, used in the config files, which is left with the old keys for backwards compatibility.
 	// kai/mz, dec'14
@@ -292,6 +295,11 @@ public final class ReplanningConfigGroup extends ConfigGroup {
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TMP_FILE_ROOT_DIR, "root directory for temporary files generated by the external executable. Provided as a service; "
 				+ "I don't think this is used by MATSim.") ;
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TIME_OUT, "time out value (in seconds) after which matsim will consider the external strategy as failed") ;
+		map.put(ReflectiveDelegate.REPLANNING_THREADING, "How multi-threaded strategy modules run their plan algorithms. " + ReplanningThreading.threadsPerModule
+				+ ": every module starts its own threads in every iteration and distributes the plans round-robin to them; runs are reproducible. "
+				+ ReplanningThreading.sharedWorkerPool + ": all modules use one persistent pool of global.numberOfThreads workers which take small batches "
+				+ "of plans as soon as they are idle, and the time spent per module is written to replanningtimes.csv. This balances skewed "
+				+ "plans better, but runs are no longer reproducible. Possible values: " + Arrays.toString(ReplanningThreading.values()));
 		return map ;
 	}
 
@@ -404,6 +412,14 @@ public final class ReplanningConfigGroup extends ConfigGroup {
 		delegate.setFractionOfIterationsToDisableInnovation(fraction);
 	}
 
+	public ReplanningThreading getReplanningThreading() {
+		return delegate.getReplanningThreading();
+	}
+
+	public void setReplanningThreading(ReplanningThreading replanningThreading) {
+		delegate.setReplanningThreading(replanningThreading);
+	}
+
 	@Override
 	public final Map<String, String> getParams() {
 		return delegate.getParams();
@@ -416,6 +432,7 @@ public final class ReplanningConfigGroup extends ConfigGroup {
 		 static final String EXTERNAL_EXE_TIME_OUT = "ExternalExeTimeOut";
 		 static final String ITERATION_FRACTION_TO_DISABLE_INNOVATION = "fractionOfIterationsToDisableInnovation" ;
 		 static final String PLAN_SELECTOR_FOR_REMOVAL = "planSelectorForRemoval" ;
+		 static final String REPLANNING_THREADING = "replanningThreading" ;
 
 		private int maxAgentPlanMemorySize = 5;
 		private String externalExeConfigTemplate = null;
@@ -424,6 +441,8 @@ public final class ReplanningConfigGroup extends ConfigGroup {
 
 		private String planSelectorForRemoval = "WorstPlanSelector";
 
+		private ReplanningThreading replanningThreading = ReplanningThreading.threadsPerModule;
+
 		//---
 		private double fraction = Double.POSITIVE_INFINITY ;
 		//---
@@ -492,6 +511,16 @@ public final class ReplanningConfigGroup extends ConfigGroup {
 		public void setFractionOfIterationsToDisableInnovation(double fraction) {
 			this.fraction = fraction;
 		}
+
+		@StringGetter( REPLANNING_THREADING )
+		public ReplanningThreading getReplanningThreading() {
+			return replanningThreading;
+		}
+
+		@StringSetter( REPLANNING_THREADING )
+		public void setReplanningThreading(ReplanningThreading replanningThreading) {
+			this.replanningThreading = replanningThreading;
+		}
 	}
 }
 
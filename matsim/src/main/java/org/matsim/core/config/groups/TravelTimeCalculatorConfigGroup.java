@@ -19,6 +19,7 @@
  * *********************************************************************** */
 package org.matsim.core.config.groups;
 
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -50,6 +51,9 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private static final String ANALYZEDMODES = "analyzedModes";
 	private static final String FILTERMODES = "filterModes";
 	private static final String SEPARATEMODES = "separateModes";
+	private static final String CALCULATOR_TYPE = "calculatorType";
+	private static final String NUMBER_OF_SHARDS = "numberOfShards";
+	private static final String CHANGED_LINKS_THRESHOLD = "changedLinksThreshold";
 
 	private String travelTimeAggregator = "optimistic";
 	private String travelTimeGetter = "average";
@@ -63,6 +67,11 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private boolean filterModes = false;
 	private boolean separateModes = true;
 
+	public enum CalculatorType { TravelTimeCalculator, ArrayTravelTimeCalculator }
+	private CalculatorType calculatorType = CalculatorType.TravelTimeCalculator;
+	private int numberOfShards = 1;
+	private double changedLinksThreshold = 0.05;
+
 	public TravelTimeCalculatorConfigGroup() {
 		super(GROUPNAME);
 		analyzedModes.add( TransportMode.car ) ;
@@ -83,6 +92,14 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 							 "respected by the travel time collector. 'car' is default which includes also buses from the pt simulation module.");
 		map.put(FILTERMODES, "(only for backwards compatiblity; only used if " + SEPARATEMODES + "==false)  Only modes included in analyzedModes are included." ) ;
 		map.put(SEPARATEMODES, "(only for backwards compatibility) If false, link travel times are measured and aggregated over all vehicles using the link." ) ;
+		map.put(CALCULATOR_TYPE, "The implementation that collects the link travel times. " + CalculatorType.ArrayTravelTimeCalculator + " stores all data in " +
+				"primitive arrays, which uses less memory and is faster on large networks, but does not support " + CALCULATE_LINKTOLINK_TRAVELTIMES + ". " +
+				"Possible values: " + Arrays.toString( CalculatorType.values() ) ) ;
+		map.put(NUMBER_OF_SHARDS, "(only used by " + CalculatorType.ArrayTravelTimeCalculator + ") The links are split into this many parts, each " +
+				"collected by its own event handler, so that a parallel events manager can process them in parallel." ) ;
+		map.put(CHANGED_LINKS_THRESHOLD, "(only used by the IncrementalReRoute strategy) A link is considered as changed if the travel time in " +
+				"at least one time bin differs by more than this fraction from the travel time at the last change. Plans using no changed link " +
+				"are not re-routed." ) ;
 		return map;
 	}
 
@@ -195,5 +212,36 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	public void setSeparateModes(boolean separateModes) {
 		this.separateModes = separateModes;
 	}
+	// ---
+	@StringGetter(CALCULATOR_TYPE)
+	public CalculatorType getCalculatorType() {
+		return this.calculatorType;
+	}
+
+	@StringSetter(CALCULATOR_TYPE)
+	public void setCalculatorType(CalculatorType calculatorType) {
+		this.calculatorType = calculatorType;
+	}
+	// ---
+	@StringGetter(NUMBER_OF_SHARDS)
+	public int getNumberOfShards() {
+		return this.numberOfShards;
+	}
+
+	@StringSetter(NUMBER_OF_SHARDS)
+	public void setNumberOfShards(int numberOfShards) {
+		this.numberOfShards = numberOfShards;
+	}
+
+	// ---
+	@StringGetter(CHANGED_LINKS_THRESHOLD)
+	public double getChangedLinksThreshold() {
+		return this.changedLinksThreshold;
+	}
+
+	@StringSetter(CHANGED_LINKS_THRESHOLD)
+	public void setChangedLinksThreshold(double changedLinksThreshold) {
+		this.changedLinksThreshold = changedLinksThreshold;
+	}
 
 }
@@ -80,12 +80,14 @@ public final class Controler implements Controller, ControlerI, MatsimServices,
 		changeEvents("change_events.xml"),
 		counts("counts.xml"),
 		population("plans.xml"),
+		populationBin("plans.bin"),
 		experiencedPlans("experienced_plans.xml"),
 		households("households.xml"),
 		facilities("facilities.xml"),
 		events("events.xml"),
 		eventsPb("events.pb"),
 		eventsJson("events.ndjson"),
+		eventsBin("events.bin"),
 		transitSchedule("transitSchedule.xml"),
 		transitVehicles("transitVehicles.xml"),
 		vehicles("vehicles.xml"),
@@ -29,6 +29,7 @@ import org.matsim.core.controler.listener.*;
 import org.matsim.core.events.MatsimEventsReader;
 
 import jakarta.inject.Inject;
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -53,6 +54,10 @@ public final class ReplayEvents {
     @Inject
     EventsManager eventsManager;
 
+    private Collection<String> eventTypes = null;
+    private double fromTime = Double.NEGATIVE_INFINITY;
+    private double toTime = Double.POSITIVE_INFINITY;
+
     public static Results run(final Config config, final String eventsFilename, final AbstractModule... modules) {
         final com.google.inject.Injector injector = Injector.createInjector(
                 config,
@@ -76,6 +81,23 @@ public final class ReplayEvents {
         };
     }
 
+    /**
+     * Only replays events of the given types. Binary events files (<code>.bin</code>) skip the other event types
+     * without decoding them, events files in other formats are replayed completely.
+     */
+    public void setEventTypes(Collection<String> eventTypes) {
+        this.eventTypes = eventTypes;
+    }
+
+    /**
+     * Only replays events within the time window. Binary events files (<code>.bin</code>) skip the blocks outside of
+     * the time window without decoding them, events files in other formats are replayed completely.
+     */
+    public void setTimeWindow(double fromTime, double toTime) {
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+    }
+
     public void playEventsFile(String eventsFilename, int iterationNumber, boolean isLastIteration) {
         ((ControlerListenerManagerImpl) controlerListenerManager).fireControlerStartupEvent();
         for (ControlerListener controlerListener : controlerListenersDeclaredByModules) {
@@ -95,7 +117,10 @@ public final class ReplayEvents {
                 ((BeforeMobsimListener) controlerListener).notifyBeforeMobsim(new BeforeMobsimEvent(null, iterationNumber, isLastIteration));
             }
         }
-        new MatsimEventsReader(eventsManager).readFile(eventsFilename);
+        MatsimEventsReader reader = new MatsimEventsReader(eventsManager);
+        reader.setEventTypes(eventTypes);
+        reader.setTimeWindow(fromTime, toTime);
+        reader.readFile(eventsFilename);
         ((ControlerListenerManagerImpl) controlerListenerManager).fireControlerAfterMobsimEvent(iterationNumber, isLastIteration);
         for (ControlerListener controlerListener : controlerListenersDeclaredByModules) {
             if (controlerListener instanceof AfterMobsimListener) {
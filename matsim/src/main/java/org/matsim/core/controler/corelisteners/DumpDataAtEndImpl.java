@@ -39,6 +39,7 @@ import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.NetworkChangeEventsWriter;
 import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.io.PopulationWriterBinary;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.io.IOUtils;
@@ -157,6 +158,9 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 					case json:
 						file = Controler.DefaultFiles.eventsJson;
 						break;
+					case bin:
+						file = Controler.DefaultFiles.eventsBin;
+						break;
 					default:
 						continue;
 				}
@@ -326,6 +330,13 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		final PopulationWriter writer = new PopulationWriter(this.population, this.network);
 		writer.putAttributeConverters(this.attributeConverters);
 		writer.write(this.controlerIO.getOutputFilename(Controler.DefaultFiles.population));
+
+		if (this.config.controller().isWriteBinaryPlans()) {
+			// uncompressed, so it can be memory-mapped when read again
+			final PopulationWriterBinary binaryWriter = new PopulationWriterBinary(this.population);
+			binaryWriter.putAttributeConverters(this.attributeConverters);
+			binaryWriter.write(this.controlerIO.getOutputFilename(Controler.DefaultFiles.populationBin, ControllerConfigGroup.CompressionType.none));
+		}
 	}
 
 }
@@ -32,6 +32,7 @@ import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.population.io.PopulationWriterBinary;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -91,6 +92,10 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 
 				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
 			}
+			if ( config.controller().isWriteBinaryPlans() ) {
+				// the snapshot stays in the internal coordinate system and uncompressed, so it can be memory-mapped when read again
+				new PopulationWriterBinary(population).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.populationBin, ControllerConfigGroup.CompressionType.none));
+			}
 			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
 		}
@@ -0,0 +1,399 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.IOUtils;
+import org.xml.sax.Attributes;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads events written by {@link EventWriterBinary}. Optionally, only events of some types and/or within a time
+ * window are read: blocks outside the time window are skipped without being decoded, and so are the column
+ * sections of event types that are not of interest.
+ */
+public final class EventsReaderBinary {
+
+	private final static Logger LOG = LogManager.getLogger(EventsReaderBinary.class);
+
+	private final EventsReaderXMLv1 converter;
+
+	private Set<String> eventTypes = null;
+	private double fromTime = Double.NEGATIVE_INFINITY;
+	private double toTime = Double.POSITIVE_INFINITY;
+
+	private final List<String> dictionary = new ArrayList<>();
+	private final List<Schema> schemas = new ArrayList<>();
+
+	private byte[] body = new byte[1 << 16];
+	private int position;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.converter = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, MatsimEventsReader.CustomEventMapper cem) {
+		this.converter.addCustomEventMapper(eventType, cem);
+	}
+
+	/**
+	 * Only events of the given types are read. <code>null</code> (the default) reads all events.
+	 */
+	public void setEventTypes(final Collection<String> eventTypes) {
+		this.eventTypes = eventTypes == null ? null : new HashSet<>(eventTypes);
+	}
+
+	/**
+	 * Only events with <code>fromTime &lt;= time &lt;= toTime</code> are read.
+	 */
+	public void setTimeWindow(final double fromTime, final double toTime) {
+		this.fromTime = fromTime;
+		this.toTime = toTime;
+	}
+
+	public void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	public void readURL(final URL url) {
+		LOG.info("starting to read binary events from " + url + " ...");
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			readStream(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void readStream(final InputStream stream) {
+		this.dictionary.clear();
+		this.dictionary.add(null); // dictionary codes start at 1
+		this.schemas.clear();
+		DataInputStream in = new DataInputStream(stream instanceof BufferedInputStream ? stream : new BufferedInputStream(stream));
+		try {
+			readHeader(in);
+			while (true) {
+				byte record = in.readByte();
+				switch (record) {
+					case EventWriterBinary.RECORD_END:
+						return;
+					case EventWriterBinary.RECORD_DICTIONARY:
+						readDictionary(in);
+						break;
+					case EventWriterBinary.RECORD_SCHEMA:
+						readSchema(in);
+						break;
+					case EventWriterBinary.RECORD_BLOCK:
+						readBlock(in);
+						break;
+					default:
+						throw new IllegalStateException("Unknown record type " + record + " in binary events file.");
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readHeader(final DataInputStream in) throws IOException {
+		byte[] magic = new byte[EventWriterBinary.MAGIC.length];
+		in.readFully(magic);
+		if (!Arrays.equals(magic, EventWriterBinary.MAGIC)) {
+			throw new IllegalArgumentException("The stream does not contain binary MATSim events.");
+		}
+		int version = in.readInt();
+		if (version != EventWriterBinary.VERSION) {
+			throw new IllegalArgumentException("Unsupported binary events version " + version + ", expected " + EventWriterBinary.VERSION + ".");
+		}
+	}
+
+	private void readDictionary(final DataInputStream in) throws IOException {
+		int count = readVarInt(in);
+		for (int i = 0; i < count; i++) {
+			byte[] bytes = new byte[readVarInt(in)];
+			in.readFully(bytes);
+			this.dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+		}
+	}
+
+	private void readSchema(final DataInputStream in) throws IOException {
+		int id = readVarInt(in);
+		String type = this.dictionary.get(readVarInt(in));
+		String[] keys = new String[readVarInt(in)];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = this.dictionary.get(readVarInt(in));
+		}
+		if (id != this.schemas.size()) {
+			throw new IllegalStateException("Unexpected schema id " + id + " in binary events file.");
+		}
+		this.schemas.add(new Schema(type, keys, this.eventTypes == null || this.eventTypes.contains(type)));
+	}
+
+	private void readBlock(final DataInputStream in) throws IOException {
+		double minTime = in.readDouble();
+		double maxTime = in.readDouble();
+		int eventCount = readVarInt(in);
+		int length = readVarInt(in);
+		if (maxTime < this.fromTime || minTime > this.toTime) {
+			in.skipNBytes(length);
+			return;
+		}
+		if (this.body.length < length) {
+			this.body = new byte[Math.max(length, this.body.length * 2)];
+		}
+		in.readFully(this.body, 0, length);
+		this.position = 0;
+
+		int[] eventSchemas = new int[eventCount];
+		int[] rowsPerSchema = new int[this.schemas.size()];
+		for (int i = 0; i < eventCount; i++) {
+			eventSchemas[i] = readVarInt();
+			rowsPerSchema[eventSchemas[i]]++;
+		}
+
+		double[] times = new double[eventCount];
+		byte timesEncoding = this.body[this.position++];
+		if (timesEncoding == EventWriterBinary.TIMES_INTEGRAL) {
+			long time = 0;
+			for (int i = 0; i < eventCount; i++) {
+				time += readZigZag();
+				times[i] = time;
+			}
+		} else {
+			for (int i = 0; i < eventCount; i++) {
+				times[i] = readDouble();
+			}
+		}
+
+		int schemaCount = readVarInt();
+		for (int s = 0; s < schemaCount; s++) {
+			int schemaId = readVarInt();
+			Schema schema = this.schemas.get(schemaId);
+			int sectionLength = readVarInt();
+			if (!schema.accepted) {
+				this.position += sectionLength;
+				continue;
+			}
+			int rows = rowsPerSchema[schemaId];
+			schema.prepareBlock(rows);
+			for (String[] column : schema.columns) {
+				for (int r = 0; r < rows; r++) {
+					column[r] = readValue();
+				}
+			}
+		}
+
+		BlockAttributes atts = new BlockAttributes();
+		for (int i = 0; i < eventCount; i++) {
+			Schema schema = this.schemas.get(eventSchemas[i]);
+			if (!schema.accepted) {
+				continue;
+			}
+			int row = schema.nextRow++;
+			double time = times[i];
+			if (time < this.fromTime || time > this.toTime) {
+				continue;
+			}
+			atts.set(schema, row);
+			this.converter.createEvent(time, schema.type, atts);
+		}
+	}
+
+	private String readValue() {
+		int code = readVarInt();
+		switch (code) {
+			case EventWriterBinary.VALUE_NULL:
+				return null;
+			case EventWriterBinary.VALUE_LONG:
+				return Long.toString(readZigZag());
+			case EventWriterBinary.VALUE_DOUBLE:
+				return Double.toString(readDouble());
+			case EventWriterBinary.VALUE_STRING:
+				int length = readVarInt();
+				String value = new String(this.body, this.position, length, StandardCharsets.UTF_8);
+				this.position += length;
+				return value;
+			default:
+				return this.dictionary.get(code - EventWriterBinary.VALUE_DICTIONARY_OFFSET);
+		}
+	}
+
+	private int readVarInt() {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.body[this.position++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private long readZigZag() {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.body[this.position++];
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private double readDouble() {
+		long bits = 0;
+		for (int i = 0; i < 8; i++) {
+			bits = (bits << 8) | (this.body[this.position++] & 0xFF);
+		}
+		return Double.longBitsToDouble(bits);
+	}
+
+	private static int readVarInt(final DataInputStream in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.readByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static final class Schema {
+		final String type;
+		final String[] keys;
+		final boolean accepted;
+		String[][] columns;
+		int nextRow;
+
+		Schema(String type, String[] keys, boolean accepted) {
+			this.type = type;
+			this.keys = keys;
+			this.accepted = accepted;
+			this.columns = new String[keys.length][0];
+		}
+
+		void prepareBlock(int rows) {
+			if (this.columns.length > 0 && this.columns[0].length < rows) {
+				this.columns = new String[this.keys.length][rows];
+			}
+			this.nextRow = 0;
+		}
+	}
+
+	/**
+	 * Exposes one decoded row of a schema's columns as SAX attributes, so the conversion into typed events
+	 * can be shared with {@link EventsReaderXMLv1}.
+	 */
+	private final class BlockAttributes implements Attributes {
+		private Schema schema;
+		private int row;
+
+		void set(Schema schema, int row) {
+			this.schema = schema;
+			this.row = row;
+		}
+
+		@Override
+		public int getLength() {
+			return this.schema.keys.length;
+		}
+
+		@Override
+		public String getURI(int index) {
+			return "";
+		}
+
+		@Override
+		public String getLocalName(int index) {
+			return index < 0 || index >= this.schema.keys.length ? null : this.schema.keys[index];
+		}
+
+		@Override
+		public String getQName(int index) {
+			return getLocalName(index);
+		}
+
+		@Override
+		public String getType(int index) {
+			return index < 0 || index >= this.schema.keys.length ? null : "CDATA";
+		}
+
+		@Override
+		public String getValue(int index) {
+			return index < 0 || index >= this.schema.keys.length ? null : this.schema.columns[index][this.row];
+		}
+
+		@Override
+		public int getIndex(String uri, String localName) {
+			return getIndex(localName);
+		}
+
+		@Override
+		public int getIndex(String qName) {
+			String[] keys = this.schema.keys;
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i].equals(qName)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public String getType(String uri, String localName) {
+			return getType(getIndex(localName));
+		}
+
+		@Override
+		public String getType(String qName) {
+			return getType(getIndex(qName));
+		}
+
+		@Override
+		public String getValue(String uri, String localName) {
+			return getValue(getIndex(localName));
+		}
+
+		@Override
+		public String getValue(String qName) {
+			return getValue(getIndex(qName));
+		}
+	}
+}
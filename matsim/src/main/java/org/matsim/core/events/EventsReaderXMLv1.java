@@ -98,7 +98,14 @@ public final class EventsReaderXMLv1 extends MatsimXmlEventsParser {
 	private void startEvent(final Attributes atts) {
 		double time = Double.parseDouble(atts.getValue("time"));
 		String eventType = atts.getValue("type");
+		createEvent(time, eventType, atts);
+	}
 
+	/**
+	 * Converts the attributes of a single event into the matching event object and passes it on to the events manager.
+	 * Also used by {@link EventsReaderBinary}, which hands in its decoded attribute columns through the same interface.
+	 */
+	void createEvent(final double time, final String eventType, final Attributes atts) {
 		// === material related to wait2link below here ===
 		if (LinkLeaveEvent.EVENT_TYPE.equals(eventType)) {
 			this.events.processEvent(new LinkLeaveEvent(time,
@@ -22,6 +22,7 @@ package org.matsim.core.events;
 
 import java.io.InputStream;
 import java.net.URL;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -51,6 +52,10 @@ public final class MatsimEventsReader implements MatsimReader {
 
 	private final Map<String, CustomEventMapper> customEventMappers = new LinkedHashMap<>();
 
+	private Collection<String> eventTypes = null;
+	private double fromTime = Double.NEGATIVE_INFINITY;
+	private double toTime = Double.POSITIVE_INFINITY;
+
 	public interface CustomEventMapper {
 		Event apply(GenericEvent event);
 	}
@@ -68,6 +73,28 @@ public final class MatsimEventsReader implements MatsimReader {
 		this.events = events;
 	}
 
+	/**
+	 * Only events of the given types are read from binary events files, whole column sections of other event types
+	 * are skipped. <code>null</code> (the default) reads all events. Events files in other formats are always read
+	 * completely.
+	 *
+	 * @see EventsReaderBinary#setEventTypes(Collection)
+	 */
+	public void setEventTypes(final Collection<String> eventTypes) {
+		this.eventTypes = eventTypes;
+	}
+
+	/**
+	 * Only events with <code>fromTime &lt;= time &lt;= toTime</code> are read from binary events files, whole blocks
+	 * outside of the time window are skipped. Events files in other formats are always read completely.
+	 *
+	 * @see EventsReaderBinary#setTimeWindow(double, double)
+	 */
+	public void setTimeWindow(final double fromTime, final double toTime) {
+		this.fromTime = fromTime;
+		this.toTime = toTime;
+	}
+
 	/**
 	 * Parses the specified events file.
 	 *
@@ -82,6 +109,8 @@ public final class MatsimEventsReader implements MatsimReader {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(filename);
+		} else if (isBinaryEventsFile(lcFilename)) {
+			createBinaryReader().readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -107,12 +136,17 @@ public final class MatsimEventsReader implements MatsimReader {
 				customEventMappers.forEach(reader::addCustomEventMapper);
 				reader.parse(stream);
 				break;
+			case bin:
+				createBinaryReader().readStream(stream);
+				break;
 		}
 	}
 
 	@Override
 	public void readURL( final URL url ) {
-		if (url.getFile().contains(".xml")) {
+		if (isBinaryEventsFile(url.getPath().toLowerCase(Locale.ROOT))) {
+			createBinaryReader().readURL(url);
+		} else if (url.getFile().contains(".xml")) {
 			new XmlEventsReader( this.events, this.customEventMappers).readURL( url );
 		} else if (url.getFile().contains(".ndjson")) {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
@@ -121,6 +155,18 @@ public final class MatsimEventsReader implements MatsimReader {
 		}
 	}
 
+	private EventsReaderBinary createBinaryReader() {
+		EventsReaderBinary reader = new EventsReaderBinary(this.events);
+		customEventMappers.forEach(reader::addCustomEventMapper);
+		reader.setEventTypes(this.eventTypes);
+		reader.setTimeWindow(this.fromTime, this.toTime);
+		return reader;
+	}
+
+	private static boolean isBinaryEventsFile(final String lcFilename) {
+		return lcFilename.endsWith(".bin") || lcFilename.endsWith(".bin.gz") || lcFilename.endsWith(".bin.zst") || lcFilename.endsWith(".bin.lz4");
+	}
+
 	private static class XmlEventsReader extends MatsimXmlParser {
 
 		final EventsManager events;
@@ -0,0 +1,372 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import jakarta.inject.Inject;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.EventsManagerConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * An EventsManager that hands events to its processing threads through a single pre-allocated ring buffer
+ * instead of linked queues, so no memory is allocated per event.
+ * <p>
+ * The event handlers are distributed round-robin over <code>numberOfThreads</code> handler groups. Each group is
+ * served by its own thread that reads the ring with its own cursor; a slot is only reused after all groups have
+ * processed it. Producers (possibly several mobsim threads) claim slots with a single atomic increment, and
+ * {@link #processEvents(EventArray)} claims and publishes a whole batch (e.g. one sim step of Hermes) at once.
+ * <p>
+ * Like {@link SimStepParallelEventsManagerImpl}, {@link #afterSimStep(double)} only returns once all events of the
+ * time step, including events created by event handlers while processing them, have been handled.
+ * <p>
+ * Event handlers that create events themselves must not create more events than fit into the ring buffer while
+ * their own group lags behind; in that case an exception is thrown instead of dead-locking. Increase
+ * <code>eventsQueueSize</code> if this happens.
+ */
+public final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = LogManager.getLogger(RingBufferEventsManager.class);
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 100;
+	private static final long PARK_NANOS = 50_000;
+	private static final int MAX_BATCH_SIZE = 1024;
+
+	private final int numOfThreads;
+	private final int capacity;
+	private final int mask;
+
+	private final Event[] ring;
+	private final AtomicLongArray published;
+	private final AtomicLong claimSequence = new AtomicLong(0);
+	private volatile long gatingSequenceCache = 0;
+
+	private final EventsManagerImpl delegate = new EventsManagerImpl();
+	private final EventsManagerImpl[] eventsManagers;
+	private HandlerGroupThread[] threads;
+	private int handlerCount = 0;
+
+	private volatile boolean parallelMode = false;
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+
+	@Inject
+	RingBufferEventsManager(EventsManagerConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, config.getEventsQueueSize());
+	}
+
+	public RingBufferEventsManager(int numOfThreads) {
+		this(numOfThreads, 65536 * 2);
+	}
+
+	/**
+	 * @param numOfThreads number of handler groups, each processed by its own thread
+	 * @param ringSize minimal capacity of the ring buffer; rounded up to the next power of two
+	 */
+	public RingBufferEventsManager(int numOfThreads, int ringSize) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1, but was " + numOfThreads);
+		}
+		this.numOfThreads = numOfThreads;
+		this.capacity = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+		this.mask = this.capacity - 1;
+		this.ring = new Event[this.capacity];
+		this.published = new AtomicLongArray(this.capacity);
+		for (int i = 0; i < this.capacity; i++) {
+			this.published.set(i, -1);
+		}
+		this.eventsManagers = new EventsManagerImpl[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) {
+			this.eventsManagers[i] = new EventsManagerImpl();
+		}
+		log.info("number of threads=" + numOfThreads + ", ring buffer size=" + this.capacity);
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (!this.parallelMode) {
+			this.delegate.processEvent(event);
+			return;
+		}
+		long sequence = this.claimSequence.getAndIncrement();
+		waitForCapacity(sequence);
+		publish(sequence, event);
+	}
+
+	@Override
+	public void processEvents(final EventArray events) {
+		int size = events.size();
+		if (!this.parallelMode) {
+			for (int i = 0; i < size; i++) {
+				this.delegate.processEvent(events.get(i));
+			}
+			return;
+		}
+		if (size == 0) {
+			return;
+		}
+		if (size > this.capacity) {
+			// the batch does not fit into the ring in one go, publish it event by event
+			for (int i = 0; i < size; i++) {
+				processEvent(events.get(i));
+			}
+			return;
+		}
+		long first = this.claimSequence.getAndAdd(size);
+		waitForCapacity(first + size - 1);
+		for (int i = 0; i < size; i++) {
+			publish(first + i, events.get(i));
+		}
+	}
+
+	private void publish(long sequence, Event event) {
+		int index = (int) (sequence & this.mask);
+		this.ring[index] = event;
+		// the release semantics of lazySet make the event in the ring visible to readers of the sequence
+		this.published.lazySet(index, sequence);
+	}
+
+	/**
+	 * Blocks until the slot for <code>sequence</code> has been processed by all handler groups in its previous lap.
+	 */
+	private void waitForCapacity(long sequence) {
+		long wrapPoint = sequence - this.capacity;
+		if (wrapPoint < this.gatingSequenceCache) {
+			return;
+		}
+		HandlerGroupThread self = currentHandlerGroupThread();
+		if (self != null) {
+			// an event handler creates an event: make its own progress visible, as it cannot advance while we wait
+			self.sequence.set(self.current);
+			if (self.current <= wrapPoint) {
+				throw new IllegalStateException("An event handler created more events than fit into the ring buffer while its own events were "
+						+ "not yet processed. Increase " + EventsManagerConfigGroup.GROUP_NAME + ".eventsQueueSize (currently " + this.capacity + ").");
+			}
+		}
+		int tries = 0;
+		long minSequence;
+		while (wrapPoint >= (minSequence = minimumConsumerSequence())) {
+			checkException();
+			tries = backOff(tries);
+		}
+		this.gatingSequenceCache = minSequence;
+	}
+
+	private long minimumConsumerSequence() {
+		long min = Long.MAX_VALUE;
+		for (HandlerGroupThread thread : this.threads) {
+			min = Math.min(min, thread.sequence.get());
+		}
+		return min;
+	}
+
+	private HandlerGroupThread currentHandlerGroupThread() {
+		Thread current = Thread.currentThread();
+		return current instanceof HandlerGroupThread t && t.owner == this ? t : null;
+	}
+
+	private static int backOff(int tries) {
+		if (tries < SPIN_TRIES) {
+			Thread.onSpinWait();
+		} else if (tries < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+			return tries;
+		}
+		return tries + 1;
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.delegate.addHandler(handler);
+		this.eventsManagers[this.handlerCount % this.numOfThreads].addHandler(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		this.delegate.removeHandler(handler);
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.removeHandler(handler);
+		}
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.initProcessing();
+		}
+
+		this.hadException.set(null);
+		long start = this.claimSequence.get();
+		this.gatingSequenceCache = start;
+		this.threads = new HandlerGroupThread[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) {
+			HandlerGroupThread thread = new HandlerGroupThread(this, this.eventsManagers[i], start);
+			thread.setName(HandlerGroupThread.class.getSimpleName() + i);
+			thread.setDaemon(true);
+			thread.setUncaughtExceptionHandler((t, e) -> {
+				log.error("Thread " + t.getName() + " died with exception while handling events.", e);
+				this.hadException.compareAndSet(null, e);
+			});
+			this.threads[i] = thread;
+		}
+		this.parallelMode = true;
+		for (HandlerGroupThread thread : this.threads) {
+			thread.start();
+		}
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		// outside of initProcessing/finishProcessing, events are processed directly, so there is nothing to wait for
+		if (!this.parallelMode || this.threads == null) {
+			return;
+		}
+		awaitAllProcessed();
+	}
+
+	/*
+	 * Events that are created after this method has been called are processed directly in the calling thread by
+	 * the delegate.
+	 */
+	@Override
+	public synchronized void finishProcessing() {
+		if (this.threads != null) {
+			try {
+				if (this.hadException.get() == null) {
+					awaitAllProcessed();
+				}
+			} finally {
+				this.parallelMode = false;
+				for (HandlerGroupThread thread : this.threads) {
+					thread.running = false;
+					LockSupport.unpark(thread);
+				}
+				for (HandlerGroupThread thread : this.threads) {
+					try {
+						thread.join();
+					} catch (InterruptedException e) {
+						throw new RuntimeException("Exception while waiting on join...", e);
+					}
+				}
+				this.threads = null;
+				// release references to processed events
+				Arrays.fill(this.ring, null);
+			}
+		}
+
+		this.delegate.finishProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.finishProcessing();
+		}
+		checkException();
+	}
+
+	/**
+	 * Waits until all handler groups have processed all claimed events. Event handlers may create new events while
+	 * we wait, so we only stop once no more events have been claimed in the meantime.
+	 */
+	private void awaitAllProcessed() {
+		int tries = 0;
+		while (true) {
+			checkException();
+			long target = this.claimSequence.get();
+			if (minimumConsumerSequence() >= target && this.claimSequence.get() == target) {
+				return;
+			}
+			tries = backOff(tries);
+		}
+	}
+
+	private void checkException() {
+		Throwable e = this.hadException.get();
+		if (e != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", e);
+		}
+	}
+
+	/**
+	 * Processes all events of the ring for one handler group. {@link #sequence} is the next sequence to process,
+	 * i.e. all events before it have been handled; it is only updated once per batch of available events.
+	 * {@link #current} is the sequence of the event being handled right now and only read from this thread.
+	 */
+	private static final class HandlerGroupThread extends Thread {
+
+		private final RingBufferEventsManager owner;
+		private final EventsManager eventsManager;
+		private final AtomicLong sequence;
+		private long current;
+		private volatile boolean running = true;
+
+		HandlerGroupThread(RingBufferEventsManager owner, EventsManager eventsManager, long start) {
+			this.owner = owner;
+			this.eventsManager = eventsManager;
+			this.sequence = new AtomicLong(start);
+		}
+
+		@Override
+		public void run() {
+			Event[] ring = this.owner.ring;
+			AtomicLongArray published = this.owner.published;
+			int mask = this.owner.mask;
+			long next = this.sequence.get();
+			int tries = 0;
+			while (true) {
+				long available = next;
+				long limit = next + MAX_BATCH_SIZE;
+				while (available < limit && published.get((int) (available & mask)) == available) {
+					available++;
+				}
+				if (available == next) {
+					if (!this.running) {
+						return;
+					}
+					tries = backOff(tries);
+					continue;
+				}
+				tries = 0;
+				for (long s = next; s < available; s++) {
+					this.current = s;
+					this.eventsManager.processEvent(ring[(int) (s & mask)]);
+				}
+				next = available;
+				this.sequence.set(next);
+			}
+		}
+	}
+}
@@ -0,0 +1,483 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes events in a compact, block-oriented binary format that can be read again with
+ * {@link org.matsim.core.events.MatsimEventsReader} (files ending in <code>.bin</code>, optionally compressed).
+ * <p>
+ * Events are buffered into blocks of {@link #DEFAULT_BLOCK_SIZE} events. Within a block, the event times are
+ * delta-coded and all attribute values are stored column-wise per event schema (event type plus its attribute
+ * names). Values that are the canonical string form of a <code>long</code> or a <code>double</code>, like counts,
+ * coordinates or distances, are stored directly as numbers. All other values are encoded as variable-length codes
+ * into a string dictionary that is shared across the whole file; once the dictionary holds
+ * {@link #MAX_DICTIONARY_SIZE} entries, further new strings are stored inline, so the memory used by the writer is
+ * bounded. Each block records its time range and each schema column section its length, so readers can skip whole
+ * blocks by time and whole column sections by event type without decoding them.
+ * <p>
+ * File layout:
+ * <pre>
+ * file    := MAGIC version:int record* END
+ * record  := DICTIONARY count:varint (string)*
+ *          | SCHEMA id:varint type:varint keyCount:varint (key:varint)*
+ *          | BLOCK minTime:double maxTime:double eventCount:varint length:varint body
+ * body    := (schemaId:varint)* times (schemaCount:varint section*)
+ * times   := TIMES_INTEGRAL (delta:zigzag-varint)* | TIMES_DOUBLE (time:double)*
+ * section := schemaId:varint length:varint (value*)*   -- one column per key
+ * value   := VALUE_NULL | VALUE_LONG zigzag-varint | VALUE_DOUBLE double | VALUE_STRING length:varint utf8
+ *          | (dictionaryCode + VALUE_DICTIONARY_OFFSET):varint
+ * </pre>
+ * Dictionary codes start at <code>1</code>.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final byte[] MAGIC = "MATSIMEB".getBytes(StandardCharsets.US_ASCII);
+	public static final int VERSION = 2;
+
+	public static final byte RECORD_END = 0;
+	public static final byte RECORD_DICTIONARY = 1;
+	public static final byte RECORD_SCHEMA = 2;
+	public static final byte RECORD_BLOCK = 3;
+
+	public static final byte TIMES_INTEGRAL = 0;
+	public static final byte TIMES_DOUBLE = 1;
+
+	public static final int VALUE_NULL = 0;
+	public static final int VALUE_LONG = 1;
+	public static final int VALUE_DOUBLE = 2;
+	public static final int VALUE_STRING = 3;
+	public static final int VALUE_DICTIONARY_OFFSET = 3;
+
+	public static final int MAX_DICTIONARY_SIZE = 1 << 21;
+
+	public static final int DEFAULT_BLOCK_SIZE = 16384;
+
+	private final DataOutputStream out;
+	private final int blockSize;
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final List<String> pendingDictionaryEntries = new ArrayList<>();
+
+	private final Map<String, List<Schema>> schemasByType = new HashMap<>();
+	private final List<Schema> schemas = new ArrayList<>();
+	private final List<Schema> pendingSchemas = new ArrayList<>();
+
+	private final int[] blockSchemas;
+	private final double[] blockTimes;
+	private int blockEventCount = 0;
+
+	private final ByteSink body = new ByteSink(1 << 16);
+
+	private String[] keyScratch = new String[8];
+	private String[] valueScratch = new String[8];
+
+	public EventWriterBinary(final String outfilename) {
+		this(IOUtils.getOutputStream(IOUtils.getFileUrl(outfilename), false), DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		this(stream, DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream, final int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be positive, but was " + blockSize);
+		}
+		this.out = new DataOutputStream(stream);
+		this.blockSize = blockSize;
+		this.blockSchemas = new int[blockSize];
+		this.blockTimes = new double[blockSize];
+		try {
+			this.out.write(MAGIC);
+			this.out.writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		int keyCount = 0;
+		for (Map.Entry<String, String> e : event.getAttributes().entrySet()) {
+			String key = e.getKey();
+			if (Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key)) {
+				continue;
+			}
+			if (keyCount == this.keyScratch.length) {
+				this.keyScratch = Arrays.copyOf(this.keyScratch, keyCount * 2);
+				this.valueScratch = Arrays.copyOf(this.valueScratch, keyCount * 2);
+			}
+			this.keyScratch[keyCount] = key;
+			this.valueScratch[keyCount] = e.getValue();
+			keyCount++;
+		}
+
+		Schema schema = getOrCreateSchema(event.getEventType(), this.keyScratch, keyCount);
+		for (int i = 0; i < keyCount; i++) {
+			writeValue(schema.columns[i], this.valueScratch[i]);
+		}
+		schema.rowsInBlock++;
+
+		this.blockSchemas[this.blockEventCount] = schema.id;
+		this.blockTimes[this.blockEventCount] = event.getTime();
+		this.blockEventCount++;
+		if (this.blockEventCount == this.blockSize) {
+			flushBlock();
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		flushBlock();
+		try {
+			this.out.writeByte(RECORD_END);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	private void writeValue(final ByteSink column, final String value) {
+		if (value == null) {
+			column.writeVarInt(VALUE_NULL);
+		} else if (isCanonicalLong(value)) {
+			column.writeVarInt(VALUE_LONG);
+			column.writeZigZag(Long.parseLong(value));
+		} else if (isCanonicalDouble(value)) {
+			column.writeVarInt(VALUE_DOUBLE);
+			column.writeDouble(Double.parseDouble(value));
+		} else {
+			Integer code = this.dictionary.get(value);
+			if (code == null && this.dictionary.size() < MAX_DICTIONARY_SIZE) {
+				code = encode(value);
+			}
+			if (code == null) {
+				column.writeVarInt(VALUE_STRING);
+				column.writeString(value);
+			} else {
+				column.writeVarInt(code + VALUE_DICTIONARY_OFFSET);
+			}
+		}
+	}
+
+	/**
+	 * @return the dictionary code of the value, adding it to the dictionary if needed. Only to be used directly for
+	 * event types and attribute names, attribute values go through {@link #writeValue(ByteSink, String)}.
+	 */
+	private int encode(final String value) {
+		Integer code = this.dictionary.get(value);
+		if (code == null) {
+			code = this.dictionary.size() + 1;
+			this.dictionary.put(value, code);
+			this.pendingDictionaryEntries.add(value);
+		}
+		return code;
+	}
+
+	/**
+	 * @return <code>true</code> if <code>Long.toString(Long.parseLong(value))</code> would return the value again
+	 */
+	static boolean isCanonicalLong(final String value) {
+		int length = value.length();
+		int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+		int digits = length - start;
+		if (digits == 0 || digits > 18 || (value.charAt(start) == '0' && (digits > 1 || start == 1))) {
+			return false;
+		}
+		for (int i = start; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if <code>Double.toString(Double.parseDouble(value))</code> would return the value again
+	 */
+	static boolean isCanonicalDouble(final String value) {
+		int length = value.length();
+		if (length == 0 || length > 25 || value.indexOf('.') < 0) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if ((c < '0' || c > '9') && c != '.' && c != '-' && c != 'E') {
+				return false;
+			}
+		}
+		try {
+			return Double.toString(Double.parseDouble(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/*package*/ int getDictionarySize() {
+		return this.dictionary.size();
+	}
+
+	private Schema getOrCreateSchema(final String type, final String[] keys, final int keyCount) {
+		List<Schema> candidates = this.schemasByType.computeIfAbsent(type, t -> new ArrayList<>(2));
+		for (Schema candidate : candidates) {
+			if (candidate.matches(keys, keyCount)) {
+				return candidate;
+			}
+		}
+		Schema schema = new Schema(this.schemas.size(), encode(type), Arrays.copyOf(keys, keyCount));
+		for (String key : schema.keys) {
+			encode(key);
+		}
+		candidates.add(schema);
+		this.schemas.add(schema);
+		this.pendingSchemas.add(schema);
+		return schema;
+	}
+
+	private void flushBlock() {
+		if (this.blockEventCount == 0) {
+			return;
+		}
+		try {
+			writePendingDictionaryEntries();
+			writePendingSchemas();
+
+			double minTime = Double.POSITIVE_INFINITY;
+			double maxTime = Double.NEGATIVE_INFINITY;
+			boolean integralTimes = true;
+			for (int i = 0; i < this.blockEventCount; i++) {
+				double time = this.blockTimes[i];
+				minTime = Math.min(minTime, time);
+				maxTime = Math.max(maxTime, time);
+				integralTimes &= time == Math.rint(time) && Math.abs(time) < (1L << 52);
+			}
+
+			this.body.clear();
+			List<Schema> schemasInBlock = new ArrayList<>();
+			for (int i = 0; i < this.blockEventCount; i++) {
+				Schema schema = this.schemas.get(this.blockSchemas[i]);
+				if (!schema.inBlock) {
+					schema.inBlock = true;
+					schemasInBlock.add(schema);
+				}
+				this.body.writeVarInt(schema.id);
+			}
+
+			if (integralTimes) {
+				this.body.writeByte(TIMES_INTEGRAL);
+				long previous = 0;
+				for (int i = 0; i < this.blockEventCount; i++) {
+					long time = (long) this.blockTimes[i];
+					this.body.writeZigZag(time - previous);
+					previous = time;
+				}
+			} else {
+				this.body.writeByte(TIMES_DOUBLE);
+				for (int i = 0; i < this.blockEventCount; i++) {
+					this.body.writeDouble(this.blockTimes[i]);
+				}
+			}
+
+			this.body.writeVarInt(schemasInBlock.size());
+			for (Schema schema : schemasInBlock) {
+				int sectionLength = 0;
+				for (ByteSink column : schema.columns) {
+					sectionLength += column.size;
+				}
+				this.body.writeVarInt(schema.id);
+				this.body.writeVarInt(sectionLength);
+				for (ByteSink column : schema.columns) {
+					this.body.write(column);
+					column.clear();
+				}
+
+				schema.rowsInBlock = 0;
+				schema.inBlock = false;
+			}
+
+			this.out.writeByte(RECORD_BLOCK);
+			this.out.writeDouble(minTime);
+			this.out.writeDouble(maxTime);
+			writeVarInt(this.out, this.blockEventCount);
+			writeVarInt(this.out, this.body.size);
+			this.out.write(this.body.data, 0, this.body.size);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.blockEventCount = 0;
+	}
+
+	private void writePendingDictionaryEntries() throws IOException {
+		if (this.pendingDictionaryEntries.isEmpty()) {
+			return;
+		}
+		this.out.writeByte(RECORD_DICTIONARY);
+		writeVarInt(this.out, this.pendingDictionaryEntries.size());
+		for (String entry : this.pendingDictionaryEntries) {
+			byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(this.out, bytes.length);
+			this.out.write(bytes);
+		}
+		this.pendingDictionaryEntries.clear();
+	}
+
+	private void writePendingSchemas() throws IOException {
+		for (Schema schema : this.pendingSchemas) {
+			this.out.writeByte(RECORD_SCHEMA);
+			writeVarInt(this.out, schema.id);
+			writeVarInt(this.out, schema.typeCode);
+			writeVarInt(this.out, schema.keys.length);
+			for (String key : schema.keys) {
+				writeVarInt(this.out, this.dictionary.get(key));
+			}
+		}
+		this.pendingSchemas.clear();
+	}
+
+	private static void writeVarInt(final DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * An event type together with the (ordered) names of its attributes. The encoded attribute values of all
+	 * events of the current block using this schema are kept in one {@link #columns column} per attribute.
+	 */
+	private static final class Schema {
+		final int id;
+		final int typeCode;
+		final String[] keys;
+		final ByteSink[] columns;
+		int rowsInBlock = 0;
+		boolean inBlock = false;
+
+		Schema(int id, int typeCode, String[] keys) {
+			this.id = id;
+			this.typeCode = typeCode;
+			this.keys = keys;
+			this.columns = new ByteSink[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				this.columns[i] = new ByteSink(256);
+			}
+		}
+
+		boolean matches(String[] otherKeys, int keyCount) {
+			if (this.keys.length != keyCount) {
+				return false;
+			}
+			for (int i = 0; i < keyCount; i++) {
+				if (!this.keys[i].equals(otherKeys[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final class ByteSink {
+		byte[] data;
+		int size = 0;
+
+		ByteSink(int initialCapacity) {
+			this.data = new byte[initialCapacity];
+		}
+
+		void clear() {
+			this.size = 0;
+		}
+
+		private void ensureCapacity(int additional) {
+			if (this.size + additional > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.size + additional));
+			}
+		}
+
+		void writeByte(int value) {
+			ensureCapacity(1);
+			this.data[this.size++] = (byte) value;
+		}
+
+		void writeVarInt(int value) {
+			ensureCapacity(5);
+			while ((value & ~0x7F) != 0) {
+				this.data[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.size++] = (byte) value;
+		}
+
+		void writeZigZag(long value) {
+			long encoded = (value << 1) ^ (value >> 63);
+			ensureCapacity(10);
+			while ((encoded & ~0x7FL) != 0) {
+				this.data[this.size++] = (byte) ((encoded & 0x7F) | 0x80);
+				encoded >>>= 7;
+			}
+			this.data[this.size++] = (byte) encoded;
+		}
+
+		void writeDouble(double value) {
+			long bits = Double.doubleToLongBits(value);
+			ensureCapacity(8);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				this.data[this.size++] = (byte) (bits >>> shift);
+			}
+		}
+
+		void writeString(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, this.data, this.size, bytes.length);
+			this.size += bytes.length;
+		}
+
+		void write(ByteSink other) {
+			ensureCapacity(other.size);
+			System.arraycopy(other.data, 0, this.data, this.size, other.size);
+			this.size += other.size;
+		}
+	}
+
+}
@@ -24,6 +24,8 @@ class HLink {
 
 	private float currentCapacity;
 	private final int initialCapacity;
+	// Storage capacity, may differ from the initial capacity on time-variant links.
+	private int storageCapacity;
 
 	// Id of the link.
 	private final int id;
@@ -141,11 +143,13 @@ class HLink {
     // Length of the link in meters.
     private final int length;
     // Max velocity within the link (meters per second).
-    private final int velocity;
+    private int velocity;
+    private final int initialVelocity;
     // Queues of agents on this link. Boundary links use both queues.
     private final AgentQueue queue;
     // Number of vehicles that can leave the link per time second.
-    private final float flowCapacityPerS;
+    private float flowCapacityPerS;
+    private final float initialFlowCapacityPerS;
     private float flowLeftInTimestep;
     private int lastUpdate;
     // When (which timestep) flow was updated the last time.
@@ -157,12 +161,15 @@ class HLink {
         this.id = id;
         this.length = length;
         this.velocity = velocity;
+        this.initialVelocity = velocity;
         this.flowCapacityPerS = flowCapacityperSecond;
+        this.initialFlowCapacityPerS = flowCapacityperSecond;
         this.stuckTimePeriod = stuckTimePeriod;
         this.lastPush = 0;
         this.lastUpdate = 0;
         this.nextFreeFlowSlot = 0;
         this.initialCapacity = capacity;
+        this.storageCapacity = capacity;
         this.currentCapacity = capacity;
         this.flowLeftInTimestep = flowCapacityperSecond;
 
@@ -176,14 +183,28 @@ class HLink {
 		this.nextFreeFlowSlot = 0;
 		this.lastPush = 0;
 		this.lastUpdate = 0;
+		this.velocity = initialVelocity;
+		this.flowCapacityPerS = initialFlowCapacityPerS;
+		this.storageCapacity = initialCapacity;
 		this.currentCapacity = initialCapacity;
 		this.flowLeftInTimestep = flowCapacityPerS;
 
 	}
 
+	/**
+	 * Changes the attributes of a time-variant link. Vehicles already on the link keep their link travel time, the
+	 * changed storage capacity applies to the free space left on the link.
+	 */
+	public void update(int velocity, float flowCapacityPerSecond, int capacity) {
+		this.velocity = velocity;
+		this.flowCapacityPerS = flowCapacityPerSecond;
+		this.currentCapacity += capacity - this.storageCapacity;
+		this.storageCapacity = capacity;
+	}
+
 	public boolean push(Agent agent, int timestep, float storageCapacityPCU) {
 		//avoid long vehicles not being able to enter a short link
-		float effectiveStorageCapacity = Math.min(storageCapacityPCU, initialCapacity);
+		float effectiveStorageCapacity = Math.min(storageCapacityPCU, storageCapacity);
 		if (currentCapacity - effectiveStorageCapacity >= 0) {
 			if (queue.push(agent)) {
 				lastPush = timestep;
@@ -220,6 +241,10 @@ class HLink {
     }
 
     public boolean flow(int timestep, float requestedFlow) {
+    	if (flowCapacityPerS <= 0) {
+    		// closed link, e.g. by a network change event
+    		return false;
+    	}
     	if (timestep  >= nextFreeFlowSlot) {
 			// if requestedFlow<flowCapacityPerS, more than one vehicle can pass per timestep
 			if (lastUpdate == timestep){
@@ -61,6 +61,8 @@ class Realm {
     private final EventsManager eventsManager;
     // Current timestamp
     private int secs;
+    // Index of the next change of a time-variant link (see ScenarioImporter.linkChangeTimes).
+    private int nextLinkChange;
     Logger log = LogManager.getLogger(Realm.class);
 
     public Realm(ScenarioImporter scenario, EventsManager eventsManager) {
@@ -117,6 +119,18 @@ class Realm {
         }
     }
 
+    private void applyLinkChanges() {
+        int[] times = si.linkChangeTimes;
+        while (nextLinkChange < times.length && times[nextLinkChange] <= secs) {
+            HLink link = links[si.linkChangeLinks[nextLinkChange]];
+            if (HermesConfigGroup.DEBUG_REALMS) {
+                log(secs, String.format("link %d changed", link.id()));
+            }
+            link.update(si.linkChangeVelocities[nextLinkChange], si.linkChangeFlowCapacities[nextLinkChange], si.linkChangeStorageCapacities[nextLinkChange]);
+            nextLinkChange++;
+        }
+    }
+
     protected boolean processAgentLink(Agent agent, long planentry, int currLinkId) {
         int linkid = Agent.getLinkPlanEntry(planentry);
         double velocity = Agent.getVelocityPlanEntry(planentry);
@@ -324,6 +338,7 @@ class Realm {
             if (secs % 3600 == 0) {
                 log.info("Hermes running at " + Time.writeTime(secs));
             }
+            applyLinkChanges();
             while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) {
                     log(secs, String.format("Processing agent %d", agent.id));
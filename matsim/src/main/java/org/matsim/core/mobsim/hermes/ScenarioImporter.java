@@ -32,6 +32,8 @@ import org.matsim.api.core.v01.population.*;
 import org.matsim.core.api.experimental.events.*;
 import org.matsim.core.events.EventArray;
 import org.matsim.core.mobsim.hermes.Agent.PlanArray;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.TimeDependentNetwork;
 import org.matsim.core.population.routes.GenericRouteImpl;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.TripStructureUtils;
@@ -76,6 +78,13 @@ class ScenarioImporter {
 	protected int[] routeOfRoute;
 	// Array of links that define the network.
 	protected HLink[] hermesLinks;
+	// Changes of time-variant links, sorted by time. Should be used as follows:
+	// at second linkChangeTimes[i], link hermesLinks[linkChangeLinks[i]] gets the velocity, flow and storage capacity at index i
+	protected int[] linkChangeTimes;
+	protected int[] linkChangeLinks;
+	protected int[] linkChangeVelocities;
+	protected float[] linkChangeFlowCapacities;
+	protected int[] linkChangeStorageCapacities;
 
 	protected Realm realm;
 	private final boolean deterministicPt;
@@ -199,9 +208,8 @@ class ScenarioImporter {
 
 		for (org.matsim.api.core.v01.network.Link matsim_link : matsim_links) {
 			int length = Math.max(1, (int) Math.round(matsim_link.getLength()));
-			int speed = Math.max(1, (int) Math.round(matsim_link.getFreespeed()));
-			int lanes = (int) Math.round(matsim_link.getNumberOfLanes());
-			int storageCapacity = Math.max(1, (int) (Math.ceil(matsim_link.getLength() / network.getEffectiveCellSize() * lanes)));
+			int speed = getVelocity(matsim_link.getFreespeed());
+			int storageCapacity = getStorageCapacity(network, matsim_link, matsim_link.getNumberOfLanes());
 			int link_id = matsim_link.getId().index();
 			final float effectiveflowCapacityPerSec = (float) matsim_link.getFlowCapacityPerSec();
 
@@ -211,6 +219,56 @@ class ScenarioImporter {
 
 			hermesLinks[link_id] = new HLink(link_id, storageCapacity, length, speed, effectiveflowCapacityPerSec, scenario.getConfig().hermes().getStuckTime());
 		}
+		generateLinkChanges();
+	}
+
+	private static int getVelocity(double freespeed) {
+		return Math.max(1, (int) Math.round(freespeed));
+	}
+
+	private static int getStorageCapacity(Network network, Link link, double numberOfLanes) {
+		int lanes = (int) Math.round(numberOfLanes);
+		return Math.max(1, (int) (Math.ceil(link.getLength() / network.getEffectiveCellSize() * lanes)));
+	}
+
+	/**
+	 * Converts the network change events into a list of link updates, applied by the realm when the simulation
+	 * reaches the (rounded up) start time of each event. The new values are taken from the time-variant link, so
+	 * absolute, factor and offset changes are handled in the same way as in the other mobsims.
+	 */
+	private void generateLinkChanges() {
+		Network network = scenario.getNetwork();
+		List<NetworkChangeEvent> changeEvents = new ArrayList<>();
+		if (scenario.getConfig().network().isTimeVariantNetwork() && network instanceof TimeDependentNetwork) {
+			changeEvents.addAll(((TimeDependentNetwork) network).getNetworkChangeEvents());
+		}
+		changeEvents.sort(new NetworkChangeEvent.StartTimeComparator());
+
+		int changeCount = 0;
+		for (NetworkChangeEvent changeEvent : changeEvents) {
+			changeCount += changeEvent.getLinks().size();
+		}
+		linkChangeTimes = new int[changeCount];
+		linkChangeLinks = new int[changeCount];
+		linkChangeVelocities = new int[changeCount];
+		linkChangeFlowCapacities = new float[changeCount];
+		linkChangeStorageCapacities = new int[changeCount];
+
+		int i = 0;
+		for (NetworkChangeEvent changeEvent : changeEvents) {
+			double time = changeEvent.getStartTime();
+			for (Link link : changeEvent.getLinks()) {
+				linkChangeTimes[i] = Math.max(0, (int) Math.ceil(time));
+				linkChangeLinks[i] = link.getId().index();
+				linkChangeVelocities[i] = getVelocity(link.getFreespeed(time));
+				linkChangeFlowCapacities[i] = (float) link.getFlowCapacityPerSec(time);
+				linkChangeStorageCapacities[i] = getStorageCapacity(network, link, link.getNumberOfLanes(time));
+				i++;
+			}
+		}
+		if (changeCount > 0) {
+			log.info(String.format("Hermes will apply %d link changes from %d network change events", changeCount, changeEvents.size()));
+		}
 	}
 
 	private void initRoutesStations() {
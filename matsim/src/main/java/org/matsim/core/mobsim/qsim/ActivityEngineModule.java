@@ -21,6 +21,8 @@
 
  package org.matsim.core.mobsim.qsim;
 
+import org.matsim.core.config.groups.QSimConfigGroup.ActivityAndTeleportationQueue;
+
 import com.google.inject.Singleton;
 
 public class ActivityEngineModule extends AbstractQSimModule {
@@ -28,7 +30,12 @@ public class ActivityEngineModule extends AbstractQSimModule {
 
 	@Override
 	protected void configureQSim() {
-		bind( ActivityEngineDefaultImpl.class ).in( Singleton.class );
-		addQSimComponentBinding( COMPONENT_NAME ).to( ActivityEngineDefaultImpl.class );
+		if ( getConfig().qsim().getActivityAndTeleportationQueue() == ActivityAndTeleportationQueue.calendarQueue ) {
+			bind( CalendarQueueActivityEngine.class ).in( Singleton.class );
+			addQSimComponentBinding( COMPONENT_NAME ).to( CalendarQueueActivityEngine.class );
+		} else {
+			bind( ActivityEngineDefaultImpl.class ).in( Singleton.class );
+			addQSimComponentBinding( COMPONENT_NAME ).to( ActivityEngineDefaultImpl.class );
+		}
 	}
 }
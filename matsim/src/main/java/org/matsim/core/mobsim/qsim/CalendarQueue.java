@@ -0,0 +1,261 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A queue of items that become due at a certain time, with one bucket per simulated second. Adding an item and
+ * removing a due item are O(1), in contrast to the O(log n) of a {@link PriorityQueue}, as long as the items are not
+ * too far in the future. Items more than {@link #RING_SIZE} seconds ahead are kept in an overflow heap until their
+ * second comes into range.
+ * <p>
+ * The entries are pooled and re-used, so adding an item does not allocate memory in the steady state. Items that
+ * become due in the same second are returned ordered by their time, and items with the same time ordered by the given
+ * comparator, i.e. in the same order as a priority queue would return them.
+ * <p>
+ * If the queue supports {@link #remove(Object)}, every entry is found by its item in an identity map, so removing
+ * an item only has to search its bucket. In this case, an item must not be in the queue more than once.
+ * <p>
+ * All methods are synchronized, as agents may be added from the threads of the QNetsimEngine.
+ */
+/* package */ final class CalendarQueue<T> {
+
+	static final int RING_SIZE = 1 << 16;
+	private static final int RING_MASK = RING_SIZE - 1;
+	private static final long OVERFLOW = Long.MIN_VALUE;
+
+	private final Comparator<T> tieBreaker;
+	private final Comparator<Entry<T>> entryComparator;
+	private final Bucket<T>[] ring;
+	private final PriorityQueue<Entry<T>> overflow;
+	private final List<Entry<T>> entryPool = new ArrayList<>();
+	private final List<Bucket<T>> bucketPool = new ArrayList<>();
+	private final Map<T, Entry<T>> entriesByItem;
+	private long currentSecond = 0;
+	private int size = 0;
+
+	/**
+	 * Creates a queue that supports {@link #remove(Object)}.
+	 *
+	 * @param tieBreaker defines the order of items with the same time
+	 */
+	CalendarQueue(Comparator<T> tieBreaker) {
+		this(tieBreaker, true);
+	}
+
+	/**
+	 * @param tieBreaker defines the order of items with the same time
+	 * @param removable whether {@link #remove(Object)} is supported, which needs an additional map lookup for every
+	 * item added and polled
+	 */
+	@SuppressWarnings("unchecked")
+	CalendarQueue(Comparator<T> tieBreaker, boolean removable) {
+		this.tieBreaker = tieBreaker;
+		this.entriesByItem = removable ? new IdentityHashMap<>() : null;
+		this.entryComparator = (e0, e1) -> {
+			int cmp = Double.compare(e0.time, e1.time);
+			return cmp != 0 ? cmp : this.tieBreaker.compare(e0.item, e1.item);
+		};
+		this.ring = new Bucket[RING_SIZE];
+		this.overflow = new PriorityQueue<>(this.entryComparator);
+	}
+
+	synchronized void add(double time, T item) {
+		Entry<T> entry = this.entryPool.isEmpty() ? new Entry<>() : this.entryPool.remove(this.entryPool.size() - 1);
+		entry.time = time;
+		entry.item = item;
+		if (this.entriesByItem != null) {
+			this.entriesByItem.put(item, entry);
+		}
+		long second = (long) Math.ceil(time);
+		if (this.size == 0) {
+			this.currentSecond = second;
+		}
+		this.size++;
+		if (second - this.currentSecond >= RING_SIZE) {
+			entry.second = OVERFLOW;
+			this.overflow.add(entry);
+		} else {
+			addToBucket(Math.max(second, this.currentSecond), entry);
+		}
+	}
+
+	/**
+	 * @return the next item with a time <code>&lt;= now</code>, or <code>null</code> if there is none
+	 */
+	synchronized T pollDue(double now) {
+		while (this.size > 0) {
+			Bucket<T> bucket = this.ring[(int) (this.currentSecond & RING_MASK)];
+			if (bucket != null && bucket.head < bucket.size) {
+				if (!bucket.sorted) {
+					Arrays.sort(bucket.entries, bucket.head, bucket.size, this.entryComparator);
+					bucket.sorted = true;
+				}
+				Entry<T> entry = bucket.entries[bucket.head];
+				if (entry.time > now) {
+					return null;
+				}
+				bucket.entries[bucket.head++] = null;
+				this.size--;
+				if (this.entriesByItem != null) {
+					this.entriesByItem.remove(entry.item);
+				}
+				return release(entry);
+			}
+			if (this.currentSecond >= now) {
+				// all remaining entries are in later buckets, so they have times > now
+				return null;
+			}
+			advance();
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the given item (compared by identity). Only the bucket of the item is searched, or the overflow heap if
+	 * the item is too far in the future to be in a bucket.
+	 *
+	 * @return <code>true</code> if the item was in the queue
+	 * @throws UnsupportedOperationException if the queue was created without support for removing items
+	 */
+	synchronized boolean remove(T item) {
+		if (this.entriesByItem == null) {
+			throw new UnsupportedOperationException("this queue does not support removing items.");
+		}
+		Entry<T> entry = this.entriesByItem.remove(item);
+		if (entry == null) {
+			return false;
+		}
+		if (entry.second == OVERFLOW) {
+			this.overflow.remove(entry);
+		} else {
+			Bucket<T> bucket = this.ring[(int) (entry.second & RING_MASK)];
+			int i = bucket.head;
+			while (bucket.entries[i] != entry) {
+				i++;
+			}
+			System.arraycopy(bucket.entries, i + 1, bucket.entries, i, bucket.size - i - 1);
+			bucket.entries[--bucket.size] = null;
+		}
+		this.size--;
+		release(entry);
+		return true;
+	}
+
+	/**
+	 * Removes all items from the queue.
+	 *
+	 * @return the removed items, ordered by time
+	 */
+	synchronized List<T> clear() {
+		List<T> items = new ArrayList<>(this.size);
+		while (this.size > 0) {
+			items.add(pollDue(Double.POSITIVE_INFINITY));
+		}
+		return items;
+	}
+
+	synchronized int size() {
+		return this.size;
+	}
+
+	synchronized boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	private void advance() {
+		int index = (int) (this.currentSecond & RING_MASK);
+		Bucket<T> bucket = this.ring[index];
+		if (bucket != null) {
+			bucket.head = 0;
+			bucket.size = 0;
+			bucket.sorted = true;
+			this.ring[index] = null;
+			this.bucketPool.add(bucket);
+		}
+		if (this.size == this.overflow.size() && !this.overflow.isEmpty()) {
+			// jump directly to the next entry instead of walking through empty seconds
+			this.currentSecond = Math.max(this.currentSecond + 1, (long) Math.ceil(this.overflow.peek().time) - RING_SIZE + 1);
+		} else {
+			this.currentSecond++;
+		}
+		while (!this.overflow.isEmpty()) {
+			long second = (long) Math.ceil(this.overflow.peek().time);
+			if (second - this.currentSecond >= RING_SIZE) {
+				break;
+			}
+			addToBucket(second, this.overflow.poll());
+		}
+	}
+
+	private void addToBucket(long second, Entry<T> entry) {
+		entry.second = second;
+		int index = (int) (second & RING_MASK);
+		Bucket<T> bucket = this.ring[index];
+		if (bucket == null) {
+			bucket = this.bucketPool.isEmpty() ? new Bucket<>() : this.bucketPool.remove(this.bucketPool.size() - 1);
+			this.ring[index] = bucket;
+		}
+		if (bucket.size == bucket.entries.length) {
+			if (bucket.head > 0) {
+				System.arraycopy(bucket.entries, bucket.head, bucket.entries, 0, bucket.size - bucket.head);
+				Arrays.fill(bucket.entries, bucket.size - bucket.head, bucket.size, null);
+				bucket.size -= bucket.head;
+				bucket.head = 0;
+			} else {
+				bucket.entries = Arrays.copyOf(bucket.entries, bucket.entries.length * 2);
+			}
+		}
+		if (bucket.sorted && bucket.size > bucket.head && this.entryComparator.compare(bucket.entries[bucket.size - 1], entry) > 0) {
+			bucket.sorted = false;
+		}
+		bucket.entries[bucket.size++] = entry;
+	}
+
+	private T release(Entry<T> entry) {
+		T item = entry.item;
+		entry.item = null;
+		this.entryPool.add(entry);
+		return item;
+	}
+
+	private static final class Entry<T> {
+		private double time;
+		private T item;
+		/** the second of the entry's bucket, or {@link #OVERFLOW} */
+		private long second;
+	}
+
+	private static final class Bucket<T> {
+		@SuppressWarnings("unchecked")
+		private Entry<T>[] entries = new Entry[16];
+		private int head = 0;
+		private int size = 0;
+		private boolean sorted = true;
+	}
+}
@@ -0,0 +1,141 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueActivityEngine.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import jakarta.inject.Inject;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.MobsimAgent.State;
+
+/**
+ * Same as {@link ActivityEngineDefaultImpl}, but keeps the agents in a {@link CalendarQueue} instead of a priority
+ * queue. The agents end their activities in the same order, but adding and removing an agent is O(1) and does not
+ * allocate memory.
+ */
+final class CalendarQueueActivityEngine implements ActivityEngine {
+
+	private final EventsManager eventsManager;
+	private InternalInterface internalInterface;
+
+	/**
+	 * The activity end time is stored together with the agent, as the end time reported by the agent may change with
+	 * within-day replanning before the agent is rescheduled. Agents with the same end time are ordered with the larger
+	 * id first, as in {@link ActivityEngineDefaultImpl}.
+	 */
+	private final CalendarQueue<MobsimAgent> activityEndsList = new CalendarQueue<>((a0, a1) -> a1.getId().compareTo(a0.getId()));
+
+	// See ActivityEngineDefaultImpl.handleActivity for the reason for this.
+	private boolean beforeFirstSimStep = true;
+
+	@Inject
+	CalendarQueueActivityEngine(EventsManager eventsManager) {
+		this.eventsManager = eventsManager;
+	}
+
+	@Override
+	public void onPrepareSim() {
+		// Nothing to do here
+	}
+
+	@Override
+	public void doSimStep(double time) {
+		beforeFirstSimStep = false;
+		MobsimAgent agent;
+		while ((agent = activityEndsList.pollDue(time)) != null) {
+			unregisterAgentAtActivityLocation(agent);
+			agent.endActivityAndComputeNextState(time);
+			internalInterface.arrangeNextAgentState(agent);
+		}
+	}
+
+	@Override
+	public void afterSim() {
+		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
+		for (MobsimAgent agent : activityEndsList.clear()) {
+			// since we are at an activity, it is not plausible to assume that the agents know mode or destination
+			// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
+			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), null, null));
+		}
+	}
+
+	@Override
+	public void setInternalInterface(InternalInterface internalInterface) {
+		this.internalInterface = internalInterface;
+	}
+
+	@Override
+	public boolean handleActivity(MobsimAgent agent) {
+		if (agent.getActivityEndTime() == Double.POSITIVE_INFINITY) {
+			// This is the last planned activity.
+			// So the agent goes to sleep.
+			internalInterface.getMobsim().getAgentCounter().decLiving();
+		} else if (agent.getActivityEndTime() <= internalInterface.getMobsim().getSimTimer().getTimeOfDay() && !beforeFirstSimStep) {
+			// This activity is already over (planned for 0 duration)
+			// So we proceed immediately.
+			agent.endActivityAndComputeNextState(internalInterface.getMobsim().getSimTimer().getTimeOfDay());
+			internalInterface.arrangeNextAgentState(agent) ;
+		} else {
+			// The agent commences an activity on this link.
+			activityEndsList.add(agent.getActivityEndTime(), agent);
+			internalInterface.registerAdditionalAgentOnLink(agent);
+		}
+		return true;
+	}
+
+	@Override
+	public void rescheduleActivityEnd(final MobsimAgent agent) {
+		if ( agent.getState()!=State.ACTIVITY ) {
+			return ;
+		}
+
+		double newActivityEndTime = agent.getActivityEndTime();
+		boolean wasActive = activityEndsList.remove(agent);
+
+		if (!wasActive) {
+			if (newActivityEndTime != Double.POSITIVE_INFINITY) {
+				// re-activate the agent
+				activityEndsList.add(newActivityEndTime, agent);
+				internalInterface.registerAdditionalAgentOnLink(agent);
+				((AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
+			}
+		} else if (newActivityEndTime == Double.POSITIVE_INFINITY) {
+			// the agent's current activity has changed to its last activity, so the agent is de-activated
+			unregisterAgentAtActivityLocation(agent);
+			internalInterface.getMobsim().getAgentCounter().decLiving();
+		} else {
+			// the activity is just rescheduled during the day, so we keep the agent active
+			activityEndsList.add(newActivityEndTime, agent);
+		}
+	}
+
+	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
+		Id<Person> agentId = agent.getId();
+		Id<Link> linkId = agent.getCurrentLinkId();
+		if (linkId != null) { // may be bushwacking
+			internalInterface.unregisterAdditionalAgentOnLink(agentId, linkId);
+		}
+	}
+}
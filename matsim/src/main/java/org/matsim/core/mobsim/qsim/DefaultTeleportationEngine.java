@@ -21,9 +21,11 @@
 
  package org.matsim.core.mobsim.qsim;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 
@@ -39,6 +41,8 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.config.groups.QSimConfigGroup.ActivityAndTeleportationQueue;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.utils.collections.Tuple;
@@ -49,25 +53,15 @@ import org.matsim.vis.snapshotwriters.TeleportationVisData;
 /**
  * Includes all agents that have transportation modes unknown to the
  * NetsimEngine (often all != "car") or have two activities on the same link
+ * <p>
+ * The teleported agents are kept in a priority queue, or in a {@link CalendarQueue} if configured with
+ * {@link QSimConfigGroup#setActivityAndTeleportationQueue(ActivityAndTeleportationQueue)}. The agents arrive in the
+ * same order with both queues.
  */
 public final class DefaultTeleportationEngine implements TeleportationEngine {
 	private static final Logger log = LogManager.getLogger( DefaultTeleportationEngine.class ) ;
 
-	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
-			30, new Comparator<Tuple<Double, MobsimAgent>>() {
-
-		@Override
-		public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
-			int ret = o1.getFirst().compareTo(o2.getFirst()); // first compare time information
-			if (ret == 0) {
-				ret = o2.getSecond()
-						.getId()
-						.compareTo(o1.getSecond()
-								.getId()); // if they're equal, compare the Ids: the one with the larger Id should be first
-			}
-			return ret;
-		}
-	});
+	private final ArrivalQueue teleportationList;
 	private final LinkedHashMap<Id<Person>, TeleportationVisData> teleportationData = new LinkedHashMap<>();
 	private InternalInterface internalInterface;
 	private Scenario scenario;
@@ -84,6 +78,11 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		this.scenario = scenario;
 		this.eventsManager = eventsManager;
 		this.withTravelTimeCheck = withTravelTimeCheck;
+		if (scenario.getConfig().qsim().getActivityAndTeleportationQueue() == ActivityAndTeleportationQueue.calendarQueue) {
+			this.teleportationList = new CalendarArrivalQueue();
+		} else {
+			this.teleportationList = new PriorityArrivalQueue();
+		}
 	}
 
 	@Override
@@ -103,7 +102,7 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		}
 
 		double arrivalTime = now + travelTime ;
-		this.teleportationList.add(new Tuple<>(arrivalTime, agent));
+		this.teleportationList.add(arrivalTime, agent);
 
 		// === below here is only visualization, no dynamics ===
 		Id<Person> agentId = agent.getId();
@@ -133,21 +132,15 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 	}
 
 	private void handleTeleportationArrivals(double now) {
-		while (!teleportationList.isEmpty()) {
-			Tuple<Double, MobsimAgent> entry = teleportationList.peek();
-			if (entry.getFirst() <= now) {
-				teleportationList.poll();
-				MobsimAgent personAgent = entry.getSecond();
-				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent.getDestinationLinkId());
-				double distance = personAgent.getExpectedTravelDistance();
-				this.eventsManager.processEvent(
-						new TeleportationArrivalEvent(now, personAgent.getId(), distance, personAgent.getMode()));
-				personAgent.endLegAndComputeNextState(now);
-				this.teleportationData.remove(personAgent.getId());
-				internalInterface.arrangeNextAgentState(personAgent);
-			} else {
-				break;
-			}
+		MobsimAgent personAgent;
+		while ((personAgent = teleportationList.pollDue(now)) != null) {
+			personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent.getDestinationLinkId());
+			double distance = personAgent.getExpectedTravelDistance();
+			this.eventsManager.processEvent(
+					new TeleportationArrivalEvent(now, personAgent.getId(), distance, personAgent.getMode()));
+			personAgent.endLegAndComputeNextState(now);
+			this.teleportationData.remove(personAgent.getId());
+			internalInterface.arrangeNextAgentState(personAgent);
 		}
 	}
 
@@ -158,11 +151,9 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 	@Override
 	public void afterSim() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
-			MobsimAgent agent = entry.getSecond();
+		for (MobsimAgent agent : teleportationList.clear()) {
 			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getDestinationLinkId(), agent.getMode()));
 		}
-		teleportationList.clear();
 	}
 
 	@Override
@@ -202,4 +193,89 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 
 		return travelTimeTmp ;
 	}
+
+	/**
+	 * The teleported agents, ordered by arrival time. Agents with the same arrival time are ordered with the larger
+	 * id first.
+	 */
+	private interface ArrivalQueue {
+		void add(double arrivalTime, MobsimAgent agent);
+
+		/**
+		 * @return the next agent with an arrival time <code>&lt;= now</code>, or <code>null</code> if there is none
+		 */
+		MobsimAgent pollDue(double now);
+
+		/**
+		 * Removes all agents from the queue and returns them.
+		 */
+		List<MobsimAgent> clear();
+	}
+
+	private static final class PriorityArrivalQueue implements ArrivalQueue {
+		private final Queue<Tuple<Double, MobsimAgent>> queue = new PriorityQueue<>(
+				30, new Comparator<Tuple<Double, MobsimAgent>>() {
+
+			@Override
+			public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
+				int ret = o1.getFirst().compareTo(o2.getFirst()); // first compare time information
+				if (ret == 0) {
+					ret = o2.getSecond()
+							.getId()
+							.compareTo(o1.getSecond()
+									.getId()); // if they're equal, compare the Ids: the one with the larger Id should be first
+				}
+				return ret;
+			}
+		});
+
+		@Override
+		public void add(double arrivalTime, MobsimAgent agent) {
+			this.queue.add(new Tuple<>(arrivalTime, agent));
+		}
+
+		@Override
+		public MobsimAgent pollDue(double now) {
+			Tuple<Double, MobsimAgent> entry = this.queue.peek();
+			if (entry == null || entry.getFirst() > now) {
+				return null;
+			}
+			this.queue.poll();
+			return entry.getSecond();
+		}
+
+		@Override
+		public List<MobsimAgent> clear() {
+			List<MobsimAgent> agents = new ArrayList<>(this.queue.size());
+			for (Tuple<Double, MobsimAgent> entry : this.queue) {
+				agents.add(entry.getSecond());
+			}
+			this.queue.clear();
+			return agents;
+		}
+	}
+
+	/**
+	 * Adding and removing an agent is O(1) and does not allocate memory, which makes a difference with millions of
+	 * teleported legs.
+	 */
+	private static final class CalendarArrivalQueue implements ArrivalQueue {
+		private final CalendarQueue<MobsimAgent> queue = new CalendarQueue<>(
+				(a0, a1) -> a1.getId().compareTo(a0.getId()), false); // if the times are equal, the one with the larger Id should be first
+
+		@Override
+		public void add(double arrivalTime, MobsimAgent agent) {
+			this.queue.add(arrivalTime, agent);
+		}
+
+		@Override
+		public MobsimAgent pollDue(double now) {
+			return this.queue.pollDue(now);
+		}
+
+		@Override
+		public List<MobsimAgent> clear() {
+			return this.queue.clear();
+		}
+	}
 }
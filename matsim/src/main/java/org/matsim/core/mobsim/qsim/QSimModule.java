@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
+import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.mobsim.framework.Mobsim;
 import org.matsim.core.mobsim.qsim.changeeventsengine.NetworkChangeEventsModule;
@@ -35,8 +36,10 @@ import org.matsim.core.mobsim.qsim.components.QSimComponentsModule;
 import org.matsim.core.mobsim.qsim.messagequeueengine.MessageQueueModule;
 import org.matsim.core.mobsim.qsim.pt.TransitEngineModule;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineModule;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkLinkLoads;
 
 import com.google.inject.Key;
+import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Names;
 
@@ -98,6 +101,12 @@ public final class QSimModule extends AbstractModule {
 		// Set<AbstractQSimModule>.  Don't know why this is needed.  kai, jun'23
 
 		bind(Mobsim.class).toProvider(QSimProvider.class);
+
+		if (getConfig().qsim().getNetsimNodePartitioning() == QSimConfigGroup.NetsimNodePartitioning.graph) {
+			bind(QNetworkLinkLoads.class).in(Singleton.class);
+			addControlerListenerBinding().to(QNetworkLinkLoads.class);
+			// (keeps the link volumes of the last iteration, which are used to partition the network for the next one)
+		}
 	}
 
 	static public Collection<AbstractQSimModule> getDefaultQSimModules() {
@@ -35,6 +35,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimNodePartitioning;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
 import org.matsim.core.gbl.Gbl;
@@ -48,6 +49,8 @@ import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
 
+import com.google.inject.Inject;
+
 /**
  * Coordinates the movement of vehicles on the links and the nodes.
  *
@@ -88,6 +91,7 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	private double infoTime = 0;
 	private List<A> engines;
 	private InternalInterface internalInterface = null;
+	private QNetworkLinkLoads linkLoads = null;
 
 	AbstractQNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory, NetworkModeDepartureHandler dpHandler) {
 		if ( netsimNetworkFactory==null ) {
@@ -125,6 +129,11 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
 	}
 
+	@Inject(optional = true)
+	final void setLinkLoads(QNetworkLinkLoads linkLoads) {
+		this.linkLoads = linkLoads;
+	}
+
 	static AbstractAgentSnapshotInfoBuilder createAgentSnapshotInfoBuilder(Scenario scenario, SnapshotLinkWidthCalculator linkWidthCalculator) {
 		final SnapshotStyle snapshotStyle = scenario.getConfig().qsim().getSnapshotStyle();
 		switch(snapshotStyle) {
@@ -380,9 +389,20 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		int nodes[] = new int[this.engines.size()];
 		int links[] = new int[this.engines.size()];
 
+		QNetworkPartitioner.Partitioning partitioning = null;
+		if (this.qsim.getScenario().getConfig().qsim().getNetsimNodePartitioning() == NetsimNodePartitioning.graph) {
+			QNetworkLinkLoads loads = this.linkLoads;
+			if (loads == null || !loads.hasVolumes()) {
+				log.info("No link volumes of a previous iteration available, partitioning the network by the number of links only.");
+			}
+			partitioning = QNetworkPartitioner.partition(this.qNetwork.getNetwork(), this.engines.size(),
+					link -> loads == null ? 0 : loads.getVolume(link.getId()));
+			partitioning.log(log);
+		}
+
 		int roundRobin = 0;
 		for (QNodeI node : qNetwork.getNetsimNodes().values()) {
-			int i = roundRobin % this.engines.size();
+			int i = partitioning == null ? roundRobin % this.engines.size() : partitioning.getPartition(node.getNode());
 			if( node instanceof AbstractQNode){
 				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -34,6 +34,7 @@ final class QNetsimEngineRunnerForThreadpool extends AbstractQNetsimEngineRunner
 	
 	private volatile boolean simulationRunning = true;
 	private boolean movingNodes;
+	private long busyTime = 0;
 
 	QNetsimEngineRunnerForThreadpool() {
 	}
@@ -45,11 +46,13 @@ final class QNetsimEngineRunnerForThreadpool extends AbstractQNetsimEngineRunner
 			return false;
 		}
 
+		long start = System.nanoTime();
 		if (this.movingNodes) {
 			moveNodes();
 		} else {
 			moveLinks();
 		}
+		this.busyTime += System.nanoTime() - start;
 		return true ;
 	}
 
@@ -60,4 +63,11 @@ final class QNetsimEngineRunnerForThreadpool extends AbstractQNetsimEngineRunner
 	public final void setMovingNodes(boolean movingNodes) {
 		this.movingNodes = movingNodes;
 	}
+
+	/**
+	 * @return the time in nanoseconds this runner spent moving nodes and links.
+	 */
+	final long getBusyTime() {
+		return this.busyTime;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineThreadUtilization.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Collects the busy times of the threads of a QNetsimEngine. The idle time of a thread is the time it spent waiting
+ * for the other threads at the end of the node and link phases, i.e. the sum of the durations of all phases minus its
+ * busy time.
+ */
+/* package */ final class QNetsimEngineThreadUtilization {
+
+	private final String[] names;
+	private final long[] busyTimes;
+	private long wallTime = 0;
+
+	QNetsimEngineThreadUtilization(String... names) {
+		this.names = names;
+		this.busyTimes = new long[names.length];
+	}
+
+	void addBusyTime(int thread, long nanos) {
+		this.busyTimes[thread] += nanos;
+	}
+
+	void addWallTime(long nanos) {
+		this.wallTime += nanos;
+	}
+
+	int getNumberOfThreads() {
+		return this.names.length;
+	}
+
+	long getBusyTime(int thread) {
+		return this.busyTimes[thread];
+	}
+
+	long getIdleTime(int thread) {
+		return Math.max(0, this.wallTime - this.busyTimes[thread]);
+	}
+
+	long getWallTime() {
+		return this.wallTime;
+	}
+
+	void log(Logger log) {
+		log.info("QNetsimEngine thread utilization, total time in node and link phases: " + this.wallTime / 1_000_000 + " ms");
+		for (int i = 0; i < this.names.length; i++) {
+			double utilization = this.wallTime == 0 ? 0 : 100.0 * this.busyTimes[i] / this.wallTime;
+			log.info(String.format("  %s: busy %d ms, idle %d ms, utilization %.1f%%",
+					this.names[i], this.busyTimes[i] / 1_000_000, getIdleTime(i) / 1_000_000, utilization));
+		}
+	}
+}
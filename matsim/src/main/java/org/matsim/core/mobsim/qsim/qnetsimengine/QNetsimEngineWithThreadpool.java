@@ -30,6 +30,9 @@ import java.util.concurrent.ThreadFactory;
 
 import jakarta.inject.Inject;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import org.matsim.core.mobsim.qsim.QSim;
 
 /**
@@ -45,8 +48,11 @@ import org.matsim.core.mobsim.qsim.QSim;
  */
 final class QNetsimEngineWithThreadpool extends AbstractQNetsimEngine<QNetsimEngineRunnerForThreadpool> {
 
+	private static final Logger log = LogManager.getLogger(QNetsimEngineWithThreadpool.class);
+
 	private final int numOfRunners;
 	private ExecutorService pool;
+	private long phaseTime = 0;
 
 //	public QNetsimEngineWithThreadpool(final QSim sim) {
 //		this(sim, null);
@@ -59,6 +65,23 @@ final class QNetsimEngineWithThreadpool extends AbstractQNetsimEngine<QNetsimEng
 
 	@Override public void finishMultiThreading() {
 		this.pool.shutdown();
+		getThreadUtilization().log(log);
+	}
+
+	/**
+	 * @return the busy and idle times of the runners, every runner is executed by its own thread.
+	 */
+	QNetsimEngineThreadUtilization getThreadUtilization() {
+		String[] names = new String[this.numOfRunners];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = "runner " + i;
+		}
+		QNetsimEngineThreadUtilization utilization = new QNetsimEngineThreadUtilization(names);
+		utilization.addWallTime(this.phaseTime);
+		for (int i = 0; i < names.length; i++) {
+			utilization.addBusyTime(i, this.getQnetsimEngineRunner().get(i).getBusyTime());
+		}
+		return utilization;
 	}
 
 	protected void run(double time) {
@@ -92,6 +115,7 @@ final class QNetsimEngineWithThreadpool extends AbstractQNetsimEngine<QNetsimEng
 		}
 
 		try {
+			long start = System.nanoTime();
 			for (AbstractQNetsimEngineRunner engine : this.getQnetsimEngineRunner()) {
 				((QNetsimEngineRunnerForThreadpool) engine).setMovingNodes(true);
 			}
@@ -104,6 +128,7 @@ final class QNetsimEngineWithThreadpool extends AbstractQNetsimEngine<QNetsimEng
 			for (Future<Boolean> future : pool.invokeAll(this.getQnetsimEngineRunner())) {
 				future.get();
 			}
+			this.phaseTime += System.nanoTime() - start;
 		} catch (InterruptedException e) {
 			throw new RuntimeException(e) ;
 		} catch (ExecutionException e) {
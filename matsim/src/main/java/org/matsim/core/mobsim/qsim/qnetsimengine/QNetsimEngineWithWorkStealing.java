@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithWorkStealing.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import jakarta.inject.Inject;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.core.mobsim.qsim.QSim;
+
+/**
+ * A QNetsimEngine which balances the work between its threads dynamically.
+ * <p>
+ * The nodes and links of the network are assigned to many more {@link QNetsimEngineRunnerForThreadpool runners}
+ * (partitions) than there are threads. In every node and link phase, the partitions are sorted by their number of
+ * active links, and grouped into tasks of approximately the same size, with the largest partitions first. The tasks
+ * are executed on a {@link ForkJoinPool}, where idle threads steal tasks from busy ones. Thus, if the traffic is
+ * concentrated in a part of the network, e.g. during the morning peak, the work is still distributed evenly.
+ * <p>
+ * A partition is always processed by a single thread within one phase, so the guarantees of the static partitioning
+ * (links are only activated by the runner that owns them) still hold.
+ */
+final class QNetsimEngineWithWorkStealing extends AbstractQNetsimEngine<QNetsimEngineRunnerForThreadpool> {
+
+	private static final Logger log = LogManager.getLogger(QNetsimEngineWithWorkStealing.class);
+
+	static final int PARTITIONS_PER_THREAD = 8;
+	private static final int TASKS_PER_THREAD = 4;
+
+	private final int numOfPartitions;
+	private ForkJoinPool pool;
+	private long[] sortKeys;
+	private int[] order;
+	// one slot per worker thread, plus one for all other threads
+	private final AtomicLongArray busyTimes;
+	private long phaseTime = 0;
+
+	@Inject QNetsimEngineWithWorkStealing(final QSim sim, QNetworkFactory netsimNetworkFactory, NetworkModeDepartureHandler networkModeDepartureHandler) {
+		super(sim, netsimNetworkFactory, networkModeDepartureHandler);
+		this.numOfPartitions = this.numOfThreads == 1 ? 1 : this.numOfThreads * PARTITIONS_PER_THREAD;
+		this.busyTimes = new AtomicLongArray(this.numOfThreads + 1);
+	}
+
+	@Override
+	protected void run(double time) {
+		for (AbstractQNetsimEngineRunner engine : this.getQnetsimEngineRunner()) {
+			engine.setTime(time);
+		}
+		long start = System.nanoTime();
+		runPhase(true);
+		runPhase(false);
+		this.phaseTime += System.nanoTime() - start;
+	}
+
+	private void runPhase(boolean movingNodes) {
+		List<QNetsimEngineRunnerForThreadpool> runners = this.getQnetsimEngineRunner();
+
+		// The number of active links is known without iterating over the elements, and is also a good estimate for
+		// the number of nodes which are activated by these links.
+		long totalWeight = 0;
+		for (int i = 0; i < this.numOfPartitions; i++) {
+			QNetsimEngineRunnerForThreadpool runner = runners.get(i);
+			runner.setMovingNodes(movingNodes);
+			long weight = runner.getNumberOfSimulatedLinks() + 1;
+			totalWeight += weight;
+			this.sortKeys[i] = weight * this.numOfPartitions + i;
+		}
+		Arrays.sort(this.sortKeys);
+		for (int i = 0; i < this.numOfPartitions; i++) {
+			this.order[i] = (int) (this.sortKeys[this.numOfPartitions - 1 - i] % this.numOfPartitions);
+		}
+
+		long targetWeight = Math.max(1, totalWeight / ((long) this.numOfThreads * TASKS_PER_THREAD));
+		List<PartitionTask> tasks = new ArrayList<>();
+		int from = 0;
+		long weight = 0;
+		for (int i = 0; i < this.numOfPartitions; i++) {
+			weight += this.sortKeys[this.numOfPartitions - 1 - i] / this.numOfPartitions;
+			if (weight >= targetWeight || i == this.numOfPartitions - 1) {
+				tasks.add(new PartitionTask(from, i + 1));
+				from = i + 1;
+				weight = 0;
+			}
+		}
+
+		this.pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	private final class PartitionTask extends RecursiveAction {
+		private final int from;
+		private final int to;
+
+		PartitionTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			long start = System.nanoTime();
+			List<QNetsimEngineRunnerForThreadpool> runners = getQnetsimEngineRunner();
+			for (int i = this.from; i < this.to; i++) {
+				runners.get(order[i]).call();
+			}
+			int thread = Thread.currentThread() instanceof WorkerThread worker ? Math.min(worker.index, numOfThreads) : numOfThreads;
+			busyTimes.addAndGet(thread, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @return the busy and idle times of the worker threads. The last entry contains the time of tasks executed by
+	 * other threads, which can only happen if the pool had to compensate for a blocked thread.
+	 */
+	QNetsimEngineThreadUtilization getThreadUtilization() {
+		String[] names = new String[this.numOfThreads + 1];
+		for (int i = 0; i < this.numOfThreads; i++) {
+			names[i] = "worker " + i;
+		}
+		names[this.numOfThreads] = "other threads";
+		QNetsimEngineThreadUtilization utilization = new QNetsimEngineThreadUtilization(names);
+		utilization.addWallTime(this.phaseTime);
+		for (int i = 0; i < names.length; i++) {
+			utilization.addBusyTime(i, this.busyTimes.get(i));
+		}
+		return utilization;
+	}
+
+	@Override
+	protected List<QNetsimEngineRunnerForThreadpool> initQSimEngineRunners() {
+		List<QNetsimEngineRunnerForThreadpool> engines = new ArrayList<>();
+		for (int i = 0; i < this.numOfPartitions; i++) {
+			engines.add(new QNetsimEngineRunnerForThreadpool());
+		}
+		this.sortKeys = new long[this.numOfPartitions];
+		this.order = new int[this.numOfPartitions];
+		return engines;
+	}
+
+	@Override
+	protected void initMultiThreading() {
+		// idle workers are terminated after a while and replaced later, the replacement re-uses the index
+		AtomicInteger count = new AtomicInteger();
+		Queue<Integer> freeIndices = new ConcurrentLinkedQueue<>();
+		this.pool = new ForkJoinPool(this.numOfThreads, pool -> {
+			Integer index = freeIndices.poll();
+			return new WorkerThread(pool, index == null ? count.getAndIncrement() : index, freeIndices);
+		}, null, false);
+	}
+
+	@Override
+	public void finishMultiThreading() {
+		this.pool.shutdown();
+		getThreadUtilization().log(log);
+	}
+
+	private static final class WorkerThread extends ForkJoinWorkerThread {
+		private final int index;
+		private final Queue<Integer> freeIndices;
+
+		WorkerThread(ForkJoinPool pool, int index, Queue<Integer> freeIndices) {
+			super(pool);
+			this.index = index;
+			this.freeIndices = freeIndices;
+			setName("QNetsimEngine_WorkStealingThread_" + index);
+		}
+
+		@Override
+		protected void onTermination(Throwable exception) {
+			this.freeIndices.add(this.index);
+			super.onTermination(exception);
+		}
+	}
+}
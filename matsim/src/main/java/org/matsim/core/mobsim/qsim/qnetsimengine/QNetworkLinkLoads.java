@@ -0,0 +1,76 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkLinkLoads.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.analysis.VolumesAnalyzer;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+
+/**
+ * Keeps the number of vehicles per link of the last mobsim run, as the {@link VolumesAnalyzer} is already reset when
+ * the next mobsim is prepared. Used to estimate the load of the partitions of the QNetsimEngine if
+ * {@link org.matsim.core.config.groups.QSimConfigGroup.NetsimNodePartitioning#graph} is configured.
+ * <p>
+ * Without a controler, or in the first iteration, no volumes are known and all links have the load 0.
+ */
+public final class QNetworkLinkLoads implements AfterMobsimListener {
+
+	private final Map<Id<Link>, Integer> volumes = new ConcurrentHashMap<>();
+
+	@Override
+	public void notifyAfterMobsim(AfterMobsimEvent event) {
+		VolumesAnalyzer analyzer = event.getServices().getVolumes();
+		this.volumes.clear();
+		for (Id<Link> linkId : analyzer.getLinkIds()) {
+			int[] hourlyVolumes = analyzer.getVolumesForLink(linkId);
+			if (hourlyVolumes != null) {
+				int sum = 0;
+				for (int volume : hourlyVolumes) {
+					sum += volume;
+				}
+				this.volumes.put(linkId, sum);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of vehicles that left the link during the last mobsim run
+	 */
+	public int getVolume(Id<Link> linkId) {
+		return this.volumes.getOrDefault(linkId, 0);
+	}
+
+	/**
+	 * @return <code>true</code> if volumes of a previous mobsim run are known
+	 */
+	public boolean hasVolumes() {
+		return !this.volumes.isEmpty();
+	}
+
+	/* package */ void setVolume(Id<Link> linkId, int volume) {
+		this.volumes.put(linkId, volume);
+	}
+}
@@ -0,0 +1,252 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.ToDoubleFunction;
+
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Splits the network into contiguous regions of similar load, so that every {@link AbstractQNetsimEngineRunner}
+ * handles one region and vehicles rarely move from a link to a node that is handled by another runner.
+ * <p>
+ * The regions are first computed by recursive coordinate bisection: the nodes are split at the load-weighted median
+ * along the longer side of their bounding box, until there is one region per partition. Afterwards, nodes at the
+ * border of a region are moved to a neighbouring region if this reduces the load on the links between the regions,
+ * as long as the load of the neighbouring region stays within the allowed imbalance.
+ * <p>
+ * The load of a link is 1 plus its volume, as the runner handles the link itself and every vehicle on it. The load of
+ * a node is the sum of the loads of its in- and out-links, as its runner moves the vehicles leaving the in-links over
+ * the node and, being responsible for the out-links, also along the out-links.
+ */
+/* package */ final class QNetworkPartitioner {
+
+	private static final double ALLOWED_IMBALANCE = 0.03;
+	private static final int MAX_REFINEMENT_PASSES = 8;
+
+	private QNetworkPartitioner() {
+	}
+
+	/**
+	 * @param linkVolumes the expected number of vehicles per link, e.g. from the previous iteration
+	 */
+	static Partitioning partition(Network network, int partitionCount, ToDoubleFunction<Link> linkVolumes) {
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		int[] positions = new int[Id.getNumberOfIds(Node.class)];
+		for (int i = 0; i < nodes.length; i++) {
+			positions[nodes[i].getId().index()] = i;
+		}
+		double[] nodeLoads = new double[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			double load = 0;
+			for (Link link : nodes[i].getInLinks().values()) {
+				load += 1 + linkVolumes.applyAsDouble(link);
+			}
+			for (Link link : nodes[i].getOutLinks().values()) {
+				load += 1 + linkVolumes.applyAsDouble(link);
+			}
+			nodeLoads[i] = Math.max(load, 1);
+		}
+
+		int[] partitions = new int[nodes.length];
+		Integer[] order = new Integer[nodes.length];
+		Arrays.setAll(order, i -> i);
+		bisect(nodes, nodeLoads, order, 0, nodes.length, 0, partitionCount, partitions);
+
+		double[] partitionLoads = new double[partitionCount];
+		double totalLoad = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			partitionLoads[partitions[i]] += nodeLoads[i];
+			totalLoad += nodeLoads[i];
+		}
+		refine(nodes, positions, nodeLoads, partitions, partitionLoads, totalLoad / partitionCount * (1 + ALLOWED_IMBALANCE), linkVolumes);
+
+		int cutLinks = 0;
+		double cutVolume = 0;
+		double totalVolume = 0;
+		for (Link link : network.getLinks().values()) {
+			double volume = linkVolumes.applyAsDouble(link);
+			totalVolume += volume;
+			if (partitions[positions[link.getFromNode().getId().index()]] != partitions[positions[link.getToNode().getId().index()]]) {
+				cutLinks++;
+				cutVolume += volume;
+			}
+		}
+		return new Partitioning(positions, partitions, partitionLoads, network.getLinks().size(), cutLinks, totalVolume, cutVolume);
+	}
+
+	private static void bisect(Node[] nodes, double[] nodeLoads, Integer[] order, int from, int to, int firstPartition, int partitionCount, int[] partitions) {
+		if (partitionCount == 1) {
+			for (int i = from; i < to; i++) {
+				partitions[order[i]] = firstPartition;
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double totalLoad = 0;
+		for (int i = from; i < to; i++) {
+			Node node = nodes[order[i]];
+			minX = Math.min(minX, node.getCoord().getX());
+			maxX = Math.max(maxX, node.getCoord().getX());
+			minY = Math.min(minY, node.getCoord().getY());
+			maxY = Math.max(maxY, node.getCoord().getY());
+			totalLoad += nodeLoads[order[i]];
+		}
+		Comparator<Integer> comparator = (maxX - minX) >= (maxY - minY)
+				? Comparator.comparingDouble(i -> nodes[i].getCoord().getX())
+				: Comparator.comparingDouble(i -> nodes[i].getCoord().getY());
+		Arrays.sort(order, from, to, comparator);
+
+		int firstPartitionCount = partitionCount / 2;
+		double targetLoad = totalLoad * firstPartitionCount / partitionCount;
+		double load = 0;
+		int split = from;
+		while (split < to && load + nodeLoads[order[split]] / 2 < targetLoad) {
+			load += nodeLoads[order[split]];
+			split++;
+		}
+		bisect(nodes, nodeLoads, order, from, split, firstPartition, firstPartitionCount, partitions);
+		bisect(nodes, nodeLoads, order, split, to, firstPartition + firstPartitionCount, partitionCount - firstPartitionCount, partitions);
+	}
+
+	private static void refine(Node[] nodes, int[] positions, double[] nodeLoads, int[] partitions, double[] partitionLoads, double maxLoad, ToDoubleFunction<Link> linkVolumes) {
+		double[] connections = new double[partitionLoads.length];
+		int[] touched = new int[partitionLoads.length];
+		for (int pass = 0; pass < MAX_REFINEMENT_PASSES; pass++) {
+			int moved = 0;
+			for (int i = 0; i < nodes.length; i++) {
+				int touchedCount = 0;
+				for (int direction = 0; direction < 2; direction++) {
+					for (Link link : (direction == 0 ? nodes[i].getInLinks() : nodes[i].getOutLinks()).values()) {
+						Node other = direction == 0 ? link.getFromNode() : link.getToNode();
+						int partition = partitions[positions[other.getId().index()]];
+						if (connections[partition] == 0) {
+							touched[touchedCount++] = partition;
+						}
+						connections[partition] += 1 + linkVolumes.applyAsDouble(link);
+					}
+				}
+				int current = partitions[i];
+				int best = current;
+				double bestGain = 0;
+				for (int t = 0; t < touchedCount; t++) {
+					int partition = touched[t];
+					double gain = connections[partition] - connections[current];
+					if (partition != current && gain > bestGain && partitionLoads[partition] + nodeLoads[i] <= maxLoad) {
+						best = partition;
+						bestGain = gain;
+					}
+				}
+				for (int t = 0; t < touchedCount; t++) {
+					connections[touched[t]] = 0;
+				}
+				if (best != current) {
+					partitions[i] = best;
+					partitionLoads[current] -= nodeLoads[i];
+					partitionLoads[best] += nodeLoads[i];
+					moved++;
+				}
+			}
+			if (moved == 0) {
+				break;
+			}
+		}
+	}
+
+	static final class Partitioning {
+
+		private final int[] positions;
+		private final int[] partitions;
+		private final double[] loads;
+		private final int linkCount;
+		private final int cutLinks;
+		private final double totalVolume;
+		private final double cutVolume;
+
+		private Partitioning(int[] positions, int[] partitions, double[] loads, int linkCount, int cutLinks, double totalVolume, double cutVolume) {
+			this.positions = positions;
+			this.partitions = partitions;
+			this.loads = loads;
+			this.linkCount = linkCount;
+			this.cutLinks = cutLinks;
+			this.totalVolume = totalVolume;
+			this.cutVolume = cutVolume;
+		}
+
+		int getPartition(Node node) {
+			return this.partitions[this.positions[node.getId().index()]];
+		}
+
+		int getPartitionCount() {
+			return this.loads.length;
+		}
+
+		double getLoad(int partition) {
+			return this.loads[partition];
+		}
+
+		/**
+		 * @return the number of links whose from- and to-node belong to different partitions
+		 */
+		int getCutLinks() {
+			return this.cutLinks;
+		}
+
+		/**
+		 * @return the sum of the volumes of the links whose from- and to-node belong to different partitions
+		 */
+		double getCutVolume() {
+			return this.cutVolume;
+		}
+
+		void log(Logger log) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = 0;
+			double sum = 0;
+			for (double load : this.loads) {
+				min = Math.min(min, load);
+				max = Math.max(max, load);
+				sum += load;
+			}
+			double average = sum / this.loads.length;
+			log.info(String.format("Network partitioned into %d regions: %d of %d links (%.1f%%) and %.0f of %.0f vehicles (%.1f%%) cross regions.",
+					this.loads.length, this.cutLinks, this.linkCount, percentage(this.cutLinks, this.linkCount),
+					this.cutVolume, this.totalVolume, percentage(this.cutVolume, this.totalVolume)));
+			log.info(String.format("Load per region: min %.0f, max %.0f, average %.0f, imbalance (max/average) %.3f", min, max, average, max / average));
+			for (int i = 0; i < this.loads.length; i++) {
+				log.info(String.format("  region %d: load %.0f", i, this.loads[i]));
+			}
+		}
+
+		private static double percentage(double value, double total) {
+			return total > 0 ? 100.0 * value / total : 0.0;
+		}
+	}
+}
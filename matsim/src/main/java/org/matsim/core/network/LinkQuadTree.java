@@ -62,6 +62,14 @@ public final class LinkQuadTree {
 		this.top.put(new LinkWrapper(link));
 	}
 
+	/**
+	 * Adds a link whose node coordinates are already known, e.g. because they are stored in primitive arrays.
+	 * This avoids looking up the nodes and their coordinates.
+	 */
+	public void put(final Link link, final double fromX, final double fromY, final double toX, final double toY) {
+		this.top.put(new LinkWrapper(link, fromX, fromY, toX, toY));
+	}
+
 	public Link getNearest(final double x, final double y) {
 		LinkWrapper w = this.top.getNearest(x, y, new MutableDouble(Double.POSITIVE_INFINITY));
 		if (w == null) {
@@ -354,11 +362,11 @@ public final class LinkQuadTree {
 		/*package*/ final Link link;
 
 		public LinkWrapper(final Link link) {
-			double fx = link.getFromNode().getCoord().getX();
-			double fy = link.getFromNode().getCoord().getY();
-			double tx = link.getToNode().getCoord().getX();
-			double ty = link.getToNode().getCoord().getY();
+			this(link, link.getFromNode().getCoord().getX(), link.getFromNode().getCoord().getY(),
+					link.getToNode().getCoord().getX(), link.getToNode().getCoord().getY());
+		}
 
+		public LinkWrapper(final Link link, final double fx, final double fy, final double tx, final double ty) {
 			if (fx == tx) {
 				// enforce minimal extent
 				this.minX = fx - Math.abs(fx)*1e-8; // make it adaptive within the number of significant digits
@@ -0,0 +1,184 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactLink.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.compact;
+
+import java.util.Set;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Light-weight view of a link of a {@link CompactNetwork}. It only knows its row; all data is read from the network.
+ * The views created by {@link CompactNetwork#createReusableLinkView()} are moved to other rows with
+ * {@link #setRow(int)}, all other views keep their row.
+ */
+final class CompactLink implements Link {
+
+	private static final String READ_ONLY = "Links of a CompactNetwork are read-only.";
+
+	private final CompactNetwork network;
+	private int row;
+
+	CompactLink(CompactNetwork network, int row) {
+		this.network = network;
+		this.row = row;
+	}
+
+	int getRow() {
+		return this.row;
+	}
+
+	void setRow(int row) {
+		this.row = row;
+	}
+
+	@Override
+	public Id<Link> getId() {
+		return this.network.getLinkId(this.row);
+	}
+
+	@Override
+	public Node getFromNode() {
+		return this.network.getNode(this.network.getFromNodeRow(this.row));
+	}
+
+	@Override
+	public Node getToNode() {
+		return this.network.getNode(this.network.getToNodeRow(this.row));
+	}
+
+	@Override
+	public Coord getCoord() {
+		int from = this.network.getFromNodeRow(this.row);
+		int to = this.network.getToNodeRow(this.row);
+		return new Coord((this.network.getX(from) + this.network.getX(to)) / 2.0, (this.network.getY(from) + this.network.getY(to)) / 2.0);
+	}
+
+	@Override
+	public double getLength() {
+		return this.network.getLength(this.row);
+	}
+
+	@Override
+	public double getNumberOfLanes() {
+		return this.network.getNumberOfLanes(this.row);
+	}
+
+	@Override
+	public double getNumberOfLanes(double time) {
+		return getNumberOfLanes();
+	}
+
+	@Override
+	public double getFreespeed() {
+		return this.network.getFreespeed(this.row);
+	}
+
+	@Override
+	public double getFreespeed(double time) {
+		return getFreespeed();
+	}
+
+	@Override
+	public double getCapacity() {
+		return this.network.getCapacity(this.row);
+	}
+
+	@Override
+	public double getCapacity(double time) {
+		return getCapacity();
+	}
+
+	@Override
+	public double getCapacityPeriod() {
+		return this.network.getCapacityPeriod();
+	}
+
+	@Override
+	public Set<String> getAllowedModes() {
+		return this.network.getAllowedModes(this.row);
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return ReadOnlyAttributes.EMPTY;
+	}
+
+	@Override
+	public boolean setFromNode(Node node) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public boolean setToNode(Node node) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void setFreespeed(double freespeed) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void setLength(double length) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void setNumberOfLanes(double lanes) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void setCapacity(double capacity) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void setAllowedModes(Set<String> modes) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof CompactLink other && other.network == this.network && other.row == this.row;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.row;
+	}
+
+	@Override
+	public String toString() {
+		return "[id=" + getId() + "]" +
+				"[from_id=" + getFromNode().getId() + "]" +
+				"[to_id=" + getToNode().getId() + "]" +
+				"[length=" + getLength() + "]" +
+				"[freespeed=" + getFreespeed() + "]" +
+				"[capacity=" + getCapacity() + "]" +
+				"[permlanes=" + getNumberOfLanes() + "]" +
+				"[modes=" + getAllowedModes() + "]";
+	}
+}
@@ -0,0 +1,718 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactNetwork.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.compact;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.LinkQuadTree;
+import org.matsim.core.network.SearchableNetwork;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesImpl;
+
+/**
+ * A read-only {@link Network} that stores nodes and links in flat primitive columns instead of {@link Node} and
+ * {@link Link} objects. The columns are either plain heap buffers (see {@link #copyOf(Network)}) or buffers of a
+ * memory-mapped file (see {@link CompactNetworkIO}), in which case the network data does not occupy heap memory at
+ * all.
+ * <p>
+ * Nodes and links have a dense <em>row</em> index within this network, which is independent of {@link Id#index()}.
+ * The primitive accessors (e.g. {@link #getLength(int)}) work on rows and allocate nothing. For code that needs the
+ * regular API, {@link #getNodes()} and {@link #getLinks()} provide light-weight views. The views only consist of
+ * the network and their row, and are created on demand and not kept, so the memory used by the network does not
+ * grow with the number of nodes and links visited. Thus, two views of the same node or link are not identical, but
+ * equal: they must be compared with {@link Object#equals(Object)} and not with <code>==</code>.
+ * <p>
+ * Limitations: nodes and links have no attributes (thus, also no turn restrictions), link attributes are not
+ * time-variant, and the network cannot be modified.
+ */
+public final class CompactNetwork implements Network, SearchableNetwork {
+
+	private final static Logger log = LogManager.getLogger(CompactNetwork.class);
+
+	private static final String READ_ONLY = "CompactNetwork is read-only.";
+
+	private final int nodeCount;
+	private final int linkCount;
+
+	private final Id<Node>[] nodeIds;
+	private final Id<Link>[] linkIds;
+	private final int[] nodeRowByIdIndex;
+	private final int[] linkRowByIdIndex;
+
+	private final DoubleBuffer nodeX;
+	private final DoubleBuffer nodeY;
+	private final DoubleBuffer nodeZ;
+
+	private final IntBuffer linkFromNode;
+	private final IntBuffer linkToNode;
+	private final DoubleBuffer linkLength;
+	private final DoubleBuffer linkFreespeed;
+	private final DoubleBuffer linkCapacity;
+	private final DoubleBuffer linkLanes;
+	private final IntBuffer linkModes;
+	private final List<Set<String>> modeSets;
+
+	// compressed sparse rows of the out- and in-links per node
+	private final IntBuffer outOffsets;
+	private final IntBuffer outLinks;
+	private final IntBuffer inOffsets;
+	private final IntBuffer inLinks;
+
+	private final double capacityPeriod;
+	private final double effectiveLaneWidth;
+	private final double effectiveCellSize;
+	private String name;
+	private final Attributes attributes = new AttributesImpl();
+
+	private final NodesMap nodesMap = new NodesMap();
+	private final LinksMap linksMap = new LinksMap();
+
+	private QuadTree<Node> nodeQuadTree = null;
+	private LinkQuadTree linkQuadTree = null;
+
+	CompactNetwork(Id<Node>[] nodeIds, Id<Link>[] linkIds, DoubleBuffer nodeX, DoubleBuffer nodeY, DoubleBuffer nodeZ,
+				   IntBuffer linkFromNode, IntBuffer linkToNode, DoubleBuffer linkLength, DoubleBuffer linkFreespeed,
+				   DoubleBuffer linkCapacity, DoubleBuffer linkLanes, IntBuffer linkModes, List<Set<String>> modeSets,
+				   IntBuffer outOffsets, IntBuffer outLinks, IntBuffer inOffsets, IntBuffer inLinks,
+				   double capacityPeriod, double effectiveLaneWidth, double effectiveCellSize, String name) {
+		this.nodeCount = nodeIds.length;
+		this.linkCount = linkIds.length;
+		this.nodeIds = nodeIds;
+		this.linkIds = linkIds;
+		this.nodeX = nodeX;
+		this.nodeY = nodeY;
+		this.nodeZ = nodeZ;
+		this.linkFromNode = linkFromNode;
+		this.linkToNode = linkToNode;
+		this.linkLength = linkLength;
+		this.linkFreespeed = linkFreespeed;
+		this.linkCapacity = linkCapacity;
+		this.linkLanes = linkLanes;
+		this.linkModes = linkModes;
+		this.modeSets = modeSets;
+		this.outOffsets = outOffsets;
+		this.outLinks = outLinks;
+		this.inOffsets = inOffsets;
+		this.inLinks = inLinks;
+		this.capacityPeriod = capacityPeriod;
+		this.effectiveLaneWidth = effectiveLaneWidth;
+		this.effectiveCellSize = effectiveCellSize;
+		this.name = name;
+
+		this.nodeRowByIdIndex = rowsByIdIndex(nodeIds, Id.getNumberOfIds(Node.class));
+		this.linkRowByIdIndex = rowsByIdIndex(linkIds, Id.getNumberOfIds(Link.class));
+	}
+
+	private static int[] rowsByIdIndex(Id<?>[] ids, int numberOfIds) {
+		int[] rows = new int[numberOfIds];
+		Arrays.fill(rows, -1);
+		for (int row = 0; row < ids.length; row++) {
+			rows[ids[row].index()] = row;
+		}
+		return rows;
+	}
+
+	/**
+	 * Converts a regular network, e.g. as read by {@link org.matsim.core.network.io.MatsimNetworkReader}, into a
+	 * compact network. Node and link attributes are not taken over.
+	 */
+	@SuppressWarnings("unchecked")
+	public static CompactNetwork copyOf(Network network) {
+		int nodeCount = network.getNodes().size();
+		int linkCount = network.getLinks().size();
+
+		Id<Node>[] nodeIds = new Id[nodeCount];
+		DoubleBuffer x = DoubleBuffer.allocate(nodeCount);
+		DoubleBuffer y = DoubleBuffer.allocate(nodeCount);
+		DoubleBuffer z = DoubleBuffer.allocate(nodeCount);
+		int[] nodeRows = new int[Id.getNumberOfIds(Node.class)];
+		int row = 0;
+		for (Node node : network.getNodes().values()) {
+			nodeIds[row] = node.getId();
+			Coord coord = node.getCoord();
+			x.put(row, coord.getX());
+			y.put(row, coord.getY());
+			z.put(row, coord.hasZ() ? coord.getZ() : Double.NaN);
+			nodeRows[node.getId().index()] = row;
+			row++;
+		}
+
+		Id<Link>[] linkIds = new Id[linkCount];
+		IntBuffer from = IntBuffer.allocate(linkCount);
+		IntBuffer to = IntBuffer.allocate(linkCount);
+		DoubleBuffer length = DoubleBuffer.allocate(linkCount);
+		DoubleBuffer freespeed = DoubleBuffer.allocate(linkCount);
+		DoubleBuffer capacity = DoubleBuffer.allocate(linkCount);
+		DoubleBuffer lanes = DoubleBuffer.allocate(linkCount);
+		IntBuffer modes = IntBuffer.allocate(linkCount);
+		List<Set<String>> modeSets = new ArrayList<>();
+		Map<Set<String>, Integer> modeSetIndices = new HashMap<>();
+		row = 0;
+		for (Link link : network.getLinks().values()) {
+			linkIds[row] = link.getId();
+			from.put(row, nodeRows[link.getFromNode().getId().index()]);
+			to.put(row, nodeRows[link.getToNode().getId().index()]);
+			length.put(row, link.getLength());
+			freespeed.put(row, link.getFreespeed());
+			capacity.put(row, link.getCapacity());
+			lanes.put(row, link.getNumberOfLanes());
+			modes.put(row, modeSetIndices.computeIfAbsent(Set.copyOf(link.getAllowedModes()), s -> {
+				modeSets.add(s);
+				return modeSets.size() - 1;
+			}));
+			row++;
+		}
+
+		CompactNetwork compact = create(nodeIds, linkIds, x, y, z, from, to, length, freespeed, capacity, lanes, modes, modeSets,
+				network.getCapacityPeriod(), network.getEffectiveLaneWidth(), network.getEffectiveCellSize(), network.getName());
+		for (Map.Entry<String, Object> e : network.getAttributes().getAsMap().entrySet()) {
+			compact.getAttributes().putAttribute(e.getKey(), e.getValue());
+		}
+		return compact;
+	}
+
+	/**
+	 * Creates the network and computes the out- and in-links of each node.
+	 */
+	static CompactNetwork create(Id<Node>[] nodeIds, Id<Link>[] linkIds, DoubleBuffer x, DoubleBuffer y, DoubleBuffer z,
+								 IntBuffer from, IntBuffer to, DoubleBuffer length, DoubleBuffer freespeed, DoubleBuffer capacity,
+								 DoubleBuffer lanes, IntBuffer modes, List<Set<String>> modeSets,
+								 double capacityPeriod, double effectiveLaneWidth, double effectiveCellSize, String name) {
+		int nodeCount = nodeIds.length;
+		int linkCount = linkIds.length;
+		IntBuffer outOffsets = IntBuffer.allocate(nodeCount + 1);
+		IntBuffer inOffsets = IntBuffer.allocate(nodeCount + 1);
+		IntBuffer outLinks = IntBuffer.allocate(linkCount);
+		IntBuffer inLinks = IntBuffer.allocate(linkCount);
+		fillAdjacency(from, nodeCount, outOffsets, outLinks);
+		fillAdjacency(to, nodeCount, inOffsets, inLinks);
+		return new CompactNetwork(nodeIds, linkIds, x, y, z, from, to, length, freespeed, capacity, lanes, modes, modeSets,
+				outOffsets, outLinks, inOffsets, inLinks, capacityPeriod, effectiveLaneWidth, effectiveCellSize, name);
+	}
+
+	private static void fillAdjacency(IntBuffer linkNodes, int nodeCount, IntBuffer offsets, IntBuffer adjacentLinks) {
+		int linkCount = adjacentLinks.capacity();
+		for (int link = 0; link < linkCount; link++) {
+			int node = linkNodes.get(link);
+			offsets.put(node + 1, offsets.get(node + 1) + 1);
+		}
+		for (int node = 0; node < nodeCount; node++) {
+			offsets.put(node + 1, offsets.get(node + 1) + offsets.get(node));
+		}
+		int[] next = new int[nodeCount];
+		for (int link = 0; link < linkCount; link++) {
+			int node = linkNodes.get(link);
+			adjacentLinks.put(offsets.get(node) + next[node]++, link);
+		}
+	}
+
+	// primitive accessors
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	public int getLinkCount() {
+		return this.linkCount;
+	}
+
+	/**
+	 * @return the row of the node, or -1 if the node is not part of this network
+	 */
+	public int getNodeRow(Id<Node> nodeId) {
+		int index = nodeId.index();
+		return index < this.nodeRowByIdIndex.length ? this.nodeRowByIdIndex[index] : -1;
+	}
+
+	/**
+	 * @return the row of the link, or -1 if the link is not part of this network
+	 */
+	public int getLinkRow(Id<Link> linkId) {
+		int index = linkId.index();
+		return index < this.linkRowByIdIndex.length ? this.linkRowByIdIndex[index] : -1;
+	}
+
+	public Id<Node> getNodeId(int nodeRow) {
+		return this.nodeIds[nodeRow];
+	}
+
+	public Id<Link> getLinkId(int linkRow) {
+		return this.linkIds[linkRow];
+	}
+
+	public double getX(int nodeRow) {
+		return this.nodeX.get(nodeRow);
+	}
+
+	public double getY(int nodeRow) {
+		return this.nodeY.get(nodeRow);
+	}
+
+	/**
+	 * @return the z coordinate, or {@link Double#NaN} if the node has none
+	 */
+	public double getZ(int nodeRow) {
+		return this.nodeZ.get(nodeRow);
+	}
+
+	public int getFromNodeRow(int linkRow) {
+		return this.linkFromNode.get(linkRow);
+	}
+
+	public int getToNodeRow(int linkRow) {
+		return this.linkToNode.get(linkRow);
+	}
+
+	public double getLength(int linkRow) {
+		return this.linkLength.get(linkRow);
+	}
+
+	public double getFreespeed(int linkRow) {
+		return this.linkFreespeed.get(linkRow);
+	}
+
+	public double getCapacity(int linkRow) {
+		return this.linkCapacity.get(linkRow);
+	}
+
+	public double getNumberOfLanes(int linkRow) {
+		return this.linkLanes.get(linkRow);
+	}
+
+	public Set<String> getAllowedModes(int linkRow) {
+		return this.modeSets.get(this.linkModes.get(linkRow));
+	}
+
+	/**
+	 * The out-links of a node are the link rows <code>getOutLink(i)</code> for
+	 * <code>getOutLinksStart(nodeRow) &lt;= i &lt; getOutLinksStart(nodeRow + 1)</code>.
+	 */
+	public int getOutLinksStart(int nodeRow) {
+		return this.outOffsets.get(nodeRow);
+	}
+
+	public int getOutLink(int i) {
+		return this.outLinks.get(i);
+	}
+
+	/**
+	 * The in-links of a node are the link rows <code>getInLink(i)</code> for
+	 * <code>getInLinksStart(nodeRow) &lt;= i &lt; getInLinksStart(nodeRow + 1)</code>.
+	 */
+	public int getInLinksStart(int nodeRow) {
+		return this.inOffsets.get(nodeRow);
+	}
+
+	public int getInLink(int i) {
+		return this.inLinks.get(i);
+	}
+
+	/** a new view of the node at the given row */
+	public Node getNode(int nodeRow) {
+		return new CompactNode(this, nodeRow);
+	}
+
+	/** a new view of the link at the given row */
+	public Link getLink(int linkRow) {
+		return new CompactLink(this, linkRow);
+	}
+
+	/**
+	 * Returns a function that moves a single link view to the given row and returns it, so no view is allocated per
+	 * call. The returned link is only valid until the function is called again; it must not be kept, e.g. in
+	 * collections. The function is not thread-safe. This is meant for loops like the link relaxation of a router,
+	 * which only need each link while computing its travel time and disutility.
+	 */
+	public IntFunction<Link> createReusableLinkView() {
+		CompactLink view = new CompactLink(this, -1);
+		return linkRow -> {
+			view.setRow(linkRow);
+			return view;
+		};
+	}
+
+	// data needed by the binary writer
+
+	List<Set<String>> getModeSets() {
+		return this.modeSets;
+	}
+
+	int getModeSetIndex(int linkRow) {
+		return this.linkModes.get(linkRow);
+	}
+
+	// Network
+
+	@Override
+	public Map<Id<Node>, ? extends Node> getNodes() {
+		return this.nodesMap;
+	}
+
+	@Override
+	public Map<Id<Link>, ? extends Link> getLinks() {
+		return this.linksMap;
+	}
+
+	@Override
+	public double getCapacityPeriod() {
+		return this.capacityPeriod;
+	}
+
+	@Override
+	public double getEffectiveLaneWidth() {
+		return this.effectiveLaneWidth;
+	}
+
+	@Override
+	public double getEffectiveCellSize() {
+		return this.effectiveCellSize;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return this.attributes;
+	}
+
+	@Override
+	public NetworkFactory getFactory() {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void addNode(Node nn) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void addLink(Link ll) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public Node removeNode(Id<Node> nodeId) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public Link removeLink(Id<Link> linkId) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void setCapacityPeriod(double capPeriod) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void setEffectiveCellSize(double effectiveCellSize) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void setEffectiveLaneWidth(double effectiveLaneWidth) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	// SearchableNetwork
+
+	@Override
+	public Link getNearestLinkExactly(Coord coord) {
+		return getLinkQuadTree().getNearest(coord.getX(), coord.getY());
+	}
+
+	@Override
+	public Node getNearestNode(Coord coord) {
+		return getNodeQuadTree().getClosest(coord.getX(), coord.getY());
+	}
+
+	@Override
+	public Collection<Node> getNearestNodes(Coord coord, double distance) {
+		return getNodeQuadTree().getDisk(coord.getX(), coord.getY(), distance);
+	}
+
+	@Override
+	public synchronized QuadTree<Node> getNodeQuadTree() {
+		if (this.nodeQuadTree == null) {
+			double[] bounds = getBounds();
+			QuadTree<Node> quadTree = new QuadTree<>(bounds[0], bounds[1], bounds[2], bounds[3]);
+			for (int row = 0; row < this.nodeCount; row++) {
+				quadTree.put(getX(row), getY(row), getNode(row));
+			}
+			this.nodeQuadTree = quadTree;
+		}
+		return this.nodeQuadTree;
+	}
+
+	@Override
+	public synchronized LinkQuadTree getLinkQuadTree() {
+		if (this.linkQuadTree == null) {
+			long startTime = System.currentTimeMillis();
+			double[] bounds = getBounds();
+			LinkQuadTree quadTree = new LinkQuadTree(bounds[0] - 1.0, bounds[1] - 1.0, bounds[2] + 1.0, bounds[3] + 1.0);
+			for (int row = 0; row < this.linkCount; row++) {
+				int from = getFromNodeRow(row);
+				int to = getToNodeRow(row);
+				quadTree.put(getLink(row), getX(from), getY(from), getX(to), getY(to));
+			}
+			this.linkQuadTree = quadTree;
+			log.info("Building LinkQuadTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		}
+		return this.linkQuadTree;
+	}
+
+	private double[] getBounds() {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int row = 0; row < this.nodeCount; row++) {
+			double x = getX(row);
+			double y = getY(row);
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+		return new double[] {minX, minY, maxX, maxY};
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + "[name=" + this.name + "][nof_nodes=" + this.nodeCount + "][nof_links=" + this.linkCount + "]";
+	}
+
+	// map views
+
+	private abstract class RowMap<T, V> extends AbstractMap<Id<T>, V> {
+
+		abstract int rowCount();
+
+		abstract int rowOf(Id<T> id);
+
+		abstract Id<T> idOf(int row);
+
+		abstract V valueOf(int row);
+
+		@Override
+		public int size() {
+			return rowCount();
+		}
+
+		@SuppressWarnings("unchecked")
+		private int rowOfKey(Object key) {
+			return key instanceof Id<?> id ? rowOf((Id<T>) id) : -1;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			int row = rowOfKey(key);
+			// Ids of different types may share the same index
+			return row >= 0 && idOf(row) == key;
+		}
+
+		@Override
+		public V get(Object key) {
+			return containsKey(key) ? valueOf(rowOfKey(key)) : null;
+		}
+
+		@Override
+		public Set<Entry<Id<T>, V>> entrySet() {
+			return new AbstractSet<>() {
+				@Override
+				public Iterator<Entry<Id<T>, V>> iterator() {
+					return new Iterator<>() {
+						private int row = 0;
+
+						@Override
+						public boolean hasNext() {
+							return this.row < rowCount();
+						}
+
+						@Override
+						public Entry<Id<T>, V> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							int r = this.row++;
+							return new SimpleImmutableEntry<>(idOf(r), valueOf(r));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return rowCount();
+				}
+			};
+		}
+	}
+
+	private final class NodesMap extends RowMap<Node, Node> {
+		@Override
+		int rowCount() {
+			return nodeCount;
+		}
+
+		@Override
+		int rowOf(Id<Node> id) {
+			return getNodeRow(id);
+		}
+
+		@Override
+		Id<Node> idOf(int row) {
+			return nodeIds[row];
+		}
+
+		@Override
+		Node valueOf(int row) {
+			return getNode(row);
+		}
+	}
+
+	private final class LinksMap extends RowMap<Link, Link> {
+		@Override
+		int rowCount() {
+			return linkCount;
+		}
+
+		@Override
+		int rowOf(Id<Link> id) {
+			return getLinkRow(id);
+		}
+
+		@Override
+		Id<Link> idOf(int row) {
+			return linkIds[row];
+		}
+
+		@Override
+		Link valueOf(int row) {
+			return getLink(row);
+		}
+	}
+
+	/**
+	 * The links <code>network.getLink(adjacent.get(i))</code> for <code>start &lt;= i &lt; end</code>.
+	 */
+	private final class AdjacentLinksMap extends AbstractMap<Id<Link>, Link> {
+		private final IntBuffer adjacent;
+		private final int start;
+		private final int end;
+
+		AdjacentLinksMap(IntBuffer adjacent, int start, int end) {
+			this.adjacent = adjacent;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int size() {
+			return this.end - this.start;
+		}
+
+		@Override
+		public Link get(Object key) {
+			for (int i = this.start; i < this.end; i++) {
+				int row = this.adjacent.get(i);
+				if (linkIds[row] == key) {
+					return getLink(row);
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Set<Entry<Id<Link>, Link>> entrySet() {
+			return new AbstractSet<>() {
+				@Override
+				public Iterator<Entry<Id<Link>, Link>> iterator() {
+					return new Iterator<>() {
+						private int i = start;
+
+						@Override
+						public boolean hasNext() {
+							return this.i < end;
+						}
+
+						@Override
+						public Entry<Id<Link>, Link> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							int row = adjacent.get(this.i++);
+							return new SimpleImmutableEntry<>(linkIds[row], getLink(row));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return end - start;
+				}
+			};
+		}
+	}
+
+	Map<Id<Link>, Link> getOutLinksMap(int nodeRow) {
+		return new AdjacentLinksMap(this.outLinks, this.outOffsets.get(nodeRow), this.outOffsets.get(nodeRow + 1));
+	}
+
+	Map<Id<Link>, Link> getInLinksMap(int nodeRow) {
+		return new AdjacentLinksMap(this.inLinks, this.inOffsets.get(nodeRow), this.inOffsets.get(nodeRow + 1));
+	}
+}
@@ -0,0 +1,315 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactNetworkIO.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.compact;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+
+/**
+ * Writes a {@link CompactNetwork} to a binary file and maps such a file into memory again.
+ * <p>
+ * The file starts with a header containing the network's settings, the allowed mode sets and the node and link ids,
+ * followed by the primitive columns of the network. When the file is read, only the header is parsed; the columns
+ * are memory-mapped and thus stay outside the java heap. The operating system loads them on demand and may share them
+ * between several processes using the same network.
+ * <p>
+ * Typical use for a very large network is to convert the xml file once with {@link #convert(String, Path)}, or from
+ * the command line with <code>CompactNetworkIO network.xml.gz network.bin</code>, and to {@link #read(Path)} the
+ * binary file in every run.
+ */
+public final class CompactNetworkIO {
+
+	private final static Logger log = LogManager.getLogger(CompactNetworkIO.class);
+
+	static final byte[] MAGIC = "MATSIMCN".getBytes(StandardCharsets.US_ASCII);
+	static final int VERSION = 1;
+
+	private CompactNetworkIO() {
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: CompactNetworkIO <network.xml[.gz]> <network.bin>");
+			System.exit(1);
+		}
+		convert(args[0], Path.of(args[1]));
+	}
+
+	/**
+	 * Reads a network in one of the MATSim xml formats and writes it as compact binary network.
+	 */
+	public static void convert(String networkFile, Path binaryFile) {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile(networkFile);
+		write(CompactNetwork.copyOf(network), binaryFile);
+	}
+
+	public static void write(CompactNetwork network, Path file) {
+		log.info("writing compact network to " + file);
+		try (CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+			 DataOutputStream out = new DataOutputStream(counter)) {
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(network.getNodeCount());
+			out.writeInt(network.getLinkCount());
+			out.writeDouble(network.getCapacityPeriod());
+			out.writeDouble(network.getEffectiveLaneWidth());
+			out.writeDouble(network.getEffectiveCellSize());
+			out.writeBoolean(network.getName() != null);
+			if (network.getName() != null) {
+				out.writeUTF(network.getName());
+			}
+			List<Set<String>> modeSets = network.getModeSets();
+			out.writeInt(modeSets.size());
+			for (Set<String> modes : modeSets) {
+				out.writeInt(modes.size());
+				for (String mode : modes) {
+					out.writeUTF(mode);
+				}
+			}
+			for (int row = 0; row < network.getNodeCount(); row++) {
+				out.writeUTF(network.getNodeId(row).toString());
+			}
+			for (int row = 0; row < network.getLinkCount(); row++) {
+				out.writeUTF(network.getLinkId(row).toString());
+			}
+
+			int nodes = network.getNodeCount();
+			int links = network.getLinkCount();
+			pad(out, counter.count);
+			for (int row = 0; row < nodes; row++) out.writeDouble(network.getX(row));
+			for (int row = 0; row < nodes; row++) out.writeDouble(network.getY(row));
+			for (int row = 0; row < nodes; row++) out.writeDouble(network.getZ(row));
+			for (int row = 0; row < links; row++) out.writeDouble(network.getLength(row));
+			for (int row = 0; row < links; row++) out.writeDouble(network.getFreespeed(row));
+			for (int row = 0; row < links; row++) out.writeDouble(network.getCapacity(row));
+			for (int row = 0; row < links; row++) out.writeDouble(network.getNumberOfLanes(row));
+			for (int row = 0; row < links; row++) out.writeInt(network.getFromNodeRow(row));
+			pad(out, counter.count);
+			for (int row = 0; row < links; row++) out.writeInt(network.getToNodeRow(row));
+			pad(out, counter.count);
+			for (int row = 0; row < links; row++) out.writeInt(network.getModeSetIndex(row));
+			pad(out, counter.count);
+			for (int row = 0; row <= nodes; row++) out.writeInt(network.getOutLinksStart(row));
+			pad(out, counter.count);
+			for (int i = 0; i < links; i++) out.writeInt(network.getOutLink(i));
+			pad(out, counter.count);
+			for (int row = 0; row <= nodes; row++) out.writeInt(network.getInLinksStart(row));
+			pad(out, counter.count);
+			for (int i = 0; i < links; i++) out.writeInt(network.getInLink(i));
+			pad(out, counter.count);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void pad(DataOutputStream out, long position) throws IOException {
+		// align the columns to 8 bytes
+		for (long p = position; p % 8 != 0; p++) {
+			out.writeByte(0);
+		}
+	}
+
+	/**
+	 * Reads the header of a compact binary network file and memory-maps its columns.
+	 */
+	@SuppressWarnings("unchecked")
+	public static CompactNetwork read(Path file) {
+		log.info("mapping compact network from " + file);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			CountingInputStream counter = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+			DataInputStream in = new DataInputStream(counter);
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC)) {
+				throw new IllegalArgumentException(file + " is not a compact MATSim network.");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported compact network version " + version + ", expected " + VERSION + ".");
+			}
+			int nodes = in.readInt();
+			int links = in.readInt();
+			double capacityPeriod = in.readDouble();
+			double effectiveLaneWidth = in.readDouble();
+			double effectiveCellSize = in.readDouble();
+			String name = in.readBoolean() ? in.readUTF() : null;
+			int modeSetCount = in.readInt();
+			List<Set<String>> modeSets = new ArrayList<>(modeSetCount);
+			for (int i = 0; i < modeSetCount; i++) {
+				Set<String> modes = new LinkedHashSet<>();
+				int size = in.readInt();
+				for (int m = 0; m < size; m++) {
+					modes.add(in.readUTF().intern());
+				}
+				modeSets.add(Set.copyOf(modes));
+			}
+			Id<Node>[] nodeIds = new Id[nodes];
+			for (int row = 0; row < nodes; row++) {
+				nodeIds[row] = Id.createNodeId(in.readUTF());
+			}
+			Id<Link>[] linkIds = new Id[links];
+			for (int row = 0; row < links; row++) {
+				linkIds[row] = Id.createLinkId(in.readUTF());
+			}
+
+			Mapper mapper = new Mapper(channel, (counter.count + 7) / 8 * 8);
+			DoubleBuffer x = mapper.doubles(nodes);
+			DoubleBuffer y = mapper.doubles(nodes);
+			DoubleBuffer z = mapper.doubles(nodes);
+			DoubleBuffer length = mapper.doubles(links);
+			DoubleBuffer freespeed = mapper.doubles(links);
+			DoubleBuffer capacity = mapper.doubles(links);
+			DoubleBuffer lanes = mapper.doubles(links);
+			IntBuffer from = mapper.ints(links);
+			IntBuffer to = mapper.ints(links);
+			IntBuffer modes = mapper.ints(links);
+			IntBuffer outOffsets = mapper.ints(nodes + 1);
+			IntBuffer outLinks = mapper.ints(links);
+			IntBuffer inOffsets = mapper.ints(nodes + 1);
+			IntBuffer inLinks = mapper.ints(links);
+			if (mapper.position != channel.size()) {
+				throw new IllegalArgumentException(file + " has an unexpected size, it might be truncated.");
+			}
+			return new CompactNetwork(nodeIds, linkIds, x, y, z, from, to, length, freespeed, capacity, lanes, modes, modeSets,
+					outOffsets, outLinks, inOffsets, inLinks, capacityPeriod, effectiveLaneWidth, effectiveCellSize, name);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Maps the consecutive columns of the file. The mappings stay valid after the channel is closed.
+	 */
+	private static final class Mapper {
+		private final FileChannel channel;
+		private long position;
+
+		Mapper(FileChannel channel, long position) {
+			this.channel = channel;
+			this.position = position;
+		}
+
+		private ByteBuffer map(long bytes) throws IOException {
+			if (this.position + bytes > this.channel.size()) {
+				throw new IOException("Unexpected end of compact network file.");
+			}
+			ByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, bytes);
+			this.position += bytes;
+			return buffer;
+		}
+
+		DoubleBuffer doubles(int count) throws IOException {
+			return map(8L * count).asDoubleBuffer();
+		}
+
+		IntBuffer ints(int count) throws IOException {
+			IntBuffer buffer = map(4L * count).asIntBuffer();
+			// keep the next column aligned, like the writer
+			this.position = (this.position + 7) / 8 * 8;
+			return buffer;
+		}
+	}
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+		private long count = 0;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			this.count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+		private long count = 0;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = this.in.read();
+			if (b >= 0) {
+				this.count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = this.in.read(b, off, len);
+			if (n > 0) {
+				this.count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = this.in.skip(n);
+			this.count += skipped;
+			return skipped;
+		}
+	}
+}
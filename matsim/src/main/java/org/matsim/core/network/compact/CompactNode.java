@@ -0,0 +1,121 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactNode.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.compact;
+
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Light-weight view of a node of a {@link CompactNetwork}. It only knows its row; all data is read from the network.
+ */
+final class CompactNode implements Node {
+
+	private static final String READ_ONLY = "Nodes of a CompactNetwork are read-only.";
+
+	private final CompactNetwork network;
+	private final int row;
+
+	CompactNode(CompactNetwork network, int row) {
+		this.network = network;
+		this.row = row;
+	}
+
+	int getRow() {
+		return this.row;
+	}
+
+	@Override
+	public Id<Node> getId() {
+		return this.network.getNodeId(this.row);
+	}
+
+	@Override
+	public Coord getCoord() {
+		double z = this.network.getZ(this.row);
+		if (Double.isNaN(z)) {
+			return new Coord(this.network.getX(this.row), this.network.getY(this.row));
+		}
+		return new Coord(this.network.getX(this.row), this.network.getY(this.row), z);
+	}
+
+	@Override
+	public Map<Id<Link>, ? extends Link> getInLinks() {
+		return this.network.getInLinksMap(this.row);
+	}
+
+	@Override
+	public Map<Id<Link>, ? extends Link> getOutLinks() {
+		return this.network.getOutLinksMap(this.row);
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return ReadOnlyAttributes.EMPTY;
+	}
+
+	@Override
+	public boolean addInLink(Link link) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public boolean addOutLink(Link link) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public Link removeInLink(Id<Link> linkId) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public Link removeOutLink(Id<Link> outLinkId) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void setCoord(Coord coord) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof CompactNode other && other.network == this.network && other.row == this.row;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.row;
+	}
+
+	@Override
+	public String toString() {
+		return "[id=" + getId() + "]" +
+				"[coord=" + getCoord() + "]" +
+				"[nof_inlinks=" + getInLinks().size() + "]" +
+				"[nof_outlinks=" + getOutLinks().size() + "]";
+	}
+}
@@ -0,0 +1,76 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ReadOnlyAttributes.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.compact;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * The (always empty) attributes of nodes and links of a {@link CompactNetwork}.
+ */
+final class ReadOnlyAttributes implements Attributes {
+
+	static final ReadOnlyAttributes EMPTY = new ReadOnlyAttributes();
+
+	private ReadOnlyAttributes() {
+	}
+
+	@Override
+	public Object putAttribute(String attribute, Object value) {
+		throw new UnsupportedOperationException("Nodes and links of a CompactNetwork have no attributes.");
+	}
+
+	@Override
+	public Object getAttribute(String attribute) {
+		return null;
+	}
+
+	@Override
+	public Object removeAttribute(String attribute) {
+		return null;
+	}
+
+	@Override
+	public void clear() {
+	}
+
+	@Override
+	public Map<String, Object> getAsMap() {
+		return Collections.emptyMap();
+	}
+
+	@Override
+	public int size() {
+		return 0;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "";
+	}
+}
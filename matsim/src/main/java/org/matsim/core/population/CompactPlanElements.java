@@ -0,0 +1,360 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanElements.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Stores the plan elements of a plan in a few primitive arrays instead of one object per activity, leg and route.
+ * Activity types and modes are stored as codes of a shared string table, ids as their index, and times as doubles
+ * (with <code>NaN</code> for undefined times). Attributes, route descriptions and routes of other types than
+ * generic and link network routes are kept as references.
+ * <p>
+ * Only plans consisting of the default activity and leg implementations of this package can be compacted.
+ * {@link #inflate()} creates new plan element objects with the same content as the original ones.
+ */
+/* package */ final class CompactPlanElements {
+
+	private static final int ACTIVITY = 0;
+	private static final int INTERACTION_ACTIVITY = 1;
+	private static final int LEG = 2;
+	private static final int KIND_MASK = 3;
+
+	private static final int HAS_ATTRIBUTES = 1 << 2;
+	private static final int HAS_COORD = 1 << 3;
+	private static final int HAS_Z = 1 << 4;
+	private static final int GENERIC_ROUTE = 1 << 5;
+	private static final int NETWORK_ROUTE = 1 << 6;
+	private static final int OTHER_ROUTE = 1 << 7;
+
+	private static final Class<?> LINK_NETWORK_ROUTE_CLASS = RouteUtils.createLinkNetworkRouteImpl(null, null).getClass();
+
+	private static final Map<String, Integer> stringCodes = new ConcurrentHashMap<>();
+	private static volatile String[] strings = new String[0];
+
+	private final int[] ints;
+	private final double[] doubles;
+	private final Object[] objects;
+
+	private CompactPlanElements(int[] ints, double[] doubles, Object[] objects) {
+		this.ints = ints;
+		this.doubles = doubles;
+		this.objects = objects;
+	}
+
+	/**
+	 * @return the compacted plan elements, or <code>null</code> if at least one of the plan elements cannot be compacted.
+	 */
+	static CompactPlanElements compact(List<PlanElement> planElements) {
+		Builder builder = new Builder(planElements.size());
+		for (PlanElement pe : planElements) {
+			if (pe instanceof ActivityImpl act) {
+				boolean hasAttributes = !act.getAttributes().isEmpty();
+				builder.addActivityHeader(ACTIVITY, act, hasAttributes);
+				builder.addTime(act.getStartTime());
+				builder.addTime(act.getEndTime());
+				builder.addTime(act.getMaximumDuration());
+				builder.addCoord(act.getCoord());
+				if (hasAttributes) {
+					builder.addObject(act.getAttributes());
+				}
+			} else if (pe instanceof InteractionActivity act) {
+				builder.addActivityHeader(INTERACTION_ACTIVITY, act, false);
+				builder.addCoord(act.getCoord());
+			} else if (pe instanceof LegImpl leg) {
+				if (!builder.addLeg(leg)) {
+					return null;
+				}
+			} else {
+				return null;
+			}
+		}
+		return builder.build();
+	}
+
+	ArrayList<PlanElement> inflate() {
+		int elementCount = this.ints[0];
+		ArrayList<PlanElement> planElements = new ArrayList<>(elementCount);
+		int i = 1;
+		int d = 0;
+		int o = 0;
+		for (int element = 0; element < elementCount; element++) {
+			int header = this.ints[i++];
+			int kind = header & KIND_MASK;
+			if (kind == LEG) {
+				LegImpl leg = new LegImpl(decodeString(this.ints[i++]));
+				leg.setRoutingMode(decodeString(this.ints[i++]));
+				double depTime = this.doubles[d++];
+				if (!Double.isNaN(depTime)) {
+					leg.setDepartureTime(depTime);
+				}
+				double travTime = this.doubles[d++];
+				if (!Double.isNaN(travTime)) {
+					leg.setTravelTime(travTime);
+				}
+				if ((header & OTHER_ROUTE) != 0) {
+					leg.setRoute((Route) this.objects[o++]);
+				} else if ((header & (GENERIC_ROUTE | NETWORK_ROUTE)) != 0) {
+					Id<Link> startLinkId = decodeId(this.ints[i++], Link.class);
+					Id<Link> endLinkId = decodeId(this.ints[i++], Link.class);
+					Route route;
+					if ((header & NETWORK_ROUTE) != 0) {
+						Id<Vehicle> vehicleId = decodeId(this.ints[i++], Vehicle.class);
+						int linkCount = this.ints[i++];
+						List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+						for (int l = 0; l < linkCount; l++) {
+							linkIds.add(Id.get(this.ints[i++], Link.class));
+						}
+						NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl(startLinkId, linkIds, endLinkId);
+						networkRoute.setVehicleId(vehicleId);
+						networkRoute.setTravelCost(this.doubles[d++]);
+						route = networkRoute;
+					} else {
+						route = new GenericRouteImpl(startLinkId, endLinkId);
+						route.setRouteDescription((String) this.objects[o++]);
+					}
+					route.setDistance(this.doubles[d++]);
+					double routeTravTime = this.doubles[d++];
+					if (!Double.isNaN(routeTravTime)) {
+						route.setTravelTime(routeTravTime);
+					}
+					leg.setRoute(route);
+				}
+				if ((header & HAS_ATTRIBUTES) != 0) {
+					copyAttributes((Attributes) this.objects[o++], leg.getAttributes());
+				}
+				planElements.add(leg);
+			} else {
+				String type = decodeString(this.ints[i++]);
+				Activity act = kind == ACTIVITY ? new ActivityImpl(type) : new InteractionActivity(type);
+				act.setLinkId(decodeId(this.ints[i++], Link.class));
+				act.setFacilityId(decodeId(this.ints[i++], ActivityFacility.class));
+				if (kind == ACTIVITY) {
+					double startTime = this.doubles[d++];
+					if (!Double.isNaN(startTime)) {
+						act.setStartTime(startTime);
+					}
+					double endTime = this.doubles[d++];
+					if (!Double.isNaN(endTime)) {
+						act.setEndTime(endTime);
+					}
+					double duration = this.doubles[d++];
+					if (!Double.isNaN(duration)) {
+						act.setMaximumDuration(duration);
+					}
+				}
+				if ((header & HAS_Z) != 0) {
+					act.setCoord(new Coord(this.doubles[d++], this.doubles[d++], this.doubles[d++]));
+				} else if ((header & HAS_COORD) != 0) {
+					act.setCoord(new Coord(this.doubles[d++], this.doubles[d++]));
+				}
+				if ((header & HAS_ATTRIBUTES) != 0) {
+					copyAttributes((Attributes) this.objects[o++], act.getAttributes());
+				}
+				planElements.add(act);
+			}
+		}
+		return planElements;
+	}
+
+	int size() {
+		return this.ints[0];
+	}
+
+	private static void copyAttributes(Attributes from, Attributes to) {
+		for (Map.Entry<String, Object> e : from.getAsMap().entrySet()) {
+			to.putAttribute(e.getKey(), e.getValue());
+		}
+	}
+
+	private static int encodeString(String value) {
+		if (value == null) {
+			return -1;
+		}
+		Integer code = stringCodes.get(value);
+		if (code == null) {
+			synchronized (stringCodes) {
+				code = stringCodes.get(value);
+				if (code == null) {
+					String[] newStrings = Arrays.copyOf(strings, strings.length + 1);
+					code = strings.length;
+					newStrings[code] = value;
+					strings = newStrings;
+					stringCodes.put(value, code);
+				}
+			}
+		}
+		return code;
+	}
+
+	private static String decodeString(int code) {
+		return code < 0 ? null : strings[code];
+	}
+
+	private static int encodeId(Id<?> id) {
+		return id == null ? -1 : id.index();
+	}
+
+	private static <T> Id<T> decodeId(int index, Class<T> type) {
+		return index < 0 ? null : Id.get(index, type);
+	}
+
+	private static final class Builder {
+		private int[] ints;
+		private double[] doubles;
+		private Object[] objects = null;
+		private int intCount = 1;
+		private int doubleCount = 0;
+		private int objectCount = 0;
+
+		Builder(int elementCount) {
+			this.ints = new int[1 + elementCount * 4];
+			this.ints[0] = elementCount;
+			this.doubles = new double[elementCount * 3];
+		}
+
+		void addActivityHeader(int kind, Activity act, boolean hasAttributes) {
+			int header = kind;
+			Coord coord = act.getCoord();
+			if (coord != null) {
+				header |= coord.hasZ() ? HAS_Z : HAS_COORD;
+			}
+			if (hasAttributes) {
+				header |= HAS_ATTRIBUTES;
+			}
+			addInt(header);
+			addInt(encodeString(act.getType()));
+			addInt(encodeId(act.getLinkId()));
+			addInt(encodeId(act.getFacilityId()));
+		}
+
+		boolean addLeg(LegImpl leg) {
+			Route route = leg.getRoute();
+			boolean hasAttributes = !leg.getAttributes().isEmpty();
+			int header = LEG;
+			if (hasAttributes) {
+				header |= HAS_ATTRIBUTES;
+			}
+			if (route != null) {
+				if (route.getClass() == LINK_NETWORK_ROUTE_CLASS) {
+					header |= NETWORK_ROUTE;
+				} else if (route instanceof GenericRouteImpl) {
+					header |= GENERIC_ROUTE;
+				} else {
+					header |= OTHER_ROUTE;
+				}
+			}
+			addInt(header);
+			addInt(encodeString(leg.getMode()));
+			addInt(encodeString(leg.getRoutingMode()));
+			addTime(leg.getDepartureTime());
+			addTime(leg.getTravelTime());
+			if ((header & OTHER_ROUTE) != 0) {
+				addObject(route);
+			} else if (route != null) {
+				addInt(encodeId(route.getStartLinkId()));
+				addInt(encodeId(route.getEndLinkId()));
+				if (route instanceof NetworkRoute networkRoute) {
+					addInt(encodeId(networkRoute.getVehicleId()));
+					List<Id<Link>> linkIds = networkRoute.getLinkIds();
+					addInt(linkIds.size());
+					for (Id<Link> linkId : linkIds) {
+						if (linkId == null) {
+							return false;
+						}
+						addInt(linkId.index());
+					}
+					addDouble(networkRoute.getTravelCost());
+				} else {
+					addObject(route.getRouteDescription());
+				}
+				addDouble(route.getDistance());
+				addTime(route.getTravelTime());
+			}
+			if (hasAttributes) {
+				addObject(leg.getAttributes());
+			}
+			return true;
+		}
+
+		void addCoord(Coord coord) {
+			if (coord != null) {
+				addDouble(coord.getX());
+				addDouble(coord.getY());
+				if (coord.hasZ()) {
+					addDouble(coord.getZ());
+				}
+			}
+		}
+
+		void addTime(OptionalTime time) {
+			addDouble(time.isDefined() ? time.seconds() : Double.NaN);
+		}
+
+		void addInt(int value) {
+			if (this.intCount == this.ints.length) {
+				this.ints = Arrays.copyOf(this.ints, this.ints.length * 2);
+			}
+			this.ints[this.intCount++] = value;
+		}
+
+		void addDouble(double value) {
+			if (this.doubleCount == this.doubles.length) {
+				this.doubles = Arrays.copyOf(this.doubles, Math.max(4, this.doubles.length * 2));
+			}
+			this.doubles[this.doubleCount++] = value;
+		}
+
+		void addObject(Object value) {
+			if (this.objects == null) {
+				this.objects = new Object[4];
+			} else if (this.objectCount == this.objects.length) {
+				this.objects = Arrays.copyOf(this.objects, this.objects.length * 2);
+			}
+			this.objects[this.objectCount++] = value;
+		}
+
+		CompactPlanElements build() {
+			return new CompactPlanElements(
+					Arrays.copyOf(this.ints, this.intCount),
+					Arrays.copyOf(this.doubles, this.doubleCount),
+					this.objects == null ? null : Arrays.copyOf(this.objects, this.objectCount));
+		}
+	}
+}
@@ -21,6 +21,7 @@
 package org.matsim.core.population;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -42,7 +43,17 @@ import org.matsim.utils.objectattributes.attributable.AttributesImpl;
 
 	private Id<Plan> id=  null;
 
-	private ArrayList<PlanElement> actsLegs = new ArrayList<>();
+	/**
+	 * <code>null</code> while the plan elements are stored in compact form. Volatile, as plans are read by several
+	 * threads (e.g. replanning and writing), and the first of them inflates the compact plan elements.
+	 */
+	private volatile ArrayList<PlanElement> actsLegs = new ArrayList<>();
+
+	/**
+	 * The plan elements in compact form, see {@link #compact()}. If set, {@link #actsLegs} is <code>null</code>.
+	 * Only accessed while holding the plan's monitor.
+	 */
+	private CompactPlanElements compactActsLegs = null;
 
 	private Double score = null;
 	private Person person = null;
@@ -166,17 +177,80 @@ import org.matsim.utils.objectattributes.attributable.AttributesImpl;
 
 	@Override
 	public final List<PlanElement> getPlanElements() {
-		return this.actsLegs;
+		ArrayList<PlanElement> planElements = this.actsLegs;
+		if (planElements == null) {
+			synchronized (this) {
+				planElements = this.actsLegs;
+				if (planElements == null) {
+					planElements = this.compactActsLegs.inflate();
+					this.compactActsLegs = null;
+					this.actsLegs = planElements;
+				}
+			}
+		}
+		return planElements;
+	}
+
+	/**
+	 * Returns the plan elements for reading only, without restoring them if they are stored in compact form. In
+	 * this case, the returned elements are a detached copy, so changes to them are not reflected in the plan.
+	 */
+	/* package */ List<PlanElement> getPlanElementsForReading() {
+		ArrayList<PlanElement> planElements = this.actsLegs;
+		if (planElements != null) {
+			return planElements;
+		}
+		synchronized (this) {
+			planElements = this.actsLegs;
+			if (planElements != null) {
+				return planElements;
+			}
+			return Collections.unmodifiableList(this.compactActsLegs.inflate());
+		}
 	}
 
 	@Override
 	public final void addLeg(final Leg leg) {
-		this.actsLegs.add(leg);
+		getPlanElements().add(leg);
 	}
 
 	@Override
 	public final void addActivity(final Activity act) {
-		this.actsLegs.add(act);
+		getPlanElements().add(act);
+	}
+
+	/**
+	 * Stores the plan elements in a compact form to reduce the memory footprint of the plan. The plan elements are
+	 * restored transparently as new objects the next time they are accessed, so references to the old plan element
+	 * objects are no longer part of the plan afterwards.
+	 *
+	 * @return <code>false</code> if the plan contains plan elements that cannot be compacted.
+	 */
+	/* package */ synchronized boolean compact() {
+		if (this.actsLegs == null) {
+			return true;
+		}
+		CompactPlanElements compacted = CompactPlanElements.compact(this.actsLegs);
+		if (compacted == null) {
+			return false;
+		}
+		this.compactActsLegs = compacted;
+		this.actsLegs = null;
+		return true;
+	}
+
+	/* package */ boolean isCompact() {
+		return this.actsLegs == null;
+	}
+
+	private int getPlanElementsCount() {
+		ArrayList<PlanElement> planElements = this.actsLegs;
+		if (planElements != null) {
+			return planElements.size();
+		}
+		synchronized (this) {
+			return this.actsLegs == null ? this.compactActsLegs.size() : this.actsLegs.size();
+		}
 	}
 
 	@Override
@@ -193,7 +267,7 @@ import org.matsim.utils.objectattributes.attributable.AttributesImpl;
 
 		return "[score=" + scoreString + "]" +
 //				"[selected=" + PersonUtils.isSelected(this) + "]" +
-				"[nof_acts_legs=" + getPlanElements().size() + "]" +
+				"[nof_acts_legs=" + getPlanElementsCount() + "]" +
 				"[type=" + this.type + "]" +
 				"[personId=" + personIdString + "]" ;
 	}
@@ -28,6 +28,7 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.population.routes.RouteFactories;
@@ -40,6 +41,7 @@ import org.matsim.facilities.ActivityFacility;
 /* deliberately package */ class PopulationFactoryImpl implements PopulationFactory {
 
 	private final RouteFactories routeFactory;
+	private boolean compactingUnselectedPlans = false;
 
     @Inject
 	PopulationFactoryImpl(RouteFactories routeFactory) {
@@ -119,4 +121,16 @@ import org.matsim.facilities.ActivityFacility;
 		return this.routeFactory;
 	}
 
+	/**
+	 * If set, the plan elements of the non-selected plans of the population are stored in compact form, see
+	 * {@link PopulationUtils#compactUnselectedPlans(Population)}.
+	 */
+	void setCompactingUnselectedPlans(boolean compactingUnselectedPlans) {
+		this.compactingUnselectedPlans = compactingUnselectedPlans;
+	}
+
+	boolean isCompactingUnselectedPlans() {
+		return this.compactingUnselectedPlans;
+	}
+
 }
@@ -143,7 +143,58 @@ public final class PopulationUtils {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
-		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
+		PopulationFactoryImpl populationFactory = new PopulationFactoryImpl(routeFactory);
+		populationFactory.setCompactingUnselectedPlans(plansConfigGroup.isCompactingUnselectedPlans());
+		return new PopulationImpl(populationFactory);
+	}
+
+	/**
+	 * Sets whether the non-selected plans of populations using this factory are stored in compact form, see
+	 * {@link #compactUnselectedPlans(Population)}. Populations created from a config take the setting from
+	 * {@link PlansConfigGroup#isCompactingUnselectedPlans()}.
+	 */
+	public static void setCompactingUnselectedPlans(PopulationFactory factory, boolean compactingUnselectedPlans) {
+		if (!(factory instanceof PopulationFactoryImpl factoryImpl)) {
+			throw new IllegalArgumentException("compacting plans is not supported by " + factory.getClass().getName());
+		}
+		factoryImpl.setCompactingUnselectedPlans(compactingUnselectedPlans);
+	}
+
+	public static boolean isCompactingUnselectedPlans(PopulationFactory factory) {
+		return factory instanceof PopulationFactoryImpl factoryImpl && factoryImpl.isCompactingUnselectedPlans();
+	}
+
+	/**
+	 * Stores the plan elements of all non-selected plans in a few primitive arrays to reduce the memory footprint
+	 * of the population. The plan elements are restored transparently as new objects the next time they are
+	 * accessed by {@link Plan#getPlanElements()}, so references to the old plan element objects are no longer part
+	 * of the plan afterwards. Plans with custom plan element implementations are kept as they are.
+	 *
+	 * @return the number of plans that were compacted
+	 */
+	public static int compactUnselectedPlans(Population population) {
+		int compacted = 0;
+		for (Person person : population.getPersons().values()) {
+			Plan selectedPlan = person.getSelectedPlan();
+			for (Plan plan : person.getPlans()) {
+				if (plan != selectedPlan && plan instanceof PlanImpl planImpl && !planImpl.isCompact() && planImpl.compact()) {
+					compacted++;
+				}
+			}
+		}
+		return compacted;
+	}
+
+	/**
+	 * Returns the plan elements of the plan for reading only, e.g. for writing them to a file. In contrast to
+	 * {@link Plan#getPlanElements()}, plan elements stored in compact form are not restored in the plan, so the plan
+	 * keeps its small memory footprint. The returned plan elements are then a detached, unmodifiable copy.
+	 */
+	public static List<PlanElement> getPlanElementsForReading(Plan plan) {
+		if (plan instanceof PlanImpl planImpl) {
+			return planImpl.getPlanElementsForReading();
+		}
+		return plan.getPlanElements();
 	}
 
 	public static Leg unmodifiableLeg(Leg leg) {
@@ -0,0 +1,57 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * UnselectedPlansCompactor.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+
+import com.google.inject.Inject;
+
+/**
+ * Compacts the plan elements of all non-selected plans before the mobsim, see
+ * {@link PopulationUtils#compactUnselectedPlans(Population)}, if enabled in the config or in the population's
+ * factory. Replanning only touches a few plans per iteration, so most non-selected plans stay compacted for most of
+ * the time.
+ */
+/* deliberately package */ class UnselectedPlansCompactor implements BeforeMobsimListener {
+
+	private static final Logger log = LogManager.getLogger(UnselectedPlansCompactor.class);
+
+	@Inject
+	private Population population;
+
+	@Inject
+	private Config config;
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		if (!this.config.plans().isCompactingUnselectedPlans() && !PopulationUtils.isCompactingUnselectedPlans(this.population.getFactory())) {
+			return;
+		}
+		log.info("compacting non-selected plans...");
+		int compacted = PopulationUtils.compactUnselectedPlans(this.population);
+		log.info("compacted " + compacted + " non-selected plans.");
+	}
+}
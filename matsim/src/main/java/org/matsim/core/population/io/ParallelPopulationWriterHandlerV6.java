@@ -25,6 +25,7 @@ import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.*;
 import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
@@ -318,7 +319,7 @@ public class ParallelPopulationWriterHandlerV6 implements PopulationWriterHandle
 			for (Plan plan : person.getPlans()) {
 				startPlan(plan, out);
 				// act/leg
-				for (PlanElement pe : plan.getPlanElements()) {
+				for (PlanElement pe : PopulationUtils.getPlanElementsForReading(plan)) {
 					if (pe instanceof Activity act) {
 						this.writeAct(act, out);
 					} else if (pe instanceof Leg leg) {
@@ -0,0 +1,573 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.router.StageActivityTypeIdentifier;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.matsim.core.population.io.PopulationWriterBinary.*;
+
+/**
+ * Reads populations written by {@link PopulationWriterBinary}.
+ * <p>
+ * Uncompressed files are memory-mapped in large windows, and the person blocks are decoded directly from slices of
+ * these windows without copying them first. Every dictionary entry is decoded only once, and the {@link Id}s created from it
+ * are cached per dictionary code, so repeated ids (e.g. link ids in routes) neither create new strings nor need to
+ * be looked up again.
+ * <p>
+ * Persons are added to the scenario's population in the order they were written, so this reader can also be used
+ * with {@link StreamingPopulationReader}.
+ *
+ * @see PopulationWriterBinary
+ */
+public final class PopulationReaderBinary implements MatsimReader {
+
+	private static final Logger log = LogManager.getLogger(PopulationReaderBinary.class);
+
+	/** type byte and payload length */
+	private static final int RECORD_HEADER_SIZE = 5;
+	private static final int DEFAULT_MAP_WINDOW_SIZE = 64 << 20;
+
+	private final Population population;
+	private final String targetCRS;
+	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	private String[] dictionary = new String[1024];
+	private int dictionarySize = 1; // code 0 is null
+	private Id<Person>[] personIds;
+	private Id<Link>[] linkIds;
+	private Id<ActivityFacility>[] facilityIds;
+	private Id<Vehicle>[] vehicleIds;
+	private Class<? extends Route>[] routeClasses;
+	private byte[] stringScratch = new byte[256];
+	private final List<Id<Link>> routeScratch = new ArrayList<>();
+	private Counter counter;
+	private int mapWindowSize = DEFAULT_MAP_WINDOW_SIZE;
+
+	public PopulationReaderBinary(final Scenario scenario) {
+		this(null, null, scenario);
+	}
+
+	public PopulationReaderBinary(final String inputCRS, final String targetCRS, final Scenario scenario) {
+		this.population = scenario.getPopulation();
+		this.targetCRS = targetCRS;
+		if (inputCRS != null && targetCRS != null) {
+			this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(inputCRS, targetCRS);
+		}
+		clearIdCaches();
+	}
+
+	/**
+	 * @return <code>true</code> if the file name has the extension of a binary population snapshot, possibly compressed.
+	 */
+	public static boolean isBinaryPopulationFile(final String filename) {
+		String lc = filename.toLowerCase();
+		return lc.endsWith(".bin") || lc.endsWith(".bin.gz") || lc.endsWith(".bin.zst") || lc.endsWith(".bin.lz4");
+	}
+
+	/**
+	 * Sets the number of bytes which are memory-mapped at once when reading uncompressed files.
+	 */
+	void setMapWindowSize(final int mapWindowSize) {
+		this.mapWindowSize = mapWindowSize;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		log.info("reading binary population snapshot from " + filename);
+		if (filename.toLowerCase().endsWith(".bin")) {
+			readMapped(Path.of(filename));
+		} else {
+			readURL(IOUtils.getFileUrl(filename));
+		}
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		if ("file".equals(url.getProtocol()) && url.getPath().toLowerCase().endsWith(".bin")) {
+			try {
+				readMapped(Path.of(url.toURI()));
+				return;
+			} catch (URISyntaxException e) {
+				// not a valid file uri, read it as stream below
+			}
+		}
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			readStream(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void readStream(final InputStream stream) {
+		start();
+		try {
+			DataInputStream in = new DataInputStream(stream);
+			readHeader(in);
+			byte[] payload = new byte[1 << 16];
+			while (true) {
+				byte type;
+				try {
+					type = in.readByte();
+				} catch (EOFException e) {
+					throw new UncheckedIOException("Unexpected end of binary population, END record is missing.", e);
+				}
+				int length = in.readInt();
+				if (payload.length < length) {
+					payload = new byte[Math.max(length, payload.length * 2)];
+				}
+				in.readFully(payload, 0, length);
+				if (!handleRecord(type, ByteBuffer.wrap(payload, 0, length))) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finish();
+	}
+
+	private void readMapped(Path path) {
+		start();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 4);
+			readFully(channel, header, 0);
+			checkHeader(header.flip());
+			long windowStart = header.limit();
+			ByteBuffer window = mapWindow(channel, windowStart, size, 0);
+			while (true) {
+				if (window.remaining() < RECORD_HEADER_SIZE) {
+					windowStart += window.position();
+					window = mapWindow(channel, windowStart, size, RECORD_HEADER_SIZE);
+				}
+				int recordStart = window.position();
+				byte type = window.get();
+				int length = window.getInt();
+				if (window.remaining() < length) {
+					// the record does not fit into the current window, so map a new window starting with this record
+					windowStart += recordStart;
+					window = mapWindow(channel, windowStart, size, RECORD_HEADER_SIZE + length);
+					window.position(RECORD_HEADER_SIZE);
+				}
+				ByteBuffer payload = window.slice(window.position(), length);
+				window.position(window.position() + length);
+				if (!handleRecord(type, payload)) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finish();
+	}
+
+	/**
+	 * Maps the file from the given position on, {@link #mapWindowSize} bytes or at least <code>minLength</code>
+	 * bytes. Mapped buffers cannot be unmapped explicitly, they are released once they are garbage collected, so
+	 * large windows keep the number of mappings low.
+	 */
+	private ByteBuffer mapWindow(FileChannel channel, long position, long size, int minLength) throws IOException {
+		if (size - position < minLength) {
+			throw new EOFException("Unexpected end of binary population file.");
+		}
+		long length = Math.min(size - position, Math.max(this.mapWindowSize, minLength));
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new EOFException("Unexpected end of binary population file.");
+			}
+		}
+	}
+
+	private void readHeader(DataInputStream in) throws IOException {
+		byte[] header = new byte[MAGIC.length + 4];
+		in.readFully(header);
+		checkHeader(ByteBuffer.wrap(header));
+	}
+
+	private static void checkHeader(ByteBuffer header) {
+		byte[] magic = new byte[MAGIC.length];
+		header.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IllegalArgumentException("Not a binary MATSim population file.");
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported binary population version " + version + ", expected " + VERSION + ".");
+		}
+	}
+
+	private void start() {
+		this.dictionarySize = 1;
+		clearIdCaches();
+		this.counter = new Counter("[PopulationReaderBinary] person # ");
+	}
+
+	private void finish() {
+		this.counter.printCounter();
+		if (this.targetCRS != null) {
+			ProjectionUtils.putCRS(this.population, this.targetCRS);
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the end of the file was reached.
+	 */
+	private boolean handleRecord(byte type, ByteBuffer payload) {
+		switch (type) {
+			case RECORD_DICTIONARY -> readDictionary(payload);
+			case RECORD_POPULATION -> readPopulation(payload);
+			case RECORD_PERSONS -> {
+				int count = readVarint(payload);
+				for (int i = 0; i < count; i++) {
+					this.population.addPerson(readPerson(payload));
+					this.counter.incCounter();
+				}
+			}
+			case RECORD_END -> {
+				return false;
+			}
+			default -> throw new IllegalArgumentException("Unknown record type " + type + " in binary population.");
+		}
+		return true;
+	}
+
+	private void readDictionary(ByteBuffer payload) {
+		int count = readVarint(payload);
+		if (this.dictionarySize + count > this.dictionary.length) {
+			int newLength = Math.max(this.dictionary.length * 2, this.dictionarySize + count);
+			this.dictionary = Arrays.copyOf(this.dictionary, newLength);
+			this.personIds = Arrays.copyOf(this.personIds, newLength);
+			this.linkIds = Arrays.copyOf(this.linkIds, newLength);
+			this.facilityIds = Arrays.copyOf(this.facilityIds, newLength);
+			this.vehicleIds = Arrays.copyOf(this.vehicleIds, newLength);
+			this.routeClasses = Arrays.copyOf(this.routeClasses, newLength);
+		}
+		for (int i = 0; i < count; i++) {
+			this.dictionary[this.dictionarySize++] = readString(payload);
+		}
+	}
+
+	private void readPopulation(ByteBuffer payload) {
+		String name = getString(payload);
+		if (name != null) {
+			this.population.setName(name);
+		}
+		readAttributes(payload, this.population.getAttributes());
+
+		String inputCRS = ProjectionUtils.getCRS(this.population);
+		if (inputCRS != null && this.targetCRS != null) {
+			this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(inputCRS, this.targetCRS);
+		}
+	}
+
+	private Person readPerson(ByteBuffer payload) {
+		Person person = this.population.getFactory().createPerson(getId(payload, this.personIds, Person.class));
+		readAttributes(payload, person.getAttributes());
+		int planCount = readVarint(payload);
+		int selected = readVarint(payload);
+		for (int p = 0; p < planCount; p++) {
+			Plan plan = PersonUtils.createAndAddPlan(person, selected == p + 1);
+			readPlan(payload, plan);
+		}
+		return person;
+	}
+
+	private void readPlan(ByteBuffer payload, Plan plan) {
+		int flags = payload.get();
+		if ((flags & PLAN_SCORE) != 0) {
+			plan.setScore(payload.getDouble());
+		}
+		if ((flags & PLAN_TYPE) != 0) {
+			plan.setType(getString(payload));
+		}
+		readAttributes(payload, plan.getAttributes());
+		int elementCount = readVarint(payload);
+		for (int i = 0; i < elementCount; i++) {
+			byte elementType = payload.get();
+			if (elementType == ELEMENT_ACTIVITY) {
+				plan.addActivity(readActivity(payload));
+			} else if (elementType == ELEMENT_LEG) {
+				plan.addLeg(readLeg(payload));
+			} else {
+				throw new IllegalArgumentException("Unknown plan element type " + elementType + " in binary population.");
+			}
+		}
+	}
+
+	private Activity readActivity(ByteBuffer payload) {
+		int flags = payload.get();
+		String type = getString(payload);
+		Id<Link> linkId = (flags & ACT_LINK) != 0 ? getId(payload, this.linkIds, Link.class) : null;
+		Id<ActivityFacility> facilityId = (flags & ACT_FACILITY) != 0 ? getId(payload, this.facilityIds, ActivityFacility.class) : null;
+		Coord coord = null;
+		if ((flags & ACT_COORD) != 0) {
+			double x = payload.getDouble();
+			double y = payload.getDouble();
+			coord = (flags & ACT_COORD_Z) != 0 ? new Coord(x, y, payload.getDouble()) : new Coord(x, y);
+			coord = this.coordinateTransformation.transform(coord);
+		}
+		double startTime = (flags & ACT_START_TIME) != 0 ? payload.getDouble() : Double.NaN;
+		double maxDuration = (flags & ACT_MAX_DURATION) != 0 ? payload.getDouble() : Double.NaN;
+		double endTime = (flags & ACT_END_TIME) != 0 ? payload.getDouble() : Double.NaN;
+
+		// same as in the xml reader: interaction activities are only used if the times match their assumptions
+		boolean interaction = StageActivityTypeIdentifier.isStageActivity(type)
+				&& Double.isNaN(startTime) && Double.isNaN(endTime) && !Double.isNaN(maxDuration) && maxDuration <= 0.0;
+		Activity act;
+		if (interaction) {
+			if (facilityId != null) {
+				act = PopulationUtils.createInteractionActivityFromFacilityId(type, facilityId);
+			} else if (linkId != null) {
+				act = PopulationUtils.createInteractionActivityFromLinkId(type, linkId);
+			} else {
+				act = PopulationUtils.createInteractionActivityFromCoord(type, coord);
+			}
+		} else {
+			if (facilityId != null) {
+				act = PopulationUtils.createActivityFromFacilityId(type, facilityId);
+			} else if (linkId != null) {
+				act = PopulationUtils.createActivityFromLinkId(type, linkId);
+			} else {
+				act = PopulationUtils.createActivityFromCoord(type, coord);
+			}
+			if (!Double.isNaN(startTime)) {
+				act.setStartTime(startTime);
+			}
+			if (!Double.isNaN(maxDuration)) {
+				act.setMaximumDuration(maxDuration);
+			}
+			if (!Double.isNaN(endTime)) {
+				act.setEndTime(endTime);
+			}
+		}
+		if (linkId != null) {
+			act.setLinkId(linkId);
+		}
+		if (coord != null) {
+			act.setCoord(coord);
+		}
+		readAttributes(payload, act.getAttributes());
+		return act;
+	}
+
+	private Leg readLeg(ByteBuffer payload) {
+		int flags = payload.get();
+		Leg leg = PopulationUtils.createLeg(getString(payload));
+		if ((flags & LEG_ROUTING_MODE) != 0) {
+			leg.setRoutingMode(getString(payload));
+		}
+		if ((flags & LEG_DEPARTURE_TIME) != 0) {
+			leg.setDepartureTime(payload.getDouble());
+		}
+		if ((flags & LEG_TRAVEL_TIME) != 0) {
+			leg.setTravelTime(payload.getDouble());
+		}
+		readAttributes(payload, leg.getAttributes());
+		if ((flags & LEG_ROUTE) != 0) {
+			leg.setRoute(readRoute(payload));
+		}
+		return leg;
+	}
+
+	private Route readRoute(ByteBuffer payload) {
+		int typeCode = readVarint(payload);
+		Id<Link> startLinkId = getId(payload, this.linkIds, Link.class);
+		Id<Link> endLinkId = getId(payload, this.linkIds, Link.class);
+		int flags = payload.get();
+
+		Class<? extends Route> routeClass = this.routeClasses[typeCode];
+		if (routeClass == null) {
+			RouteFactories routeFactories = this.population.getFactory().getRouteFactories();
+			routeClass = routeFactories.getRouteClassForType(this.dictionary[typeCode]);
+			this.routeClasses[typeCode] = routeClass;
+		}
+		Route route = this.population.getFactory().getRouteFactories().createRoute(routeClass, startLinkId, endLinkId);
+		if ((flags & ROUTE_TRAVEL_TIME) != 0) {
+			route.setTravelTime(payload.getDouble());
+		} else {
+			route.setTravelTimeUndefined();
+		}
+		route.setDistance(payload.getDouble());
+
+		if ((flags & ROUTE_NETWORK) != 0) {
+			Id<Vehicle> vehicleId = getId(payload, this.vehicleIds, Vehicle.class);
+			int linkCount = readVarint(payload);
+			this.routeScratch.clear();
+			for (int i = 0; i < linkCount; i++) {
+				this.routeScratch.add(getId(payload, this.linkIds, Link.class));
+			}
+			if (route instanceof NetworkRoute networkRoute) {
+				networkRoute.setLinkIds(startLinkId, this.routeScratch, endLinkId);
+				networkRoute.setVehicleId(vehicleId);
+			}
+		} else {
+			route.setRouteDescription(readString(payload));
+		}
+		return route;
+	}
+
+	private void readAttributes(ByteBuffer payload, Attributes attributes) {
+		int count = readVarint(payload);
+		for (int i = 0; i < count; i++) {
+			String key = getString(payload);
+			byte valueType = payload.get();
+			Object value = switch (valueType) {
+				case VALUE_STRING -> getString(payload);
+				case VALUE_DOUBLE -> payload.getDouble();
+				case VALUE_INTEGER -> (int) unzigzag(readVarlong(payload));
+				case VALUE_LONG -> unzigzag(readVarlong(payload));
+				case VALUE_BOOLEAN -> payload.get() != 0;
+				case VALUE_CONVERTED -> {
+					String className = getString(payload);
+					yield this.attributesConverter.convert(className, readString(payload));
+				}
+				default -> throw new IllegalArgumentException("Unknown attribute value type " + valueType + " in binary population.");
+			};
+			if (value != null) {
+				attributes.putAttribute(key, value);
+			}
+		}
+	}
+
+	private String getString(ByteBuffer payload) {
+		return this.dictionary[readVarint(payload)];
+	}
+
+	private <T> Id<T> getId(ByteBuffer payload, Id<T>[] cache, Class<T> type) {
+		int code = readVarint(payload);
+		if (code == 0) {
+			return null;
+		}
+		Id<T> id = cache[code];
+		if (id == null) {
+			id = Id.create(this.dictionary[code], type);
+			cache[code] = id;
+		}
+		return id;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void clearIdCaches() {
+		int length = this.dictionary.length;
+		this.personIds = new Id[length];
+		this.linkIds = new Id[length];
+		this.facilityIds = new Id[length];
+		this.vehicleIds = new Id[length];
+		this.routeClasses = new Class[length];
+	}
+
+	private String readString(ByteBuffer payload) {
+		int length = readVarint(payload);
+		if (payload.hasArray()) {
+			String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, StandardCharsets.UTF_8);
+			payload.position(payload.position() + length);
+			return value;
+		}
+		if (this.stringScratch.length < length) {
+			this.stringScratch = new byte[Math.max(length, this.stringScratch.length * 2)];
+		}
+		payload.get(this.stringScratch, 0, length);
+		return new String(this.stringScratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private static int readVarint(ByteBuffer payload) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = payload.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static long readVarlong(ByteBuffer payload) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = payload.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
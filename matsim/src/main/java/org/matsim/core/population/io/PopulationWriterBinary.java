@@ -0,0 +1,492 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.internal.MatsimWriter;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a population in a compact binary snapshot format that can be read again with {@link PopulationReaderBinary}
+ * (files ending in <code>.bin</code>, optionally compressed).
+ * <p>
+ * All ids, activity types, modes and attribute keys are stored as codes into a string dictionary that is shared
+ * across the whole file, so every distinct string is only stored (and later only decoded) once. Persons are written
+ * in blocks, every record is prefixed with its length, so readers can map or read whole blocks at once.
+ * <p>
+ * File layout:
+ * <pre>
+ * file       := MAGIC version:int record*
+ * record     := type:byte length:int payload
+ * payload    := DICTIONARY: count:varint (string)*
+ *             | POPULATION: name:code attributes
+ *             | PERSONS:    count:varint person*
+ *             | END:        (empty)
+ * person     := id:code attributes planCount:varint selectedPlan:varint plan*
+ * plan       := flags:byte [score:double] [type:code] attributes elementCount:varint (activity | leg)*
+ * activity   := ACTIVITY flags:byte type:code [link:code] [facility:code] [x:double y:double [z:double]]
+ *               [startTime:double] [maxDuration:double] [endTime:double] attributes
+ * leg        := LEG flags:byte mode:code [routingMode:code] [departureTime:double] [travelTime:double] attributes [route]
+ * route      := type:code startLink:code endLink:code flags:byte [travelTime:double] distance:double
+ *               ([vehicle:code] linkCount:varint (link:code)* | description:string)
+ * attributes := count:varint (key:code valueType:byte value)*
+ * string     := length:varint utf8-bytes
+ * </pre>
+ * Codes are varints, code <code>0</code> denotes <code>null</code>, dictionary codes start at <code>1</code>. The
+ * selected plan is stored as its index plus one, <code>0</code> if no plan is selected.
+ *
+ * @see PopulationReaderBinary
+ */
+public final class PopulationWriterBinary implements MatsimWriter {
+
+	private static final Logger log = LogManager.getLogger(PopulationWriterBinary.class);
+
+	static final byte[] MAGIC = "MATSIMPB".getBytes(StandardCharsets.US_ASCII);
+	static final int VERSION = 1;
+
+	static final byte RECORD_END = 0;
+	static final byte RECORD_DICTIONARY = 1;
+	static final byte RECORD_POPULATION = 2;
+	static final byte RECORD_PERSONS = 3;
+
+	static final byte ELEMENT_ACTIVITY = 0;
+	static final byte ELEMENT_LEG = 1;
+
+	static final int PLAN_SCORE = 1;
+	static final int PLAN_TYPE = 1 << 1;
+
+	static final int ACT_LINK = 1;
+	static final int ACT_FACILITY = 1 << 1;
+	static final int ACT_COORD = 1 << 2;
+	static final int ACT_COORD_Z = 1 << 3;
+	static final int ACT_START_TIME = 1 << 4;
+	static final int ACT_MAX_DURATION = 1 << 5;
+	static final int ACT_END_TIME = 1 << 6;
+
+	static final int LEG_ROUTING_MODE = 1;
+	static final int LEG_DEPARTURE_TIME = 1 << 1;
+	static final int LEG_TRAVEL_TIME = 1 << 2;
+	static final int LEG_ROUTE = 1 << 3;
+
+	static final int ROUTE_TRAVEL_TIME = 1;
+	static final int ROUTE_NETWORK = 1 << 1;
+
+	static final byte VALUE_STRING = 0;
+	static final byte VALUE_DOUBLE = 1;
+	static final byte VALUE_INTEGER = 2;
+	static final byte VALUE_LONG = 3;
+	static final byte VALUE_BOOLEAN = 4;
+	static final byte VALUE_CONVERTED = 5;
+
+	static final int DEFAULT_BLOCK_SIZE = 1000;
+
+	private final Population population;
+	private final CoordinateTransformation coordinateTransformation;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+	private final int blockSize;
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final List<String> pendingDictionaryEntries = new ArrayList<>();
+	private final Buffer body = new Buffer();
+	private final Buffer dictionaryBody = new Buffer();
+	private final List<String> attributeKeys = new ArrayList<>();
+	private final List<Object> attributeValues = new ArrayList<>();
+	private final List<String> convertedValues = new ArrayList<>();
+
+	public PopulationWriterBinary(final Population population) {
+		this(new IdentityTransformation(), population);
+	}
+
+	public PopulationWriterBinary(final CoordinateTransformation coordinateTransformation, final Population population) {
+		this(coordinateTransformation, population, DEFAULT_BLOCK_SIZE);
+	}
+
+	/*package*/ PopulationWriterBinary(final CoordinateTransformation coordinateTransformation, final Population population, final int blockSize) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.population = population;
+		this.blockSize = blockSize;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	@Override
+	public void write(final String filename) {
+		log.info("Writing binary population snapshot to " + filename);
+		try (OutputStream stream = IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false)) {
+			write(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void write(final OutputStream stream) {
+		try {
+			DataOutputStream out = new DataOutputStream(stream);
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+
+			this.dictionary.clear();
+			this.pendingDictionaryEntries.clear();
+			this.body.clear();
+			writeCode(this.population.getName());
+			writeAttributes(this.population.getAttributes());
+			flushRecord(out, RECORD_POPULATION);
+
+			Counter counter = new Counter("[PopulationWriterBinary] dumped person # ");
+			int personsInBlock = 0;
+			Buffer block = new Buffer();
+			for (Person person : this.population.getPersons().values()) {
+				this.body.clear();
+				writePerson(person);
+				block.writeBytes(this.body.data, 0, this.body.size);
+				personsInBlock++;
+				counter.incCounter();
+				if (personsInBlock == this.blockSize) {
+					flushPersons(out, block, personsInBlock);
+					personsInBlock = 0;
+				}
+			}
+			if (personsInBlock > 0) {
+				flushPersons(out, block, personsInBlock);
+			}
+			counter.printCounter();
+
+			out.writeByte(RECORD_END);
+			out.writeInt(0);
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void flushPersons(DataOutputStream out, Buffer block, int personCount) throws IOException {
+		this.body.clear();
+		this.body.writeVarint(personCount);
+		this.body.writeBytes(block.data, 0, block.size);
+		block.clear();
+		flushRecord(out, RECORD_PERSONS);
+	}
+
+	/**
+	 * Writes the current body as record, preceded by a dictionary record with all strings that were newly used in it.
+	 */
+	private void flushRecord(DataOutputStream out, byte type) throws IOException {
+		if (!this.pendingDictionaryEntries.isEmpty()) {
+			this.dictionaryBody.clear();
+			this.dictionaryBody.writeVarint(this.pendingDictionaryEntries.size());
+			for (String entry : this.pendingDictionaryEntries) {
+				this.dictionaryBody.writeString(entry);
+			}
+			this.pendingDictionaryEntries.clear();
+			out.writeByte(RECORD_DICTIONARY);
+			out.writeInt(this.dictionaryBody.size);
+			out.write(this.dictionaryBody.data, 0, this.dictionaryBody.size);
+		}
+		out.writeByte(type);
+		out.writeInt(this.body.size);
+		out.write(this.body.data, 0, this.body.size);
+	}
+
+	private void writePerson(Person person) {
+		writeCode(person.getId());
+		writeAttributes(person.getAttributes());
+		List<? extends Plan> plans = person.getPlans();
+		this.body.writeVarint(plans.size());
+		int selected = 0;
+		for (int i = 0; i < plans.size(); i++) {
+			if (PersonUtils.isSelected(plans.get(i))) {
+				selected = i + 1;
+			}
+		}
+		this.body.writeVarint(selected);
+		for (Plan plan : plans) {
+			writePlan(plan);
+		}
+	}
+
+	private void writePlan(Plan plan) {
+		int flags = (plan.getScore() != null ? PLAN_SCORE : 0) | (plan.getType() != null ? PLAN_TYPE : 0);
+		this.body.writeByte(flags);
+		if (plan.getScore() != null) {
+			this.body.writeDouble(plan.getScore());
+		}
+		if (plan.getType() != null) {
+			writeCode(plan.getType());
+		}
+		writeAttributes(plan.getAttributes());
+		List<PlanElement> elements = PopulationUtils.getPlanElementsForReading(plan);
+		this.body.writeVarint(elements.size());
+		for (PlanElement pe : elements) {
+			if (pe instanceof Activity act) {
+				writeActivity(act);
+			} else if (pe instanceof Leg leg) {
+				writeLeg(leg);
+			} else {
+				throw new IllegalArgumentException("Unsupported plan element: " + pe);
+			}
+		}
+	}
+
+	private void writeActivity(Activity act) {
+		Coord coord = act.getCoord() == null ? null : this.coordinateTransformation.transform(act.getCoord());
+		int flags = (act.getLinkId() != null ? ACT_LINK : 0)
+				| (act.getFacilityId() != null ? ACT_FACILITY : 0)
+				| (coord != null ? ACT_COORD : 0)
+				| (coord != null && coord.hasZ() ? ACT_COORD_Z : 0)
+				| (act.getStartTime().isDefined() ? ACT_START_TIME : 0)
+				| (act.getMaximumDuration().isDefined() ? ACT_MAX_DURATION : 0)
+				| (act.getEndTime().isDefined() ? ACT_END_TIME : 0);
+		this.body.writeByte(ELEMENT_ACTIVITY);
+		this.body.writeByte(flags);
+		writeCode(act.getType());
+		if (act.getLinkId() != null) {
+			writeCode(act.getLinkId());
+		}
+		if (act.getFacilityId() != null) {
+			writeCode(act.getFacilityId());
+		}
+		if (coord != null) {
+			this.body.writeDouble(coord.getX());
+			this.body.writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				this.body.writeDouble(coord.getZ());
+			}
+		}
+		writeTime(act.getStartTime());
+		writeTime(act.getMaximumDuration());
+		writeTime(act.getEndTime());
+		writeAttributes(act.getAttributes());
+	}
+
+	private void writeLeg(Leg leg) {
+		Route route = leg.getRoute();
+		int flags = (leg.getRoutingMode() != null ? LEG_ROUTING_MODE : 0)
+				| (leg.getDepartureTime().isDefined() ? LEG_DEPARTURE_TIME : 0)
+				| (leg.getTravelTime().isDefined() ? LEG_TRAVEL_TIME : 0)
+				| (route != null ? LEG_ROUTE : 0);
+		this.body.writeByte(ELEMENT_LEG);
+		this.body.writeByte(flags);
+		writeCode(leg.getMode());
+		if (leg.getRoutingMode() != null) {
+			writeCode(leg.getRoutingMode());
+		}
+		writeTime(leg.getDepartureTime());
+		writeTime(leg.getTravelTime());
+		writeAttributes(leg.getAttributes());
+		if (route != null) {
+			writeRoute(route);
+		}
+	}
+
+	private void writeRoute(Route route) {
+		writeCode(route.getRouteType());
+		writeCode(route.getStartLinkId());
+		writeCode(route.getEndLinkId());
+		int flags = (route.getTravelTime().isDefined() ? ROUTE_TRAVEL_TIME : 0)
+				| (route instanceof NetworkRoute ? ROUTE_NETWORK : 0);
+		this.body.writeByte(flags);
+		writeTime(route.getTravelTime());
+		this.body.writeDouble(route.getDistance());
+		if (route instanceof NetworkRoute networkRoute) {
+			writeCode(networkRoute.getVehicleId());
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			this.body.writeVarint(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				writeCode(linkId);
+			}
+		} else {
+			String description = route.getRouteDescription();
+			this.body.writeString(description == null ? "" : description);
+		}
+	}
+
+	private void writeAttributes(Attributes attributes) {
+		if (attributes.isEmpty()) {
+			this.body.writeVarint(0);
+			return;
+		}
+		// like in the xml format, attributes without converter are skipped, so they must be filtered before writing the count
+		this.attributeKeys.clear();
+		this.attributeValues.clear();
+		this.convertedValues.clear();
+		for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+			Object value = e.getValue();
+			String converted = null;
+			if (!(value instanceof String || value instanceof Double || value instanceof Integer || value instanceof Long || value instanceof Boolean)) {
+				converted = this.attributesConverter.convertToString(value);
+				if (converted == null) {
+					continue;
+				}
+			}
+			this.attributeKeys.add(e.getKey());
+			this.attributeValues.add(value);
+			this.convertedValues.add(converted);
+		}
+		this.body.writeVarint(this.attributeKeys.size());
+		for (int a = 0; a < this.attributeKeys.size(); a++) {
+			Object value = this.attributeValues.get(a);
+			writeCode(this.attributeKeys.get(a));
+			if (value instanceof String s) {
+				this.body.writeByte(VALUE_STRING);
+				writeCode(s);
+			} else if (value instanceof Double d) {
+				this.body.writeByte(VALUE_DOUBLE);
+				this.body.writeDouble(d);
+			} else if (value instanceof Integer i) {
+				this.body.writeByte(VALUE_INTEGER);
+				this.body.writeVarlong(zigzag(i));
+			} else if (value instanceof Long l) {
+				this.body.writeByte(VALUE_LONG);
+				this.body.writeVarlong(zigzag(l));
+			} else if (value instanceof Boolean b) {
+				this.body.writeByte(VALUE_BOOLEAN);
+				this.body.writeByte(b ? 1 : 0);
+			} else {
+				this.body.writeByte(VALUE_CONVERTED);
+				writeCode(value.getClass().getName());
+				this.body.writeString(this.convertedValues.get(a));
+			}
+		}
+	}
+
+	private void writeTime(OptionalTime time) {
+		if (time.isDefined()) {
+			this.body.writeDouble(time.seconds());
+		}
+	}
+
+	private void writeCode(Id<?> id) {
+		writeCode(id == null ? null : id.toString());
+	}
+
+	private void writeCode(String value) {
+		if (value == null) {
+			this.body.writeVarint(0);
+			return;
+		}
+		Integer code = this.dictionary.get(value);
+		if (code == null) {
+			code = this.dictionary.size() + 1;
+			this.dictionary.put(value, code);
+			this.pendingDictionaryEntries.add(value);
+		}
+		this.body.writeVarint(code);
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * A growable byte array with support for variable-length integers.
+	 */
+	private static final class Buffer {
+		private byte[] data = new byte[1 << 16];
+		private int size = 0;
+
+		void clear() {
+			this.size = 0;
+		}
+
+		private void ensureCapacity(int additional) {
+			if (this.size + additional > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.size + additional));
+			}
+		}
+
+		void writeByte(int value) {
+			ensureCapacity(1);
+			this.data[this.size++] = (byte) value;
+		}
+
+		void writeBytes(byte[] bytes, int offset, int length) {
+			ensureCapacity(length);
+			System.arraycopy(bytes, offset, this.data, this.size, length);
+			this.size += length;
+		}
+
+		void writeVarint(int value) {
+			ensureCapacity(5);
+			while ((value & ~0x7F) != 0) {
+				this.data[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.size++] = (byte) value;
+		}
+
+		void writeVarlong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.data[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.size++] = (byte) value;
+		}
+
+		void writeDouble(double value) {
+			ensureCapacity(8);
+			long bits = Double.doubleToRawLongBits(value);
+			for (int i = 0; i < 8; i++) {
+				this.data[this.size++] = (byte) (bits >>> (56 - 8 * i));
+			}
+		}
+
+		void writeString(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length);
+			writeBytes(bytes, 0, bytes.length);
+		}
+	}
+}
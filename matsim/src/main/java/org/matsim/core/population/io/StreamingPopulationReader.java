@@ -45,6 +45,7 @@ public final class StreamingPopulationReader implements MatsimReader {
 	private static final Logger log = LogManager.getLogger(StreamingPopulationReader.class);
 	
 	private PopulationReader reader ;
+	private PopulationReaderBinary binaryReader ;
 	private final StreamingPopulation pop ;
 	private int cnt;
 	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
@@ -62,6 +63,7 @@ public final class StreamingPopulationReader implements MatsimReader {
 			pop = new StreamingPopulation( scenario.getConfig() ) ;
 			((MutableScenario) scenario).setPopulation(pop);
 			reader = new PopulationReader( inputCRS, targetCRS, scenario, true) ;
+			binaryReader = new PopulationReaderBinary( inputCRS, targetCRS, scenario ) ;
 		} else {
 			throw new RuntimeException("scenario given into this class needs to be an instance of MutableScenario.") ;
 		}
@@ -79,12 +81,22 @@ public final class StreamingPopulationReader implements MatsimReader {
 		return pop ;
 	}
 	@Override public void readFile(String filename) {
+		if (PopulationReaderBinary.isBinaryPopulationFile(filename)) {
+			binaryReader.putAttributeConverters(this.attributeConverters);
+			binaryReader.readFile(filename);
+			return;
+		}
 		reader.putAttributeConverters(this.attributeConverters);
 		reader.readFile(filename);
 	}
 
 	@Override
 	public void readURL( URL url ) {
+		if (PopulationReaderBinary.isBinaryPopulationFile(url.getPath())) {
+			binaryReader.putAttributeConverters(this.attributeConverters);
+			binaryReader.readURL(url);
+			return;
+		}
 		reader.putAttributeConverters(this.attributeConverters);
 		reader.parse( url ) ;
 	}
@@ -31,4 +31,12 @@ public interface ReplanningContext {
 	 */
 	int getIteration();
 
+	/**
+	 * The worker pool shared by the multi-threaded strategy modules, or <code>null</code> if every module should start
+	 * its own threads.
+	 */
+	default ReplanningWorkerPool getReplanningWorkerPool() {
+		return null;
+	}
+
 }
@@ -33,17 +33,28 @@ import jakarta.inject.Singleton;
 class ReplanningContextImpl implements ReplanningContext, IterationStartsListener {
 
     private int iteration;
+    private ReplanningWorkerPool replanningWorkerPool = null;
 
     @Inject
     ReplanningContextImpl(ControlerListenerManager controlerListenerManager) {
         controlerListenerManager.addControlerListener(this);
     }
 
+    @com.google.inject.Inject(optional = true)
+    void setReplanningWorkerPool(ReplanningWorkerPool replanningWorkerPool) {
+        this.replanningWorkerPool = replanningWorkerPool;
+    }
+
     @Override
     public int getIteration() {
         return iteration;
     }
 
+    @Override
+    public ReplanningWorkerPool getReplanningWorkerPool() {
+        return replanningWorkerPool;
+    }
+
     @Override
     public void notifyIterationStarts(IterationStartsEvent event) {
         this.iteration = event.getIteration();
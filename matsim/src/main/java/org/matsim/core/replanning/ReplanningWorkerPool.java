@@ -0,0 +1,210 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ReplanningWorkerPool.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.inject.Inject;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.Counter;
+
+/**
+ * A pool of worker threads shared by all multi-threaded strategy modules, see
+ * {@link org.matsim.core.replanning.modules.AbstractMultithreadedModule}.
+ * <p>
+ * The threads are started once and kept for the whole run. The plans of a module are split into small batches, and
+ * every worker takes the next batch as soon as it is done with the previous one. Thus, a few expensive plans (e.g.
+ * long pt trips) no longer delay the whole replanning as it happens with a fixed round-robin assignment of the plans
+ * to the threads. Every worker uses its own plan algorithm instance. As it is not deterministic which worker handles
+ * which plan, runs using this pool are not reproducible.
+ * <p>
+ * The time spent in every module is written to <code>replanningtimes.csv</code> in the output directory.
+ */
+public final class ReplanningWorkerPool implements IterationEndsListener, ShutdownListener {
+
+	private static final Logger log = LogManager.getLogger(ReplanningWorkerPool.class);
+
+	static final String FILENAME = "replanningtimes.csv";
+	private static final int BATCHES_PER_THREAD = 16;
+	private static final int MAX_BATCH_SIZE = 64;
+
+	private final int numberOfThreads;
+	private final OutputDirectoryHierarchy controlerIO;
+	private final String delimiter;
+	private ExecutorService executor = null;
+	private final List<String> pendingRecords = new ArrayList<>();
+	private BufferedWriter writer = null;
+
+	@Inject
+	ReplanningWorkerPool(GlobalConfigGroup globalConfigGroup, OutputDirectoryHierarchy controlerIO, ControlerListenerManager controlerListenerManager) {
+		this.numberOfThreads = Math.max(1, globalConfigGroup.getNumberOfThreads());
+		this.controlerIO = controlerIO;
+		this.delimiter = globalConfigGroup.getDefaultDelimiter();
+		controlerListenerManager.addControlerListener(this);
+	}
+
+	/**
+	 * Creates a pool which does not write the times spent in the modules, e.g. for usage outside of the controler.
+	 */
+	public ReplanningWorkerPool(int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.controlerIO = null;
+		this.delimiter = null;
+	}
+
+	public int getNumberOfThreads() {
+		return this.numberOfThreads;
+	}
+
+	/**
+	 * Runs the plan algorithms on all plans, and returns once all plans are handled. The worker with index
+	 * <code>i</code> only uses <code>algorithms[i]</code>, so the algorithms need not be thread-safe.
+	 *
+	 * @param algorithms one algorithm per worker, see {@link #getNumberOfThreads()}
+	 */
+	public void run(String name, int iteration, List<Plan> plans, PlanAlgorithm[] algorithms, Counter counter) {
+		if (algorithms.length != this.numberOfThreads) {
+			throw new IllegalArgumentException("expected " + this.numberOfThreads + " plan algorithms, got " + algorithms.length);
+		}
+		if (this.executor == null) {
+			AtomicInteger threadCount = new AtomicInteger();
+			this.executor = Executors.newFixedThreadPool(this.numberOfThreads, runnable -> {
+				Thread thread = new Thread(runnable, "ReplanningWorker." + threadCount.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, plans.size() / (this.numberOfThreads * BATCHES_PER_THREAD)));
+		AtomicInteger nextPlan = new AtomicInteger(0);
+		AtomicReference<Throwable> exception = new AtomicReference<>(null);
+		long[] busyTimes = new long[this.numberOfThreads];
+
+		long start = System.nanoTime();
+		List<Future<?>> futures = new ArrayList<>(this.numberOfThreads);
+		for (int i = 0; i < this.numberOfThreads; i++) {
+			final int worker = i;
+			futures.add(this.executor.submit(() -> {
+				long workerStart = System.nanoTime();
+				PlanAlgorithm algorithm = algorithms[worker];
+				try {
+					int from;
+					while (exception.get() == null && (from = nextPlan.getAndAdd(batchSize)) < plans.size()) {
+						int to = Math.min(from + batchSize, plans.size());
+						for (int p = from; p < to; p++) {
+							algorithm.run(plans.get(p));
+							counter.incCounter();
+						}
+					}
+				} catch (Throwable t) {
+					log.error("Worker " + Thread.currentThread().getName() + " crashed in " + name + ". Will stop after all workers finished.", t);
+					exception.compareAndSet(null, t);
+				} finally {
+					busyTimes[worker] = System.nanoTime() - workerStart;
+				}
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+		long wallTime = System.nanoTime() - start;
+
+		long totalBusyTime = 0;
+		long maxBusyTime = 0;
+		for (long busyTime : busyTimes) {
+			totalBusyTime += busyTime;
+			maxBusyTime = Math.max(maxBusyTime, busyTime);
+		}
+		if (this.controlerIO != null) {
+			this.pendingRecords.add(iteration + this.delimiter + name + this.delimiter + plans.size() + this.delimiter + this.numberOfThreads
+					+ this.delimiter + wallTime / 1e9 + this.delimiter + totalBusyTime / 1e9 + this.delimiter + maxBusyTime / 1e9);
+		}
+		log.info("[" + name + "] handled " + plans.size() + " plans with " + this.numberOfThreads + " workers in " + wallTime / 1_000_000 + " ms, "
+				+ "average worker utilization " + (totalBusyTime == 0 ? 100 : Math.round(100.0 * totalBusyTime / this.numberOfThreads / wallTime)) + "%");
+
+		Throwable throwable = exception.get();
+		if (throwable != null) {
+			throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
+		}
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		if (this.pendingRecords.isEmpty()) {
+			return;
+		}
+		try {
+			if (this.writer == null) {
+				this.writer = IOUtils.getBufferedWriter(this.controlerIO.getOutputFilename(FILENAME));
+				this.writer.write(String.join(this.delimiter, "iteration", "module", "plans", "threads", "wallTime", "busyTime", "maxThreadBusyTime"));
+				this.writer.newLine();
+			}
+			for (String record : this.pendingRecords) {
+				this.writer.write(record);
+				this.writer.newLine();
+			}
+			this.writer.flush();
+		} catch (IOException e) {
+			log.error("Could not write " + FILENAME, e);
+		}
+		this.pendingRecords.clear();
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		if (this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
+		}
+		if (this.writer != null) {
+			try {
+				this.writer.close();
+			} catch (IOException e) {
+				log.error("Could not close " + FILENAME, e);
+			}
+			this.writer = null;
+		}
+	}
+}
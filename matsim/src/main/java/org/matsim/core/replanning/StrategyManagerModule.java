@@ -55,6 +55,9 @@ public class StrategyManagerModule extends AbstractModule {
 		bind(StrategyManager.class).in(Singleton.class);
 		bind(new TypeLiteral<StrategyChooser<Plan, Person>>() {}).to(new TypeLiteral<WeightedStrategyChooser<Plan, Person>>() {}).asEagerSingleton();
 		bind(ReplanningContext.class).to(ReplanningContextImpl.class).asEagerSingleton();
+		if (getConfig().replanning().getReplanningThreading() == ReplanningConfigGroup.ReplanningThreading.sharedWorkerPool) {
+			bind(ReplanningWorkerPool.class).asEagerSingleton();
+		}
 
 		MapBinder<ReplanningConfigGroup.StrategySettings, PlanStrategy> planStrategyMapBinder = MapBinder.newMapBinder(binder(), ReplanningConfigGroup.StrategySettings.class, PlanStrategy.class);
 		// (this will bind a Map that has StrategySettings as key, and PlanStrategy as value.  Not sure why StrategySettings as key, and not just the name, but possibly this is mean to allow adding
@@ -27,9 +27,11 @@ import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.replanning.ReplanningWorkerPool;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
@@ -55,6 +57,11 @@ import java.util.concurrent.atomic.AtomicReference;
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
  * </ul>
+ * <p></p>
+ * If the {@link ReplanningContext} provides a {@link ReplanningWorkerPool}, the plans are instead handled by the
+ * persistent workers of that pool, which take small batches of plans as soon as they are idle.  Then, the number of
+ * plan algorithm instances is given by the pool, and the instances may be kept for all iterations, see
+ * {@link #isPlanAlgoInstanceReusable()}.
  *
  * @author mrieser
  */
@@ -66,6 +73,10 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	private PlanAlgorithm directAlgo = null;
 	private String name = null;
 
+	private ReplanningWorkerPool workerPool = null;
+	private PlanAlgorithm[] workerAlgos = null;
+	private final List<Plan> workerPlans = new ArrayList<>();
+
 	private int count = 0;
 
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
@@ -83,6 +94,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	 */
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
+	/**
+	 * Only relevant when running on a {@link ReplanningWorkerPool}: if <code>true</code>, the instances returned by
+	 * {@link #getPlanAlgoInstance()} are kept for all iterations instead of being created again in every iteration.  This
+	 * is only allowed if they do not depend on the state of the iteration they were created in (e.g. on a snapshot of the
+	 * travel times).
+	 */
+	protected boolean isPlanAlgoInstanceReusable() {
+		return false;
+	}
+
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
 	}
@@ -106,6 +127,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
+		} else if (replanningContextTmp != null && replanningContextTmp.getReplanningWorkerPool() != null) {
+			initWorkerAlgos(replanningContextTmp.getReplanningWorkerPool());
 		} else {
 			initThreads();
 		}
@@ -118,7 +141,9 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	@Override
 	public final void handlePlan(final Plan plan) {
-		if (this.directAlgo == null) {
+		if (this.workerPool != null) {
+			this.workerPlans.add(plan);
+		} else if (this.directAlgo == null) {
 			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
 			this.count++;
 		} else {
@@ -137,7 +162,18 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void finishReplanning() {
 		this.beforeFinishReplanningHook();
 		
-		if (this.directAlgo == null) {
+		if (this.workerPool != null) {
+			Counter counter = new Counter("[" + this.name + "] handled plan # ");
+			try {
+				this.workerPool.run(getModuleName(), this.replanningContext.getIteration(), this.workerPlans, this.workerAlgos, counter);
+			} finally {
+				this.workerPlans.clear();
+				this.workerPool = null;
+				if (!isPlanAlgoInstanceReusable()) {
+					this.workerAlgos = null;
+				}
+			}
+		} else if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
@@ -169,6 +205,23 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.afterFinishReplanningHook();
 	}
 
+	private void initWorkerAlgos(ReplanningWorkerPool pool) {
+		this.workerPool = pool;
+		if (this.workerAlgos != null && this.workerAlgos.length == pool.getNumberOfThreads()) {
+			return;
+		}
+		this.workerAlgos = new PlanAlgorithm[pool.getNumberOfThreads()];
+		for (int i = 0; i < this.workerAlgos.length; i++) {
+			this.workerAlgos[i] = getPlanAlgoInstance();
+		}
+		this.name = this.workerAlgos[0].getClass().getSimpleName();
+	}
+
+	private String getModuleName() {
+		String moduleName = getClass().getSimpleName();
+		return moduleName.isEmpty() ? this.name : moduleName;
+	}
+
 	private void initThreads() {
 		if (this.threads != null) {
 			throw new RuntimeException("threads are already initialized");
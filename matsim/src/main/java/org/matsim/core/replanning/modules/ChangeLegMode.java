@@ -78,4 +78,10 @@ public class ChangeLegMode extends AbstractMultithreadedModule {
 		return algo;
 	}
 
+	@Override
+	protected boolean isPlanAlgoInstanceReusable() {
+		// the algorithm only depends on the configuration
+		return true;
+	}
+
 }
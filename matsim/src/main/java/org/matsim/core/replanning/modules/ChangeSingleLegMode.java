@@ -74,4 +74,10 @@ public class ChangeSingleLegMode extends AbstractMultithreadedModule {
 		return algo;
 	}
 
+	@Override
+	protected boolean isPlanAlgoInstanceReusable() {
+		// the algorithm only depends on the configuration
+		return true;
+	}
+
 }
@@ -0,0 +1,173 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalReRoute.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.inject.Provider;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.router.PlanRouter;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.trafficmonitoring.TravelTimeChangeTracker;
+import org.matsim.core.utils.timing.TimeInterpretation;
+import org.matsim.facilities.ActivityFacilities;
+
+/**
+ * Like {@link ReRoute}, but only re-routes a plan if one of its network routes uses a link whose travel time changed
+ * since the plan was routed the last time, see {@link TravelTimeChangeTracker}. The iteration in which a plan was
+ * routed is kept in this module, not in the plan attributes, so it is neither written to the output plans nor
+ * mistaken for an iteration of another run. Plans routed before this module was created, e.g. input plans, are
+ * always re-routed.
+ * <p>
+ * The check should be done with {@link #needsReRoute(Plan)} before the plan is copied, so that plans that need no
+ * re-routing do not end up as identical copies in the choice set, see
+ * {@link org.matsim.core.replanning.strategies.IncrementalReRoute}. Plans handed to this module are re-routed if
+ * needed, and left unchanged otherwise.
+ * <p>
+ * This is a heuristic: a plan is not re-routed if a link that it does not use became faster, even if this would result
+ * in a better route. It is thus meant for the late iterations of a calibration, where most travel times are stable.
+ */
+public final class IncrementalReRoute extends AbstractMultithreadedModule {
+
+	private static final Logger log = LogManager.getLogger(IncrementalReRoute.class);
+
+	private final ActivityFacilities facilities;
+	private final Provider<TripRouter> tripRouterProvider;
+	private final TimeInterpretation timeInterpretation;
+	private final TravelTimeChangeTracker tracker;
+	private final AtomicInteger reRouted = new AtomicInteger();
+	private final AtomicInteger skipped = new AtomicInteger();
+	// weak keys, so plans removed from the choice sets are forgotten
+	private final Map<Plan, Integer> routingIterations = Collections.synchronizedMap(new WeakHashMap<>());
+
+	public IncrementalReRoute(ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup,
+			TimeInterpretation timeInterpretation, TravelTimeChangeTracker tracker) {
+		super(globalConfigGroup);
+		this.facilities = facilities;
+		this.tripRouterProvider = tripRouterProvider;
+		this.timeInterpretation = timeInterpretation;
+		this.tracker = tracker;
+	}
+
+	@Override
+	protected void beforePrepareReplanningHook(ReplanningContext replanningContextTmp) {
+		this.reRouted.set(0);
+		this.skipped.set(0);
+	}
+
+	@Override
+	public PlanAlgorithm getPlanAlgoInstance() {
+		return new IncrementalPlanRouter(new PlanRouter(this.tripRouterProvider.get(), this.facilities, this.timeInterpretation),
+				getReplanningContext().getIteration());
+	}
+
+	@Override
+	protected void afterFinishReplanningHook() {
+		log.info("re-routed " + this.reRouted.get() + " plans, skipped " + this.skipped.get() + " plans without changed links.");
+	}
+
+	/**
+	 * @return <code>true</code> if the plan was not routed by this module yet, or if one of its routes uses a link
+	 * whose travel time changed since. Must only be called between {@link #prepareReplanning(ReplanningContext)} and
+	 * {@link #finishReplanning()}.
+	 */
+	public boolean needsReRoute(Plan plan) {
+		return needsReRoute(plan, getReplanningContext().getIteration());
+	}
+
+	void setRoutingIteration(Plan plan, Integer iteration) {
+		if (iteration == null) {
+			this.routingIterations.remove(plan);
+		} else {
+			this.routingIterations.put(plan, iteration);
+		}
+	}
+
+	boolean needsReRoute(Plan plan, int iteration) {
+		Integer routingIteration = this.routingIterations.get(plan);
+		if (routingIteration == null) {
+			return true;
+		}
+		if (routingIteration < this.tracker.getFirstIteration() || routingIteration > iteration) {
+			return true;
+		}
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe instanceof Leg leg) {
+				if (leg.getRoute() == null) {
+					return true;
+				}
+				if (leg.getRoute() instanceof NetworkRoute route && usesChangedLink(leg.getMode(), route, routingIteration)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean usesChangedLink(String mode, NetworkRoute route, int routingIteration) {
+		if (this.tracker.hasChangedSince(mode, route.getStartLinkId(), routingIteration)
+				|| this.tracker.hasChangedSince(mode, route.getEndLinkId(), routingIteration)) {
+			return true;
+		}
+		for (Id<Link> linkId : route.getLinkIds()) {
+			if (this.tracker.hasChangedSince(mode, linkId, routingIteration)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private final class IncrementalPlanRouter implements PlanAlgorithm {
+		private final PlanRouter router;
+		private final int iteration;
+
+		IncrementalPlanRouter(PlanRouter router, int iteration) {
+			this.router = router;
+			this.iteration = iteration;
+		}
+
+		@Override
+		public void run(Plan plan) {
+			if (needsReRoute(plan, this.iteration)) {
+				this.router.run(plan);
+				routingIterations.put(plan, this.iteration);
+				reRouted.incrementAndGet();
+			} else {
+				skipped.incrementAndGet();
+			}
+		}
+	}
+
+}
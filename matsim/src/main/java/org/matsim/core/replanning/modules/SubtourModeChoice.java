@@ -128,5 +128,11 @@ public class SubtourModeChoice extends AbstractMultithreadedModule {
 		return chooseRandomLegMode;
 	}
 
+	@Override
+	protected boolean isPlanAlgoInstanceReusable() {
+		// the algorithm only depends on the configuration
+		return true;
+	}
+
 
 }
@@ -43,6 +43,7 @@ import org.matsim.core.replanning.selectors.ExpBetaPlanSelector;
 import org.matsim.core.replanning.selectors.PathSizeLogitSelector;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
 import org.matsim.core.replanning.selectors.WorstPlanForRemovalSelector;
+import org.matsim.core.trafficmonitoring.TravelTimeChangeTracker;
 
 public class DefaultPlanStrategiesModule extends AbstractModule {
     private static final Logger log = LogManager.getLogger( DefaultPlanStrategiesModule.class );
@@ -107,6 +108,10 @@ public class DefaultPlanStrategiesModule extends AbstractModule {
         if (usedStrategyNames.contains(DefaultStrategy.ReRoute)) {
             addPlanStrategyBinding(DefaultStrategy.ReRoute).toProvider(ReRoute.class);
         }
+        if (usedStrategyNames.contains(DefaultStrategy.IncrementalReRoute)) {
+            bind(TravelTimeChangeTracker.class).asEagerSingleton();
+            addPlanStrategyBinding(DefaultStrategy.IncrementalReRoute).toProvider(IncrementalReRoute.class);
+        }
         if (usedStrategyNames.contains(DefaultStrategy.TimeAllocationMutator)) {
             addPlanStrategyBinding(DefaultStrategy.TimeAllocationMutator).toProvider(TimeAllocationMutator.class);
         }
@@ -149,6 +154,7 @@ public class DefaultPlanStrategiesModule extends AbstractModule {
 
     public interface DefaultStrategy {
         String ReRoute="ReRoute";
+        String IncrementalReRoute="IncrementalReRoute";
         String TimeAllocationMutator="TimeAllocationMutator";
         @Deprecated String ChangeLegMode="ChangeLegMode";
         String TimeAllocationMutator_ReRoute="TimeAllocationMutator_ReRoute" ;
@@ -0,0 +1,118 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalReRoute.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.strategies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.population.HasPlansAndId;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.replanning.PlanStrategy;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.replanning.selectors.PlanSelector;
+import org.matsim.core.replanning.selectors.RandomPlanSelector;
+import org.matsim.core.replanning.selectors.RandomUnscoredPlanSelector;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.trafficmonitoring.TravelTimeChangeTracker;
+import org.matsim.core.utils.timing.TimeInterpretation;
+import org.matsim.facilities.ActivityFacilities;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+
+/**
+ * Selects a random plan like {@link ReRoute}, but only copies and re-routes it if the
+ * {@link org.matsim.core.replanning.modules.IncrementalReRoute} module finds that it uses a changed link. Otherwise,
+ * the selected plan is kept as it is, so no identical copy is added to the choice set.
+ */
+public class IncrementalReRoute implements Provider<PlanStrategy> {
+
+	@Inject private GlobalConfigGroup globalConfigGroup;
+	@Inject private ActivityFacilities facilities;
+	@Inject private Provider<TripRouter> tripRouterProvider;
+	@Inject private TimeInterpretation timeInterpretation;
+	@Inject private TravelTimeChangeTracker tracker;
+
+	@Override
+	public PlanStrategy get() {
+		return new IncrementalReRouteStrategy(new org.matsim.core.replanning.modules.IncrementalReRoute(facilities, tripRouterProvider,
+				globalConfigGroup, timeInterpretation, tracker));
+	}
+
+	static final class IncrementalReRouteStrategy implements PlanStrategy {
+
+		private static final Logger log = LogManager.getLogger(IncrementalReRouteStrategy.class);
+
+		private final PlanSelector<Plan, Person> planSelector = new RandomPlanSelector<>();
+		private final org.matsim.core.replanning.modules.IncrementalReRoute module;
+		private ReplanningContext replanningContext;
+		private long kept = 0;
+
+		IncrementalReRouteStrategy(org.matsim.core.replanning.modules.IncrementalReRoute module) {
+			this.module = module;
+		}
+
+		@Override
+		public void run(HasPlansAndId<Plan, Person> person) {
+			// same selection as in GenericPlanStrategyImpl
+			Plan plan = new RandomUnscoredPlanSelector<Plan, Person>().selectPlan(person);
+			if (plan == null) {
+				plan = this.planSelector.selectPlan(person);
+			}
+			if (plan == null) {
+				log.error(this.planSelector + " returned no plan: not changing selected plan for person " + person);
+				return;
+			}
+			person.setSelectedPlan(plan);
+			if (!this.module.needsReRoute(plan)) {
+				this.kept++;
+				return;
+			}
+			Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+			if (copy.getId() != null) {
+				// plan inheritance is enabled
+				copy.setIterationCreated(this.replanningContext.getIteration());
+				copy.setPlanMutator(toString());
+			}
+			this.module.handlePlan(copy);
+		}
+
+		@Override
+		public void init(ReplanningContext replanningContext) {
+			this.replanningContext = replanningContext;
+			this.kept = 0;
+			this.module.prepareReplanning(replanningContext);
+		}
+
+		@Override
+		public void finish() {
+			this.module.finishReplanning();
+			log.info("kept " + this.kept + " selected plans without changed links, no copies were made.");
+		}
+
+		@Override
+		public String toString() {
+			return this.planSelector.getClass().getSimpleName() + "_" + this.module.getClass().getSimpleName();
+		}
+	}
+
+}
@@ -63,4 +63,10 @@ class TimeAllocationMutatorModule extends AbstractMultithreadedModule{
 						timeAllocationMutatorConfigGroup.getMutationRangeStep());
 		return pmta;
 	}
+
+	@Override
+	protected boolean isPlanAlgoInstanceReusable() {
+		// the algorithm only depends on the configuration
+		return true;
+	}
 }
@@ -22,10 +22,13 @@
 
 package org.matsim.core.router;
 
+import jakarta.inject.Singleton;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControllerConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.router.speedy.SpeedyALTFactory;
+import org.matsim.core.router.speedy.SpeedyCCHFactory;
+import org.matsim.core.router.speedy.SpeedyCHFactory;
 import org.matsim.core.router.util.*;
 
 public class LeastCostPathCalculatorModule extends AbstractModule {
@@ -43,6 +46,12 @@ public class LeastCostPathCalculatorModule extends AbstractModule {
             bind(LeastCostPathCalculatorFactory.class).to(AStarLandmarksFactory.class);
         } else if (config.controller().getRoutingAlgorithmType().equals(ControllerConfigGroup.RoutingAlgorithmType.SpeedyALT)) {
             bind(LeastCostPathCalculatorFactory.class).to(SpeedyALTFactory.class);
+        } else if (config.controller().getRoutingAlgorithmType().equals(ControllerConfigGroup.RoutingAlgorithmType.SpeedyCH)) {
+            // singleton, so that the contraction hierarchy is shared by all routers
+            bind(LeastCostPathCalculatorFactory.class).to(SpeedyCHFactory.class).in(Singleton.class);
+        } else if (config.controller().getRoutingAlgorithmType().equals(ControllerConfigGroup.RoutingAlgorithmType.SpeedyCCH)) {
+            // singleton, so that the customized metric is shared by all routers
+            bind(LeastCostPathCalculatorFactory.class).to(SpeedyCCHFactory.class).in(Singleton.class);
         }
     }
 
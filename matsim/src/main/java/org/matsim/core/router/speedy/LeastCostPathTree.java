@@ -36,6 +36,7 @@ public class LeastCostPathTree {
     private final int[] comingFromLink;
     private final SpeedyGraph.LinkIterator outLI;
     private final SpeedyGraph.LinkIterator inLI;
+    private final SpeedyGraph.LinkCursor links;
     private final NodeMinHeap pq;
 
     public LeastCostPathTree(SpeedyGraph graph, TravelTime tt, TravelDisutility td) {
@@ -49,6 +50,7 @@ public class LeastCostPathTree {
         this.pq = new NodeMinHeap(graph.nodeCount, this::getCost, this::setCost);
         this.outLI = graph.getOutLinkIterator();
         this.inLI = graph.getInLinkIterator();
+        this.links = graph.createLinkCursor();
     }
 
     public void calculate(int startNode, double startTime, Person person, Vehicle vehicle) {
@@ -79,7 +81,7 @@ public class LeastCostPathTree {
             this.outLI.reset(nodeIdx);
             while (this.outLI.next()) {
                 int linkIdx = this.outLI.getLinkIndex();
-                Link link = this.graph.getLink(linkIdx);
+                Link link = this.links.get(linkIdx);
                 int toNode = this.outLI.getToNodeIndex();
 
                 double travelTime = this.tt.getLinkTravelTime(link, currTime, person, vehicle);
@@ -148,7 +150,7 @@ public class LeastCostPathTree {
             this.inLI.reset(nodeIdx);
             while (this.inLI.next()) {
                 int linkIdx = this.inLI.getLinkIndex();
-                Link link = this.graph.getLink(linkIdx);
+                Link link = this.links.get(linkIdx);
                 int fromNode = this.inLI.getFromNodeIndex();
 
                 double travelTime = this.tt.getLinkTravelTime(link, currTime, person, vehicle);
@@ -283,6 +285,20 @@ public class LeastCostPathTree {
         }
     }
 
+    public static final class TravelCostStopCriterion implements StopCriterion {
+
+        private final double limit;
+
+        public TravelCostStopCriterion(double limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean stop(int nodeIndex, double arrivalTime, double travelCost, double distance, double departureTime) {
+            return travelCost > this.limit;
+        }
+    }
+
     // by not exposing internal indices to the outside we ensure that only uncolored nodes are returned. nkuehnel Feb'25
     public final class PathIterator implements Iterator<Node> {
 
@@ -0,0 +1,156 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Calculates many {@link LeastCostPathTree}s in parallel, e.g. for zone-to-zone skim matrices or accessibility calculations.
+ * <p>
+ * A tree is calculated for every combination of origin node and departure time. The calculations run on a
+ * {@link ForkJoinPool} owned by this class, every worker thread uses its own {@link LeastCostPathTree} instance which
+ * is re-used for all following calculations. Thus, the memory for the trees is only allocated once per thread, and
+ * not per origin.
+ * <p>
+ * The search for a tree can be stopped early, either when a maximum travel cost is exceeded, or when all target nodes
+ * have been reached. The values of all target nodes (and of all nodes with costs up to the maximum cost) are then
+ * still exact.
+ * <p>
+ * Call {@link #close()} to shut down the worker threads once the instance is no longer needed.
+ */
+public final class LeastCostPathTreeBatch implements AutoCloseable {
+
+	public enum Indicator {TRAVEL_TIME, TRAVEL_COST, DISTANCE}
+
+	/**
+	 * Receives the calculated trees. The tree is only valid during the call, and the consumer may be called
+	 * concurrently from multiple threads.
+	 */
+	public interface TreeConsumer {
+		void accept(int originIndex, int departureTimeIndex, LeastCostPathTree tree);
+	}
+
+	private final SpeedyGraph graph;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<LeastCostPathTree> trees;
+
+	public LeastCostPathTreeBatch(SpeedyGraph graph, TravelTime tt, TravelDisutility td, int numberOfThreads) {
+		this.graph = graph;
+		this.pool = new ForkJoinPool(Math.max(1, numberOfThreads));
+		this.trees = ThreadLocal.withInitial(() -> new LeastCostPathTree(graph, tt, td));
+	}
+
+	/**
+	 * Calculates a tree for every combination of origin node and departure time and passes it to the consumer.
+	 *
+	 * @param maxCost the search of a tree is stopped once all nodes with travel costs up to this value are known, use
+	 *                {@link Double#POSITIVE_INFINITY} for no limit.
+	 * @param targetNodes the search of a tree is stopped once all these nodes are reached, may be <code>null</code>
+	 *                    to calculate the complete tree.
+	 */
+	public void calculate(Node[] originNodes, double[] departureTimes, Person person, Vehicle vehicle, double maxCost, Node[] targetNodes, TreeConsumer consumer) {
+		boolean[] isTarget = null;
+		int targetCount = 0;
+		if (targetNodes != null) {
+			isTarget = new boolean[this.graph.nodeCount];
+			for (Node node : targetNodes) {
+				int nodeIndex = node.getId().index();
+				if (!isTarget[nodeIndex]) {
+					isTarget[nodeIndex] = true;
+					targetCount++;
+				}
+			}
+		}
+		final boolean[] targets = isTarget;
+		final int remainingTargets = targetCount;
+		int taskCount = originNodes.length * departureTimes.length;
+
+		this.pool.submit(() -> IntStream.range(0, taskCount).parallel().forEach(task -> {
+			int originIndex = task / departureTimes.length;
+			int timeIndex = task % departureTimes.length;
+			LeastCostPathTree tree = this.trees.get();
+			LeastCostPathTree.StopCriterion stopCriterion = targets == null
+					? new LeastCostPathTree.TravelCostStopCriterion(maxCost)
+					: new TargetNodesStopCriterion(targets, remainingTargets, maxCost);
+			tree.calculate(originNodes[originIndex].getId().index(), departureTimes[timeIndex], person, vehicle, stopCriterion);
+			consumer.accept(originIndex, timeIndex, tree);
+		})).join();
+	}
+
+	/**
+	 * Calculates a dense matrix with the requested indicator from every origin node to every destination node, for
+	 * every departure time. The values are stored in row-major order, i.e. the value for origin <code>o</code>,
+	 * destination <code>d</code> and departure time <code>t</code> is at index
+	 * <code>(t * originNodes.length + o) * destinationNodes.length + d</code>.
+	 * <p>
+	 * Destinations that cannot be reached, or only with costs higher than <code>maxCost</code>, get the value
+	 * {@link Float#POSITIVE_INFINITY}.
+	 */
+	public float[] calculateMatrix(Node[] originNodes, Node[] destinationNodes, double[] departureTimes, Person person, Vehicle vehicle, double maxCost, Indicator indicator) {
+		int[] destinations = new int[destinationNodes.length];
+		for (int i = 0; i < destinations.length; i++) {
+			destinations[i] = destinationNodes[i].getId().index();
+		}
+		float[] matrix = new float[departureTimes.length * originNodes.length * destinations.length];
+		calculate(originNodes, departureTimes, person, vehicle, maxCost, destinationNodes, (originIndex, timeIndex, tree) -> {
+			int offset = (timeIndex * originNodes.length + originIndex) * destinations.length;
+			for (int i = 0; i < destinations.length; i++) {
+				int node = destinations[i];
+				double cost = tree.getCost(node);
+				float value = Float.POSITIVE_INFINITY;
+				if (cost <= maxCost) {
+					value = switch (indicator) {
+						case TRAVEL_TIME -> {
+							OptionalTime time = tree.getTime(node);
+							yield time.isDefined() ? (float) Math.abs(time.seconds() - departureTimes[timeIndex]) : Float.POSITIVE_INFINITY;
+						}
+						case TRAVEL_COST -> (float) cost;
+						case DISTANCE -> (float) tree.getDistance(node);
+					};
+				}
+				matrix[offset + i] = value;
+			}
+		});
+		return matrix;
+	}
+
+	@Override
+	public void close() {
+		this.pool.shutdown();
+	}
+
+	/**
+	 * Stops the search once all target nodes were reached, or the maximum cost is exceeded. Not thread-safe, a new
+	 * instance is required for every search.
+	 */
+	private static final class TargetNodesStopCriterion implements LeastCostPathTree.StopCriterion {
+
+		private final boolean[] isTarget;
+		private final double maxCost;
+		private int remaining;
+
+		TargetNodesStopCriterion(boolean[] isTarget, int targetCount, double maxCost) {
+			this.isTarget = isTarget;
+			this.remaining = targetCount;
+			this.maxCost = maxCost;
+		}
+
+		@Override
+		public boolean stop(int nodeIndex, double arrivalTime, double travelCost, double distance, double departureTime) {
+			if (travelCost > this.maxCost || this.remaining == 0) {
+				return true;
+			}
+			// colored copies of nodes (turn restrictions) have different indices and are not counted
+			if (nodeIndex < this.isTarget.length && this.isTarget[nodeIndex]) {
+				this.remaining--;
+			}
+			return false;
+		}
+	}
+}
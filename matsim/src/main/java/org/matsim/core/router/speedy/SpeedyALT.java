@@ -47,6 +47,7 @@ public class SpeedyALT implements LeastCostPathCalculator {
 	private final int[] comingFrom;
 	private final int[] usedLink;
 	private final SpeedyGraph.LinkIterator outLI;
+	private final SpeedyGraph.LinkCursor links;
 	private final DAryMinHeap pq;
 
 	public SpeedyALT(SpeedyALTData astarData, TravelTime tt, TravelDisutility td) {
@@ -60,6 +61,7 @@ public class SpeedyALT implements LeastCostPathCalculator {
 		this.usedLink = new int[this.graph.nodeCount];
 		this.pq = new DAryMinHeap(this.graph.nodeCount, 6);
 		this.outLI = this.graph.getOutLinkIterator();
+		this.links = this.graph.createLinkCursor();
 		Arrays.fill(this.iterationIds, this.currentIteration);
 	}
 
@@ -132,7 +134,7 @@ public class SpeedyALT implements LeastCostPathCalculator {
 			this.outLI.reset(nodeIdx);
 			while (this.outLI.next()) {
 				int linkIdx = this.outLI.getLinkIndex();
-				Link link = this.graph.getLink(linkIdx);
+				Link link = this.links.get(linkIdx);
 				int toNode = this.outLI.getToNodeIndex();
 
 				double travelTime = this.tt.getLinkTravelTime(link, currTime, person, vehicle);
@@ -172,8 +172,9 @@ class SpeedyALTData {
 	private double calcMinTravelCostPerLength() {
 		LOG.info("calculate min travelcost...");
 		double minCost = Double.POSITIVE_INFINITY;
+		SpeedyGraph.LinkCursor links = this.graph.createLinkCursor();
 		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
-			Link link = this.graph.getLink(linkIdx);
+			Link link = links.get(linkIdx);
 			if (link != null) {
 				double cost = this.travelCosts.getLinkMinimumTravelDisutility(link) / link.getLength();
 				if (cost < minCost) {
@@ -235,6 +236,7 @@ class SpeedyALTData {
 		double[] data = new double[this.graph.nodeCount];
 		Arrays.fill(data, Double.POSITIVE_INFINITY);
 		LinkIterator outLI = this.graph.getOutLinkIterator();
+		SpeedyGraph.LinkCursor links = this.graph.createLinkCursor();
 
 		data[node] = 0;
 
@@ -249,7 +251,7 @@ class SpeedyALTData {
 			while (outLI.next()) {
 				int toNode = outLI.getToNodeIndex();
 
-				double newCost = currCost + this.travelCosts.getLinkMinimumTravelDisutility(this.graph.getLink(outLI.getLinkIndex()));
+				double newCost = currCost + this.travelCosts.getLinkMinimumTravelDisutility(links.get(outLI.getLinkIndex()));
 
 				double oldCost = data[toNode];
 				if (Double.isFinite(oldCost)) {
@@ -274,6 +276,7 @@ class SpeedyALTData {
 		double[] data = new double[this.graph.nodeCount];
 		Arrays.fill(data, Double.POSITIVE_INFINITY);
 		LinkIterator inLI = this.graph.getInLinkIterator();
+		SpeedyGraph.LinkCursor links = this.graph.createLinkCursor();
 
 		data[node] = 0;
 
@@ -288,7 +291,7 @@ class SpeedyALTData {
 			while (inLI.next()) {
 				int fromNode = inLI.getFromNodeIndex();
 
-				double newCost = currCost + this.travelCosts.getLinkMinimumTravelDisutility(this.graph.getLink(inLI.getLinkIndex()));
+				double newCost = currCost + this.travelCosts.getLinkMinimumTravelDisutility(links.get(inLI.getLinkIndex()));
 
 				double oldCost = data[fromNode];
 				if (Double.isFinite(oldCost)) {
@@ -0,0 +1,243 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Time-dependent least cost path queries using a customizable contraction hierarchy as A* potentials, see
+ * {@link SpeedyCCHData} and {@link SpeedyCCHMetric}.
+ *
+ * Based on "A Fast and Tight Heuristic for A* in Road Networks" by Ben Strasser and Tim Zeitz, 2021 (CH-Potentials):
+ * the hierarchy is customized with the minimal link costs, and the distance from any node to the end node in this
+ * metric is used as the A* estimate. These distances are computed lazily: a backward search from the end node over its ancestors in the elimination tree yields the distances of
+ * the ancestors, and the distance of every other node follows from the distances of its upper neighbors, which are
+ * all ancestors of it.
+ *
+ * The A* search itself runs on the original graph with the actual travel times and costs at the time a link is
+ * entered, so the found paths are the same as with {@link SpeedyDijkstra}, as long as the travel disutility's
+ * minimal link costs are lower bounds of the actual link costs (the same requirement as for {@link SpeedyALT}).
+ *
+ * This implementation is not thread-safe. In the case of multi-threading, every thread should use
+ * a separate instance. (But the used {@link SpeedyCCHMetric} is thread-safe and can be shared by multiple
+ * instances).
+ */
+public class SpeedyCCH implements LeastCostPathCalculator {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCCH.class);
+
+	private final SpeedyGraph graph;
+	private final SpeedyCCHData cch;
+	private final SpeedyCCHMetric metric;
+	private final TravelTime tt;
+	private final TravelDisutility td;
+	private final double[] bwCost; // per rank
+	private final double[] potential; // per rank
+	private final int[] potentialIds; // per rank
+	private final int[] potentialStack;
+	private final double[] cost; // per node index
+	private final double[] time; // per node index
+	private int currentIteration = Integer.MIN_VALUE;
+	private final int[] iterationIds;
+	private final int[] comingFrom;
+	private final int[] usedLink;
+	private final SpeedyGraph.LinkIterator outLI;
+	private final SpeedyGraph.LinkCursor links;
+	private final DAryMinHeap pq;
+
+	public SpeedyCCH(SpeedyCCHMetric metric, TravelTime tt, TravelDisutility td) {
+		this.metric = metric;
+		this.cch = metric.cch;
+		this.graph = this.cch.graph;
+		this.tt = tt;
+		this.td = td;
+		this.bwCost = new double[this.cch.nodeCount];
+		this.potential = new double[this.cch.nodeCount];
+		this.potentialIds = new int[this.cch.nodeCount];
+		this.potentialStack = new int[this.cch.nodeCount];
+		this.cost = new double[this.graph.nodeCount];
+		this.time = new double[this.graph.nodeCount];
+		this.iterationIds = new int[this.graph.nodeCount];
+		this.comingFrom = new int[this.graph.nodeCount];
+		this.usedLink = new int[this.graph.nodeCount];
+		this.pq = new DAryMinHeap(this.graph.nodeCount, 6);
+		this.outLI = this.graph.getOutLinkIterator();
+		this.links = this.graph.createLinkCursor();
+		Arrays.fill(this.bwCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.iterationIds, this.currentIteration);
+		Arrays.fill(this.potentialIds, this.currentIteration);
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		this.currentIteration++;
+		if (this.currentIteration == Integer.MAX_VALUE) {
+			// reset iteration as we overflow
+			Arrays.fill(this.iterationIds, this.currentIteration);
+			Arrays.fill(this.potentialIds, this.currentIteration);
+			this.currentIteration = Integer.MIN_VALUE;
+		}
+		int startNodeIndex = startNode.getId().index();
+		int endNodeIndex = endNode.getId().index();
+		int end = this.cch.getRank(endNodeIndex);
+
+		// the minimal costs from the end node's ancestors to the end node
+		this.bwCost[end] = 0;
+		for (int node = end; node >= 0; node = this.cch.getParent(node)) {
+			double cost = this.bwCost[node];
+			if (cost == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			for (int edge = this.cch.getUpStart(node), edgeEnd = this.cch.getUpEnd(node); edge < edgeEnd; edge++) {
+				int fromNode = this.cch.getUpperNode(edge);
+				double newCost = cost + this.metric.getDownWeight(edge);
+				if (newCost < this.bwCost[fromNode]) {
+					this.bwCost[fromNode] = newCost;
+				}
+			}
+		}
+
+		this.pq.clear();
+		double estimation = getPotential(startNodeIndex);
+		if (estimation < Double.POSITIVE_INFINITY) {
+			this.comingFrom[startNodeIndex] = -1;
+			setData(startNodeIndex, 0, startTime);
+			this.pq.insert(startNodeIndex, estimation);
+		}
+		boolean foundEndNode = false;
+
+		while (!this.pq.isEmpty()) {
+			final int nodeIdx = this.pq.poll();
+			if (nodeIdx == endNodeIndex) {
+				foundEndNode = true;
+				break;
+			}
+
+			double currTime = this.time[nodeIdx];
+			double currCost = this.cost[nodeIdx];
+
+			this.outLI.reset(nodeIdx);
+			while (this.outLI.next()) {
+				int linkIdx = this.outLI.getLinkIndex();
+				int toNode = this.outLI.getToNodeIndex();
+				boolean visited = this.iterationIds[toNode] == this.currentIteration;
+				if (!visited) {
+					estimation = getPotential(toNode);
+					if (estimation == Double.POSITIVE_INFINITY) {
+						continue; // the end node cannot be reached from there
+					}
+				}
+				Link link = this.links.get(linkIdx);
+
+				double travelTime = this.tt.getLinkTravelTime(link, currTime, person, vehicle);
+				double newTime = currTime + travelTime;
+				double travelCost = this.td.getLinkTravelDisutility(link, currTime, person, vehicle);
+				double newCost = currCost + travelCost;
+
+				if (visited) {
+					// this node was already visited in this route-query
+					if (newCost < this.cost[toNode]) {
+						this.pq.decreaseKey(toNode, newCost + getPotential(toNode));
+						setData(toNode, newCost, newTime);
+						this.comingFrom[toNode] = nodeIdx;
+						this.usedLink[toNode] = linkIdx;
+					}
+				} else {
+					setData(toNode, newCost, newTime);
+					this.pq.insert(toNode, newCost + estimation);
+					this.comingFrom[toNode] = nodeIdx;
+					this.usedLink[toNode] = linkIdx;
+				}
+			}
+		}
+
+		// reset the backward search space for the next query
+		for (int node = end; node >= 0; node = this.cch.getParent(node)) {
+			this.bwCost[node] = Double.POSITIVE_INFINITY;
+		}
+
+		if (foundEndNode) {
+			return constructPath(endNodeIndex, startTime);
+		}
+		LOG.warn("No route was found from node " + startNode.getId() + " to node " + endNode.getId() + ". Some possible reasons:");
+		LOG.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+		LOG.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+		LOG.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+		LOG.warn("This will now return null, but it may fail later with a NullPointerException.");
+		return null;
+	}
+
+	private void setData(int nodeIndex, double cost, double time) {
+		this.cost[nodeIndex] = cost;
+		this.time[nodeIndex] = time;
+		this.iterationIds[nodeIndex] = this.currentIteration;
+	}
+
+	/**
+	 * Returns the minimal cost from the given node to the end node of the current query. The potential of a node
+	 * depends on the potentials of its ancestors in the elimination tree, so the ancestors without a potential
+	 * are collected first and then calculated from the top down.
+	 */
+	private double getPotential(int nodeIndex) {
+		int rank = this.cch.getRank(nodeIndex);
+		if (this.potentialIds[rank] == this.currentIteration) {
+			return this.potential[rank];
+		}
+		int stackSize = 0;
+		for (int node = rank; node >= 0 && this.potentialIds[node] != this.currentIteration; node = this.cch.getParent(node)) {
+			this.potentialStack[stackSize++] = node;
+		}
+		while (stackSize > 0) {
+			int node = this.potentialStack[--stackSize];
+			double pot = this.bwCost[node];
+			for (int edge = this.cch.getUpStart(node), edgeEnd = this.cch.getUpEnd(node); edge < edgeEnd; edge++) {
+				double viaUpper = this.metric.getUpWeight(edge) + this.potential[this.cch.getUpperNode(edge)];
+				if (viaUpper < pot) {
+					pot = viaUpper;
+				}
+			}
+			this.potential[node] = pot;
+			this.potentialIds[node] = this.currentIteration;
+		}
+		return this.potential[rank];
+	}
+
+	private Path constructPath(int endNodeIndex, double startTime) {
+		double travelCost = this.cost[endNodeIndex];
+		double travelTime = this.time[endNodeIndex] - startTime;
+
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+
+		int nodeIndex = endNodeIndex;
+		nodes.add(this.graph.getNode(nodeIndex));
+
+		int linkIndex = this.usedLink[nodeIndex];
+		nodeIndex = this.comingFrom[nodeIndex];
+
+		while (nodeIndex >= 0) {
+			nodes.add(this.graph.getNode(nodeIndex));
+			links.add(this.graph.getLink(linkIndex));
+
+			linkIndex = this.usedLink[nodeIndex];
+			nodeIndex = this.comingFrom[nodeIndex];
+		}
+
+		Collections.reverse(nodes);
+		Collections.reverse(links);
+
+		return new Path(nodes, links, travelTime, travelCost);
+	}
+
+}
@@ -0,0 +1,476 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Node;
+
+import java.util.Arrays;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy (CCH), see {@link SpeedyCCH}.
+ *
+ * Based on "Customizable Contraction Hierarchies" by Julian Dibbelt, Ben Strasser and Dorothea Wagner, 2016.
+ *
+ * The node order is calculated by a geometric nested dissection: the nodes are recursively split at the median
+ * of their coordinates, and the nodes along the cut are ordered after the nodes of both halves. Contracting the
+ * nodes in this order without any witness searches results in an undirected graph in which every edge connects
+ * a lower-ranked with a higher-ranked node. Every edge can be used in both directions, each direction gets its own
+ * weight when the hierarchy is customized with a metric ({@link SpeedyCCHMetric}).
+ *
+ * Internally, nodes are identified by their rank. For each node, the edges to higher-ranked nodes are stored sorted
+ * by rank, and the lowest-ranked of these neighbors is the node's parent in the elimination tree. For each edge,
+ * the lower triangles (i.e. pairs of edges to a common, lower-ranked node) and the original links are stored as
+ * well, which is all that is needed to customize the hierarchy. The nodes are additionally grouped by their height
+ * in the elimination tree: the triangles of a node's edges only use edges of its descendants, so all nodes of the
+ * same height can be customized in parallel.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+class SpeedyCCHData {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCCHData.class);
+
+	/** subsets of the graph with at most this number of nodes are not split anymore */
+	private static final int DISSECTION_MIN_SIZE = 8;
+
+	static final int UP = 0;
+	static final int DOWN = 1;
+
+	final SpeedyGraph graph;
+	final int nodeCount;
+	final int edgeCount;
+	private final int[] rankOfNode;
+	private final int[] nodeOfRank;
+	private final int[] parent;
+	private final int[] upOffsets;
+	private final int[] upNodes;
+	private final int[] edgeLower;
+	private final int[] linkOffsets; // per edge and direction: index into links
+	private final int[] links;
+	private final int[] triangleOffsets; // per edge: index into triangles
+	private final int[] triangles; // 2 entries per triangle: edge from the lower node to the edge's lower and upper node
+	private final int[] levelOffsets; // per height in the elimination tree: index into levelRanks
+	private final int[] levelRanks;
+
+	private SpeedyCCHData(SpeedyGraph graph, int[] nodeOfRank) {
+		this.graph = graph;
+		this.nodeCount = graph.nodeCount;
+		this.nodeOfRank = nodeOfRank;
+		this.rankOfNode = new int[this.nodeCount];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			this.rankOfNode[nodeOfRank[rank]] = rank;
+		}
+
+		// contract the nodes in their order, connecting all higher-ranked neighbors of a node with each other
+		int[][] neighbors = new int[this.nodeCount][];
+		int[] neighborCount = new int[this.nodeCount];
+		SpeedyGraph.LinkIterator outLI = graph.getOutLinkIterator();
+		for (int nodeIdx = 0; nodeIdx < this.nodeCount; nodeIdx++) {
+			outLI.reset(nodeIdx);
+			while (outLI.next()) {
+				int a = this.rankOfNode[nodeIdx];
+				int b = this.rankOfNode[outLI.getToNodeIndex()];
+				if (a != b) {
+					add(neighbors, neighborCount, Math.min(a, b), Math.max(a, b));
+				}
+			}
+		}
+		this.parent = new int[this.nodeCount];
+		this.upOffsets = new int[this.nodeCount + 1];
+		int[][] upNeighbors = new int[this.nodeCount][];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			int[] n = neighbors[rank] == null ? new int[0] : neighbors[rank];
+			int[] sorted = Arrays.stream(n, 0, neighborCount[rank]).sorted().distinct().toArray();
+			neighbors[rank] = null;
+			upNeighbors[rank] = sorted;
+			this.upOffsets[rank + 1] = this.upOffsets[rank] + sorted.length;
+			if (sorted.length == 0) {
+				this.parent[rank] = -1;
+			} else {
+				int p = sorted[0];
+				this.parent[rank] = p;
+				for (int i = 1; i < sorted.length; i++) {
+					add(neighbors, neighborCount, p, sorted[i]);
+				}
+			}
+		}
+		this.edgeCount = this.upOffsets[this.nodeCount];
+		this.upNodes = new int[this.edgeCount];
+		this.edgeLower = new int[this.edgeCount];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			System.arraycopy(upNeighbors[rank], 0, this.upNodes, this.upOffsets[rank], upNeighbors[rank].length);
+			Arrays.fill(this.edgeLower, this.upOffsets[rank], this.upOffsets[rank + 1], rank);
+		}
+
+		// original links per edge and direction
+		this.linkOffsets = new int[this.edgeCount * 2 + 1];
+		int[] linkSlots = new int[graph.linkCount];
+		Arrays.fill(linkSlots, -1);
+		for (int nodeIdx = 0; nodeIdx < this.nodeCount; nodeIdx++) {
+			outLI.reset(nodeIdx);
+			while (outLI.next()) {
+				int slot = getLinkSlot(this.rankOfNode[nodeIdx], this.rankOfNode[outLI.getToNodeIndex()]);
+				if (slot >= 0) {
+					linkSlots[outLI.getLinkIndex()] = slot;
+					this.linkOffsets[slot + 1]++;
+				}
+			}
+		}
+		for (int i = 0; i < this.edgeCount * 2; i++) {
+			this.linkOffsets[i + 1] += this.linkOffsets[i];
+		}
+		this.links = new int[this.linkOffsets[this.edgeCount * 2]];
+		int[] fill = Arrays.copyOf(this.linkOffsets, this.edgeCount * 2);
+		for (int linkIdx = 0; linkIdx < linkSlots.length; linkIdx++) {
+			int slot = linkSlots[linkIdx];
+			if (slot >= 0) {
+				this.links[fill[slot]++] = linkIdx;
+			}
+		}
+
+		// lower triangles per edge
+		this.triangleOffsets = new int[this.edgeCount + 1];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			for (int i = this.upOffsets[rank]; i < this.upOffsets[rank + 1]; i++) {
+				for (int j = i + 1; j < this.upOffsets[rank + 1]; j++) {
+					this.triangleOffsets[findEdge(this.upNodes[i], this.upNodes[j]) + 1]++;
+				}
+			}
+		}
+		for (int i = 0; i < this.edgeCount; i++) {
+			this.triangleOffsets[i + 1] += this.triangleOffsets[i];
+		}
+		this.triangles = new int[this.triangleOffsets[this.edgeCount] * 2];
+		fill = Arrays.copyOf(this.triangleOffsets, this.edgeCount);
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			for (int i = this.upOffsets[rank]; i < this.upOffsets[rank + 1]; i++) {
+				for (int j = i + 1; j < this.upOffsets[rank + 1]; j++) {
+					int pos = fill[findEdge(this.upNodes[i], this.upNodes[j])]++ * 2;
+					this.triangles[pos] = i;
+					this.triangles[pos + 1] = j;
+				}
+			}
+		}
+
+		// group the nodes by their height in the elimination tree, parents always have a higher rank than their children
+		int[] height = new int[this.nodeCount];
+		int levelCount = 0;
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			int p = this.parent[rank];
+			if (p >= 0 && height[p] <= height[rank]) {
+				height[p] = height[rank] + 1;
+			}
+			levelCount = Math.max(levelCount, height[rank] + 1);
+		}
+		this.levelOffsets = new int[levelCount + 1];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			this.levelOffsets[height[rank] + 1]++;
+		}
+		for (int i = 0; i < levelCount; i++) {
+			this.levelOffsets[i + 1] += this.levelOffsets[i];
+		}
+		this.levelRanks = new int[this.nodeCount];
+		fill = Arrays.copyOf(this.levelOffsets, levelCount);
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			this.levelRanks[fill[height[rank]]++] = rank;
+		}
+		LOG.info("customizable contraction hierarchy has " + this.edgeCount + " edges, " + this.triangleOffsets[this.edgeCount] + " triangles and an elimination tree of height " + levelCount + ".");
+	}
+
+	/**
+	 * Calculates the node order by geometric nested dissection and prepares the hierarchy.
+	 */
+	static SpeedyCCHData build(SpeedyGraph graph) {
+		LOG.info("calculate node order by nested dissection...");
+		int[] nodeOfRank = new NestedDissection(graph).order();
+		LOG.info("build customizable contraction hierarchy...");
+		return new SpeedyCCHData(graph, nodeOfRank);
+	}
+
+	private static void add(int[][] lists, int[] sizes, int index, int value) {
+		int[] list = lists[index];
+		int size = sizes[index];
+		if (list == null) {
+			list = new int[4];
+			lists[index] = list;
+		} else if (size == list.length) {
+			list = Arrays.copyOf(list, size * 2);
+			lists[index] = list;
+		}
+		list[size] = value;
+		sizes[index] = size + 1;
+	}
+
+	private int getLinkSlot(int fromRank, int toRank) {
+		if (fromRank == toRank) {
+			return -1;
+		}
+		if (fromRank < toRank) {
+			return findEdge(fromRank, toRank) * 2 + UP;
+		}
+		return findEdge(toRank, fromRank) * 2 + DOWN;
+	}
+
+	/**
+	 * Returns the edge between the two nodes given by their rank, <code>lower < upper</code>.
+	 */
+	int findEdge(int lower, int upper) {
+		int pos = Arrays.binarySearch(this.upNodes, this.upOffsets[lower], this.upOffsets[lower + 1], upper);
+		if (pos < 0) {
+			throw new IllegalStateException("no edge between " + lower + " and " + upper);
+		}
+		return pos;
+	}
+
+	int getRank(int nodeIndex) {
+		return this.rankOfNode[nodeIndex];
+	}
+
+	int getNodeIndex(int rank) {
+		return this.nodeOfRank[rank];
+	}
+
+	int getParent(int rank) {
+		return this.parent[rank];
+	}
+
+	int getUpStart(int rank) {
+		return this.upOffsets[rank];
+	}
+
+	int getUpEnd(int rank) {
+		return this.upOffsets[rank + 1];
+	}
+
+	int getUpperNode(int edge) {
+		return this.upNodes[edge];
+	}
+
+	int getLowerNode(int edge) {
+		return this.edgeLower[edge];
+	}
+
+	int getLinksStart(int edge, int direction) {
+		return this.linkOffsets[edge * 2 + direction];
+	}
+
+	int getLinksEnd(int edge, int direction) {
+		return this.linkOffsets[edge * 2 + direction + 1];
+	}
+
+	int getLink(int pos) {
+		return this.links[pos];
+	}
+
+	int getTrianglesStart(int edge) {
+		return this.triangleOffsets[edge];
+	}
+
+	int getTrianglesEnd(int edge) {
+		return this.triangleOffsets[edge + 1];
+	}
+
+	/** the edge from the triangle's lowest node to the edge's lower node */
+	int getTriangleLowerEdge(int triangle) {
+		return this.triangles[triangle * 2];
+	}
+
+	/** the edge from the triangle's lowest node to the edge's upper node */
+	int getTriangleUpperEdge(int triangle) {
+		return this.triangles[triangle * 2 + 1];
+	}
+
+	int getLevelCount() {
+		return this.levelOffsets.length - 1;
+	}
+
+	int getLevelStart(int level) {
+		return this.levelOffsets[level];
+	}
+
+	int getLevelEnd(int level) {
+		return this.levelOffsets[level + 1];
+	}
+
+	/** the rank of the node at the given position of {@link #getLevelStart(int)} and {@link #getLevelEnd(int)} */
+	int getLevelRank(int pos) {
+		return this.levelRanks[pos];
+	}
+
+	/**
+	 * Orders the nodes by recursively splitting them at the median of their coordinates. The nodes of one half that
+	 * are adjacent to the other half form the separator, which is ordered after both halves.
+	 */
+	private static class NestedDissection {
+
+		private final SpeedyGraph graph;
+		private final SpeedyGraph.LinkIterator outLI;
+		private final SpeedyGraph.LinkIterator inLI;
+		private final double[] x;
+		private final double[] y;
+		private final int[] side;
+		private final int[] order;
+		private int orderSize = 0;
+		private int nextSide = 0;
+
+		NestedDissection(SpeedyGraph graph) {
+			this.graph = graph;
+			this.outLI = graph.getOutLinkIterator();
+			this.inLI = graph.getInLinkIterator();
+			this.x = new double[graph.nodeCount];
+			this.y = new double[graph.nodeCount];
+			this.side = new int[graph.nodeCount];
+			this.order = new int[graph.nodeCount];
+		}
+
+		int[] order() {
+			int[] nodes = new int[this.graph.nodeCount];
+			int count = 0;
+			for (int nodeIdx = 0; nodeIdx < this.graph.nodeCount; nodeIdx++) {
+				Node node = this.graph.getNode(nodeIdx);
+				if (node == null) {
+					this.order[this.orderSize++] = nodeIdx; // unused index, order it first
+				} else {
+					Coord coord = node.getCoord();
+					this.x[nodeIdx] = coord.getX();
+					this.y[nodeIdx] = coord.getY();
+					nodes[count++] = nodeIdx;
+				}
+			}
+			dissect(nodes, 0, count);
+			return this.order;
+		}
+
+		private void dissect(int[] nodes, int from, int to) {
+			int size = to - from;
+			if (size <= DISSECTION_MIN_SIZE) {
+				for (int i = from; i < to; i++) {
+					this.order[this.orderSize++] = nodes[i];
+				}
+				return;
+			}
+			double minX = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				int n = nodes[i];
+				minX = Math.min(minX, this.x[n]);
+				maxX = Math.max(maxX, this.x[n]);
+				minY = Math.min(minY, this.y[n]);
+				maxY = Math.max(maxY, this.y[n]);
+			}
+			double[] coords = (maxX - minX) >= (maxY - minY) ? this.x : this.y;
+			int mid = from + size / 2;
+			select(nodes, from, to - 1, mid, coords);
+
+			int sideA = ++this.nextSide;
+			int sideB = ++this.nextSide;
+			for (int i = from; i < mid; i++) {
+				this.side[nodes[i]] = sideA;
+			}
+			for (int i = mid; i < to; i++) {
+				this.side[nodes[i]] = sideB;
+			}
+
+			// find the boundary nodes of both halves and use the smaller set as separator
+			int boundaryA = 0;
+			for (int i = from; i < mid; i++) {
+				if (isAdjacentTo(nodes[i], sideB)) {
+					boundaryA++;
+				}
+			}
+			int boundaryB = 0;
+			for (int i = mid; i < to; i++) {
+				if (isAdjacentTo(nodes[i], sideA)) {
+					boundaryB++;
+				}
+			}
+			int separatorSide = boundaryA <= boundaryB ? sideA : sideB;
+			int otherSide = separatorSide == sideA ? sideB : sideA;
+
+			// move the separator nodes to the end of the range
+			int[] separator = new int[Math.min(boundaryA, boundaryB)];
+			int separatorSize = 0;
+			int write = from;
+			for (int i = from; i < to; i++) {
+				int n = nodes[i];
+				if (this.side[n] == separatorSide && isAdjacentTo(n, otherSide)) {
+					separator[separatorSize++] = n;
+				} else {
+					nodes[write++] = n;
+				}
+			}
+			System.arraycopy(separator, 0, nodes, write, separatorSize);
+
+			// both halves are still contiguous, as the order of the remaining nodes did not change
+			int splitAt = from;
+			while (splitAt < write && this.side[nodes[splitAt]] == sideA) {
+				splitAt++;
+			}
+			if (splitAt == from || splitAt == write) {
+				// no real split possible (e.g. identical coordinates), avoid endless recursion
+				if (separatorSize == 0) {
+					for (int i = from; i < to; i++) {
+						this.order[this.orderSize++] = nodes[i];
+					}
+					return;
+				}
+				dissect(nodes, from, write);
+			} else {
+				dissect(nodes, from, splitAt);
+				dissect(nodes, splitAt, write);
+			}
+			for (int i = write; i < to; i++) {
+				this.order[this.orderSize++] = nodes[i];
+			}
+		}
+
+		private boolean isAdjacentTo(int nodeIdx, int otherSide) {
+			this.outLI.reset(nodeIdx);
+			while (this.outLI.next()) {
+				if (this.side[this.outLI.getToNodeIndex()] == otherSide) {
+					return true;
+				}
+			}
+			this.inLI.reset(nodeIdx);
+			while (this.inLI.next()) {
+				if (this.side[this.inLI.getFromNodeIndex()] == otherSide) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Rearranges nodes[left..right] such that the node at position k is the one that would be there if the
+		 * range was sorted by the given coordinates, with all smaller nodes before and all larger nodes after it.
+		 */
+		private static void select(int[] nodes, int left, int right, int k, double[] coords) {
+			while (left < right) {
+				double pivot = coords[nodes[(left + right) >>> 1]];
+				int i = left;
+				int j = right;
+				while (i <= j) {
+					while (coords[nodes[i]] < pivot) i++;
+					while (coords[nodes[j]] > pivot) j--;
+					if (i <= j) {
+						int tmp = nodes[i];
+						nodes[i] = nodes[j];
+						nodes[j] = tmp;
+						i++;
+						j--;
+					}
+				}
+				if (k <= j) {
+					right = j;
+				} else if (k >= i) {
+					left = i;
+				} else {
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import jakarta.inject.Inject;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link SpeedyCCH} instances based on a customizable contraction hierarchy.
+ *
+ * The metric-independent preprocessing is done only once per network. The customization with the minimal link
+ * costs ({@link TravelDisutility#getLinkMinimumTravelDisutility(Link)}) is kept per travel disutility instance, so
+ * routers for different travel disutilities do not replace each other's metric. The minimal link costs are sampled
+ * once per travel disutility instance and iteration, or only once per instance if no {@link IterationCounter} is
+ * given, and the hierarchy is only customized again if they differ from the costs of an existing metric. As the
+ * minimal costs usually only depend on the network, this is rarely the case.
+ *
+ * The actual, time-dependent link costs are evaluated during the search with the person and vehicle of the query,
+ * see {@link SpeedyCCH}. If the network has turn restrictions or a minimal link cost is negative, the factory falls
+ * back to {@link SpeedyALTFactory}.
+ */
+public class SpeedyCCHFactory implements LeastCostPathCalculatorFactory {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCCHFactory.class);
+
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
+	private final Map<SpeedyGraph, SpeedyCCHData> cchData = new ConcurrentHashMap<>();
+	private final Map<CostsKey, CostsEntry> costs = new ConcurrentHashMap<>();
+	private final SpeedyALTFactory fallbackFactory = new SpeedyALTFactory();
+	private final int numberOfThreads;
+	private final IterationCounter iterationCounter;
+
+	public SpeedyCCHFactory() {
+		this(Runtime.getRuntime().availableProcessors(), null);
+	}
+
+	@Inject
+	public SpeedyCCHFactory(IterationCounter iterationCounter) {
+		this(Runtime.getRuntime().availableProcessors(), iterationCounter);
+	}
+
+	public SpeedyCCHFactory(int numberOfThreads) {
+		this(numberOfThreads, null);
+	}
+
+	/**
+	 * @param numberOfThreads the number of threads used for customization
+	 * @param iterationCounter used to sample the minimal link costs again in each iteration, may be <code>null</code> to sample them only once per travel disutility instance
+	 */
+	public SpeedyCCHFactory(int numberOfThreads, IterationCounter iterationCounter) {
+		this.numberOfThreads = numberOfThreads;
+		this.iterationCounter = iterationCounter;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
+		SpeedyGraph graph = this.graphs.computeIfAbsent(network, SpeedyGraphBuilder::build);
+		if (graph.hasTurnRestrictions()) {
+			return this.fallbackFactory.createPathCalculator(network, travelCosts, travelTimes);
+		}
+		SpeedyCCHMetric metric = getMetric(graph, travelCosts);
+		if (metric == null) {
+			return this.fallbackFactory.createPathCalculator(network, travelCosts, travelTimes);
+		}
+		return new SpeedyCCH(metric, travelTimes, travelCosts);
+	}
+
+	/**
+	 * Returns the customized metric for the given travel disutility, or <code>null</code> if its minimal link costs
+	 * cannot be used. The minimal link costs are only sampled if this travel disutility instance was not seen in the
+	 * current iteration yet.
+	 */
+	private SpeedyCCHMetric getMetric(SpeedyGraph graph, TravelDisutility travelCosts) {
+		Integer iteration = this.iterationCounter == null ? null : this.iterationCounter.getIterationNumber();
+		CostsKey key = new CostsKey(graph, travelCosts);
+		CostsEntry entry = this.costs.get(key);
+		if (entry != null && Objects.equals(entry.iteration, iteration)) {
+			return entry.metric;
+		}
+		synchronized (this.costs) {
+			entry = this.costs.get(key);
+			if (entry != null && Objects.equals(entry.iteration, iteration)) {
+				return entry.metric;
+			}
+			double[] linkCosts = getLinkCosts(graph, travelCosts);
+			SpeedyCCHMetric metric = linkCosts == null ? null : findMetric(graph, linkCosts);
+			if (linkCosts != null && metric == null) {
+				SpeedyCCHData cch = this.cchData.computeIfAbsent(graph, SpeedyCCHData::build);
+				metric = new SpeedyCCHMetric(cch, linkCosts, this.numberOfThreads);
+			}
+			// forget the travel disutilities of earlier iterations
+			this.costs.values().removeIf(e -> !Objects.equals(e.iteration, iteration));
+			this.costs.put(key, new CostsEntry(iteration, graph, metric));
+			return metric;
+		}
+	}
+
+	/**
+	 * Returns an existing metric of any travel disutility with the same minimal link costs, e.g. of the same travel
+	 * disutility instance in the previous iteration or of another instance with the same cost structure.
+	 */
+	private SpeedyCCHMetric findMetric(SpeedyGraph graph, double[] linkCosts) {
+		for (CostsEntry entry : this.costs.values()) {
+			if (entry.graph == graph && entry.metric != null && entry.metric.hasSameLinkCosts(linkCosts)) {
+				return entry.metric;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the minimal travel disutility of each link, or <code>null</code> if it is negative for any link, as
+	 * the costs could then not be used as lower bounds.
+	 */
+	private double[] getLinkCosts(SpeedyGraph graph, TravelDisutility travelCosts) {
+		double[] costs = new double[graph.linkCount];
+		SpeedyGraph.LinkCursor links = graph.createLinkCursor();
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			Link link = links.get(linkIdx);
+			if (link == null) {
+				costs[linkIdx] = Double.POSITIVE_INFINITY;
+			} else {
+				double cost = travelCosts.getLinkMinimumTravelDisutility(link);
+				if (!(cost >= 0)) {
+					LOG.warn("travel disutility has minimal costs of " + cost + " for link " + link.getId() + ", falling back to SpeedyALT.");
+					return null;
+				}
+				costs[linkIdx] = cost;
+			}
+		}
+		return costs;
+	}
+
+	private record CostsKey(SpeedyGraph graph, TravelDisutility travelCosts) {
+	}
+
+	private record CostsEntry(Integer iteration, SpeedyGraph graph, SpeedyCCHMetric metric) {
+	}
+}
@@ -0,0 +1,137 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A customization of {@link SpeedyCCHData} with the minimal link costs of a travel disutility.
+ *
+ * The weights of all edges are calculated from the link costs, in both directions. The resulting distances in the
+ * hierarchy are lower bounds of the actual, time-dependent travel costs, which {@link SpeedyCCH} uses as potentials
+ * for its A* search. The nodes are customized level by level of the elimination tree, the nodes of a level in
+ * parallel.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+class SpeedyCCHMetric {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCCHMetric.class);
+
+	/** levels with fewer nodes are customized in the calling thread, as distributing them costs more than it gains */
+	private static final int MIN_PARALLEL_LEVEL_SIZE = 1024;
+
+	final SpeedyCCHData cch;
+	private final double[] linkCosts;
+	private final double[] up;
+	private final double[] down;
+
+	/**
+	 * @param linkCosts the minimal costs of every link. Links with infinite costs cannot be used.
+	 */
+	SpeedyCCHMetric(SpeedyCCHData cch, double[] linkCosts, int numberOfThreads) {
+		this.cch = cch;
+		this.linkCosts = linkCosts;
+		this.up = new double[cch.edgeCount];
+		this.down = new double[cch.edgeCount];
+
+		// initialize with the original links
+		for (int edge = 0; edge < cch.edgeCount; edge++) {
+			this.up[edge] = getMinLinkCost(edge, SpeedyCCHData.UP);
+			this.down[edge] = getMinLinkCost(edge, SpeedyCCHData.DOWN);
+		}
+
+		int threads = Math.max(1, numberOfThreads);
+		LOG.info("customize contraction hierarchy using " + threads + " threads...");
+		ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		try {
+			for (int level = 0; level < cch.getLevelCount(); level++) {
+				int start = cch.getLevelStart(level);
+				int end = cch.getLevelEnd(level);
+				if (executor == null || end - start < MIN_PARALLEL_LEVEL_SIZE) {
+					customize(start, end);
+				} else {
+					List<Callable<Object>> tasks = new ArrayList<>(threads);
+					int chunkSize = (end - start + threads - 1) / threads;
+					for (int from = start; from < end; from += chunkSize) {
+						final int f = from;
+						final int t = Math.min(end, from + chunkSize);
+						tasks.add(() -> {
+							customize(f, t);
+							return null;
+						});
+					}
+					for (Future<Object> future : executor.invokeAll(tasks)) {
+						future.get();
+					}
+				}
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Processes the lower triangles of the edges of the nodes at the given positions of a level. The triangles only
+	 * use edges of lower levels, so their weights are final.
+	 */
+	private void customize(int fromPos, int toPos) {
+		double[] up = this.up;
+		double[] down = this.down;
+		for (int pos = fromPos; pos < toPos; pos++) {
+			int rank = this.cch.getLevelRank(pos);
+			for (int edge = this.cch.getUpStart(rank), end = this.cch.getUpEnd(rank); edge < end; edge++) {
+				double upWeight = up[edge];
+				double downWeight = down[edge];
+				for (int t = this.cch.getTrianglesStart(edge), tEnd = this.cch.getTrianglesEnd(edge); t < tEnd; t++) {
+					int lowerEdge = this.cch.getTriangleLowerEdge(t);
+					int upperEdge = this.cch.getTriangleUpperEdge(t);
+					double viaUp = down[lowerEdge] + up[upperEdge];
+					if (viaUp < upWeight) {
+						upWeight = viaUp;
+					}
+					double viaDown = down[upperEdge] + up[lowerEdge];
+					if (viaDown < downWeight) {
+						downWeight = viaDown;
+					}
+				}
+				up[edge] = upWeight;
+				down[edge] = downWeight;
+			}
+		}
+	}
+
+	private double getMinLinkCost(int edge, int direction) {
+		double min = Double.POSITIVE_INFINITY;
+		for (int pos = this.cch.getLinksStart(edge, direction), end = this.cch.getLinksEnd(edge, direction); pos < end; pos++) {
+			min = Math.min(min, this.linkCosts[this.cch.getLink(pos)]);
+		}
+		return min;
+	}
+
+	boolean hasSameLinkCosts(double[] otherLinkCosts) {
+		return Arrays.equals(this.linkCosts, otherLinkCosts);
+	}
+
+	/** the minimal cost to go from the lower to the upper node of the edge */
+	double getUpWeight(int edge) {
+		return this.up[edge];
+	}
+
+	/** the minimal cost to go from the upper to the lower node of the edge */
+	double getDownWeight(int edge) {
+		return this.down[edge];
+	}
+}
@@ -0,0 +1,245 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An implementation of the contraction hierarchies algorithm, answering queries with a bidirectional
+ * search on the upward graphs of {@link SpeedyCHData}, including stall-on-demand.
+ *
+ * Based on "Contraction Hierarchies: Faster and Simpler Hierarchical Routing in Road Networks" by
+ * Robert Geisberger, Peter Sanders, Dominik Schultes and Daniel Delling, 2008.
+ *
+ * The least cost path is found using the link costs the data was preprocessed with, so this only
+ * works for travel disutilities that depend neither on the time of day nor on the person or vehicle.
+ * {@link SpeedyCHFactory} takes care of only using this class in such cases. The travel time and cost
+ * of the returned path are calculated with the given {@link TravelTime} and {@link TravelDisutility}.
+ *
+ * This implementation is not thread-safe. In the case of multi-threading, every thread should use
+ * a separate instance. (But the used {@link SpeedyCHData} is thread-safe and can be shared by multiple
+ * instances).
+ */
+public class SpeedyCH implements LeastCostPathCalculator {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCH.class);
+
+	private final SpeedyGraph graph;
+	private final SpeedyCHData chData;
+	private final TravelTime tt;
+	private final TravelDisutility td;
+	private final double[] fwCost;
+	private final double[] bwCost;
+	private final int[] fwEdge;
+	private final int[] bwEdge;
+	private final int[] fwComingFrom;
+	private final int[] bwComingFrom;
+	private int currentIteration = Integer.MIN_VALUE;
+	private final int[] fwIterationIds;
+	private final int[] bwIterationIds;
+	private final DAryMinHeap fwPQ;
+	private final DAryMinHeap bwPQ;
+	private final int[] pathEdges;
+	private final int[] pathLinks;
+	private final int[] unpackStack;
+
+	public SpeedyCH(SpeedyCHData chData, TravelTime tt, TravelDisutility td) {
+		this.graph = chData.graph;
+		this.chData = chData;
+		this.tt = tt;
+		this.td = td;
+		int nodeCount = this.graph.nodeCount;
+		this.fwCost = new double[nodeCount];
+		this.bwCost = new double[nodeCount];
+		this.fwEdge = new int[nodeCount];
+		this.bwEdge = new int[nodeCount];
+		this.fwComingFrom = new int[nodeCount];
+		this.bwComingFrom = new int[nodeCount];
+		this.fwIterationIds = new int[nodeCount];
+		this.bwIterationIds = new int[nodeCount];
+		this.fwPQ = new DAryMinHeap(nodeCount, 4);
+		this.bwPQ = new DAryMinHeap(nodeCount, 4);
+		this.pathEdges = new int[nodeCount];
+		this.pathLinks = new int[this.graph.linkCount];
+		this.unpackStack = new int[nodeCount + 2];
+		Arrays.fill(this.fwIterationIds, this.currentIteration);
+		Arrays.fill(this.bwIterationIds, this.currentIteration);
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		this.currentIteration++;
+		if (this.currentIteration == Integer.MAX_VALUE) {
+			// reset iteration as we overflow
+			Arrays.fill(this.fwIterationIds, this.currentIteration);
+			Arrays.fill(this.bwIterationIds, this.currentIteration);
+			this.currentIteration = Integer.MIN_VALUE;
+		}
+		int startNodeIndex = startNode.getId().index();
+		int endNodeIndex = endNode.getId().index();
+
+		this.fwPQ.clear();
+		this.bwPQ.clear();
+		this.fwCost[startNodeIndex] = 0;
+		this.fwComingFrom[startNodeIndex] = -1;
+		this.fwIterationIds[startNodeIndex] = this.currentIteration;
+		this.fwPQ.insert(startNodeIndex, 0);
+		this.bwCost[endNodeIndex] = 0;
+		this.bwComingFrom[endNodeIndex] = -1;
+		this.bwIterationIds[endNodeIndex] = this.currentIteration;
+		this.bwPQ.insert(endNodeIndex, 0);
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+
+		while (true) {
+			double fwMin = this.fwPQ.isEmpty() ? Double.POSITIVE_INFINITY : this.fwCost[this.fwPQ.peek()];
+			double bwMin = this.bwPQ.isEmpty() ? Double.POSITIVE_INFINITY : this.bwCost[this.bwPQ.peek()];
+			if (Math.min(fwMin, bwMin) >= bestCost || (fwMin == Double.POSITIVE_INFINITY && bwMin == Double.POSITIVE_INFINITY)) {
+				break;
+			}
+			if (fwMin <= bwMin) {
+				int nodeIdx = this.fwPQ.poll();
+				double currCost = this.fwCost[nodeIdx];
+				if (this.bwIterationIds[nodeIdx] == this.currentIteration && currCost + this.bwCost[nodeIdx] < bestCost) {
+					bestCost = currCost + this.bwCost[nodeIdx];
+					meetingNode = nodeIdx;
+				}
+				if (!isForwardStalled(nodeIdx, currCost)) {
+					expandForward(nodeIdx, currCost);
+				}
+			} else {
+				int nodeIdx = this.bwPQ.poll();
+				double currCost = this.bwCost[nodeIdx];
+				if (this.fwIterationIds[nodeIdx] == this.currentIteration && currCost + this.fwCost[nodeIdx] < bestCost) {
+					bestCost = currCost + this.fwCost[nodeIdx];
+					meetingNode = nodeIdx;
+				}
+				if (!isBackwardStalled(nodeIdx, currCost)) {
+					expandBackward(nodeIdx, currCost);
+				}
+			}
+		}
+
+		if (meetingNode >= 0) {
+			return constructPath(startNodeIndex, meetingNode, startTime, person, vehicle);
+		}
+		LOG.warn("No route was found from node " + startNode.getId() + " to node " + endNode.getId() + ". Some possible reasons:");
+		LOG.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+		LOG.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+		LOG.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+		LOG.warn("This will now return null, but it may fail later with a NullPointerException.");
+		return null;
+	}
+
+	/**
+	 * A node does not need to be expanded in the forward search if it can be reached cheaper
+	 * via a higher-ranked node (stall-on-demand).
+	 */
+	private boolean isForwardStalled(int nodeIdx, double cost) {
+		for (int pos = this.chData.getBackwardStart(nodeIdx), end = this.chData.getBackwardEnd(nodeIdx); pos < end; pos++) {
+			int otherNode = this.chData.getBackwardNode(pos);
+			if (this.fwIterationIds[otherNode] == this.currentIteration && this.fwCost[otherNode] + this.chData.getBackwardCost(pos) < cost) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isBackwardStalled(int nodeIdx, double cost) {
+		for (int pos = this.chData.getForwardStart(nodeIdx), end = this.chData.getForwardEnd(nodeIdx); pos < end; pos++) {
+			int otherNode = this.chData.getForwardNode(pos);
+			if (this.bwIterationIds[otherNode] == this.currentIteration && this.bwCost[otherNode] + this.chData.getForwardCost(pos) < cost) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void expandForward(int nodeIdx, double currCost) {
+		for (int pos = this.chData.getForwardStart(nodeIdx), end = this.chData.getForwardEnd(nodeIdx); pos < end; pos++) {
+			int toNode = this.chData.getForwardNode(pos);
+			double newCost = currCost + this.chData.getForwardCost(pos);
+			if (this.fwIterationIds[toNode] == this.currentIteration) {
+				if (newCost < this.fwCost[toNode]) {
+					this.fwPQ.decreaseKey(toNode, newCost);
+					this.fwCost[toNode] = newCost;
+					this.fwComingFrom[toNode] = nodeIdx;
+					this.fwEdge[toNode] = this.chData.getForwardEdge(pos);
+				}
+			} else {
+				this.fwIterationIds[toNode] = this.currentIteration;
+				this.fwCost[toNode] = newCost;
+				this.fwComingFrom[toNode] = nodeIdx;
+				this.fwEdge[toNode] = this.chData.getForwardEdge(pos);
+				this.fwPQ.insert(toNode, newCost);
+			}
+		}
+	}
+
+	private void expandBackward(int nodeIdx, double currCost) {
+		for (int pos = this.chData.getBackwardStart(nodeIdx), end = this.chData.getBackwardEnd(nodeIdx); pos < end; pos++) {
+			int fromNode = this.chData.getBackwardNode(pos);
+			double newCost = currCost + this.chData.getBackwardCost(pos);
+			if (this.bwIterationIds[fromNode] == this.currentIteration) {
+				if (newCost < this.bwCost[fromNode]) {
+					this.bwPQ.decreaseKey(fromNode, newCost);
+					this.bwCost[fromNode] = newCost;
+					this.bwComingFrom[fromNode] = nodeIdx;
+					this.bwEdge[fromNode] = this.chData.getBackwardEdge(pos);
+				}
+			} else {
+				this.bwIterationIds[fromNode] = this.currentIteration;
+				this.bwCost[fromNode] = newCost;
+				this.bwComingFrom[fromNode] = nodeIdx;
+				this.bwEdge[fromNode] = this.chData.getBackwardEdge(pos);
+				this.bwPQ.insert(fromNode, newCost);
+			}
+		}
+	}
+
+	private Path constructPath(int startNodeIndex, int meetingNode, double startTime, Person person, Vehicle vehicle) {
+		// collect the edges from the start node to the meeting node in reverse order ...
+		int edgeCount = 0;
+		int nodeIndex = meetingNode;
+		while (this.fwComingFrom[nodeIndex] >= 0) {
+			this.pathEdges[edgeCount++] = this.fwEdge[nodeIndex];
+			nodeIndex = this.fwComingFrom[nodeIndex];
+		}
+		int linkCount = 0;
+		for (int i = edgeCount - 1; i >= 0; i--) {
+			linkCount = this.chData.unpackEdge(this.pathEdges[i], this.pathLinks, linkCount, this.unpackStack);
+		}
+		// ... and the ones from the meeting node to the end node in the right order
+		nodeIndex = meetingNode;
+		while (this.bwComingFrom[nodeIndex] >= 0) {
+			linkCount = this.chData.unpackEdge(this.bwEdge[nodeIndex], this.pathLinks, linkCount, this.unpackStack);
+			nodeIndex = this.bwComingFrom[nodeIndex];
+		}
+
+		List<Node> nodes = new ArrayList<>(linkCount + 1);
+		List<Link> links = new ArrayList<>(linkCount);
+		nodes.add(this.graph.getNode(startNodeIndex));
+		double time = startTime;
+		double cost = 0;
+		for (int i = 0; i < linkCount; i++) {
+			Link link = this.graph.getLink(this.pathLinks[i]);
+			cost += this.td.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.tt.getLinkTravelTime(link, time, person, vehicle);
+			links.add(link);
+			nodes.add(link.getToNode());
+		}
+		return new Path(nodes, links, time - startTime, cost);
+	}
+
+}
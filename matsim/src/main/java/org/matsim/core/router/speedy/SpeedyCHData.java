@@ -0,0 +1,260 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Preprocessed data for the contraction hierarchies algorithm, see {@link SpeedyCH}.
+ *
+ * The data consists of two upward graphs: for each node, the forward graph contains all (original or shortcut)
+ * edges leading to a node of higher rank, and the backward graph contains all edges coming from a node of higher
+ * rank. Edges with an index smaller than the link count of the graph are original links, all other edges are
+ * shortcuts that consist of exactly two other edges.
+ *
+ * The data is only valid for the link costs it was calculated with, which is why it is identified by a checksum
+ * over the graph and the link costs, see {@link #calcChecksum(SpeedyGraph, double[])}.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+class SpeedyCHData {
+
+	private static final long MAGIC = 0x5350454544594348L; // "SPEEDYCH"
+	private static final int VERSION = 1;
+
+	final SpeedyGraph graph;
+	final String checksum;
+	private final int[] fwOffsets;
+	private final int[] fwNodes;
+	private final double[] fwCosts;
+	private final int[] fwEdges;
+	private final int[] bwOffsets;
+	private final int[] bwNodes;
+	private final double[] bwCosts;
+	private final int[] bwEdges;
+	private final int[] shortcuts; // 2 entries per shortcut: first and second edge
+
+	SpeedyCHData(SpeedyGraph graph, String checksum,
+							 int[] fwOffsets, int[] fwNodes, double[] fwCosts, int[] fwEdges,
+							 int[] bwOffsets, int[] bwNodes, double[] bwCosts, int[] bwEdges,
+							 int[] shortcuts) {
+		this.graph = graph;
+		this.checksum = checksum;
+		this.fwOffsets = fwOffsets;
+		this.fwNodes = fwNodes;
+		this.fwCosts = fwCosts;
+		this.fwEdges = fwEdges;
+		this.bwOffsets = bwOffsets;
+		this.bwNodes = bwNodes;
+		this.bwCosts = bwCosts;
+		this.bwEdges = bwEdges;
+		this.shortcuts = shortcuts;
+	}
+
+	int getForwardStart(int nodeIndex) {
+		return this.fwOffsets[nodeIndex];
+	}
+
+	int getForwardEnd(int nodeIndex) {
+		return this.fwOffsets[nodeIndex + 1];
+	}
+
+	int getForwardNode(int pos) {
+		return this.fwNodes[pos];
+	}
+
+	double getForwardCost(int pos) {
+		return this.fwCosts[pos];
+	}
+
+	int getForwardEdge(int pos) {
+		return this.fwEdges[pos];
+	}
+
+	int getBackwardStart(int nodeIndex) {
+		return this.bwOffsets[nodeIndex];
+	}
+
+	int getBackwardEnd(int nodeIndex) {
+		return this.bwOffsets[nodeIndex + 1];
+	}
+
+	int getBackwardNode(int pos) {
+		return this.bwNodes[pos];
+	}
+
+	double getBackwardCost(int pos) {
+		return this.bwCosts[pos];
+	}
+
+	int getBackwardEdge(int pos) {
+		return this.bwEdges[pos];
+	}
+
+	int getShortcutCount() {
+		return this.shortcuts.length / 2;
+	}
+
+	/**
+	 * Appends the indices of the links represented by the given edge to <code>links</code>,
+	 * using <code>stack</code> as working memory. Returns the new number of links.
+	 */
+	int unpackEdge(int edge, int[] links, int linkCount, int[] stack) {
+		int stackSize = 0;
+		stack[stackSize++] = edge;
+		while (stackSize > 0) {
+			int e = stack[--stackSize];
+			if (e < this.graph.linkCount) {
+				links[linkCount++] = e;
+			} else {
+				int shortcut = (e - this.graph.linkCount) * 2;
+				// push the second edge first so the first one gets unpacked first
+				stack[stackSize++] = this.shortcuts[shortcut + 1];
+				stack[stackSize++] = this.shortcuts[shortcut];
+			}
+		}
+		return linkCount;
+	}
+
+	/**
+	 * Calculates a checksum over the structure of the graph, the ids of its nodes and links, and the given
+	 * link costs. As the graph uses the indices of the ids, data calculated in one run can only be re-used in
+	 * another run if the ids got the same indices, which is the case when the network is loaded first.
+	 */
+	static String calcChecksum(SpeedyGraph graph, double[] linkCosts) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		StringBuilder ids = new StringBuilder();
+		ids.append(graph.nodeCount).append(';').append(graph.linkCount).append(';');
+		for (int i = 0; i < graph.nodeCount; i++) {
+			Node node = graph.getNode(i);
+			ids.append(node == null ? "" : node.getId().toString()).append(';');
+			if (ids.length() > 8192) {
+				digest.update(ids.toString().getBytes(StandardCharsets.UTF_8));
+				ids.setLength(0);
+			}
+		}
+		SpeedyGraph.LinkIterator outLI = graph.getOutLinkIterator();
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			outLI.reset(nodeIdx);
+			while (outLI.next()) {
+				int linkIdx = outLI.getLinkIndex();
+				Link link = graph.getLink(linkIdx);
+				ids.append(link.getId().toString()).append(';')
+					.append(linkIdx).append(';')
+					.append(outLI.getFromNodeIndex()).append(';')
+					.append(outLI.getToNodeIndex()).append(';')
+					.append(Double.doubleToLongBits(linkCosts[linkIdx])).append(';');
+				if (ids.length() > 8192) {
+					digest.update(ids.toString().getBytes(StandardCharsets.UTF_8));
+					ids.setLength(0);
+				}
+			}
+		}
+		digest.update(ids.toString().getBytes(StandardCharsets.UTF_8));
+		return HexFormat.of().formatHex(digest.digest(), 0, 16);
+	}
+
+	/**
+	 * Writes the data to the given file. The data is first written to a temporary file which is then
+	 * moved to its final location, so concurrent runs sharing a cache directory never see partial files.
+	 */
+	void write(Path file) {
+		try {
+			Path tmpFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile), 1 << 16))) {
+				out.writeLong(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(this.checksum);
+				out.writeInt(this.graph.nodeCount);
+				out.writeInt(this.graph.linkCount);
+				writeInts(out, this.fwOffsets);
+				writeInts(out, this.fwNodes);
+				writeDoubles(out, this.fwCosts);
+				writeInts(out, this.fwEdges);
+				writeInts(out, this.bwOffsets);
+				writeInts(out, this.bwNodes);
+				writeDoubles(out, this.bwCosts);
+				writeInts(out, this.bwEdges);
+				writeInts(out, this.shortcuts);
+			}
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads data previously written with {@link #write(Path)}. Returns <code>null</code> if the file
+	 * does not contain data for the given graph and checksum.
+	 */
+	static SpeedyCHData read(Path file, SpeedyGraph graph, String checksum) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+			if (in.readLong() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+			if (!in.readUTF().equals(checksum) || in.readInt() != graph.nodeCount || in.readInt() != graph.linkCount) {
+				return null;
+			}
+			int[] fwOffsets = readInts(in);
+			int[] fwNodes = readInts(in);
+			double[] fwCosts = readDoubles(in);
+			int[] fwEdges = readInts(in);
+			int[] bwOffsets = readInts(in);
+			int[] bwNodes = readInts(in);
+			double[] bwCosts = readDoubles(in);
+			int[] bwEdges = readInts(in);
+			int[] shortcuts = readInts(in);
+			return new SpeedyCHData(graph, checksum, fwOffsets, fwNodes, fwCosts, fwEdges, bwOffsets, bwNodes, bwCosts, bwEdges, shortcuts);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] data) throws IOException {
+		out.writeInt(data.length);
+		for (int value : data) {
+			out.writeInt(value);
+		}
+	}
+
+	private static void writeDoubles(DataOutputStream out, double[] data) throws IOException {
+		out.writeInt(data.length);
+		for (double value : data) {
+			out.writeDouble(value);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int[] data = new int[in.readInt()];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = in.readInt();
+		}
+		return data;
+	}
+
+	private static double[] readDoubles(DataInputStream in) throws IOException {
+		double[] data = new double[in.readInt()];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = in.readDouble();
+		}
+		return data;
+	}
+}
@@ -0,0 +1,164 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.StaticTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import jakarta.inject.Inject;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link SpeedyCH} instances for travel disutilities that do not change over the day, e.g. for free speed
+ * routing, and {@link SpeedyALT} instances for all other cases.
+ *
+ * Callers declare static travel disutilities by implementing {@link StaticTravelDisutility}, or by wrapping them with
+ * {@link StaticTravelDisutility#of(TravelDisutility)}. The link costs of such travel disutilities are evaluated once
+ * per link, at time 0 and without person and vehicle. All other travel disutilities are routed with
+ * {@link SpeedyALTFactory}.
+ *
+ * The link costs are sampled only once per travel disutility instance and iteration, so wrapped travel disutilities
+ * should be wrapped once and not for every call. If no {@link IterationCounter}
+ * is given, they are sampled only once per travel disutility instance, so travel disutilities which change their
+ * values must be replaced by new instances. The preprocessed data is identified by a checksum over the network and
+ * the link costs. It is re-used as long as the link costs do not change, and if a cache directory is given, it is
+ * also stored there and re-used by later runs with the same network and costs.
+ */
+public class SpeedyCHFactory implements LeastCostPathCalculatorFactory {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCHFactory.class);
+
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
+	private final Map<SpeedyGraph, SpeedyCHData> chData = new ConcurrentHashMap<>();
+	private final Map<CostsKey, CostsEntry> costs = new ConcurrentHashMap<>();
+	private final SpeedyALTFactory fallbackFactory = new SpeedyALTFactory();
+	private final int numberOfThreads;
+	private final Path cacheDirectory;
+	private final IterationCounter iterationCounter;
+
+	public SpeedyCHFactory() {
+		this(Runtime.getRuntime().availableProcessors(), null, null);
+	}
+
+	@Inject
+	public SpeedyCHFactory(IterationCounter iterationCounter) {
+		this(Runtime.getRuntime().availableProcessors(), null, iterationCounter);
+	}
+
+	public SpeedyCHFactory(int numberOfThreads, Path cacheDirectory) {
+		this(numberOfThreads, cacheDirectory, null);
+	}
+
+	/**
+	 * @param numberOfThreads the number of threads used for preprocessing
+	 * @param cacheDirectory directory to store and look up preprocessed data, may be <code>null</code> to not cache any data on disk
+	 * @param iterationCounter used to sample the link costs again in each iteration, may be <code>null</code> to sample them only once per travel disutility instance
+	 */
+	public SpeedyCHFactory(int numberOfThreads, Path cacheDirectory, IterationCounter iterationCounter) {
+		this.numberOfThreads = numberOfThreads;
+		this.cacheDirectory = cacheDirectory;
+		this.iterationCounter = iterationCounter;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
+		if (!(travelCosts instanceof StaticTravelDisutility staticCosts)) {
+			return this.fallbackFactory.createPathCalculator(network, travelCosts, travelTimes);
+		}
+		SpeedyGraph graph = this.graphs.computeIfAbsent(network, SpeedyGraphBuilder::build);
+		if (graph.hasTurnRestrictions()) {
+			return this.fallbackFactory.createPathCalculator(network, travelCosts, travelTimes);
+		}
+		SpeedyCHData data = getCHData(graph, staticCosts);
+		if (data == null) {
+			return this.fallbackFactory.createPathCalculator(network, travelCosts, travelTimes);
+		}
+		return new SpeedyCH(data, travelTimes, travelCosts);
+	}
+
+	/**
+	 * Returns the contraction hierarchy for the given travel disutility, or <code>null</code> if it has negative or
+	 * undefined link costs. The link costs are only sampled if this travel disutility instance was not seen in the
+	 * current iteration yet.
+	 */
+	private SpeedyCHData getCHData(SpeedyGraph graph, StaticTravelDisutility travelCosts) {
+		Integer iteration = this.iterationCounter == null ? null : this.iterationCounter.getIterationNumber();
+		CostsKey key = new CostsKey(graph, travelCosts);
+		CostsEntry entry = this.costs.get(key);
+		if (entry != null && Objects.equals(entry.iteration, iteration)) {
+			return entry.data;
+		}
+		// forget the travel disutilities of earlier iterations
+		this.costs.values().removeIf(e -> !Objects.equals(e.iteration, iteration));
+		double[] linkCosts = getLinkCosts(graph, travelCosts);
+		SpeedyCHData data = linkCosts == null ? null : getCHData(graph, linkCosts);
+		this.costs.put(key, new CostsEntry(iteration, data));
+		return data;
+	}
+
+	private SpeedyCHData getCHData(SpeedyGraph graph, double[] linkCosts) {
+		String checksum = SpeedyCHData.calcChecksum(graph, linkCosts);
+		SpeedyCHData data = this.chData.get(graph);
+		if (data != null && data.checksum.equals(checksum)) {
+			return data;
+		}
+		synchronized (graph) {
+			data = this.chData.get(graph);
+			if (data != null && data.checksum.equals(checksum)) {
+				return data;
+			}
+			Path cacheFile = this.cacheDirectory == null ? null : this.cacheDirectory.resolve("speedy-ch-" + checksum + ".bin");
+			if (cacheFile != null && Files.exists(cacheFile)) {
+				LOG.info("reading contraction hierarchy from " + cacheFile);
+				data = SpeedyCHData.read(cacheFile, graph, checksum);
+			}
+			if (data == null) {
+				data = SpeedyCHPreprocessor.calculate(graph, linkCosts, checksum, this.numberOfThreads);
+				if (cacheFile != null) {
+					LOG.info("writing contraction hierarchy to " + cacheFile);
+					data.write(cacheFile);
+				}
+			}
+			this.chData.put(graph, data);
+			return data;
+		}
+	}
+
+	/**
+	 * Returns the travel disutility of each link, or <code>null</code> if it is negative or undefined for a link.
+	 */
+	private static double[] getLinkCosts(SpeedyGraph graph, StaticTravelDisutility travelCosts) {
+		double[] costs = new double[graph.linkCount];
+		SpeedyGraph.LinkCursor links = graph.createLinkCursor();
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			Link link = links.get(linkIdx);
+			if (link == null) {
+				costs[linkIdx] = Double.POSITIVE_INFINITY;
+				continue;
+			}
+			double cost = travelCosts.getLinkTravelDisutility(link, 0, null, null);
+			if (!(cost >= 0)) {
+				LOG.warn("found negative or undefined travel disutility on link " + link.getId() + ", falling back to SpeedyALT.");
+				return null;
+			}
+			costs[linkIdx] = cost;
+		}
+		return costs;
+	}
+
+	private record CostsKey(SpeedyGraph graph, TravelDisutility travelCosts) {
+	}
+
+	private record CostsEntry(Integer iteration, SpeedyCHData data) {
+	}
+}
@@ -0,0 +1,497 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Calculates the node ordering and shortcuts for {@link SpeedyCHData}.
+ *
+ * Based on "Contraction Hierarchies: Faster and Simpler Hierarchical Routing in Road Networks" by
+ * Robert Geisberger, Peter Sanders, Dominik Schultes and Daniel Delling, 2008.
+ *
+ * The contraction runs in rounds: in each round, all nodes whose priority is smaller than the priority of all their
+ * neighbors are contracted in parallel. As these nodes form an independent set, their shortcuts only connect
+ * nodes that remain in the graph. A witness path must be strictly cheaper than the path via the contracted node,
+ * which keeps the result correct even if the witness of one node runs over another node of the same round: if two
+ * nodes of a round offer equally cheap paths between the same neighbors, both add a shortcut, and the more expensive
+ * one of two shortcuts between the same nodes is dropped.
+ */
+final class SpeedyCHPreprocessor {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCHPreprocessor.class);
+
+	/** the maximum number of nodes settled by a single witness search */
+	private static final int WITNESS_SETTLED_LIMIT = 500;
+
+	private final SpeedyGraph graph;
+	private final int nodeCount;
+	private final int linkCount;
+	private final int numberOfThreads;
+
+	// dynamic graph, edges with index < linkCount are the original links
+	private int edgeCount;
+	private int[] edgeFrom;
+	private int[] edgeTo;
+	private double[] edgeCost;
+	private int[] shortcuts;
+	private final int[][] outEdges;
+	private final int[] outSize;
+	private final int[][] inEdges;
+	private final int[] inSize;
+
+	// contraction state
+	private final boolean[] contracted;
+	private final int[] priority;
+	private final int[] deletedNeighbors;
+
+	// upward graphs, collected per node while contracting
+	private final int[][] upwardOut;
+	private final int[][] upwardIn;
+
+	private SpeedyCHPreprocessor(SpeedyGraph graph, double[] linkCosts, int numberOfThreads) {
+		this.graph = graph;
+		this.nodeCount = graph.nodeCount;
+		this.linkCount = graph.linkCount;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+
+		this.edgeCount = this.linkCount;
+		int capacity = this.linkCount + this.linkCount / 2 + 16;
+		this.edgeFrom = new int[capacity];
+		this.edgeTo = new int[capacity];
+		this.edgeCost = new double[capacity];
+		this.shortcuts = new int[capacity];
+		Arrays.fill(this.edgeFrom, -1);
+
+		this.outEdges = new int[this.nodeCount][];
+		this.outSize = new int[this.nodeCount];
+		this.inEdges = new int[this.nodeCount][];
+		this.inSize = new int[this.nodeCount];
+		this.contracted = new boolean[this.nodeCount];
+		this.priority = new int[this.nodeCount];
+		this.deletedNeighbors = new int[this.nodeCount];
+		this.upwardOut = new int[this.nodeCount][];
+		this.upwardIn = new int[this.nodeCount][];
+
+		SpeedyGraph.LinkIterator outLI = graph.getOutLinkIterator();
+		for (int nodeIdx = 0; nodeIdx < this.nodeCount; nodeIdx++) {
+			outLI.reset(nodeIdx);
+			while (outLI.next()) {
+				int linkIdx = outLI.getLinkIndex();
+				int toNodeIdx = outLI.getToNodeIndex();
+				double cost = linkCosts[linkIdx];
+				if (toNodeIdx == nodeIdx || Double.isInfinite(cost)) {
+					continue; // loops and unusable links are never part of a least cost path
+				}
+				this.edgeFrom[linkIdx] = nodeIdx;
+				this.edgeTo[linkIdx] = toNodeIdx;
+				this.edgeCost[linkIdx] = cost;
+				addOrReplaceEdge(linkIdx);
+			}
+		}
+	}
+
+	/**
+	 * Contracts the whole graph using the given link costs, which must not be negative.
+	 * Links with infinite costs are ignored.
+	 */
+	static SpeedyCHData calculate(SpeedyGraph graph, double[] linkCosts, String checksum, int numberOfThreads) {
+		return new SpeedyCHPreprocessor(graph, linkCosts, numberOfThreads).contract(checksum);
+	}
+
+	private SpeedyCHData contract(String checksum) {
+		LOG.info("contract nodes using " + this.numberOfThreads + " threads...");
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads);
+		WitnessSearch[] searches = new WitnessSearch[this.numberOfThreads];
+		for (int i = 0; i < searches.length; i++) {
+			searches[i] = new WitnessSearch();
+		}
+		try {
+			int[] remaining = new int[this.nodeCount];
+			int remainingCount = 0;
+			for (int nodeIdx = 0; nodeIdx < this.nodeCount; nodeIdx++) {
+				if (this.outSize[nodeIdx] + this.inSize[nodeIdx] == 0) {
+					contractNode(nodeIdx, List.of()); // isolated or unused node
+				} else {
+					remaining[remainingCount++] = nodeIdx;
+				}
+			}
+			runParallel(executor, searches, remaining, remainingCount, (search, nodeIdx) -> updatePriority(search, nodeIdx));
+
+			int[] round = new int[this.nodeCount];
+			int[] touched = new int[this.nodeCount];
+			boolean[] isTouched = new boolean[this.nodeCount];
+			List<List<int[]>> roundShortcuts = new ArrayList<>();
+			int rounds = 0;
+			while (remainingCount > 0) {
+				rounds++;
+				int roundSize = 0;
+				for (int i = 0; i < remainingCount; i++) {
+					int nodeIdx = remaining[i];
+					if (isLocalMinimum(nodeIdx)) {
+						round[roundSize++] = nodeIdx;
+					}
+				}
+
+				roundShortcuts.clear();
+				for (int i = 0; i < roundSize; i++) {
+					roundShortcuts.add(null);
+				}
+				int[] roundNodes = round;
+				runParallel(executor, searches, indices(roundSize), roundSize,
+					(search, i) -> roundShortcuts.set(i, search.findShortcuts(roundNodes[i])));
+
+				int touchedCount = 0;
+				for (int i = 0; i < roundSize; i++) {
+					int nodeIdx = round[i];
+					touchedCount = collectNeighbors(nodeIdx, touched, touchedCount, isTouched);
+					contractNode(nodeIdx, roundShortcuts.get(i));
+				}
+
+				int newRemainingCount = 0;
+				for (int i = 0; i < remainingCount; i++) {
+					if (!this.contracted[remaining[i]]) {
+						remaining[newRemainingCount++] = remaining[i];
+					}
+				}
+				remainingCount = newRemainingCount;
+
+				int validTouchedCount = 0;
+				for (int i = 0; i < touchedCount; i++) {
+					int nodeIdx = touched[i];
+					isTouched[nodeIdx] = false;
+					if (!this.contracted[nodeIdx]) {
+						touched[validTouchedCount++] = nodeIdx;
+					}
+				}
+				runParallel(executor, searches, touched, validTouchedCount, (search, nodeIdx) -> updatePriority(search, nodeIdx));
+			}
+			LOG.info("contraction finished after " + rounds + " rounds, added " + (this.edgeCount - this.linkCount) + " shortcuts.");
+		} finally {
+			executor.shutdown();
+		}
+		return buildData(checksum);
+	}
+
+	private static int[] indices(int count) {
+		int[] indices = new int[count];
+		for (int i = 0; i < count; i++) {
+			indices[i] = i;
+		}
+		return indices;
+	}
+
+	private void runParallel(ExecutorService executor, WitnessSearch[] searches, int[] values, int count, Task task) {
+		List<Callable<Object>> callables = new ArrayList<>(searches.length);
+		for (int t = 0; t < searches.length; t++) {
+			final int thread = t;
+			callables.add(() -> {
+				for (int i = thread; i < count; i += searches.length) {
+					task.run(searches[thread], values[i]);
+				}
+				return null;
+			});
+		}
+		try {
+			for (Future<Object> future : executor.invokeAll(callables)) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private interface Task {
+		void run(WitnessSearch search, int value);
+	}
+
+	private void updatePriority(WitnessSearch search, int nodeIdx) {
+		int shortcutCount = search.findShortcuts(nodeIdx).size();
+		int edgeDifference = shortcutCount - this.outSize[nodeIdx] - this.inSize[nodeIdx];
+		this.priority[nodeIdx] = 4 * edgeDifference + this.deletedNeighbors[nodeIdx];
+	}
+
+	private boolean isLocalMinimum(int nodeIdx) {
+		int prio = this.priority[nodeIdx];
+		for (int i = 0, n = this.outSize[nodeIdx]; i < n; i++) {
+			if (!isSmaller(prio, nodeIdx, this.edgeTo[this.outEdges[nodeIdx][i]])) {
+				return false;
+			}
+		}
+		for (int i = 0, n = this.inSize[nodeIdx]; i < n; i++) {
+			if (!isSmaller(prio, nodeIdx, this.edgeFrom[this.inEdges[nodeIdx][i]])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isSmaller(int prio, int nodeIdx, int otherNodeIdx) {
+		int otherPrio = this.priority[otherNodeIdx];
+		return prio < otherPrio || (prio == otherPrio && nodeIdx < otherNodeIdx);
+	}
+
+	private int collectNeighbors(int nodeIdx, int[] touched, int touchedCount, boolean[] isTouched) {
+		for (int i = 0, n = this.outSize[nodeIdx]; i < n; i++) {
+			int other = this.edgeTo[this.outEdges[nodeIdx][i]];
+			if (!isTouched[other]) {
+				isTouched[other] = true;
+				touched[touchedCount++] = other;
+			}
+		}
+		for (int i = 0, n = this.inSize[nodeIdx]; i < n; i++) {
+			int other = this.edgeFrom[this.inEdges[nodeIdx][i]];
+			if (!isTouched[other]) {
+				isTouched[other] = true;
+				touched[touchedCount++] = other;
+			}
+		}
+		return touchedCount;
+	}
+
+	/**
+	 * Removes the node from the dynamic graph, remembers its remaining edges as part of the upward graphs and adds
+	 * the given shortcuts. Each shortcut consists of the incoming and the outgoing edge it replaces.
+	 */
+	private void contractNode(int nodeIdx, List<int[]> nodeShortcuts) {
+		this.contracted[nodeIdx] = true;
+		this.upwardOut[nodeIdx] = Arrays.copyOf(this.outEdges[nodeIdx] == null ? new int[0] : this.outEdges[nodeIdx], this.outSize[nodeIdx]);
+		this.upwardIn[nodeIdx] = Arrays.copyOf(this.inEdges[nodeIdx] == null ? new int[0] : this.inEdges[nodeIdx], this.inSize[nodeIdx]);
+
+		for (int edge : this.upwardOut[nodeIdx]) {
+			int toNodeIdx = this.edgeTo[edge];
+			removeEdge(this.inEdges[toNodeIdx], this.inSize, toNodeIdx, edge);
+			this.deletedNeighbors[toNodeIdx]++;
+		}
+		for (int edge : this.upwardIn[nodeIdx]) {
+			int fromNodeIdx = this.edgeFrom[edge];
+			removeEdge(this.outEdges[fromNodeIdx], this.outSize, fromNodeIdx, edge);
+			this.deletedNeighbors[fromNodeIdx]++;
+		}
+
+		for (int[] shortcut : nodeShortcuts) {
+			int inEdge = shortcut[0];
+			int outEdge = shortcut[1];
+			int edge = this.edgeCount++;
+			ensureEdgeCapacity(this.edgeCount);
+			this.edgeFrom[edge] = this.edgeFrom[inEdge];
+			this.edgeTo[edge] = this.edgeTo[outEdge];
+			this.edgeCost[edge] = this.edgeCost[inEdge] + this.edgeCost[outEdge];
+			int shortcutIdx = (edge - this.linkCount) * 2;
+			this.shortcuts[shortcutIdx] = inEdge;
+			this.shortcuts[shortcutIdx + 1] = outEdge;
+			addOrReplaceEdge(edge);
+		}
+	}
+
+	/**
+	 * Adds the edge to the dynamic graph, unless there is already an edge between the same nodes that is not
+	 * more expensive. A more expensive edge between the same nodes is removed.
+	 */
+	private void addOrReplaceEdge(int edge) {
+		int fromNodeIdx = this.edgeFrom[edge];
+		int toNodeIdx = this.edgeTo[edge];
+		double cost = this.edgeCost[edge];
+		int[] fromOut = this.outEdges[fromNodeIdx];
+		for (int i = 0, n = this.outSize[fromNodeIdx]; i < n; i++) {
+			int existing = fromOut[i];
+			if (this.edgeTo[existing] == toNodeIdx) {
+				if (this.edgeCost[existing] <= cost) {
+					return;
+				}
+				fromOut[i] = edge;
+				int[] toIn = this.inEdges[toNodeIdx];
+				for (int j = 0, m = this.inSize[toNodeIdx]; j < m; j++) {
+					if (toIn[j] == existing) {
+						toIn[j] = edge;
+						break;
+					}
+				}
+				return;
+			}
+		}
+		this.outEdges[fromNodeIdx] = append(this.outEdges[fromNodeIdx], this.outSize, fromNodeIdx, edge);
+		this.inEdges[toNodeIdx] = append(this.inEdges[toNodeIdx], this.inSize, toNodeIdx, edge);
+	}
+
+	private static int[] append(int[] edges, int[] sizes, int nodeIdx, int edge) {
+		int size = sizes[nodeIdx];
+		if (edges == null) {
+			edges = new int[4];
+		} else if (size == edges.length) {
+			edges = Arrays.copyOf(edges, size * 2);
+		}
+		edges[size] = edge;
+		sizes[nodeIdx] = size + 1;
+		return edges;
+	}
+
+	private static void removeEdge(int[] edges, int[] sizes, int nodeIdx, int edge) {
+		int size = sizes[nodeIdx];
+		for (int i = 0; i < size; i++) {
+			if (edges[i] == edge) {
+				edges[i] = edges[size - 1];
+				sizes[nodeIdx] = size - 1;
+				return;
+			}
+		}
+	}
+
+	private void ensureEdgeCapacity(int capacity) {
+		if (capacity > this.edgeFrom.length) {
+			int newCapacity = Math.max(capacity, this.edgeFrom.length + this.edgeFrom.length / 2);
+			this.edgeFrom = Arrays.copyOf(this.edgeFrom, newCapacity);
+			this.edgeTo = Arrays.copyOf(this.edgeTo, newCapacity);
+			this.edgeCost = Arrays.copyOf(this.edgeCost, newCapacity);
+		}
+		int shortcutCapacity = (capacity - this.linkCount) * 2;
+		if (shortcutCapacity > this.shortcuts.length) {
+			this.shortcuts = Arrays.copyOf(this.shortcuts, Math.max(shortcutCapacity, this.shortcuts.length + this.shortcuts.length / 2));
+		}
+	}
+
+	private SpeedyCHData buildData(String checksum) {
+		int[] fwOffsets = new int[this.nodeCount + 1];
+		int[] bwOffsets = new int[this.nodeCount + 1];
+		for (int nodeIdx = 0; nodeIdx < this.nodeCount; nodeIdx++) {
+			fwOffsets[nodeIdx + 1] = fwOffsets[nodeIdx] + this.upwardOut[nodeIdx].length;
+			bwOffsets[nodeIdx + 1] = bwOffsets[nodeIdx] + this.upwardIn[nodeIdx].length;
+		}
+		int[] fwNodes = new int[fwOffsets[this.nodeCount]];
+		double[] fwCosts = new double[fwNodes.length];
+		int[] fwEdges = new int[fwNodes.length];
+		int[] bwNodes = new int[bwOffsets[this.nodeCount]];
+		double[] bwCosts = new double[bwNodes.length];
+		int[] bwEdges = new int[bwNodes.length];
+		for (int nodeIdx = 0; nodeIdx < this.nodeCount; nodeIdx++) {
+			int pos = fwOffsets[nodeIdx];
+			for (int edge : this.upwardOut[nodeIdx]) {
+				fwNodes[pos] = this.edgeTo[edge];
+				fwCosts[pos] = this.edgeCost[edge];
+				fwEdges[pos] = edge;
+				pos++;
+			}
+			pos = bwOffsets[nodeIdx];
+			for (int edge : this.upwardIn[nodeIdx]) {
+				bwNodes[pos] = this.edgeFrom[edge];
+				bwCosts[pos] = this.edgeCost[edge];
+				bwEdges[pos] = edge;
+				pos++;
+			}
+		}
+		int[] shortcutData = Arrays.copyOf(this.shortcuts, (this.edgeCount - this.linkCount) * 2);
+		return new SpeedyCHData(this.graph, checksum, fwOffsets, fwNodes, fwCosts, fwEdges, bwOffsets, bwNodes, bwCosts, bwEdges, shortcutData);
+	}
+
+	/**
+	 * A local Dijkstra search to find out which shortcuts are required when a node gets contracted.
+	 * Every thread uses its own instance.
+	 */
+	private class WitnessSearch {
+
+		private final double[] cost = new double[SpeedyCHPreprocessor.this.nodeCount];
+		private final int[] iterationIds = new int[SpeedyCHPreprocessor.this.nodeCount];
+		private final int[] targetIds = new int[SpeedyCHPreprocessor.this.nodeCount];
+		private final boolean[] settled = new boolean[SpeedyCHPreprocessor.this.nodeCount];
+		private final DAryMinHeap pq = new DAryMinHeap(SpeedyCHPreprocessor.this.nodeCount, 4);
+		private int currentIteration = 0;
+
+		/**
+		 * Returns the shortcuts needed when contracting the given node, as pairs of incoming and outgoing edge.
+		 */
+		List<int[]> findShortcuts(int nodeIdx) {
+			List<int[]> result = new ArrayList<>();
+			int[] in = inEdges[nodeIdx];
+			int[] out = outEdges[nodeIdx];
+			int outCount = outSize[nodeIdx];
+			for (int i = 0, n = inSize[nodeIdx]; i < n; i++) {
+				int inEdge = in[i];
+				int fromNodeIdx = edgeFrom[inEdge];
+				double inCost = edgeCost[inEdge];
+				this.currentIteration++;
+				double maxCost = 0;
+				int targetCount = 0;
+				for (int j = 0; j < outCount; j++) {
+					int toNodeIdx = edgeTo[out[j]];
+					if (toNodeIdx != fromNodeIdx) {
+						maxCost = Math.max(maxCost, inCost + edgeCost[out[j]]);
+						if (this.targetIds[toNodeIdx] != this.currentIteration) {
+							this.targetIds[toNodeIdx] = this.currentIteration;
+							targetCount++;
+						}
+					}
+				}
+				if (targetCount == 0) {
+					continue;
+				}
+				search(fromNodeIdx, nodeIdx, maxCost, targetCount);
+				for (int j = 0; j < outCount; j++) {
+					int outEdge = out[j];
+					int toNodeIdx = edgeTo[outEdge];
+					if (toNodeIdx == fromNodeIdx) {
+						continue;
+					}
+					double viaCost = inCost + edgeCost[outEdge];
+					if (this.iterationIds[toNodeIdx] != this.currentIteration || this.cost[toNodeIdx] >= viaCost) {
+						result.add(new int[] {inEdge, outEdge});
+					}
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Runs a Dijkstra search from the start node, ignoring the node to be contracted, until all target nodes are settled.
+		 * As only paths cheaper than <code>maxCost</code> can be witnesses, more expensive nodes are not visited at all.
+		 */
+		private void search(int startNodeIdx, int ignoredNodeIdx, double maxCost, int targetCount) {
+			this.pq.clear();
+			this.cost[startNodeIdx] = 0;
+			this.settled[startNodeIdx] = false;
+			this.iterationIds[startNodeIdx] = this.currentIteration;
+			this.pq.insert(startNodeIdx, 0);
+			int settledCount = 0;
+			while (!this.pq.isEmpty() && settledCount < WITNESS_SETTLED_LIMIT) {
+				int nodeIdx = this.pq.poll();
+				this.settled[nodeIdx] = true;
+				settledCount++;
+				if (this.targetIds[nodeIdx] == this.currentIteration) {
+					targetCount--;
+					if (targetCount == 0) {
+						break;
+					}
+				}
+				double currCost = this.cost[nodeIdx];
+				int[] out = outEdges[nodeIdx];
+				for (int i = 0, n = outSize[nodeIdx]; i < n; i++) {
+					int edge = out[i];
+					int toNodeIdx = edgeTo[edge];
+					if (toNodeIdx == ignoredNodeIdx) {
+						continue;
+					}
+					double newCost = currCost + edgeCost[edge];
+					if (newCost >= maxCost) {
+						continue;
+					}
+					if (this.iterationIds[toNodeIdx] != this.currentIteration) {
+						this.iterationIds[toNodeIdx] = this.currentIteration;
+						this.cost[toNodeIdx] = newCost;
+						this.settled[toNodeIdx] = false;
+						this.pq.insert(toNodeIdx, newCost);
+					} else if (!this.settled[toNodeIdx] && newCost < this.cost[toNodeIdx]) {
+						this.cost[toNodeIdx] = newCost;
+						this.pq.decreaseKey(toNodeIdx, newCost);
+					}
+				}
+			}
+		}
+	}
+}
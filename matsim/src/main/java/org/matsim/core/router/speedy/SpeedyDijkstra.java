@@ -30,6 +30,7 @@ public class SpeedyDijkstra implements LeastCostPathCalculator {
 	private final int[] comingFrom;
 	private final int[] usedLink;
 	private final SpeedyGraph.LinkIterator outLI;
+	private final SpeedyGraph.LinkCursor links;
 	private final DAryMinHeap pq;
 
 	public SpeedyDijkstra(SpeedyGraph graph, TravelTime tt, TravelDisutility td) {
@@ -42,6 +43,7 @@ public class SpeedyDijkstra implements LeastCostPathCalculator {
 		this.usedLink = new int[graph.nodeCount];
 		this.pq = new DAryMinHeap(graph.nodeCount, 6);
 		this.outLI = graph.getOutLinkIterator();
+		this.links = graph.createLinkCursor();
 	}
 
 	private double getCost(int nodeIndex) {
@@ -106,7 +108,7 @@ public class SpeedyDijkstra implements LeastCostPathCalculator {
 			this.outLI.reset(nodeIdx);
 			while (this.outLI.next()) {
 				int linkIdx = this.outLI.getLinkIndex();
-				Link link = this.graph.getLink(linkIdx);
+				Link link = this.links.get(linkIdx);
 				int toNode = this.outLI.getToNodeIndex();
 
 				double travelTime = this.tt.getLinkTravelTime(link, currTime, person, vehicle);
@@ -6,6 +6,8 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 
 import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 /**
  * Implements a highly optimized data structure for representing a MATSim network. Optimized to use as little memory as possible, and thus to fit as much memory as possible into CPU caches for high
@@ -54,6 +56,10 @@ public class SpeedyGraph {
     private final int[] linkData;
     private final Link[] links;
     private final Node[] nodes;
+    // only used if there are no arrays of links and nodes, see the constructor below
+    private final IntFunction<Link> linkLookup;
+    private final IntFunction<Node> nodeLookup;
+    private final Supplier<IntFunction<Link>> reusableLinkLookup;
 		private final boolean hasTurnRestrictions;
 
 	SpeedyGraph(int[] nodeData, int[] linkData, Node[] nodes, Link[] links, boolean hasTurnRestrictions) {
@@ -61,8 +67,31 @@ public class SpeedyGraph {
 		this.linkData = linkData;
 		this.nodes = nodes;
 		this.links = links;
-		this.nodeCount = this.nodes.length;
-		this.linkCount = this.links.length;
+		this.nodeLookup = null;
+		this.linkLookup = null;
+		this.reusableLinkLookup = null;
+		this.nodeCount = nodes.length;
+		this.linkCount = links.length;
+		this.hasTurnRestrictions = hasTurnRestrictions;
+	}
+
+	/**
+	 * Creates a graph whose nodes and links are only looked up when needed, e.g. to create the views of a
+	 * {@link org.matsim.core.network.compact.CompactNetwork} only for nodes and links that are actually visited.
+	 * <code>reusableLinks</code> supplies the lookups for {@link LinkCursor}s, which may return the same, moved
+	 * link object on every call.
+	 */
+	SpeedyGraph(int[] nodeData, int[] linkData, IntFunction<Node> nodes, IntFunction<Link> links, Supplier<IntFunction<Link>> reusableLinks,
+				int nodeCount, int linkCount, boolean hasTurnRestrictions) {
+		this.nodeData = nodeData;
+		this.linkData = linkData;
+		this.nodes = null;
+		this.links = null;
+		this.nodeLookup = nodes;
+		this.linkLookup = links;
+		this.reusableLinkLookup = reusableLinks;
+		this.nodeCount = nodeCount;
+		this.linkCount = linkCount;
 		this.hasTurnRestrictions = hasTurnRestrictions;
 	}
 
@@ -75,17 +104,48 @@ public class SpeedyGraph {
     }
 
     Link getLink(int index) {
-        return this.links[index];
+        Link[] links = this.links;
+        return links != null ? links[index] : this.linkLookup.apply(index);
+    }
+
+    /**
+     * Creates a cursor for the link relaxation loop of a single router, see {@link LinkCursor}.
+     */
+    LinkCursor createLinkCursor() {
+        return new LinkCursor(this.links, this.reusableLinkLookup == null ? null : this.reusableLinkLookup.get());
     }
 
     Node getNode(int index) {
-        return this.nodes[index];
+        Node[] nodes = this.nodes;
+        return nodes != null ? nodes[index] : this.nodeLookup.apply(index);
     }
 
 		boolean hasTurnRestrictions() {
 			return this.hasTurnRestrictions;
 		}
 
+    /**
+     * Resolves link indices in the hot loops of the routers without allocating. For regular networks, these are the
+     * links of the network. For graphs of a {@link org.matsim.core.network.compact.CompactNetwork}, a single link
+     * view is moved to the requested link on each call, so the returned link is only valid until the next call and
+     * must not be kept, e.g. in the path. Use {@link SpeedyGraph#getLink(int)} for links that are kept. A cursor is
+     * not thread-safe, every router creates its own.
+     */
+    static final class LinkCursor {
+        private final Link[] links;
+        private final IntFunction<Link> lookup;
+
+        private LinkCursor(Link[] links, IntFunction<Link> lookup) {
+            this.links = links;
+            this.lookup = lookup;
+        }
+
+        Link get(int index) {
+            Link[] links = this.links;
+            return links != null ? links[index] : this.lookup.apply(index);
+        }
+    }
+
     public interface LinkIterator {
 
         void reset(int nodeIdx);
@@ -5,12 +5,14 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.compact.CompactNetwork;
 import org.matsim.core.network.turnRestrictions.TurnRestrictionsContext;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.IntFunction;
 
 /**
  * Creates a {@link SpeedyGraph} for a provided {@link Network}.
@@ -27,6 +29,10 @@ public class SpeedyGraphBuilder {
 	private Node[] nodes;
 
 	public static SpeedyGraph build(Network network) {
+		if (network instanceof CompactNetwork compactNetwork) {
+			// nodes and links of a compact network have no attributes, thus also no turn restrictions
+			return new SpeedyGraphBuilder().buildFromCompactNetwork(compactNetwork);
+		}
 		if (hasTurnRestrictions(network)) {
 			return new SpeedyGraphBuilder().buildWithTurnRestrictions(network);
 		}
@@ -104,6 +110,62 @@ public class SpeedyGraphBuilder {
 		return new SpeedyGraph(this.nodeData, this.linkData, this.nodes, this.links, false);
 	}
 
+	/**
+	 * Builds the graph directly from the primitive columns of the compact network. Link and node views are only
+	 * created when the router asks for them, e.g. to get a link's travel time.
+	 */
+	private SpeedyGraph buildFromCompactNetwork(CompactNetwork network) {
+		this.nodeCount = Id.getNumberOfIds(Node.class);
+		this.linkCount = Id.getNumberOfIds(Link.class);
+
+		this.nodeData = new int[this.nodeCount * SpeedyGraph.NODE_SIZE];
+		this.linkData = new int[this.linkCount * SpeedyGraph.LINK_SIZE];
+		int[] nodeRows = new int[this.nodeCount];
+		int[] linkRows = new int[this.linkCount];
+
+		Arrays.fill(this.nodeData, -1);
+		Arrays.fill(this.linkData, -1);
+		Arrays.fill(nodeRows, -1);
+		Arrays.fill(linkRows, -1);
+
+		for (int row = 0; row < network.getNodeCount(); row++) {
+			nodeRows[network.getNodeId(row).index()] = row;
+		}
+		// same order of the links as for regular networks, so the same paths are found for equal costs
+		@SuppressWarnings("unchecked")
+		Id<Link>[] linkIds = new Id[network.getLinkCount()];
+		for (int row = 0; row < linkIds.length; row++) {
+			linkIds[row] = network.getLinkId(row);
+		}
+		Arrays.sort(linkIds);
+		for (Id<Link> linkId : linkIds) {
+			int row = network.getLinkRow(linkId);
+			int fromNodeIdx = network.getNodeId(network.getFromNodeRow(row)).index();
+			int toNodeIdx = network.getNodeId(network.getToNodeRow(row)).index();
+			int linkIdx = network.getLinkId(row).index();
+			double length = network.getLength(row);
+
+			int base = linkIdx * SpeedyGraph.LINK_SIZE;
+			this.linkData[base + 2] = fromNodeIdx;
+			this.linkData[base + 3] = toNodeIdx;
+			this.linkData[base + 4] = (int) Math.round(length * 100.0);
+			this.linkData[base + 5] = (int) Math.round(length / network.getFreespeed(row) * 100.0);
+
+			setOutLink(fromNodeIdx, linkIdx);
+			setInLink(toNodeIdx, linkIdx);
+			linkRows[linkIdx] = row;
+		}
+
+		return new SpeedyGraph(this.nodeData, this.linkData,
+				i -> nodeRows[i] < 0 ? null : network.getNode(nodeRows[i]),
+				i -> linkRows[i] < 0 ? null : network.getLink(linkRows[i]),
+				() -> {
+					IntFunction<Link> view = network.createReusableLinkView();
+					return i -> linkRows[i] < 0 ? null : view.apply(linkRows[i]);
+				},
+				this.nodeCount, this.linkCount, false);
+	}
+
 	private void addLink(Link link) {
 		int fromNodeIdx = link.getFromNode().getId().index();
 		int toNodeIdx = link.getToNode().getId().index();
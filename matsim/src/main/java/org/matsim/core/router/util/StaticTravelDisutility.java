@@ -0,0 +1,55 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * StaticTravelDisutility.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Marks a {@link TravelDisutility} whose value for a link does not depend on the time, the person or the vehicle,
+ * e.g. for free speed routing on a network without network change events. Routers that preprocess the link costs,
+ * like {@link org.matsim.core.router.speedy.SpeedyCHFactory}, only do so for travel disutilities with this marker.
+ * <p>
+ * Use {@link #of(TravelDisutility)} to declare an existing travel disutility as static.
+ */
+public interface StaticTravelDisutility extends TravelDisutility {
+
+	/**
+	 * Declares the given travel disutility as static. The caller is responsible that it actually is.
+	 */
+	static StaticTravelDisutility of(final TravelDisutility delegate) {
+		if (delegate instanceof StaticTravelDisutility staticDelegate) {
+			return staticDelegate;
+		}
+		return new StaticTravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return delegate.getLinkTravelDisutility(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return delegate.getLinkMinimumTravelDisutility(link);
+			}
+		};
+	}
+}
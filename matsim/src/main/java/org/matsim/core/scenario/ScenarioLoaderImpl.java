@@ -35,6 +35,7 @@ import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.network.io.NetworkChangeEventsParser;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationReaderBinary;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.facilities.MatsimFacilitiesReader;
 import org.matsim.households.HouseholdsReaderV10;
@@ -198,9 +199,15 @@ class ScenarioLoaderImpl {
             final String targetCRS = config.global().getCoordinateSystem();
 			final String internalCRS = config.global().getCoordinateSystem();
 
-            final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
-            reader.putAttributeConverters( attributeConverters );
-            reader.parse( populationFileName );
+			if ( PopulationReaderBinary.isBinaryPopulationFile( populationFileName.getPath() ) ) {
+				final PopulationReaderBinary reader = new PopulationReaderBinary(targetCRS, internalCRS, this.scenario);
+				reader.putAttributeConverters( attributeConverters );
+				reader.readURL( populationFileName );
+			} else {
+				final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
+				reader.putAttributeConverters( attributeConverters );
+				reader.parse( populationFileName );
+			}
 
 			PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
 		}
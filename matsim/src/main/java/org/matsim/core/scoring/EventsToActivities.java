@@ -81,10 +81,7 @@ public final class EventsToActivities implements ActivityStartEventHandler, Acti
             activity = firstActivity;
         }
         activity.setEndTime(event.getTime());
-		PersonExperiencedActivity personExperiencedActivity = new PersonExperiencedActivity(event.getPersonId(), activity);
-        for (ActivityHandler activityHandler : this.activityHandlers) {
-            activityHandler.handleActivity(personExperiencedActivity);
-        }
+        notifyActivityHandlers(new PersonExperiencedActivity(event.getPersonId(), activity));
     }
 
     @Override
@@ -107,12 +104,23 @@ public final class EventsToActivities implements ActivityStartEventHandler, Acti
     }
 
     public void finish() {
-        this.activities.forEach((id, activity) -> {
-			PersonExperiencedActivity personExperiencedActivity = new PersonExperiencedActivity(id, activity);
-            for (ActivityHandler activityHandler : this.activityHandlers) {
-                activityHandler.handleActivity(personExperiencedActivity);
-            }
-        });
+        this.activities.forEach((id, activity) -> notifyActivityHandlers(new PersonExperiencedActivity(id, activity)));
+    }
+
+    /**
+     * Creates an instance with its own state which passes the activities on to the handlers registered with this
+     * instance. This allows to convert the events of disjoint parts of the population in parallel.
+     */
+    EventsToActivities createShard() {
+        EventsToActivities shard = new EventsToActivities();
+        shard.addActivityHandler(this::notifyActivityHandlers);
+        return shard;
+    }
+
+    private void notifyActivityHandlers(PersonExperiencedActivity personExperiencedActivity) {
+        for (ActivityHandler activityHandler : this.activityHandlers) {
+            activityHandler.handleActivity(personExperiencedActivity);
+        }
     }
 
 }
@@ -23,6 +23,7 @@ import com.google.inject.Inject;
 import org.apache.logging.log4j.LogManager;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.IdToDoubleMap;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.*;
 import org.matsim.api.core.v01.events.handler.*;
@@ -132,8 +133,8 @@ public final class EventsToLegs
 
 	private final Map<Id<Person>, Leg> legs = new IdMap<>(Person.class);
 	private final Map<Id<Person>, List<Id<Link>>> experiencedRoutes = new IdMap<>(Person.class);
-	private final Map<Id<Person>, Double> relPosOnDepartureLinkPerPerson = new IdMap<>(Person.class);
-	private final Map<Id<Person>, Double> relPosOnArrivalLinkPerPerson = new IdMap<>(Person.class);
+	private final IdToDoubleMap<Person> relPosOnDepartureLinkPerPerson = new IdToDoubleMap<>(Person.class);
+	private final IdToDoubleMap<Person> relPosOnArrivalLinkPerPerson = new IdToDoubleMap<>(Person.class);
 
 	private final Map<Id<Person>, TeleportationArrivalEvent> routelessTravels = new IdMap<>(Person.class);
 	private final Map<Id<Person>, PendingTransitTravel> transitTravels = new IdMap<>(Person.class);
@@ -272,8 +273,10 @@ public final class EventsToLegs
 			 * (see MATSIM-227) tt feb'16
 			 */
 			double relPosOnDepartureLink = relPosOnDepartureLinkPerPerson.get(event.getPersonId());
-			Double relPosOnArrivalLink = relPosOnArrivalLinkPerPerson.get(event.getPersonId());
-			Gbl.assertNotNull(relPosOnArrivalLink);
+			double relPosOnArrivalLink = relPosOnArrivalLinkPerPerson.get(event.getPersonId());
+			// NaN means there is no value, i.e. the person did not depart or arrive on a link
+			Gbl.assertIf(!Double.isNaN(relPosOnDepartureLink));
+			Gbl.assertIf(!Double.isNaN(relPosOnArrivalLink));
 			networkRoute.setDistance(
 					RouteUtils.calcDistance(networkRoute, relPosOnDepartureLink, relPosOnArrivalLink, network));
 
@@ -340,7 +343,10 @@ public final class EventsToLegs
 			leg.setRoute(genericRoute);
 		}
 
-		PersonExperiencedLeg personExperiencedLeg = new PersonExperiencedLeg(event.getPersonId(), leg);
+		notifyLegHandlers(new PersonExperiencedLeg(event.getPersonId(), leg));
+	}
+
+	private void notifyLegHandlers(PersonExperiencedLeg personExperiencedLeg) {
 		for (LegHandler legHandler : legHandlers) {
 			legHandler.handleLeg(personExperiencedLeg);
 		}
@@ -356,4 +362,15 @@ public final class EventsToLegs
 	public void addLegHandler(LegHandler legHandler) {
 		this.legHandlers.add(legHandler);
 	}
+
+	/**
+	 * Creates an instance with its own state which passes the legs on to the handlers registered with this instance.
+	 * This allows to convert the events of disjoint parts of the population in parallel.
+	 */
+	EventsToLegs createShard() {
+		EventsToLegs shard = new EventsToLegs(this.network);
+		shard.transitSchedule = this.transitSchedule;
+		shard.addLegHandler(this::notifyLegHandlers);
+		return shard;
+	}
 }
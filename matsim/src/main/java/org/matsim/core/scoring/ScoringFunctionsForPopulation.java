@@ -34,6 +34,7 @@ import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.PersonArrivalEvent;
 import org.matsim.api.core.v01.events.PersonDepartureEvent;
 import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonScoreEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
@@ -51,6 +52,7 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControllerConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
@@ -63,8 +65,14 @@ import org.matsim.vehicles.Vehicle;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.matsim.core.router.TripStructureUtils.Trip;
@@ -73,12 +81,22 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p>
+ * If more than one scoring shard is configured ({@link ControllerConfigGroup#getScoringShards()}), the population is
+ * partitioned by person id, and every partition (shard) converts and scores the events of its persons on its own
+ * thread, with its own {@link EventsToLegs} and {@link EventsToActivities} state. Events without a person id, but
+ * with a vehicle id, are passed to the shards of all persons currently in that vehicle; transit events are passed to
+ * all shards. The events handling thread then only dispatches the events, and the shards are drained before the
+ * scores are finished.
  *
  * @author michaz
  *
  */
  final class ScoringFunctionsForPopulation implements BasicEventHandler {
 
+	private static final int SHARD_BATCH_SIZE = 1024;
+	private static final int SHARD_MAX_PENDING_BATCHES = 64;
+
 	private final Population population;
 	private final ScoringFunctionFactory scoringFunctionFactory;
 
@@ -90,7 +108,8 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	private final IdMap<Person, Plan> tripRecords = new IdMap<>(Person.class);
 
-	private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+	private final Shard[] shards;
+	private final IdMap<Vehicle, int[]> vehicleOccupantsPerShard = new IdMap<>(Vehicle.class);
 
 	@Inject
 	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
@@ -110,6 +129,23 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		this.actsDelegate = eventsToActivities;
 		this.scoringFunctionFactory = scoringFunctionFactory;
 
+		int shardCount = Math.max(1, controllerConfigGroup.getScoringShards());
+		this.shards = new Shard[shardCount];
+		if (shardCount == 1) {
+			this.shards[0] = new Shard(0, eventsToLegs, eventsToActivities);
+		} else {
+			for (int i = 0; i < shardCount; i++) {
+				this.shards[i] = new Shard(i, eventsToLegs.createShard(), eventsToActivities.createShard());
+			}
+			// the shared EventsToActivities does not see any events in this case, so the shards must report the last activities
+			controlerListenerManager.addControlerListener((AfterMobsimListener) event -> {
+				waitForShards();
+				for (Shard shard : this.shards) {
+					shard.acts.finish();
+				}
+			});
+		}
+
 		eventsManager.addHandler(this);
 		eventsToActivities.addActivityHandler(this::handleActivity);
 		eventsToLegs.addLegHandler(this::handleLeg);
@@ -125,10 +161,61 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	public void handleEvent(Event o) {
+		if (this.shards.length == 1) {
+			handleEvent(this.shards[0], o);
+			return;
+		}
+		if (o instanceof HasPersonId) {
+			int shardIndex = getShardIndex(((HasPersonId) o).getPersonId());
+			if (o instanceof PersonEntersVehicleEvent) {
+				Id<Vehicle> vehicleId = ((PersonEntersVehicleEvent) o).getVehicleId();
+				this.vehicleOccupantsPerShard.computeIfAbsent(vehicleId, id -> new int[this.shards.length])[shardIndex]++;
+			}
+			if (o instanceof PersonLeavesVehicleEvent) {
+				int[] occupants = this.vehicleOccupantsPerShard.get(((PersonLeavesVehicleEvent) o).getVehicleId());
+				if (occupants != null && occupants[shardIndex] > 0) {
+					occupants[shardIndex]--;
+				}
+			}
+			if (o instanceof VehicleEntersTrafficEvent) {
+				dispatchToOccupants(((VehicleEntersTrafficEvent) o).getVehicleId(), o, shardIndex);
+			} else if (o instanceof VehicleLeavesTrafficEvent) {
+				dispatchToOccupants(((VehicleLeavesTrafficEvent) o).getVehicleId(), o, shardIndex);
+			} else {
+				this.shards[shardIndex].add(o);
+			}
+		} else if (o instanceof LinkEnterEvent) {
+			dispatchToOccupants(((LinkEnterEvent) o).getVehicleId(), o, -1);
+		} else if (o instanceof TransitDriverStartsEvent || o instanceof VehicleArrivesAtFacilityEvent) {
+			for (Shard shard : this.shards) {
+				shard.add(o);
+			}
+		}
+	}
+
+	/**
+	 * Passes a vehicle event to all shards with persons in the vehicle, and additionally to the shard of the person
+	 * the event refers to, if any.
+	 */
+	private void dispatchToOccupants(Id<Vehicle> vehicleId, Event o, int personShardIndex) {
+		int[] occupants = this.vehicleOccupantsPerShard.get(vehicleId);
+		for (int i = 0; i < this.shards.length; i++) {
+			if (i == personShardIndex || (occupants != null && occupants[i] > 0)) {
+				this.shards[i].add(o);
+			}
+		}
+	}
+
+	private int getShardIndex(Id<Person> personId) {
+		return personId == null ? 0 : personId.index() % this.shards.length;
+	}
+
+	private void handleEvent(Shard shard, Event o) {
 		// this is for the stuff that is directly based on events. note that this passes on _all_ person events, even those which are
 		// aggregated into legs and activities. for the time being, not all PersonEvents may "implement HasPersonId". link enter/leave events
 		// are NOT passed on, for performance reasons. kai/dominik, dec'12
-		if (o instanceof HasPersonId) {
+		// with several shards, vehicle events are also passed to shards which do not own the person of the event
+		if (o instanceof HasPersonId && shard.owns(((HasPersonId) o).getPersonId())) {
 			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
 			if (scoringFunction != null) {
 				if (o instanceof PersonStuckEvent) {
@@ -146,11 +233,11 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 
 		// Establish and end connection between driver and vehicle
-		if (o instanceof VehicleEntersTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+		if (o instanceof VehicleEntersTrafficEvent && shard.owns(((VehicleEntersTrafficEvent) o).getPersonId())) {
+			shard.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
 		}
-		if (o instanceof VehicleLeavesTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+		if (o instanceof VehicleLeavesTrafficEvent && shard.owns(((VehicleLeavesTrafficEvent) o).getPersonId())) {
+			shard.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
 		}
 
 		// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
@@ -163,8 +250,9 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		 */
 		if (o instanceof LinkEnterEvent) {
 			Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
-			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
-			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
+			Id<Person> driverId = shard.vehicles2Drivers.getDriverOfVehicle(vehicleId);
+			// (the driver is unknown in shards which only see the event because of a passenger)
+			ScoringFunction scoringFunction = driverId == null ? null : getScoringFunctionForAgent( driverId );
 			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
 			if (scoringFunction != null) {
 				scoringFunction.handleEvent(o);
@@ -178,22 +266,22 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		 * makes sure that the corresponding event was already seen by a scoring function when the call to handleActivity(),
 		 * handleLeg() or handleTrip() is done.
 		 */
-		if (o instanceof ActivityStartEvent) this.handleActivityStart((ActivityStartEvent) o);
-		if (o instanceof ActivityEndEvent) this.actsDelegate.handleEvent((ActivityEndEvent) o);
-
-		if (o instanceof PersonDepartureEvent) this.legsDelegate.handleEvent((PersonDepartureEvent) o);
-		if (o instanceof PersonArrivalEvent) this.legsDelegate.handleEvent((PersonArrivalEvent) o);
-		if (o instanceof LinkEnterEvent) this.legsDelegate.handleEvent((LinkEnterEvent) o);
-		if (o instanceof TeleportationArrivalEvent) this.legsDelegate.handleEvent((TeleportationArrivalEvent) o);
-		if (o instanceof TransitDriverStartsEvent) this.legsDelegate.handleEvent((TransitDriverStartsEvent) o);
-		if (o instanceof PersonEntersVehicleEvent) this.legsDelegate.handleEvent((PersonEntersVehicleEvent) o);
-		if (o instanceof VehicleArrivesAtFacilityEvent) this.legsDelegate.handleEvent((VehicleArrivesAtFacilityEvent) o);
-		if (o instanceof VehicleEntersTrafficEvent) this.legsDelegate.handleEvent((VehicleEntersTrafficEvent) o);
-		if (o instanceof VehicleLeavesTrafficEvent) this.legsDelegate.handleEvent((VehicleLeavesTrafficEvent) o);
+		if (o instanceof ActivityStartEvent) this.handleActivityStart(shard, (ActivityStartEvent) o);
+		if (o instanceof ActivityEndEvent) shard.acts.handleEvent((ActivityEndEvent) o);
+
+		if (o instanceof PersonDepartureEvent) shard.legs.handleEvent((PersonDepartureEvent) o);
+		if (o instanceof PersonArrivalEvent) shard.legs.handleEvent((PersonArrivalEvent) o);
+		if (o instanceof LinkEnterEvent) shard.legs.handleEvent((LinkEnterEvent) o);
+		if (o instanceof TeleportationArrivalEvent) shard.legs.handleEvent((TeleportationArrivalEvent) o);
+		if (o instanceof TransitDriverStartsEvent) shard.legs.handleEvent((TransitDriverStartsEvent) o);
+		if (o instanceof PersonEntersVehicleEvent) shard.legs.handleEvent((PersonEntersVehicleEvent) o);
+		if (o instanceof VehicleArrivesAtFacilityEvent) shard.legs.handleEvent((VehicleArrivesAtFacilityEvent) o);
+		if (o instanceof VehicleEntersTrafficEvent) shard.legs.handleEvent((VehicleEntersTrafficEvent) o);
+		if (o instanceof VehicleLeavesTrafficEvent) shard.legs.handleEvent((VehicleLeavesTrafficEvent) o);
 	}
 
-	private void handleActivityStart(ActivityStartEvent event) {
-		this.actsDelegate.handleEvent(event);
+	private void handleActivityStart(Shard shard, ActivityStartEvent event) {
+		shard.acts.handleEvent(event);
 		if (!StageActivityTypeIdentifier.isStageActivity( event.getActType() ) ) {
 			this.callTripScoring(event);
 		}
@@ -270,6 +358,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	void finishScoringFunctions() {
+		waitForShards();
+		for (Shard shard : this.shards) {
+			shard.shutdown();
+		}
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = this.exception.get();
 		if (throwable != null) {
@@ -307,6 +399,106 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	public void reset(int iteration) {
 		this.legsDelegate.reset(iteration);
 		this.actsDelegate.reset(iteration);
+		if (this.shards.length > 1) {
+			waitForShards();
+			for (Shard shard : this.shards) {
+				shard.legs.reset(iteration);
+				shard.acts.reset(iteration);
+			}
+			this.vehicleOccupantsPerShard.clear();
+		}
+	}
+
+	private void waitForShards() {
+		for (Shard shard : this.shards) {
+			shard.flush();
+		}
+		for (Shard shard : this.shards) {
+			shard.await();
+		}
+	}
+
+	/**
+	 * The state to convert and score the events of one part of the population. Events are collected in batches, which
+	 * are processed in order by a single thread per shard. Only a bounded number of batches may be pending, so the
+	 * events handling thread is slowed down if scoring cannot keep up.
+	 */
+	private final class Shard {
+
+		private final int index;
+		private final EventsToLegs legs;
+		private final EventsToActivities acts;
+		private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+
+		private final Semaphore pendingBatches = new Semaphore(SHARD_MAX_PENDING_BATCHES);
+		private ExecutorService executor = null;
+		private Future<?> lastBatch = null;
+		private List<Event> batch = new ArrayList<>(SHARD_BATCH_SIZE);
+
+		Shard(int index, EventsToLegs legs, EventsToActivities acts) {
+			this.index = index;
+			this.legs = legs;
+			this.acts = acts;
+		}
+
+		boolean owns(Id<Person> personId) {
+			return shards.length == 1 || getShardIndex(personId) == this.index;
+		}
+
+		void add(Event event) {
+			this.batch.add(event);
+			if (this.batch.size() == SHARD_BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if (this.batch.isEmpty()) {
+				return;
+			}
+			List<Event> events = this.batch;
+			this.batch = new ArrayList<>(SHARD_BATCH_SIZE);
+			if (this.executor == null) {
+				this.executor = Executors.newSingleThreadExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "ScoringShard-" + this.index);
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			this.pendingBatches.acquireUninterruptibly();
+			this.lastBatch = this.executor.submit(() -> {
+				try {
+					if (exception.get() == null) {
+						for (Event event : events) {
+							handleEvent(this, event);
+						}
+					}
+				} catch (Throwable t) {
+					exception.compareAndSet(null, t);
+				} finally {
+					this.pendingBatches.release();
+				}
+			});
+		}
+
+		void await() {
+			if (this.lastBatch == null) {
+				return;
+			}
+			try {
+				this.lastBatch.get();
+			} catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException(e);
+			}
+			this.lastBatch = null;
+		}
+
+		void shutdown() {
+			if (this.executor != null) {
+				this.executor.shutdown();
+				this.executor = null;
+			}
+		}
 	}
 
 }
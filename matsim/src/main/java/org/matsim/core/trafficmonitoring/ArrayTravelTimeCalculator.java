@@ -0,0 +1,486 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrayTravelTimeCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleAbortsEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+
+/**
+ * Calculates the same link travel times as {@link TravelTimeCalculator}, but keeps all its state in primitive
+ * collections keyed by {@link Id#index()} instead of maps of boxed objects:
+ * <ul>
+ * <li>the link enter times of the vehicles are stored in a primitive open addressing hash map per shard, keyed by
+ * the vehicle index. It only holds the vehicles currently on the links of the shard, instead of a <code>double[]</code>
+ * over all vehicle indices, which would grow with every vehicle id ever created,</li>
+ * <li>the number and the sum of the observed travel times are accumulated in a flat <code>int[]</code> and
+ * <code>double[]</code> with one entry per link and time bin, indexed by <code>linkIndex * numSlots + slot</code>.</li>
+ * </ul>
+ * No objects are allocated while events are handled, and the data does not consist of millions of small objects
+ * that end up in the old generation.
+ * <p>
+ * The links are partitioned into <code>numberOfShards</code> shards by their index. Each shard is a separate
+ * event handler (see {@link #getEventHandlers()}) that only records the travel times of its own links, so a
+ * parallel events manager can run the shards in different threads. As a vehicle is only ever on one link, the
+ * shards do not share any mutable state.
+ * <p>
+ * Link-to-link travel times are not supported.
+ *
+ * @see TravelTimeCalculator
+ */
+public final class ArrayTravelTimeCalculator {
+	private static final Logger log = LogManager.getLogger(ArrayTravelTimeCalculator.class);
+
+	private final Network network;
+	private final double timeSlice;
+	private final int numSlots;
+	private final TimeSlotComputation aggregator;
+	private final boolean interpolate;
+	private final boolean filterAnalyzedModes;
+	private final Set<String> analyzedModes;
+	private final Shard[] shards;
+
+	private static int cnt = 0;
+
+	public final static class Builder {
+
+		private final Network network;
+		private double timeslice = 900;
+		private int maxTime = 36 * 3600;
+		private boolean filterModes = false;
+		private Set<String> analyzedModes = null;
+		private String travelTimeGetter = "average";
+		private int numberOfShards = 1;
+
+		public Builder(Network network) {
+			this.network = network;
+		}
+
+		public void setTimeslice(double timeslice) {
+			this.timeslice = timeslice;
+		}
+
+		public void setMaxTime(int maxTime) {
+			this.maxTime = maxTime;
+		}
+
+		public void setFilterModes(boolean filterModes) {
+			this.filterModes = filterModes;
+		}
+
+		public void setAnalyzedModes(Set<String> analyzedModes) {
+			this.analyzedModes = analyzedModes;
+		}
+
+		/**
+		 * @param travelTimeGetter either <code>average</code> or <code>linearinterpolation</code>, see
+		 *                         {@link TravelTimeCalculatorConfigGroup#getTravelTimeGetterType()}
+		 */
+		public void setTravelTimeGetter(String travelTimeGetter) {
+			this.travelTimeGetter = travelTimeGetter;
+		}
+
+		public void setNumberOfShards(int numberOfShards) {
+			this.numberOfShards = numberOfShards;
+		}
+
+		/**
+		 * Takes over time bin size, max time, travel time getter and number of shards from the config group. Mode
+		 * filtering is not taken over, since it depends on whether modes are analyzed separately.
+		 */
+		public void configure(TravelTimeCalculatorConfigGroup ttcConfig) {
+			this.timeslice = ttcConfig.getTraveltimeBinSize();
+			this.maxTime = ttcConfig.getMaxTime();
+			this.travelTimeGetter = ttcConfig.getTravelTimeGetterType();
+			this.numberOfShards = ttcConfig.getNumberOfShards();
+		}
+
+		public ArrayTravelTimeCalculator build() {
+			return new ArrayTravelTimeCalculator(network, timeslice, maxTime, filterModes, analyzedModes, travelTimeGetter, numberOfShards);
+		}
+	}
+
+	private ArrayTravelTimeCalculator(Network network, double timeslice, int maxTime, boolean filterModes, Set<String> analyzedModes,
+									  String travelTimeGetter, int numberOfShards) {
+		if (numberOfShards < 1) {
+			throw new IllegalArgumentException("numberOfShards must be at least 1, but was " + numberOfShards);
+		}
+		this.network = network;
+		this.timeSlice = timeslice;
+		this.numSlots = TimeBinUtils.getTimeBinCount(maxTime, timeslice);
+		this.aggregator = new TimeSlotComputation(this.numSlots, this.timeSlice);
+		switch (travelTimeGetter) {
+			case "average":
+				this.interpolate = false;
+				break;
+			case "linearinterpolation":
+				this.interpolate = true;
+				break;
+			default:
+				throw new RuntimeException(travelTimeGetter + " is unknown!");
+		}
+		this.filterAnalyzedModes = filterModes;
+		this.analyzedModes = analyzedModes;
+
+		int linksPerShard = (Id.getNumberOfIds(Link.class) + numberOfShards - 1) / numberOfShards;
+		if ((long) linksPerShard * this.numSlots > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many links and time bins for " + numberOfShards + " shard(s), increase the number of shards.");
+		}
+		this.shards = new Shard[numberOfShards];
+		for (int i = 0; i < numberOfShards; i++) {
+			this.shards[i] = new Shard(i, linksPerShard);
+		}
+	}
+
+	/**
+	 * Returns the event handlers that need to be added to the events manager, one per shard.
+	 */
+	public List<EventHandler> getEventHandlers() {
+		return List.<EventHandler>of(this.shards);
+	}
+
+	public void addEventHandlersTo(EventsManager eventsManager) {
+		for (Shard shard : this.shards) {
+			eventsManager.addHandler(shard);
+		}
+	}
+
+	public TravelTime getLinkTravelTimes() {
+		return new TravelTime() {
+
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				double linkTtimeFromVehicle = 0.;
+				if (vehicle != null) {
+					final VehicleType vehicleType = vehicle.getType();
+					if (vehicleType == null) {
+						if (cnt < 1) {
+							cnt++;
+							log.warn("encountered vehicle where vehicle.getType() returns null.  That should be repaired (whereever it comes from).");
+							log.warn(Gbl.ONLYONCE);
+						}
+					} else {
+						linkTtimeFromVehicle = link.getLength() / vehicleType.getMaximumVelocity();
+					}
+				}
+				double linkTTimeFromObservation = ArrayTravelTimeCalculator.this.getLinkTravelTime(link, time);
+				// the observed speed must not exceed the maximum vehicle speed, see TravelTimeCalculator
+				return Math.max(linkTtimeFromVehicle, linkTTimeFromObservation);
+			}
+		};
+	}
+
+	private double getLinkTravelTime(Link link, double time) {
+		int linkIndex = link.getId().index();
+		Shard shard = this.shards[linkIndex % this.shards.length];
+		int row = linkIndex / this.shards.length;
+		if (!shard.consolidated) {
+			shard.consolidate();
+		}
+		if (!shard.observed.get(row)) {
+			return link.getLength() / link.getFreespeed(time);
+		}
+		int offset = row * this.numSlots;
+		float[] travelTimes = shard.travelTimes;
+		int timeSlot = this.aggregator.getTimeSlotIndex(time);
+		if (!this.interpolate) {
+			return travelTimes[offset + timeSlot];
+		}
+
+		// same as LinearInterpolatingTravelTimeGetter
+		double halfBinSize = this.timeSlice / 2;
+		if (time <= halfBinSize || time >= this.numSlots * this.timeSlice - halfBinSize) {
+			return travelTimes[offset + timeSlot];
+		}
+		int firstSlot = timeSlot * this.timeSlice + halfBinSize > time ? timeSlot - 1 : timeSlot;
+		double firstTravelTime = travelTimes[offset + firstSlot];
+		double secondTravelTime = travelTimes[offset + firstSlot + 1];
+		double dx = time - (firstSlot * this.timeSlice + halfBinSize);
+		return firstTravelTime + (secondTravelTime - firstTravelTime) * dx / this.timeSlice;
+	}
+
+	/**
+	 * Records the travel times of all links with <code>linkIndex % numberOfShards == shardIndex</code>. Its link
+	 * data is stored at row <code>linkIndex / numberOfShards</code>.
+	 */
+	private final class Shard implements LinkEnterEventHandler, LinkLeaveEventHandler, VehicleEntersTrafficEventHandler,
+			VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler, VehicleAbortsEventHandler {
+
+		private final int shardIndex;
+
+		private final EnterTimes enterTimes = new EnterTimes();
+		private final BitSet vehiclesToIgnore = new BitSet();
+
+		/** number of observed travel times per link and time bin */
+		private int[] counts;
+		/** sum of the observed travel times per link and time bin, same layout as {@link #counts} */
+		private double[] sums;
+		/** links with at least one observation since the last reset */
+		private final BitSet observed = new BitSet();
+		/** links with observations that have not yet been consolidated */
+		private final BitSet dirty = new BitSet();
+		/** consolidated travel times of the observed links, same layout as {@link #counts} */
+		private float[] travelTimes = new float[0];
+		private volatile boolean consolidated = true;
+
+		Shard(int shardIndex, int rows) {
+			this.shardIndex = shardIndex;
+			this.counts = new int[rows * numSlots];
+			this.sums = new double[rows * numSlots];
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			int linkIndex = event.getLinkId().index();
+			if (linkIndex % shards.length != this.shardIndex) return;
+			int vehicleIndex = event.getVehicleId().index();
+			/* if only some modes are analyzed, we check whether the vehicles
+			 * performs a trip with one of those modes. if not, we skip the event. */
+			if (filterAnalyzedModes && this.vehiclesToIgnore.get(vehicleIndex)) return;
+			this.enterTimes.put(vehicleIndex, event.getTime());
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			int linkIndex = event.getLinkId().index();
+			if (linkIndex % shards.length != this.shardIndex) return;
+			double enterTime = this.enterTimes.remove(event.getVehicleId().index());
+			if (Double.isNaN(enterTime)) return;
+
+			int row = linkIndex / shards.length;
+			ensureLinkCapacity(row);
+			int timeSlot = aggregator.getTimeSlotIndex(enterTime);
+			int index = row * numSlots + timeSlot;
+			this.counts[index]++;
+			this.sums[index] += event.getTime() - enterTime;
+			this.observed.set(row);
+			this.dirty.set(row);
+			if (this.consolidated) {
+				this.consolidated = false;
+			}
+		}
+
+		@Override
+		public void handleEvent(VehicleEntersTrafficEvent event) {
+			/* if filtering transport modes is enabled and the vehicles
+			 * starts a leg on a non analyzed transport mode, add the vehicle
+			 * to the filtered vehicles set. */
+			if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode())) {
+				this.vehiclesToIgnore.set(event.getVehicleId().index());
+			}
+		}
+
+		@Override
+		public void handleEvent(VehicleLeavesTrafficEvent event) {
+			// otherwise, the activity duration would be counted as travel time when the vehicle departs again
+			clearEnterTime(event.getVehicleId());
+			if (filterAnalyzedModes) this.vehiclesToIgnore.clear(event.getVehicleId().index());
+		}
+
+		@Override
+		public void handleEvent(VehicleArrivesAtFacilityEvent event) {
+			// otherwise, the stop time would be counted as travel time when the bus departs again
+			clearEnterTime(event.getVehicleId());
+		}
+
+		@Override
+		public void handleEvent(VehicleAbortsEvent event) {
+			clearEnterTime(event.getVehicleId());
+			if (filterAnalyzedModes) this.vehiclesToIgnore.clear(event.getVehicleId().index());
+		}
+
+		@Override
+		public void reset(int iteration) {
+			for (int row = this.observed.nextSetBit(0); row >= 0; row = this.observed.nextSetBit(row + 1)) {
+				Arrays.fill(this.counts, row * numSlots, (row + 1) * numSlots, 0);
+				Arrays.fill(this.sums, row * numSlots, (row + 1) * numSlots, 0.0);
+			}
+			this.observed.clear();
+			this.dirty.clear();
+			this.consolidated = true;
+			this.enterTimes.clear();
+			this.vehiclesToIgnore.clear();
+		}
+
+		private void clearEnterTime(Id<Vehicle> vehicleId) {
+			this.enterTimes.remove(vehicleId.index());
+		}
+
+		private void ensureLinkCapacity(int row) {
+			int rows = this.counts.length / numSlots;
+			if (row >= rows) {
+				// links were added after the calculator was created
+				int newRows = Math.max(row + 1, rows + (rows >> 3));
+				this.counts = Arrays.copyOf(this.counts, newRows * numSlots);
+				this.sums = Arrays.copyOf(this.sums, newRows * numSlots);
+			}
+		}
+
+		/**
+		 * Computes the travel times of all links observed since the last consolidation, and makes sure that the
+		 * travel time in a time bin cannot be smaller than the travel time in the bin before minus the bin size.
+		 * See {@link TravelTimeCalculator} for a motivation.
+		 */
+		private synchronized void consolidate() {
+			if (this.consolidated) {
+				return;
+			}
+			if (this.travelTimes.length < this.counts.length) {
+				this.travelTimes = Arrays.copyOf(this.travelTimes, this.counts.length);
+			}
+			for (int row = this.dirty.nextSetBit(0); row >= 0; row = this.dirty.nextSetBit(row + 1)) {
+				Link link = network.getLinks().get(Id.get(row * shards.length + this.shardIndex, Link.class));
+				int offset = row * numSlots;
+				double prevTravelTime = Double.NEGATIVE_INFINITY;
+				for (int i = 0; i < numSlots; i++) {
+					int count = this.counts[offset + i];
+					double travelTime = count == 0 ? link.getLength() / link.getFreespeed(i * timeSlice) : this.sums[offset + i] / count;
+					travelTime = Math.max(travelTime, prevTravelTime - timeSlice);
+					this.travelTimes[offset + i] = (float) travelTime;
+					prevTravelTime = travelTime;
+				}
+			}
+			this.dirty.clear();
+			// the volatile write publishes the travel times to the routing threads
+			this.consolidated = true;
+		}
+	}
+
+	/**
+	 * Maps vehicle indices to link enter times, using open addressing with linear probing. A shard only holds the
+	 * vehicles that are currently on one of its links, so its size does not depend on the size of the whole fleet.
+	 */
+	private static final class EnterTimes {
+		/** vehicle index + 1, <code>0</code> marks an empty slot */
+		private int[] keys = new int[64];
+		private double[] times = new double[64];
+		private int size = 0;
+
+		void put(int vehicleIndex, double time) {
+			int key = vehicleIndex + 1;
+			int mask = this.keys.length - 1;
+			int slot = hash(key) & mask;
+			while (this.keys[slot] != 0) {
+				if (this.keys[slot] == key) {
+					this.times[slot] = time;
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+			this.keys[slot] = key;
+			this.times[slot] = time;
+			this.size++;
+			if (2 * this.size > this.keys.length) {
+				rehash(2 * this.keys.length);
+			}
+		}
+
+		/**
+		 * @return the enter time of the vehicle, or <code>NaN</code> if there is none; the entry is removed
+		 */
+		double remove(int vehicleIndex) {
+			int key = vehicleIndex + 1;
+			int mask = this.keys.length - 1;
+			int slot = hash(key) & mask;
+			while (this.keys[slot] != 0) {
+				if (this.keys[slot] == key) {
+					double time = this.times[slot];
+					removeSlot(slot);
+					return time;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return Double.NaN;
+		}
+
+		void clear() {
+			Arrays.fill(this.keys, 0);
+			this.size = 0;
+		}
+
+		/**
+		 * Shifts the following entries of the probe sequence back, so lookups do not need tombstones.
+		 */
+		private void removeSlot(int hole) {
+			int mask = this.keys.length - 1;
+			int slot = hole;
+			while (true) {
+				slot = (slot + 1) & mask;
+				int key = this.keys[slot];
+				if (key == 0) {
+					break;
+				}
+				int home = hash(key) & mask;
+				if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+					this.keys[hole] = key;
+					this.times[hole] = this.times[slot];
+					hole = slot;
+				}
+			}
+			this.keys[hole] = 0;
+			this.size--;
+		}
+
+		private void rehash(int capacity) {
+			int[] oldKeys = this.keys;
+			double[] oldTimes = this.times;
+			this.keys = new int[capacity];
+			this.times = new double[capacity];
+			this.size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != 0) {
+					put(oldKeys[i] - 1, oldTimes[i]);
+				}
+			}
+		}
+
+		private static int hash(int key) {
+			int h = key * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+	}
+}
@@ -50,6 +50,10 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 
 	@Override
 	public void install() {
+		if (getConfig().travelTimeCalculator().getCalculatorType() == TravelTimeCalculatorConfigGroup.CalculatorType.ArrayTravelTimeCalculator) {
+			installArrayTravelTimeCalculator();
+			return;
+		}
 		if (getConfig().travelTimeCalculator().getSeparateModes()) {
 			// (this is the default)
 
@@ -113,6 +117,82 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 
 	}
 
+	private void installArrayTravelTimeCalculator() {
+		TravelTimeCalculatorConfigGroup ttcConfig = getConfig().travelTimeCalculator();
+		if (ttcConfig.isCalculateLinkToLinkTravelTimes()) {
+			throw new RuntimeException(TravelTimeCalculatorConfigGroup.CalculatorType.ArrayTravelTimeCalculator + " does not support link-to-link travel times.");
+		}
+		if (!ttcConfig.isCalculateLinkTravelTimes()) {
+			return;
+		}
+		if (ttcConfig.getSeparateModes()) {
+			for (final String mode : getConfig().routing().getNetworkModes()) {
+				if (ttcConfig.getAnalyzedModes().contains(mode)) {
+					bind(ArrayTravelTimeCalculator.class).annotatedWith(Names.named(mode)).toProvider(new ArrayTravelTimeCalculatorProvider(mode)).in(Singleton.class);
+					addTravelTimeBinding(mode).toProvider(new Provider<TravelTime>() {
+						@Inject
+						Injector injector;
+
+						@Override
+						public TravelTime get() {
+							return injector.getInstance(Key.get(ArrayTravelTimeCalculator.class, Names.named(mode))).getLinkTravelTimes();
+						}
+					}).in(Singleton.class);
+				} else {
+					addTravelTimeBinding(mode).to(FreeSpeedTravelTime.class).in(Singleton.class);
+				}
+			}
+		} else {
+			bind(ArrayTravelTimeCalculator.class).toProvider(new ArrayTravelTimeCalculatorProvider(null)).in(Singleton.class);
+			for (String mode : getConfig().routing().getNetworkModes()) {
+				addTravelTimeBinding(mode).toProvider(new Provider<TravelTime>() {
+					@Inject
+					ArrayTravelTimeCalculator travelTimeCalculator;
+
+					@Override
+					public TravelTime get() {
+						return travelTimeCalculator.getLinkTravelTimes();
+					}
+				});
+			}
+		}
+	}
+
+	private static class ArrayTravelTimeCalculatorProvider implements Provider<ArrayTravelTimeCalculator> {
+
+		@Inject
+		TravelTimeCalculatorConfigGroup config;
+		@Inject
+		EventsManager eventsManager;
+		@Inject
+		Network network;
+
+		private final String mode;
+
+		/**
+		 * @param mode the single mode to analyze, or <code>null</code> if all modes are measured together
+		 */
+		ArrayTravelTimeCalculatorProvider(String mode) {
+			this.mode = mode;
+		}
+
+		@Override
+		public ArrayTravelTimeCalculator get() {
+			ArrayTravelTimeCalculator.Builder builder = new ArrayTravelTimeCalculator.Builder(network);
+			builder.configure(config);
+			if (mode != null) {
+				builder.setFilterModes(true);
+				builder.setAnalyzedModes(CollectionUtils.stringToSet(mode));
+			} else {
+				builder.setFilterModes(config.isFilterModes());
+				builder.setAnalyzedModes(config.getAnalyzedModes());
+			}
+			ArrayTravelTimeCalculator calculator = builder.build();
+			calculator.addEventHandlersTo(eventsManager);
+			return calculator;
+		}
+	}
+
 	private static class SingleModeTravelTimeCalculatorProvider implements Provider<TravelTimeCalculator> {
 
 		@Inject
@@ -0,0 +1,254 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeChangeTracker.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.inject.Inject;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Keeps track of the links whose travel times changed noticeably, so that routes not using any of them need not be
+ * re-computed, see {@link org.matsim.core.replanning.modules.IncrementalReRoute}.
+ * <p>
+ * At the start of every iteration, the travel times of all links are compared, time bin by time bin, to a reference
+ * copy. A link is marked as changed in this iteration if the travel time in at least one time bin differs by more than
+ * {@link TravelTimeCalculatorConfigGroup#getChangedLinksThreshold()} from its reference value; the reference of the
+ * link is then replaced by the current travel times. Small changes thus accumulate until they exceed the threshold.
+ * <p>
+ * Only links whose travel time differs between the time bins keep a reference value per time bin. For all other links,
+ * e.g. the links that are never congested, a single value is kept. The links are compared in parallel.
+ * <p>
+ * The travel times are taken from the {@link TravelTime}s handed to the router, thus it does not matter which
+ * implementation collects them.
+ */
+public final class TravelTimeChangeTracker implements IterationStartsListener {
+
+	private static final Logger log = LogManager.getLogger(TravelTimeChangeTracker.class);
+
+	private final Network network;
+	private final Map<String, TravelTime> travelTimes;
+	private final double binSize;
+	private final int numSlots;
+	private final double threshold;
+	private final int numberOfThreads;
+	private final Map<String, ModeData> modeData = new HashMap<>();
+	private int firstIteration = -1;
+	private int lastIteration = -1;
+
+	@Inject
+	TravelTimeChangeTracker(Network network, Map<String, TravelTime> travelTimes, TravelTimeCalculatorConfigGroup config,
+			GlobalConfigGroup globalConfig, ControlerListenerManager controlerListenerManager) {
+		this(network, travelTimes, config, globalConfig.getNumberOfThreads());
+		controlerListenerManager.addControlerListener(this);
+	}
+
+	/**
+	 * Creates a tracker which has to be updated by calling {@link #update(int)}, e.g. for usage outside of the controler.
+	 */
+	public TravelTimeChangeTracker(Network network, Map<String, TravelTime> travelTimes, TravelTimeCalculatorConfigGroup config) {
+		this(network, travelTimes, config, 1);
+	}
+
+	/**
+	 * Creates a tracker which has to be updated by calling {@link #update(int)}, e.g. for usage outside of the controler.
+	 *
+	 * @param numberOfThreads the number of threads used to compare the travel times
+	 */
+	public TravelTimeChangeTracker(Network network, Map<String, TravelTime> travelTimes, TravelTimeCalculatorConfigGroup config,
+			int numberOfThreads) {
+		this.network = network;
+		this.travelTimes = travelTimes;
+		this.binSize = config.getTraveltimeBinSize();
+		this.numSlots = TimeBinUtils.getTimeBinCount(config.getMaxTime(), this.binSize);
+		this.threshold = config.getChangedLinksThreshold();
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		update(event.getIteration());
+	}
+
+	/**
+	 * Compares the current travel times to the reference values. The links found to be changed are attributed to the
+	 * given iteration. Calling this method more than once for the same iteration has no effect. It must not be called
+	 * while other threads query the tracker; within the controler, it is called at the start of every iteration, i.e.
+	 * before the replanning.
+	 */
+	public synchronized void update(int iteration) {
+		if (iteration <= this.lastIteration) {
+			return;
+		}
+		int linkCount = Id.getNumberOfIds(Link.class);
+		AtomicInteger changedLinks = new AtomicInteger();
+		for (Map.Entry<String, TravelTime> e : this.travelTimes.entrySet()) {
+			String mode = e.getKey();
+			TravelTime travelTime = e.getValue();
+			ModeData data = this.modeData.computeIfAbsent(mode, k -> new ModeData(linkCount));
+			data.ensureCapacity(linkCount);
+			List<Link> links = new ArrayList<>();
+			for (Link link : this.network.getLinks().values()) {
+				if (link.getAllowedModes().contains(mode)) {
+					links.add(link);
+				}
+			}
+			// every thread handles its own links, so the reference values of one link are only written by one thread
+			Thread[] threads = new Thread[Math.min(this.numberOfThreads, Math.max(1, links.size()))];
+			for (int t = 0; t < threads.length; t++) {
+				List<Link> threadLinks = links.subList(t * links.size() / threads.length, (t + 1) * links.size() / threads.length);
+				threads[t] = new Thread(() -> changedLinks.addAndGet(update(iteration, threadLinks, travelTime, data)),
+						"TravelTimeChangeTracker." + t);
+			}
+			if (threads.length == 1) {
+				threads[0].run();
+			} else {
+				for (Thread thread : threads) {
+					thread.start();
+				}
+				for (Thread thread : threads) {
+					try {
+						thread.join();
+					} catch (InterruptedException ex) {
+						throw new RuntimeException(ex);
+					}
+				}
+			}
+		}
+		if (this.firstIteration < 0) {
+			this.firstIteration = iteration;
+		} else {
+			log.info("iteration " + iteration + ": travel times changed on " + changedLinks.get() + " links (summed up over all modes).");
+		}
+		this.lastIteration = iteration;
+	}
+
+	/**
+	 * @return the iteration of the first call to {@link #update(int)}, or <code>-1</code> if there was none yet. Changes
+	 * before this iteration are not known.
+	 */
+	public int getFirstIteration() {
+		return this.firstIteration;
+	}
+
+	/**
+	 * @return <code>true</code> if the travel time of the link for the given mode changed after the given iteration,
+	 * or if nothing is known about the link.
+	 */
+	public boolean hasChangedSince(String mode, Id<Link> linkId, int iteration) {
+		if (iteration < this.firstIteration) {
+			return true;
+		}
+		ModeData data = this.modeData.get(mode);
+		int index = linkId.index();
+		if (data == null || index >= data.referenceTime.length || Float.isNaN(data.referenceTime[index])) {
+			return true;
+		}
+		return data.lastChange[index] > iteration;
+	}
+
+	/**
+	 * Compares the travel times of the given links to their reference values.
+	 *
+	 * @return the number of changed links
+	 */
+	private int update(int iteration, List<Link> links, TravelTime travelTime, ModeData data) {
+		float[] times = new float[this.numSlots];
+		int changedLinks = 0;
+		for (Link link : links) {
+			int index = link.getId().index();
+			for (int slot = 0; slot < this.numSlots; slot++) {
+				times[slot] = (float) travelTime.getLinkTravelTime(link, getTime(slot), null, null);
+			}
+			if (Float.isNaN(data.referenceTime[index])) {
+				data.setReference(index, times);
+				data.lastChange[index] = iteration;
+				continue;
+			}
+			float[] profile = data.referenceProfile[index];
+			for (int slot = 0; slot < this.numSlots; slot++) {
+				float reference = profile == null ? data.referenceTime[index] : profile[slot];
+				if (Math.abs(times[slot] - reference) > this.threshold * reference) {
+					data.setReference(index, times);
+					data.lastChange[index] = iteration;
+					changedLinks++;
+					break;
+				}
+			}
+		}
+		return changedLinks;
+	}
+
+	private double getTime(int slot) {
+		return (slot + 0.5) * this.binSize;
+	}
+
+	private static final class ModeData {
+		/** the reference travel time of each link in all time bins, or NaN if the link was not seen yet */
+		private float[] referenceTime;
+		/** the reference travel times of each link per time bin, or <code>null</code> if they are all the same */
+		private float[][] referenceProfile;
+		private int[] lastChange;
+
+		ModeData(int linkCount) {
+			this.referenceTime = new float[linkCount];
+			Arrays.fill(this.referenceTime, Float.NaN);
+			this.referenceProfile = new float[linkCount][];
+			this.lastChange = new int[linkCount];
+		}
+
+		void ensureCapacity(int linkCount) {
+			int oldLength = this.referenceTime.length;
+			if (linkCount > oldLength) {
+				this.referenceTime = Arrays.copyOf(this.referenceTime, linkCount);
+				Arrays.fill(this.referenceTime, oldLength, linkCount, Float.NaN);
+				this.referenceProfile = Arrays.copyOf(this.referenceProfile, linkCount);
+				this.lastChange = Arrays.copyOf(this.lastChange, linkCount);
+			}
+		}
+
+		void setReference(int index, float[] times) {
+			boolean constant = true;
+			for (int slot = 1; slot < times.length && constant; slot++) {
+				constant = times[slot] == times[0];
+			}
+			this.referenceTime[index] = times[0];
+			this.referenceProfile[index] = constant ? null : times.clone();
+		}
+	}
+
+}
@@ -21,14 +21,25 @@ package ch.sbb.matsim.routing.pt.raptor;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import org.matsim.api.core.v01.Id;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * @author mrieser / SBB
  */
 public class SwissRailRaptorDataTest {
 
+	@RegisterExtension
+	private MatsimTestUtils utils = new MatsimTestUtils();
+
 	@Test
 	void testTransfersFromSchedule() {
         Fixture f = new Fixture();
@@ -97,4 +108,73 @@ public class SwissRailRaptorDataTest {
         Assertions.assertEquals(data2.transfers.length, data4.transfers.length, "number of transfers should have stayed the same.");
     }
 
+	@Test
+	void testTransfersMultithreadedAndCached() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        raptorConfig.setNumberOfThreads(1);
+        SwissRailRaptorData expected = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+
+        raptorConfig.setNumberOfThreads(4);
+        assertSameTransfers(expected, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null));
+
+        raptorConfig.setTransferCacheDirectory(utils.getOutputDirectory() + "cache");
+        assertSameTransfers(expected, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null));
+        File[] cacheFiles = new File(utils.getOutputDirectory() + "cache").listFiles();
+        Assertions.assertEquals(1, cacheFiles.length, "the transfers should have been written to the cache.");
+
+        // the second time, the transfers are read from the cache
+        assertSameTransfers(expected, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null));
+
+        // a changed schedule must not use the cached transfers
+        f.schedule.getMinimalTransferTimes().set(Id.create(19, TransitStopFacility.class), Id.create(9, TransitStopFacility.class), 345);
+        SwissRailRaptorData changed = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        Assertions.assertEquals(expected.transfers.length + 1, changed.transfers.length, "the cached transfers should not have been used.");
+        Assertions.assertEquals(2, new File(utils.getOutputDirectory() + "cache").listFiles().length);
+    }
+
+	@Test
+	void testTransfersWithCorruptCache() throws IOException {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        SwissRailRaptorData expected = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+
+        raptorConfig.setTransferCacheDirectory(utils.getOutputDirectory() + "cache");
+        SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        Path cacheFile = new File(utils.getOutputDirectory() + "cache").listFiles()[0].toPath();
+        byte[] content = Files.readAllBytes(cacheFile);
+
+        // a truncated file is ignored, and the transfers are calculated and written again
+        Files.write(cacheFile, Arrays.copyOf(content, content.length / 2));
+        assertSameTransfers(expected, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null));
+        Assertions.assertArrayEquals(content, Files.readAllBytes(cacheFile), "the cache file should have been written again.");
+
+        // same for a file with garbage after the header
+        byte[] corrupt = content.clone();
+        Arrays.fill(corrupt, corrupt.length / 2, corrupt.length, (byte) 0xff);
+        Files.write(cacheFile, corrupt);
+        assertSameTransfers(expected, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null));
+        Assertions.assertArrayEquals(content, Files.readAllBytes(cacheFile), "the cache file should have been written again.");
+    }
+
+    private static void assertSameTransfers(SwissRailRaptorData expected, SwissRailRaptorData actual) {
+        Assertions.assertEquals(expected.transfers.length, actual.transfers.length, "wrong number of transfers.");
+        for (int i = 0; i < expected.transfers.length; i++) {
+            SwissRailRaptorData.RTransfer e = expected.transfers[i];
+            SwissRailRaptorData.RTransfer a = actual.transfers[i];
+            Assertions.assertEquals(e.fromRouteStop, a.fromRouteStop);
+            Assertions.assertEquals(e.toRouteStop, a.toRouteStop);
+            Assertions.assertEquals(e.transferTime, a.transferTime);
+            Assertions.assertEquals(e.transferDistance, a.transferDistance);
+        }
+        for (int i = 0; i < expected.routeStops.length; i++) {
+            Assertions.assertEquals(expected.routeStops[i].indexFirstTransfer, actual.routeStops[i].indexFirstTransfer);
+            Assertions.assertEquals(expected.routeStops[i].countTransfers, actual.routeStops[i].countTransfers);
+        }
+    }
+
 }
@@ -400,9 +400,99 @@ public class SwissRailRaptorTreeTest {
         Assertions.assertNull(stage5.line); // egress_walk
     }
 
+	@Test
+	void testRangeTree() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).build();
+
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        TransitStopFacility fromStop = f.schedule.getFacilities().get(Id.create(23, TransitStopFacility.class));
+        Map<Id<TransitStopFacility>, List<TravelInfo>> map = raptor.calcRangeTree(List.of(fromStop), 7*3600, 8*3600, raptorParams, null);
+
+        Assertions.assertNull(map.get(fromStop.getId()), "the start stop should not be contained.");
+
+        List<TravelInfo> profile = map.get(Id.create(18, TransitStopFacility.class));
+        Assertions.assertEquals(6, profile.size(), "every departure of the green line should be contained.");
+        for (int i = 0; i < 6; i++) {
+            assertTravelInfo(profile.get(i), "23", 0, Time.writeTime(7*3600 + (10*i + 1)*60), Time.writeTime(7*3600 + (10*i + 10)*60));
+        }
+
+        // the connection departing 7:41 has one transfer more than the others, but arrives earlier than the one departing 7:51
+        profile = map.get(Id.create(11, TransitStopFacility.class));
+        Assertions.assertEquals(4, profile.size());
+        assertTravelInfo(profile.get(0), "23", 1, "07:11:00", "07:43:07"); // transfer at C, 7:20/7:22 blue, walk from 10
+        assertTravelInfo(profile.get(1), "23", 1, "07:31:00", "08:03:07"); // transfer at C, 7:40/7:42 blue, walk from 10
+        assertTravelInfo(profile.get(2), "23", 2, "07:41:00", "08:19:00"); // transfer at C, 7:50/8:00 red, transfer at G, 8:09/8:12
+        assertTravelInfo(profile.get(3), "23", 1, "07:51:00", "08:23:07"); // transfer at C, 8:00/8:02 blue, walk from 10
+    }
+
+	@Test
+	void testRangeTree_departuresAtNearbyStops() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).build();
+
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        // the green line does not serve stop 5, but can be reached by walking to stop 18. It departs more often than the lines at stop 5.
+        TransitStopFacility fromStop = f.schedule.getFacilities().get(Id.create(5, TransitStopFacility.class));
+        Map<Id<TransitStopFacility>, List<TravelInfo>> map = raptor.calcRangeTree(List.of(fromStop), 7*3600, 8*3600, raptorParams, null);
+
+        List<TravelInfo> profile = map.get(Id.create(19, TransitStopFacility.class));
+        Assertions.assertEquals(6, profile.size(), "every departure of the green line should be contained.");
+        for (int i = 0; i < 6; i++) {
+            assertTravelInfo(profile.get(i), "5", 0, Time.writeTime(7*3600 + (10*i + 1)*60), Time.writeTime(7*3600 + (10*i + 11)*60));
+        }
+    }
+
+	@Test
+	void testRangeTree_aggregated() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).build();
+
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        TransitStopFacility fromStop = f.schedule.getFacilities().get(Id.create(23, TransitStopFacility.class));
+        Id<TransitStopFacility> toStopId = Id.create(18, TransitStopFacility.class);
+        double fromTime = 7*3600;
+        double toTime = 7*3600 + 600;
+
+        // departing at 7:00 gets the 7:01 train arriving at 7:10, departing at 7:05 gets the 7:11 train arriving at 7:20
+        Map<Id<TransitStopFacility>, Double> average = raptor.calcRangeTree(List.of(fromStop), 7*3600, 8*3600, raptorParams, null,
+                RaptorProfileAggregator.averageTravelTime(fromTime, toTime, 300));
+        Assertions.assertEquals(750, average.get(toStopId), 1e-7);
+
+        Map<Id<TransitStopFacility>, Double> maximum = raptor.calcRangeTree(List.of(fromStop), 7*3600, 8*3600, raptorParams, null,
+                RaptorProfileAggregator.travelTimePercentile(fromTime, toTime, 300, 100));
+        Assertions.assertEquals(900, maximum.get(toStopId), 1e-7);
+
+        Map<Id<TransitStopFacility>, Double> median = raptor.calcRangeTree(List.of(fromStop), 7*3600, 8*3600, raptorParams, null,
+                RaptorProfileAggregator.travelTimePercentile(fromTime, toTime, 300, 50));
+        Assertions.assertEquals(600, median.get(toStopId), 1e-7);
+    }
+
     private void assertTravelInfo(Map<Id<TransitStopFacility>, TravelInfo> map, int stopId, String expectedDepartureStop, int expectedTransfers, String expectedDepartureTime, String expectedArrivalTime) {
         TravelInfo info = map.get(Id.create(stopId, TransitStopFacility.class));
         Assertions.assertNotNull(info, "Stop " + stopId + " is not reachable.");
+        assertTravelInfo(info, expectedDepartureStop, expectedTransfers, expectedDepartureTime, expectedArrivalTime);
+    }
+
+    private void assertTravelInfo(TravelInfo info, String expectedDepartureStop, int expectedTransfers, String expectedDepartureTime, String expectedArrivalTime) {
         Assertions.assertEquals(expectedDepartureStop, info.departureStop.toString(), "wrong departure stop");
         Assertions.assertEquals(expectedTransfers, info.transferCount, "wrong number of transfers");
         Assertions.assertEquals(Time.parseTime(expectedArrivalTime), Math.floor(info.ptArrivalTime), 0.0, "unexpected arrival time: " + Time.writeTime(info.ptArrivalTime));
@@ -134,6 +134,60 @@ import java.util.List;
 		Assertions.assertEquals(countBefore, countAfter, "The number of created Ids should not have changed.");
 	}
 
+	 @Test
+	 void testManyIds() {
+		Id.resetCaches();
+		int count = 20_000; // enough to grow the hash table and to use several chunks
+		for (int i = 0; i < count; i++) {
+			Id<TLink> id = Id.create(i, TLink.class);
+			Assertions.assertEquals(i, id.index());
+		}
+		Assertions.assertEquals(count, Id.getNumberOfIds(TLink.class));
+		for (int i = 0; i < count; i++) {
+			Id<TLink> id = Id.get(Integer.toString(i), TLink.class);
+			Assertions.assertEquals(i, id.index());
+			Assertions.assertSame(id, Id.get(i, TLink.class));
+			Assertions.assertSame(id, Id.create(i, TLink.class));
+		}
+		Assertions.assertNull(Id.get("unknown", TLink.class));
+		Assertions.assertThrows(IndexOutOfBoundsException.class, () -> Id.get(count, TLink.class));
+		Assertions.assertEquals(count, Id.getNumberOfIds(TLink.class));
+	}
+
+	 @Test
+	 void testConcurrentCreation() throws InterruptedException {
+		Id.resetCaches();
+		int threadCount = 4;
+		int count = 10_000;
+		List<List<Id<TNode>>> created = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < threadCount; t++) {
+			List<Id<TNode>> ids = new ArrayList<>();
+			created.add(ids);
+			// every thread creates the same ids, in a different order
+			final int offset = t * count / threadCount;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < count; i++) {
+					ids.add(Id.create((i + offset) % count, TNode.class));
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assertions.assertEquals(count, Id.getNumberOfIds(TNode.class));
+		for (List<Id<TNode>> ids : created) {
+			for (Id<TNode> id : ids) {
+				Assertions.assertSame(id, Id.get(id.index(), TNode.class));
+				Assertions.assertSame(id, Id.get(id.toString(), TNode.class));
+			}
+		}
+	}
+
 	private static class TLink {}
 	private static class TNode {}
 
@@ -0,0 +1,101 @@
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.population.Person;
+
+public class IdToDoubleMapTest {
+
+	@Test
+	void testPutGetRemoveSize() {
+		IdToDoubleMap<Person> map = new IdToDoubleMap<>(Person.class, 10);
+		Id<Person> id1 = Id.create(1, Person.class);
+		Id<Person> id2 = Id.create(2, Person.class);
+
+		Assertions.assertEquals(0, map.size());
+		Assertions.assertTrue(map.isEmpty());
+		Assertions.assertFalse(map.containsKey(id1));
+		Assertions.assertEquals(Double.NaN, map.get(id1));
+		Assertions.assertEquals(-1.0, map.getOrDefault(id1, -1.0));
+
+		Assertions.assertEquals(Double.NaN, map.put(id1, 1.5));
+		Assertions.assertEquals(1, map.size());
+		Assertions.assertTrue(map.containsKey(id1));
+		Assertions.assertEquals(1.5, map.get(id1));
+
+		Assertions.assertEquals(1.5, map.put(id1, 2.5));
+		Assertions.assertEquals(1, map.size());
+
+		// 0 is a regular value
+		map.put(id2, 0.0);
+		Assertions.assertEquals(2, map.size());
+		Assertions.assertTrue(map.containsKey(id2));
+		Assertions.assertEquals(0.0, map.getOrDefault(id2, -1.0));
+
+		Assertions.assertEquals(2.5, map.remove(id1));
+		Assertions.assertEquals(1, map.size());
+		Assertions.assertFalse(map.containsKey(id1));
+		Assertions.assertEquals(Double.NaN, map.remove(id1));
+		Assertions.assertEquals(1, map.size());
+
+		map.clear();
+		Assertions.assertTrue(map.isEmpty());
+		Assertions.assertFalse(map.containsKey(id2));
+	}
+
+	@Test
+	void testAdd() {
+		IdToDoubleMap<Person> map = new IdToDoubleMap<>(Person.class, 10);
+		Id<Person> id = Id.create(1, Person.class);
+
+		Assertions.assertEquals(1.5, map.add(id, 1.5));
+		Assertions.assertEquals(4.0, map.add(id, 2.5));
+		Assertions.assertEquals(1, map.size());
+		Assertions.assertEquals(4.0, map.get(id));
+	}
+
+	@Test
+	void testGrow() {
+		IdToDoubleMap<Person> map = new IdToDoubleMap<>(Person.class, 2);
+		Id<Person> id = Id.create("grow", Person.class);
+		for (int i = 0; i < 500; i++) {
+			Id.create("grow" + i, Person.class);
+		}
+		Id<Person> lastId = Id.create("grow499", Person.class);
+
+		map.put(id, 1.0);
+		map.put(lastId, 2.0);
+		Assertions.assertEquals(1.0, map.get(id));
+		Assertions.assertEquals(2.0, map.get(lastId));
+		Assertions.assertEquals(2, map.size());
+	}
+
+	@Test
+	void testForEachAndKeySet() {
+		IdToDoubleMap<Person> map = new IdToDoubleMap<>(Person.class, 10);
+		Id<Person> id1 = Id.create(1, Person.class);
+		Id<Person> id2 = Id.create(2, Person.class);
+		Id<Person> id3 = Id.create(3, Person.class);
+		map.put(id3, 3.0);
+		map.put(id1, 1.0);
+
+		List<Id<Person>> ids = new ArrayList<>();
+		List<Double> values = new ArrayList<>();
+		map.forEach((id, value) -> {
+			ids.add(id);
+			values.add(value);
+		});
+		Assertions.assertEquals(List.of(id1, id3), ids);
+		Assertions.assertEquals(List.of(1.0, 3.0), values);
+
+		IdSet<Person> keys = map.keySet();
+		Assertions.assertEquals(2, keys.size());
+		Assertions.assertTrue(keys.contains(id1));
+		Assertions.assertFalse(keys.contains(id2));
+		Assertions.assertTrue(keys.contains(id3));
+	}
+
+}
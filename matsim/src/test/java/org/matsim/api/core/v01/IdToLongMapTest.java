@@ -0,0 +1,103 @@
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.population.Person;
+
+public class IdToLongMapTest {
+
+	@Test
+	void testPutGetRemoveSize() {
+		IdToLongMap<Person> map = new IdToLongMap<>(Person.class, 10);
+		Id<Person> id1 = Id.create(1, Person.class);
+		Id<Person> id2 = Id.create(2, Person.class);
+
+		Assertions.assertEquals(0, map.size());
+		Assertions.assertTrue(map.isEmpty());
+		Assertions.assertFalse(map.containsKey(id1));
+		Assertions.assertEquals(0L, map.get(id1));
+		Assertions.assertEquals(-1L, map.getOrDefault(id1, -1L));
+
+		Assertions.assertEquals(0L, map.put(id1, 15_000_000_000L));
+		Assertions.assertEquals(1, map.size());
+		Assertions.assertTrue(map.containsKey(id1));
+		Assertions.assertEquals(15_000_000_000L, map.get(id1));
+
+		Assertions.assertEquals(15_000_000_000L, map.put(id1, 25L));
+		Assertions.assertEquals(1, map.size());
+
+		// 0 is a regular value
+		map.put(id2, 0L);
+		Assertions.assertEquals(2, map.size());
+		Assertions.assertTrue(map.containsKey(id2));
+		Assertions.assertEquals(0L, map.getOrDefault(id2, -1L));
+
+		Assertions.assertEquals(25L, map.remove(id1));
+		Assertions.assertEquals(1, map.size());
+		Assertions.assertFalse(map.containsKey(id1));
+		Assertions.assertEquals(0L, map.get(id1));
+		Assertions.assertEquals(0L, map.remove(id1));
+		Assertions.assertEquals(1, map.size());
+
+		map.clear();
+		Assertions.assertTrue(map.isEmpty());
+		Assertions.assertFalse(map.containsKey(id2));
+	}
+
+	@Test
+	void testAdd() {
+		IdToLongMap<Person> map = new IdToLongMap<>(Person.class, 10);
+		Id<Person> id = Id.create(1, Person.class);
+
+		Assertions.assertEquals(1L, map.add(id, 1L));
+		Assertions.assertEquals(4L, map.add(id, 3L));
+		Assertions.assertEquals(1, map.size());
+		Assertions.assertEquals(4L, map.get(id));
+	}
+
+	@Test
+	void testGrow() {
+		IdToLongMap<Person> map = new IdToLongMap<>(Person.class, 2);
+		Id<Person> id = Id.create("grow", Person.class);
+		for (int i = 0; i < 500; i++) {
+			Id.create("grow" + i, Person.class);
+		}
+		Id<Person> lastId = Id.create("grow499", Person.class);
+
+		Assertions.assertEquals(0L, map.get(lastId));
+		map.put(id, 1L);
+		map.put(lastId, 2L);
+		Assertions.assertEquals(1L, map.get(id));
+		Assertions.assertEquals(2L, map.get(lastId));
+		Assertions.assertEquals(2, map.size());
+	}
+
+	@Test
+	void testForEachAndKeySet() {
+		IdToLongMap<Person> map = new IdToLongMap<>(Person.class, 10);
+		Id<Person> id1 = Id.create(1, Person.class);
+		Id<Person> id2 = Id.create(2, Person.class);
+		Id<Person> id3 = Id.create(3, Person.class);
+		map.put(id3, 3L);
+		map.put(id1, 1L);
+
+		List<Id<Person>> ids = new ArrayList<>();
+		List<Long> values = new ArrayList<>();
+		map.forEach((id, value) -> {
+			ids.add(id);
+			values.add(value);
+		});
+		Assertions.assertEquals(List.of(id1, id3), ids);
+		Assertions.assertEquals(List.of(1L, 3L), values);
+
+		IdSet<Person> keys = map.keySet();
+		Assertions.assertEquals(2, keys.size());
+		Assertions.assertTrue(keys.contains(id1));
+		Assertions.assertFalse(keys.contains(id2));
+		Assertions.assertTrue(keys.contains(id3));
+	}
+
+}
@@ -0,0 +1,173 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class RingBufferEventsManagerTest {
+
+	@Test
+	void testAllHandlersSeeAllEventsInOrder() {
+		// a small ring makes the producer wrap around many times
+		RingBufferEventsManager events = new RingBufferEventsManager(3, 16);
+		List<EventsCollector> collectors = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			EventsCollector collector = new EventsCollector();
+			collectors.add(collector);
+			events.addHandler(collector);
+		}
+
+		events.initProcessing();
+		for (int time = 0; time < 100; time++) {
+			for (int v = 0; v < 10; v++) {
+				events.processEvent(new LinkEnterEvent(time, Id.createVehicleId(v), Id.createLinkId(v)));
+			}
+			EventArray batch = new EventArray(10);
+			for (int v = 0; v < 10; v++) {
+				batch.add(new LinkLeaveEvent(time, Id.createVehicleId(v), Id.createLinkId(v)));
+			}
+			events.processEvents(batch);
+			events.afterSimStep(time);
+		}
+		events.finishProcessing();
+
+		for (EventsCollector collector : collectors) {
+			Assertions.assertThat(collector.getEvents()).hasSize(2000);
+			double lastTime = 0;
+			for (var event : collector.getEvents()) {
+				Assertions.assertThat(event.getTime()).isGreaterThanOrEqualTo(lastTime);
+				lastTime = event.getTime();
+			}
+		}
+	}
+
+	@Test
+	void testAfterSimStepWaitsForAllEvents() {
+		RingBufferEventsManager events = new RingBufferEventsManager(2);
+		AtomicInteger counter = new AtomicInteger();
+		events.addHandler((LinkEnterEventHandler) event -> {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			counter.incrementAndGet();
+		});
+
+		events.initProcessing();
+		for (int i = 0; i < 20; i++) {
+			events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(i), Id.createLinkId(0)));
+		}
+		events.afterSimStep(0.0);
+		Assertions.assertThat(counter.get()).isEqualTo(20);
+		events.finishProcessing();
+	}
+
+	@Test
+	void testAfterSimStepOutsideOfParallelMode() {
+		RingBufferEventsManager events = new RingBufferEventsManager(2);
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		Assertions.assertThat(collector.getEvents()).hasSize(1);
+
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		events.afterSimStep(2.0);
+		Assertions.assertThat(collector.getEvents()).hasSize(2);
+	}
+
+	@Test
+	void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferEventsManager events = new RingBufferEventsManager(4);
+		events.addHandler((LinkEnterEventHandler) event -> {
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		Assertions.assertThat(collector.getEvents()).contains(new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"));
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		Assertions.assertThat(collector.getEvents()).containsExactly(
+				new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+				new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+				new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+				new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+				new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+				new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car"));
+	}
+
+	@Test
+	void testExceptionInHandlerIsPropagated() {
+		RingBufferEventsManager events = new RingBufferEventsManager(2, 8);
+		events.addHandler((LinkLeaveEventHandler) event -> {
+			throw new IllegalStateException("boom");
+		});
+		events.initProcessing();
+		Assertions.assertThatThrownBy(() -> {
+			for (int i = 0; i < 100; i++) {
+				events.processEvent(new LinkLeaveEvent(i, Id.createVehicleId(0), Id.createLinkId(0)));
+			}
+			events.afterSimStep(100);
+		}).isInstanceOf(RuntimeException.class).hasRootCauseInstanceOf(IllegalStateException.class);
+		Assertions.assertThatThrownBy(events::finishProcessing).isInstanceOf(RuntimeException.class);
+	}
+
+	@Test
+	void testSelectableViaConfig() {
+		Config config = ConfigUtils.createConfig();
+		config.eventsManager().setUseRingBuffer(true);
+		config.eventsManager().setNumberOfThreads(2);
+		EventsManager events = EventsUtils.createEventsManager(config);
+		Assertions.assertThat(events).isInstanceOf(RingBufferEventsManager.class);
+	}
+}
@@ -0,0 +1,231 @@
+package org.matsim.core.events.algorithms;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ControllerConfigGroup;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public class EventWriterBinaryTest {
+
+	@Test
+	void testRoundtrip() {
+		List<Event> original = createEvents();
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos, 7);
+		original.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		List<Event> read = read(baos.toByteArray(), null);
+
+		Assertions.assertEquals(original.size(), read.size());
+		for (int i = 0; i < original.size(); i++) {
+			Assertions.assertEquals(original.get(i).getClass(), read.get(i).getClass());
+			Assertions.assertEquals(original.get(i).getAttributes(), read.get(i).getAttributes());
+		}
+	}
+
+	@Test
+	void testSpecialCharactersAndNullAttribute() {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos);
+
+		writer.handleEvent(new LinkLeaveEvent(3600.0, Id.create("vehicle>3", Vehicle.class), Id.create("link<2", Link.class)));
+		GenericEvent event = new GenericEvent("TEST", 3600.5);
+		event.getAttributes().put("dummy", null);
+		event.getAttributes().put("name", "äöü\"'<>");
+		writer.handleEvent(event);
+		writer.closeFile();
+
+		ByteArrayInputStream bios = new ByteArrayInputStream(baos.toByteArray());
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readStream(bios, ControllerConfigGroup.EventsFileFormat.bin);
+		events.finishProcessing();
+
+		Assertions.assertEquals(2, collector.getEvents().size());
+		LinkLeaveEvent event1 = (LinkLeaveEvent) collector.getEvents().get(0);
+		Assertions.assertEquals("link<2", event1.getLinkId().toString());
+		Assertions.assertEquals("vehicle>3", event1.getVehicleId().toString());
+
+		GenericEvent event2 = (GenericEvent) collector.getEvents().get(1);
+		Assertions.assertEquals(3600.5, event2.getTime(), 0.0);
+		Assertions.assertTrue(event2.getAttributes().containsKey("dummy"));
+		Assertions.assertNull(event2.getAttributes().get("dummy"));
+		Assertions.assertEquals("äöü\"'<>", event2.getAttributes().get("name"));
+	}
+
+	@Test
+	void testFilters() {
+		List<Event> original = createEvents();
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos, 5);
+		original.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		List<Event> linkEvents = read(baos.toByteArray(), reader -> reader.setEventTypes(Set.of(LinkEnterEvent.EVENT_TYPE)));
+		Assertions.assertEquals(original.stream().filter(e -> e instanceof LinkEnterEvent).count(), linkEvents.size());
+
+		List<Event> windowEvents = read(baos.toByteArray(), reader -> reader.setTimeWindow(22000, 22300));
+		Assertions.assertEquals(original.stream().filter(e -> e.getTime() >= 22000 && e.getTime() <= 22300).count(), windowEvents.size());
+		for (Event e : windowEvents) {
+			Assertions.assertTrue(e.getTime() >= 22000 && e.getTime() <= 22300);
+		}
+	}
+
+	@Test
+	void testFiltersThroughMatsimEventsReader(@TempDir File tempDir) {
+		List<Event> original = createEvents();
+		String filename = new File(tempDir, "output_events.bin.gz").getPath();
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		original.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		MatsimEventsReader reader = new MatsimEventsReader(events);
+		reader.setEventTypes(Set.of(LinkLeaveEvent.EVENT_TYPE));
+		reader.setTimeWindow(22000, 22300);
+		reader.readFile(filename);
+		events.finishProcessing();
+
+		long expected = original.stream().filter(e -> e instanceof LinkLeaveEvent && e.getTime() >= 22000 && e.getTime() <= 22300).count();
+		Assertions.assertTrue(expected > 0);
+		Assertions.assertEquals(expected, collector.getEvents().size());
+		for (Event e : collector.getEvents()) {
+			Assertions.assertInstanceOf(LinkLeaveEvent.class, e);
+		}
+	}
+
+	@Test
+	void testUnknownVersionIsRejected() throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(baos);
+		out.write(EventWriterBinary.MAGIC);
+		out.writeInt(1);
+		out.writeByte(EventWriterBinary.RECORD_END);
+		out.close();
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> read(baos.toByteArray(), null));
+	}
+
+	@Test
+	void testNumericValuesAreNotAddedToTheDictionary() {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos, 64);
+		List<Event> original = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			GenericEvent event = new GenericEvent("measurement", i);
+			event.getAttributes().put("x", Double.toString(1234567.89 + i * 0.1));
+			event.getAttributes().put("amount", Long.toString(-5_000_000_000L + i));
+			event.getAttributes().put("notCanonical", i % 2 == 0 ? "1.50" : "007");
+			original.add(event);
+			writer.handleEvent(event);
+		}
+		// event type, 3 keys, 2 non-canonical values
+		Assertions.assertEquals(6, writer.getDictionarySize());
+		writer.closeFile();
+
+		List<Event> read = read(baos.toByteArray(), null);
+		Assertions.assertEquals(original.size(), read.size());
+		for (int i = 0; i < original.size(); i++) {
+			Assertions.assertEquals(original.get(i).getAttributes(), read.get(i).getAttributes());
+		}
+	}
+
+	@Test
+	void testCanonicalNumbers() {
+		Assertions.assertTrue(EventWriterBinary.isCanonicalLong("0"));
+		Assertions.assertTrue(EventWriterBinary.isCanonicalLong("-42"));
+		Assertions.assertFalse(EventWriterBinary.isCanonicalLong("-0"));
+		Assertions.assertFalse(EventWriterBinary.isCanonicalLong("042"));
+		Assertions.assertFalse(EventWriterBinary.isCanonicalLong("+42"));
+		Assertions.assertFalse(EventWriterBinary.isCanonicalLong(""));
+		Assertions.assertFalse(EventWriterBinary.isCanonicalLong("12a"));
+
+		Assertions.assertTrue(EventWriterBinary.isCanonicalDouble("-2.25"));
+		Assertions.assertTrue(EventWriterBinary.isCanonicalDouble("1.0E10"));
+		Assertions.assertFalse(EventWriterBinary.isCanonicalDouble("1.50"));
+		Assertions.assertFalse(EventWriterBinary.isCanonicalDouble("1.2.3"));
+		Assertions.assertFalse(EventWriterBinary.isCanonicalDouble("42"));
+	}
+
+	@Test
+	void testReadUrlOfXmlFileInBinDirectory(@TempDir File tempDir) throws MalformedURLException {
+		File directory = new File(tempDir, "output.bin");
+		Assertions.assertTrue(directory.mkdirs());
+		String filename = new File(directory, "output_events.xml").getPath();
+		EventWriterXML writer = new EventWriterXML(filename);
+		createEvents().forEach(writer::handleEvent);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readURL(new File(filename).toURI().toURL());
+		events.finishProcessing();
+		Assertions.assertEquals(createEvents().size(), collector.getEvents().size());
+	}
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			double time = 6 * 3600 + i * 30;
+			Id<Person> personId = Id.create("p" + (i % 4), Person.class);
+			Id<Vehicle> vehicleId = Id.create("v" + (i % 4), Vehicle.class);
+			Id<Link> linkId = Id.create(i % 9, Link.class);
+			events.add(new ActivityEndEvent(time, personId, linkId, null, "home", new Coord(100.5 * i, -2.25 * i)));
+			events.add(new PersonDepartureEvent(time, personId, linkId, "car", "car"));
+			events.add(new LinkEnterEvent(time + 0.5, vehicleId, linkId));
+			events.add(new LinkLeaveEvent(time + 10, vehicleId, linkId));
+		}
+		return events;
+	}
+
+	private static List<Event> read(byte[] data, Consumer<EventsReaderBinary> configurator) {
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		EventsReaderBinary reader = new EventsReaderBinary(events);
+		if (configurator != null) {
+			configurator.accept(reader);
+		}
+		reader.readStream(new ByteArrayInputStream(data));
+		events.finishProcessing();
+		return new ArrayList<>(collector.getEvents());
+	}
+}
@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.RoutingConfigGroup;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkChangeEvent.ChangeType;
+import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Tests that Hermes applies network change events on time-variant links.
+ */
+public class NetworkChangeEventsTest {
+
+	@BeforeEach
+	public void prepareTest() {
+		Id.resetCaches();
+		ScenarioImporter.flush();
+		HermesConfigGroup.SIM_STEPS = 30 * 60 * 60;
+	}
+
+	@Test
+	void testFreespeedChange() {
+		Scenario scenario = createScenario();
+		Link link2 = scenario.getNetwork().getLinks().get(Id.createLinkId("2"));
+		addChange(scenario.getNetwork(), 5 * 3600, link2, change -> change.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 10)));
+		addPerson(scenario, "0", 6 * 3600);
+		addPerson(scenario, "1", 4 * 3600);
+
+		HermesTest.LinkEnterEventCollector collector = run(scenario);
+
+		// 1000m with 10m/s, plus one second to advance to the next link
+		Assertions.assertEquals(6 * 3600 + 101, getEnterLink3Time(collector, "0"), MatsimTestUtils.EPSILON);
+		// before the change
+		Assertions.assertEquals(4 * 3600 + 11, getEnterLink3Time(collector, "1"), MatsimTestUtils.EPSILON);
+	}
+
+	@Test
+	void testRelativeFreespeedChangeDuringTraversal() {
+		Scenario scenario = createScenario();
+		Link link2 = scenario.getNetwork().getLinks().get(Id.createLinkId("2"));
+		addChange(scenario.getNetwork(), 6 * 3600 + 5, link2, change -> change.setFreespeedChange(new ChangeValue(ChangeType.FACTOR, 0.5)));
+		addPerson(scenario, "0", 6 * 3600);
+		addPerson(scenario, "1", 7 * 3600);
+
+		HermesTest.LinkEnterEventCollector collector = run(scenario);
+
+		// the vehicle already on the link is not affected
+		Assertions.assertEquals(6 * 3600 + 11, getEnterLink3Time(collector, "0"), MatsimTestUtils.EPSILON);
+		Assertions.assertEquals(7 * 3600 + 21, getEnterLink3Time(collector, "1"), MatsimTestUtils.EPSILON);
+	}
+
+	@Test
+	void testClosureAndReopening() {
+		Scenario scenario = createScenario();
+		Link link2 = scenario.getNetwork().getLinks().get(Id.createLinkId("2"));
+		addChange(scenario.getNetwork(), 5 * 3600, link2, change -> change.setFlowCapacityChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 0)));
+		addChange(scenario.getNetwork(), 7 * 3600, link2, change -> change.setFlowCapacityChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 6000.0 / 3600)));
+		addPerson(scenario, "0", 6 * 3600);
+
+		HermesTest.LinkEnterEventCollector collector = run(scenario);
+
+		Assertions.assertEquals(7 * 3600, getEnterLink3Time(collector, "0"), MatsimTestUtils.EPSILON);
+	}
+
+	@Test
+	void testChangesAreResetBetweenIterations() {
+		Scenario scenario = createScenario();
+		Link link2 = scenario.getNetwork().getLinks().get(Id.createLinkId("2"));
+		addChange(scenario.getNetwork(), 5 * 3600, link2, change -> change.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 10)));
+		addPerson(scenario, "0", 4 * 3600);
+		addPerson(scenario, "1", 6 * 3600);
+
+		for (int iteration = 0; iteration < 2; iteration++) {
+			HermesTest.LinkEnterEventCollector collector = run(scenario);
+			Assertions.assertEquals(4 * 3600 + 11, getEnterLink3Time(collector, "0"), MatsimTestUtils.EPSILON);
+			Assertions.assertEquals(6 * 3600 + 101, getEnterLink3Time(collector, "1"), MatsimTestUtils.EPSILON);
+		}
+	}
+
+	private static HermesTest.LinkEnterEventCollector run(Scenario scenario) {
+		EventsManager events = EventsUtils.createEventsManager();
+		HermesTest.LinkEnterEventCollector collector = new HermesTest.LinkEnterEventCollector();
+		events.addHandler(collector);
+		HermesTest.createHermes(scenario, events).run();
+		return collector;
+	}
+
+	private static double getEnterLink3Time(HermesTest.LinkEnterEventCollector collector, String vehicleId) {
+		return collector.events.stream()
+				.filter(e -> e.getLinkId().toString().equals("3") && e.getVehicleId().toString().equals(vehicleId))
+				.findFirst().orElseThrow().getTime();
+	}
+
+	private static void addChange(Network network, double time, Link link, Consumer<NetworkChangeEvent> setter) {
+		NetworkChangeEvent change = new NetworkChangeEvent(time);
+		change.addLink(link);
+		setter.accept(change);
+		NetworkUtils.addNetworkChangeEvent(network, change);
+	}
+
+	private static void addPerson(Scenario scenario, String id, double departureTime) {
+		Network network = scenario.getNetwork();
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId(id));
+		Plan plan = PersonUtils.createAndAddPlan(person, true);
+		Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", Id.createLinkId("1"));
+		a1.setEndTime(departureTime);
+		Leg leg = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+		TripStructureUtils.setRoutingMode(leg, TransportMode.car);
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"), List.of(Id.createLinkId("2")), Id.createLinkId("3"));
+		leg.setRoute(route);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "w", Id.createLinkId("3"));
+		scenario.getPopulation().addPerson(person);
+	}
+
+	private static Scenario createScenario() {
+		Config config = ConfigUtils.createConfig();
+		config.routing().setNetworkRouteConsistencyCheck(RoutingConfigGroup.NetworkRouteConsistencyCheck.disable);
+		config.network().setTimeVariantNetwork(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		network.setCapacityPeriod(Time.parseTime("1:00:00"));
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(100, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(1100, 0));
+		Node node4 = NetworkUtils.createAndAddNode(network, Id.create("4", Node.class), new Coord(1200, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 100, 100, 60000, 9);
+		NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node3, 1000, 100, 6000, 2);
+		NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), node3, node4, 100, 100, 60000, 9);
+		return scenario;
+	}
+}
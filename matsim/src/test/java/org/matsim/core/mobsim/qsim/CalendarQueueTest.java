@@ -0,0 +1,253 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.ActivityAndTeleportationQueue;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class CalendarQueueTest {
+
+	@Test
+	void testSameOrderAsPriorityQueue() {
+		Comparator<Integer> tieBreaker = Comparator.reverseOrder();
+		CalendarQueue<Integer> calendarQueue = new CalendarQueue<>(tieBreaker);
+		PriorityQueue<double[]> priorityQueue = new PriorityQueue<>((e0, e1) -> {
+			int cmp = Double.compare(e0[0], e1[0]);
+			return cmp != 0 ? cmp : tieBreaker.compare((int) e0[1], (int) e1[1]);
+		});
+
+		Random random = new Random(20240917);
+		int item = 0;
+		for (int now = 0; now < 3 * CalendarQueue.RING_SIZE; now += 7) {
+			int count = random.nextInt(20);
+			for (int i = 0; i < count; i++) {
+				double time;
+				switch (random.nextInt(4)) {
+					case 0 -> time = now - random.nextInt(100); // already due
+					case 1 -> time = now + random.nextInt(30); // same second, no fraction
+					case 2 -> time = now + random.nextDouble() * 600;
+					default -> time = now + random.nextDouble() * 2 * CalendarQueue.RING_SIZE; // overflow
+				}
+				calendarQueue.add(time, item);
+				priorityQueue.add(new double[] {time, item});
+				item++;
+			}
+			Assertions.assertEquals(priorityQueue.size(), calendarQueue.size());
+			while (!priorityQueue.isEmpty() && priorityQueue.peek()[0] <= now) {
+				Assertions.assertEquals((int) priorityQueue.poll()[1], calendarQueue.pollDue(now), "at time " + now);
+			}
+			Assertions.assertNull(calendarQueue.pollDue(now));
+		}
+		List<Integer> remaining = calendarQueue.clear();
+		Assertions.assertEquals(priorityQueue.size(), remaining.size());
+		for (Integer remainingItem : remaining) {
+			Assertions.assertEquals((int) priorityQueue.poll()[1], remainingItem);
+		}
+		Assertions.assertTrue(calendarQueue.isEmpty());
+	}
+
+	@Test
+	void testFractionalTimes() {
+		CalendarQueue<String> queue = new CalendarQueue<String>(Comparator.naturalOrder());
+		queue.add(10.5, "b");
+		queue.add(10.2, "a");
+		queue.add(10.0, "z");
+
+		Assertions.assertEquals("z", queue.pollDue(10.0));
+		Assertions.assertNull(queue.pollDue(10.0));
+		Assertions.assertEquals("a", queue.pollDue(10.25));
+		Assertions.assertNull(queue.pollDue(10.25));
+		Assertions.assertEquals("b", queue.pollDue(11.0));
+		Assertions.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	void testAddWhileDraining() {
+		CalendarQueue<String> queue = new CalendarQueue<String>(Comparator.naturalOrder());
+		queue.add(5, "b");
+		queue.add(5, "d");
+
+		Assertions.assertEquals("b", queue.pollDue(5));
+		// e.g. an agent with a zero-duration leg arriving in the same time step
+		queue.add(5, "c");
+		queue.add(4, "a");
+		Assertions.assertEquals("a", queue.pollDue(5));
+		Assertions.assertEquals("c", queue.pollDue(5));
+		Assertions.assertEquals("d", queue.pollDue(5));
+		Assertions.assertNull(queue.pollDue(5));
+	}
+
+	@Test
+	void testRemove() {
+		CalendarQueue<String> queue = new CalendarQueue<String>(Comparator.naturalOrder());
+		queue.add(100, "a");
+		queue.add(100, "b");
+		queue.add(200, "c");
+		queue.add(10.0 * CalendarQueue.RING_SIZE, "d");
+
+		Assertions.assertTrue(queue.remove("b"));
+		Assertions.assertTrue(queue.remove("d"));
+		Assertions.assertFalse(queue.remove("d"));
+		Assertions.assertEquals(2, queue.size());
+		Assertions.assertEquals("a", queue.pollDue(150));
+		Assertions.assertNull(queue.pollDue(150));
+		Assertions.assertEquals("c", queue.pollDue(Double.POSITIVE_INFINITY));
+		Assertions.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	void testRemoveKeepsOrder() {
+		CalendarQueue<Integer> queue = new CalendarQueue<Integer>(Comparator.naturalOrder());
+		PriorityQueue<double[]> expected = new PriorityQueue<>((e0, e1) -> {
+			int cmp = Double.compare(e0[0], e1[0]);
+			return cmp != 0 ? cmp : Integer.compare((int) e0[1], (int) e1[1]);
+		});
+		Random random = new Random(4711);
+		List<Integer> items = new ArrayList<>();
+		double[] times = new double[2000];
+		for (int i = 0; i < times.length; i++) {
+			// few distinct seconds, so the buckets hold many items, and some items in the overflow heap
+			times[i] = i % 50 == 0 ? 2.0 * CalendarQueue.RING_SIZE + i : random.nextInt(20) + random.nextDouble();
+			Integer item = i; // items are removed by identity, so keep the boxed instances
+			items.add(item);
+			queue.add(times[i], item);
+		}
+		for (int i = 0; i < times.length; i++) {
+			if (i % 3 == 0) {
+				Assertions.assertTrue(queue.remove(items.get(i)));
+				Assertions.assertFalse(queue.remove(items.get(i)));
+			} else {
+				expected.add(new double[] {times[i], i});
+			}
+		}
+		Assertions.assertEquals(expected.size(), queue.size());
+		while (!expected.isEmpty()) {
+			Assertions.assertEquals((int) expected.poll()[1], queue.pollDue(Double.POSITIVE_INFINITY));
+		}
+		Assertions.assertTrue(queue.isEmpty());
+		Assertions.assertFalse(queue.remove(items.get(1)), "polled items should not be found anymore");
+	}
+
+	@Test
+	void testRemoveNotSupported() {
+		CalendarQueue<String> queue = new CalendarQueue<String>(Comparator.naturalOrder(), false);
+		queue.add(100, "a");
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> queue.remove("a"));
+	}
+
+	@Test
+	void testSameEventsAsDefaultEngines() {
+		List<String> defaultEvents = runTeleportationScenario(ActivityAndTeleportationQueue.priorityQueue);
+		List<String> calendarEvents = runTeleportationScenario(ActivityAndTeleportationQueue.calendarQueue);
+
+		Assertions.assertTrue(defaultEvents.size() > 1000);
+		Assertions.assertEquals(defaultEvents, calendarEvents);
+	}
+
+	private static List<String> runTeleportationScenario(ActivityAndTeleportationQueue queue) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setActivityAndTeleportationQueue(queue);
+		config.qsim().setEndTime(20 * 3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		Node node0 = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0, 0));
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(1000, 0));
+		Link link01 = NetworkUtils.createAndAddLink(network, Id.createLinkId("01"), node0, node1, 1000, 10, 1000, 1);
+		Link link10 = NetworkUtils.createAndAddLink(network, Id.createLinkId("10"), node1, node0, 1000, 10, 1000, 1);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			double time = 6 * 3600 + random.nextInt(3600);
+			Link from = link01;
+			for (int trip = 0; trip < 4; trip++) {
+				Activity activity = pf.createActivityFromLinkId("a", from.getId());
+				// same end times for many agents, and some fractional ones
+				activity.setEndTime(random.nextBoolean() ? time : time + random.nextDouble());
+				plan.addActivity(activity);
+				Link to = from == link01 ? link10 : link01;
+				Leg leg = pf.createLeg(TransportMode.walk);
+				Route route = RouteUtils.createGenericRouteImpl(from.getId(), to.getId());
+				route.setTravelTime(random.nextInt(4) == 0 ? 0 : 60 + random.nextInt(600) + random.nextDouble());
+				route.setDistance(1000);
+				leg.setRoute(route);
+				plan.addLeg(leg);
+				time += 3600 + random.nextInt(600);
+				from = to;
+			}
+			Activity last = pf.createActivityFromLinkId("a", from.getId());
+			if (i % 10 == 0) {
+				// agents still teleporting at the end of the simulation
+				last.setEndTime(19.9 * 3600);
+				plan.addActivity(last);
+				Leg leg = pf.createLeg(TransportMode.walk);
+				Route route = RouteUtils.createGenericRouteImpl(from.getId(), from.getId());
+				route.setTravelTime(3600);
+				route.setDistance(1000);
+				leg.setRoute(route);
+				plan.addLeg(leg);
+				last = pf.createActivityFromLinkId("a", from.getId());
+			}
+			plan.addActivity(last);
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		List<String> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((BasicEventHandler) event -> events.add(event.toString()));
+		new QSimBuilder(config).useDefaults().build(scenario, eventsManager).run();
+		return events;
+	}
+}
@@ -0,0 +1,201 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithWorkStealingTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimEngineThreading;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class QNetsimEngineWithWorkStealingTest {
+
+	private static final int GRID_SIZE = 10;
+
+	@Test
+	void testSameTrafficAsStaticPartitions() {
+		List<String> staticEvents = runGrid(NetsimEngineThreading.staticPartitions, 4);
+		List<String> workStealingEvents = runGrid(NetsimEngineThreading.workStealing, 4);
+
+		Assertions.assertFalse(staticEvents.isEmpty());
+		Assertions.assertEquals(staticEvents, workStealingEvents);
+	}
+
+	@Test
+	void testSingleThread() {
+		List<String> staticEvents = runGrid(NetsimEngineThreading.staticPartitions, 1);
+		List<String> workStealingEvents = runGrid(NetsimEngineThreading.workStealing, 1);
+
+		Assertions.assertEquals(staticEvents, workStealingEvents);
+	}
+
+	@Test
+	void testThreadUtilization() {
+		Scenario scenario = createGridScenario(NetsimEngineThreading.workStealing, 3);
+		QSim qsim = new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, EventsUtils.createEventsManager());
+		qsim.run();
+
+		QNetsimEngineI engine = qsim.getChildInjector().getInstance(QNetsimEngineI.class);
+		Assertions.assertInstanceOf(QNetsimEngineWithWorkStealing.class, engine);
+		Assertions.assertEquals(3 * QNetsimEngineWithWorkStealing.PARTITIONS_PER_THREAD, ((QNetsimEngineWithWorkStealing) engine).getQnetsimEngineRunner().size());
+
+		QNetsimEngineThreadUtilization utilization = ((QNetsimEngineWithWorkStealing) engine).getThreadUtilization();
+		Assertions.assertEquals(4, utilization.getNumberOfThreads());
+		long busy = 0;
+		for (int i = 0; i < utilization.getNumberOfThreads(); i++) {
+			busy += utilization.getBusyTime(i);
+			Assertions.assertTrue(utilization.getBusyTime(i) <= utilization.getWallTime());
+			Assertions.assertEquals(utilization.getWallTime() - utilization.getBusyTime(i), utilization.getIdleTime(i));
+		}
+		Assertions.assertTrue(busy > 0);
+	}
+
+	private static List<String> runGrid(NetsimEngineThreading threading, int numberOfThreads) {
+		Id.resetCaches();
+		MatsimRandom.reset();
+		Scenario scenario = createGridScenario(threading, numberOfThreads);
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler(new LinkEventsCollector(events));
+		new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, eventsManager).run();
+		List<String> sorted = new ArrayList<>(events);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Creates a grid network with links in both directions, and agents which first drive east, then north.
+	 * The capacities are low, so there is congestion.
+	 */
+	private static Scenario createGridScenario(NetsimEngineThreading threading, int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setNetsimEngineThreading(threading);
+		config.qsim().setEndTime(24 * 3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 200, y * 200));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					NetworkUtils.createAndAddLink(network, eastLink(x, y), nodes[x][y], nodes[x + 1][y], 200, 10, 600, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId("w" + x + "_" + y), nodes[x + 1][y], nodes[x][y], 200, 10, 600, 1);
+				}
+				if (y + 1 < GRID_SIZE) {
+					NetworkUtils.createAndAddLink(network, northLink(x, y), nodes[x][y], nodes[x][y + 1], 200, 10, 600, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId("s" + x + "_" + y), nodes[x][y + 1], nodes[x][y], 200, 10, 600, 1);
+				}
+			}
+		}
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Random random = new Random(4711);
+		for (int i = 0; i < 500; i++) {
+			int startY = random.nextInt(GRID_SIZE - 1);
+			int turnX = 1 + random.nextInt(GRID_SIZE - 2);
+			List<Id<Link>> routeLinks = new ArrayList<>();
+			for (int x = 1; x < turnX; x++) {
+				routeLinks.add(eastLink(x, startY));
+			}
+			for (int y = startY; y < GRID_SIZE - 2; y++) {
+				routeLinks.add(northLink(turnX, y));
+			}
+			Id<Link> startLink = eastLink(0, startY);
+			Id<Link> endLink = northLink(turnX, GRID_SIZE - 2);
+
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("home", startLink);
+			home.setEndTime(7 * 3600 + random.nextInt(1800));
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(startLink, routeLinks, endLink));
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("work", endLink));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		return scenario;
+	}
+
+	private static Id<Link> eastLink(int x, int y) {
+		return Id.createLinkId("e" + x + "_" + y);
+	}
+
+	private static Id<Link> northLink(int x, int y) {
+		return Id.createLinkId("n" + x + "_" + y);
+	}
+
+	private static final class LinkEventsCollector implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		private final List<String> events;
+
+		LinkEventsCollector(List<String> events) {
+			this.events = events;
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.events.add(event.getTime() + " enter " + event.getLinkId() + " " + event.getVehicleId());
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.events.add(event.getTime() + " leave " + event.getLinkId() + " " + event.getVehicleId());
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitionerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimNodePartitioning;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class QNetworkPartitionerTest {
+
+	private static final int GRID_SIZE = 20;
+
+	@Test
+	void testContiguousBalancedRegions() {
+		Network network = createGrid();
+		QNetworkPartitioner.Partitioning partitioning = QNetworkPartitioner.partition(network, 4, link -> 0);
+
+		Assertions.assertEquals(4, partitioning.getPartitionCount());
+		double total = 0;
+		double max = 0;
+		for (int i = 0; i < 4; i++) {
+			total += partitioning.getLoad(i);
+			max = Math.max(max, partitioning.getLoad(i));
+		}
+		Assertions.assertTrue(max <= total / 4 * 1.05, "imbalance too large: " + max + " vs. " + total / 4);
+
+		// four quadrants: 2 * 2 * 20 links cross the borders between the regions
+		Assertions.assertTrue(partitioning.getCutLinks() <= 2 * 2 * GRID_SIZE + 8, "too many cut links: " + partitioning.getCutLinks());
+
+		int roundRobinCut = 0;
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		for (Link link : network.getLinks().values()) {
+			if (nodes.indexOf(link.getFromNode()) % 4 != nodes.indexOf(link.getToNode()) % 4) {
+				roundRobinCut++;
+			}
+		}
+		Assertions.assertTrue(partitioning.getCutLinks() * 5 < roundRobinCut, "cut links: " + partitioning.getCutLinks() + ", round robin: " + roundRobinCut);
+	}
+
+	@Test
+	void testSinglePartition() {
+		Network network = createGrid();
+		QNetworkPartitioner.Partitioning partitioning = QNetworkPartitioner.partition(network, 1, link -> 1);
+
+		Assertions.assertEquals(0, partitioning.getCutLinks());
+		Assertions.assertEquals(0.0, partitioning.getCutVolume(), 0.0);
+		for (Node node : network.getNodes().values()) {
+			Assertions.assertEquals(0, partitioning.getPartition(node));
+		}
+	}
+
+	@Test
+	void testVolumesShiftRegions() {
+		Network network = createGrid();
+		// heavy traffic in the left half of the network
+		QNetworkPartitioner.Partitioning partitioning = QNetworkPartitioner.partition(network, 2,
+				link -> link.getFromNode().getCoord().getX() < GRID_SIZE * 100 / 2 ? 100 : 0);
+
+		int[] nodeCounts = new int[2];
+		for (Node node : network.getNodes().values()) {
+			nodeCounts[partitioning.getPartition(node)]++;
+		}
+		// the region in the left half must be much smaller to get the same load
+		Assertions.assertTrue(nodeCounts[0] * 2 < nodeCounts[1], "node counts: " + nodeCounts[0] + " / " + nodeCounts[1]);
+		Assertions.assertEquals(partitioning.getLoad(0), partitioning.getLoad(1), 0.05 * partitioning.getLoad(1));
+	}
+
+	@Test
+	void testQSimWithGraphPartitioning() {
+		List<String> roundRobin = runQSim(NetsimNodePartitioning.roundRobin);
+		List<String> graph = runQSim(NetsimNodePartitioning.graph);
+
+		Assertions.assertFalse(roundRobin.isEmpty());
+		Assertions.assertEquals(roundRobin, graph);
+	}
+
+	private static List<String> runQSim(NetsimNodePartitioning partitioning) {
+		Id.resetCaches();
+		MatsimRandom.reset();
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(2);
+		config.qsim().setNetsimNodePartitioning(partitioning);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		fillGrid(scenario.getNetwork());
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < 200; i++) {
+			int y = i % (GRID_SIZE - 1);
+			List<Id<Link>> routeLinks = new ArrayList<>();
+			for (int x = 1; x < GRID_SIZE - 2; x++) {
+				routeLinks.add(Id.createLinkId(x + "_" + y + "_e"));
+			}
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("home", Id.createLinkId("0_" + y + "_e"));
+			home.setEndTime(7 * 3600 + i * 10);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(home.getLinkId(), routeLinks, Id.createLinkId((GRID_SIZE - 2) + "_" + y + "_e")));
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("work", leg.getRoute().getEndLinkId()));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((LinkEnterEventHandler) event -> events.add(event.getTime() + " " + event.getLinkId() + " " + event.getVehicleId()));
+		new QSimBuilder(config).useDefaults().build(scenario, eventsManager).run();
+		List<String> sorted = new ArrayList<>(events);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	private static Network createGrid() {
+		Network network = NetworkUtils.createNetwork();
+		fillGrid(network);
+		return network;
+	}
+
+	/**
+	 * Creates a grid with links in both directions and 100m between the nodes.
+	 */
+	private static void fillGrid(Network network) {
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < GRID_SIZE) {
+					Node east = network.getNodes().get(Id.createNodeId((x + 1) + "_" + y));
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(x + "_" + y + "_e"), node, east, 100, 10, 600, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId((x + 1) + "_" + y + "_w"), east, node, 100, 10, 600, 1);
+				}
+				if (y + 1 < GRID_SIZE) {
+					Node north = network.getNodes().get(Id.createNodeId(x + "_" + (y + 1)));
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(x + "_" + y + "_n"), node, north, 100, 10, 600, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(x + "_" + (y + 1) + "_s"), north, node, 100, 10, 600, 1);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactNetworkTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.compact;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.speedy.SpeedyDijkstra;
+import org.matsim.core.router.speedy.SpeedyGraphBuilder;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class CompactNetworkTest {
+
+	@RegisterExtension
+	private MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	void testCopyOf() {
+		Network network = createGridNetwork(5);
+		CompactNetwork compact = CompactNetwork.copyOf(network);
+		assertSameNetwork(network, compact);
+	}
+
+	@Test
+	void testWriteAndMap() {
+		Network network = createGridNetwork(5);
+		Path file = Path.of(this.utils.getOutputDirectory(), "network.bin");
+		CompactNetworkIO.write(CompactNetwork.copyOf(network), file);
+		CompactNetwork compact = CompactNetworkIO.read(file);
+		assertSameNetwork(network, compact);
+		assertEquals("grid", compact.getName());
+	}
+
+	@Test
+	void testViewsAreReadOnlyAndEqual() {
+		CompactNetwork compact = CompactNetwork.copyOf(createGridNetwork(3));
+		Link link = compact.getLinks().get(Id.createLinkId("0_0-1_0"));
+		assertEquals(link, compact.getLinks().get(Id.createLinkId("0_0-1_0")));
+		assertEquals(link.hashCode(), compact.getLinks().get(Id.createLinkId("0_0-1_0")).hashCode());
+		assertEquals(link.getFromNode(), compact.getNodes().get(Id.createNodeId("0_0")));
+		assertEquals(link, link.getFromNode().getOutLinks().get(link.getId()));
+		assertNotEquals(link, compact.getLinks().get(Id.createLinkId("1_0-0_0")));
+		assertNotEquals(link, CompactNetwork.copyOf(createGridNetwork(3)).getLinks().get(link.getId()));
+		assertNull(compact.getLinks().get(Id.createLinkId("does-not-exist")));
+		assertNull(link.getAttributes().getAttribute(NetworkUtils.TYPE));
+		assertThrows(UnsupportedOperationException.class, () -> link.setLength(1.0));
+		assertThrows(UnsupportedOperationException.class, () -> compact.removeLink(link.getId()));
+	}
+
+	@Test
+	void testRoutingAndNearestLink() {
+		Network network = createGridNetwork(8);
+		CompactNetwork compact = CompactNetwork.copyOf(network);
+
+		FreeSpeedTravelTime tt = new FreeSpeedTravelTime();
+		OnlyTimeDependentTravelDisutility td = new OnlyTimeDependentTravelDisutility(tt);
+		SpeedyDijkstra regularRouter = new SpeedyDijkstra(SpeedyGraphBuilder.build(network), tt, td);
+		SpeedyDijkstra compactRouter = new SpeedyDijkstra(SpeedyGraphBuilder.build(compact), tt, td);
+
+		for (String[] odPair : new String[][] {{"0_0", "7_7"}, {"7_0", "0_7"}, {"3_4", "6_1"}}) {
+			Id<Node> from = Id.createNodeId(odPair[0]);
+			Id<Node> to = Id.createNodeId(odPair[1]);
+			LeastCostPathCalculator.Path expected = regularRouter.calcLeastCostPath(network.getNodes().get(from), network.getNodes().get(to), 8 * 3600, null, null);
+			LeastCostPathCalculator.Path actual = compactRouter.calcLeastCostPath(compact.getNodes().get(from), compact.getNodes().get(to), 8 * 3600, null, null);
+			assertEquals(expected.travelCost, actual.travelCost, 1e-8);
+			assertEquals(linkIds(expected.links), linkIds(actual.links));
+		}
+
+		for (Coord coord : List.of(new Coord(120, 130), new Coord(650, 10), new Coord(-50, 420))) {
+			assertEquals(NetworkUtils.getNearestLinkExactly(network, coord).getId(), NetworkUtils.getNearestLinkExactly(compact, coord).getId());
+			assertEquals(NetworkUtils.getNearestNode(network, coord).getId(), NetworkUtils.getNearestNode(compact, coord).getId());
+		}
+	}
+
+	@Test
+	void testRouterReusesLinkView() {
+		CompactNetwork compact = CompactNetwork.copyOf(createGridNetwork(8));
+		Set<Link> seenLinks = Collections.newSetFromMap(new IdentityHashMap<>());
+		FreeSpeedTravelTime freeSpeed = new FreeSpeedTravelTime();
+		TravelTime tt = (link, time, person, vehicle) -> {
+			seenLinks.add(link);
+			return freeSpeed.getLinkTravelTime(link, time, person, vehicle);
+		};
+		SpeedyDijkstra router = new SpeedyDijkstra(SpeedyGraphBuilder.build(compact), tt, new OnlyTimeDependentTravelDisutility(freeSpeed));
+
+		LeastCostPathCalculator.Path path = router.calcLeastCostPath(compact.getNodes().get(Id.createNodeId("0_0")),
+				compact.getNodes().get(Id.createNodeId("7_7")), 8 * 3600, null, null);
+
+		// one view is moved across all relaxed links, while the links of the path are separate views
+		assertEquals(1, seenLinks.size());
+		assertEquals(14, path.links.size());
+		assertEquals(14, Set.copyOf(linkIds(path.links)).size());
+	}
+
+	private static List<Id<Link>> linkIds(List<Link> links) {
+		return links.stream().map(Link::getId).collect(Collectors.toList());
+	}
+
+	private static void assertSameNetwork(Network expected, CompactNetwork actual) {
+		assertEquals(expected.getNodes().size(), actual.getNodes().size());
+		assertEquals(expected.getLinks().size(), actual.getLinks().size());
+		assertEquals(expected.getCapacityPeriod(), actual.getCapacityPeriod(), 0.0);
+		assertEquals(expected.getEffectiveLaneWidth(), actual.getEffectiveLaneWidth(), 0.0);
+		for (Node node : expected.getNodes().values()) {
+			Node other = actual.getNodes().get(node.getId());
+			assertEquals(node.getCoord(), other.getCoord());
+			assertEquals(node.getOutLinks().keySet(), other.getOutLinks().keySet());
+			assertEquals(node.getInLinks().keySet(), other.getInLinks().keySet());
+		}
+		for (Link link : expected.getLinks().values()) {
+			Link other = actual.getLinks().get(link.getId());
+			assertEquals(link.getFromNode().getId(), other.getFromNode().getId());
+			assertEquals(link.getToNode().getId(), other.getToNode().getId());
+			assertEquals(link.getLength(), other.getLength(), 0.0);
+			assertEquals(link.getFreespeed(), other.getFreespeed(), 0.0);
+			assertEquals(link.getCapacity(), other.getCapacity(), 0.0);
+			assertEquals(link.getNumberOfLanes(), other.getNumberOfLanes(), 0.0);
+			assertEquals(link.getAllowedModes(), other.getAllowedModes());
+			assertEquals(link.getCoord(), other.getCoord());
+		}
+		assertEquals(expected.getLinks().keySet(), actual.getLinks().keySet());
+	}
+
+	/**
+	 * A grid with bidirectional links between neighbouring nodes, with varying speeds so that routes are unique.
+	 */
+	private static Network createGridNetwork(int size) {
+		Network network = NetworkUtils.createNetwork();
+		network.setName("grid");
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					addLinks(network, node, network.getNodes().get(Id.createNodeId((x + 1) + "_" + y)), 10 + (x * 7 + y * 3) % 5);
+				}
+				if (y + 1 < size) {
+					addLinks(network, node, network.getNodes().get(Id.createNodeId(x + "_" + (y + 1))), 10 + (x * 3 + y * 5) % 7);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node a, Node b, double freespeed) {
+		Link ab = NetworkUtils.createAndAddLink(network, Id.createLinkId(a.getId() + "-" + b.getId()), a, b, 100, freespeed, 1000, 1);
+		Link ba = NetworkUtils.createAndAddLink(network, Id.createLinkId(b.getId() + "-" + a.getId()), b, a, 100, freespeed + 0.5, 2000, 2);
+		ab.setAllowedModes(Set.of(TransportMode.car));
+		ba.setAllowedModes(Set.of(TransportMode.car, TransportMode.bike));
+	}
+}
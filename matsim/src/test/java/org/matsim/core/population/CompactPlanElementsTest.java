@@ -0,0 +1,233 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanElementsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.routes.DefaultTransitPassengerRoute;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+public class CompactPlanElementsTest {
+
+	@Test
+	void testCompactAndInflate() {
+		Population population = createPopulation();
+		String expected = toXml(population);
+
+		for (Person person : population.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				Assertions.assertTrue(((PlanImpl) plan).compact());
+				Assertions.assertTrue(((PlanImpl) plan).isCompact());
+			}
+		}
+		Assertions.assertTrue(population.getPersons().values().iterator().next().getSelectedPlan().toString().contains("[nof_acts_legs=7]"));
+		Assertions.assertTrue(((PlanImpl) population.getPersons().values().iterator().next().getSelectedPlan()).isCompact(), "toString() should not inflate the plan");
+
+		Assertions.assertEquals(expected, toXml(population));
+		for (Person person : population.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				Assertions.assertTrue(((PlanImpl) plan).isCompact(), "writing should not inflate the plan");
+				plan.getPlanElements();
+				Assertions.assertFalse(((PlanImpl) plan).isCompact());
+			}
+		}
+		Assertions.assertEquals(expected, toXml(population));
+	}
+
+	@Test
+	void testConcurrentInflation() throws Exception {
+		Population population = createPopulation();
+		Plan plan = population.getPersons().get(Id.createPersonId("1")).getSelectedPlan();
+		for (int round = 0; round < 20; round++) {
+			Assertions.assertTrue(((PlanImpl) plan).compact());
+			ExecutorService executor = Executors.newFixedThreadPool(8);
+			try {
+				List<Future<List<PlanElement>>> results = new ArrayList<>();
+				for (int t = 0; t < 8; t++) {
+					results.add(executor.submit(plan::getPlanElements));
+				}
+				List<PlanElement> first = results.get(0).get();
+				Assertions.assertEquals(7, first.size());
+				for (Future<List<PlanElement>> result : results) {
+					Assertions.assertSame(first, result.get(), "all threads should see the same inflated plan elements");
+				}
+				Assertions.assertSame(first, plan.getPlanElements());
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+	@Test
+	void testPopulationFactoryOption() {
+		Config config = ConfigUtils.createConfig();
+		Assertions.assertFalse(PopulationUtils.isCompactingUnselectedPlans(PopulationUtils.createPopulation(config).getFactory()));
+		config.plans().setCompactingUnselectedPlans(true);
+		Assertions.assertTrue(PopulationUtils.isCompactingUnselectedPlans(PopulationUtils.createPopulation(config).getFactory()));
+
+		Population population = createPopulation();
+		PopulationUtils.setCompactingUnselectedPlans(population.getFactory(), true);
+		Assertions.assertTrue(PopulationUtils.isCompactingUnselectedPlans(population.getFactory()));
+
+		Assertions.assertEquals(5, PopulationUtils.compactUnselectedPlans(population));
+		for (Person person : population.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				Assertions.assertEquals(plan != person.getSelectedPlan(), ((PlanImpl) plan).isCompact());
+			}
+		}
+		Assertions.assertEquals(0, PopulationUtils.compactUnselectedPlans(population), "compact plans should not be compacted again");
+	}
+
+	@Test
+	void testDetailsAreKept() {
+		Population population = createPopulation();
+		Plan plan = population.getPersons().get(Id.createPersonId("1")).getSelectedPlan();
+		Object ptRoute = ((Leg) plan.getPlanElements().get(5)).getRoute();
+		Assertions.assertTrue(((PlanImpl) plan).compact());
+
+		List<PlanElement> elements = plan.getPlanElements();
+		Activity home = (Activity) elements.get(0);
+		Assertions.assertEquals(-17.5, home.getCoord().getZ(), 0.0);
+		Assertions.assertEquals("morning", home.getAttributes().getAttribute("note"));
+		Assertions.assertTrue(home.getStartTime().isUndefined());
+		Leg car = (Leg) elements.get(1);
+		Assertions.assertEquals(0.5, car.getAttributes().getAttribute("legAttribute"));
+		NetworkRoute route = (NetworkRoute) car.getRoute();
+		Assertions.assertEquals(List.of(Id.createLinkId("2"), Id.createLinkId("3")), route.getLinkIds());
+		Assertions.assertEquals(Id.create("v1", Vehicle.class), route.getVehicleId());
+		Assertions.assertEquals(17.0, route.getTravelCost(), 0.0);
+		Assertions.assertSame(InteractionActivity.class, elements.get(2).getClass());
+		Assertions.assertSame(ptRoute, ((Leg) elements.get(5)).getRoute(), "routes of other types should be kept as they are");
+		Assertions.assertEquals(Id.create("f1", ActivityFacility.class), ((Activity) elements.get(4)).getFacilityId());
+	}
+
+	@Test
+	void testChangesAfterInflating() {
+		Population population = createPopulation();
+		Plan plan = population.getPersons().get(Id.createPersonId("1")).getSelectedPlan();
+		Assertions.assertTrue(((PlanImpl) plan).compact());
+
+		plan.addLeg(PopulationUtils.createLeg(TransportMode.walk));
+		plan.addActivity(PopulationUtils.createActivityFromLinkId("shop", Id.createLinkId("6")));
+		((Activity) plan.getPlanElements().get(0)).setEndTime(6 * 3600);
+		Assertions.assertTrue(((PlanImpl) plan).compact());
+
+		Assertions.assertEquals(9, plan.getPlanElements().size());
+		Assertions.assertEquals(6 * 3600, ((Activity) plan.getPlanElements().get(0)).getEndTime().seconds(), 0.0);
+		Assertions.assertEquals("shop", ((Activity) plan.getPlanElements().get(8)).getType());
+	}
+
+	private static String toXml(Population population) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+
+		for (int i = 0; i < 5; i++) {
+			Person person = pf.createPerson(Id.createPersonId(Integer.toString(i)));
+			population.addPerson(person);
+
+			Plan unselected = pf.createPlan();
+			unselected.addActivity(pf.createActivityFromLinkId("home", Id.createLinkId("1")));
+			person.addPlan(unselected);
+
+			Plan plan = pf.createPlan();
+			plan.setScore(12.25 * i);
+			person.addPlan(plan);
+			person.setSelectedPlan(plan);
+
+			Activity home = pf.createActivityFromCoord("home", new Coord(100 * i, 200, -17.5));
+			home.setLinkId(Id.createLinkId("1"));
+			home.setEndTime(7 * 3600 + i);
+			home.getAttributes().putAttribute("note", "morning");
+			plan.addActivity(home);
+
+			Leg car = pf.createLeg(TransportMode.car);
+			car.setRoutingMode(TransportMode.car);
+			car.setDepartureTime(7 * 3600 + i);
+			car.setTravelTime(600);
+			car.getAttributes().putAttribute("legAttribute", 0.5);
+			NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"), List.of(Id.createLinkId("2"), Id.createLinkId("3")), Id.createLinkId("4"));
+			route.setTravelTime(590);
+			route.setDistance(1234.5);
+			route.setTravelCost(17.0);
+			route.setVehicleId(Id.create("v1", Vehicle.class));
+			car.setRoute(route);
+			plan.addLeg(car);
+
+			plan.addActivity(PopulationUtils.createInteractionActivityFromLinkId("car interaction", Id.createLinkId("4")));
+
+			Leg walk = pf.createLeg(TransportMode.walk);
+			walk.setRoutingMode(TransportMode.car);
+			GenericRouteImpl walkRoute = new GenericRouteImpl(Id.createLinkId("4"), Id.createLinkId("5"));
+			walkRoute.setDistance(80);
+			walkRoute.setRouteDescription("some description");
+			walk.setRoute(walkRoute);
+			plan.addLeg(walk);
+
+			Activity work = pf.createActivityFromActivityFacilityId("work", Id.create("f" + i, ActivityFacility.class));
+			work.setStartTime(8 * 3600);
+			work.setMaximumDuration(8 * 3600);
+			plan.addActivity(work);
+
+			Leg pt = pf.createLeg(TransportMode.pt);
+			pt.setRoute(new DefaultTransitPassengerRoute(Id.createLinkId("5"), Id.createLinkId("1"),
+					Id.create("s5", TransitStopFacility.class), Id.create("s1", TransitStopFacility.class),
+					Id.create("line", TransitLine.class), Id.create("route", TransitRoute.class)));
+			plan.addLeg(pt);
+
+			plan.addActivity(pf.createActivityFromLinkId("home", Id.createLinkId("1")));
+		}
+		return population;
+	}
+}
@@ -0,0 +1,215 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationBinaryIOTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PopulationBinaryIOTest {
+	@RegisterExtension
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	void testRoundTripMapped() {
+		Population population = createPopulation();
+		String file = utils.getOutputDirectory() + "/plans.bin";
+		new PopulationWriterBinary(new org.matsim.core.utils.geometry.transformations.IdentityTransformation(), population, 7).write(file);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReaderBinary(scenario).readFile(file);
+
+		Assertions.assertEquals(toXml(population), toXml(scenario.getPopulation()));
+	}
+
+	@Test
+	void testRoundTripMappedInSmallWindows() {
+		Population population = createPopulation();
+		String file = utils.getOutputDirectory() + "/plans.bin";
+		new PopulationWriterBinary(new org.matsim.core.utils.geometry.transformations.IdentityTransformation(), population, 1).write(file);
+
+		// records span several windows, and most records are larger than a window
+		for (int windowSize : new int[] {1, 16, 100}) {
+			Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+			PopulationReaderBinary reader = new PopulationReaderBinary(scenario);
+			reader.setMapWindowSize(windowSize);
+			reader.readFile(file);
+
+			Assertions.assertEquals(toXml(population), toXml(scenario.getPopulation()), "window size " + windowSize);
+		}
+	}
+
+	@Test
+	void testRoundTripCompressed() {
+		Population population = createPopulation();
+		String file = utils.getOutputDirectory() + "/plans.bin.gz";
+		new PopulationWriterBinary(population).write(file);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReaderBinary(scenario).readFile(file);
+
+		Assertions.assertEquals(toXml(population), toXml(scenario.getPopulation()));
+	}
+
+	@Test
+	void testDetailsAreKept() {
+		Population population = createPopulation();
+		String file = utils.getOutputDirectory() + "/plans.bin";
+		new PopulationWriterBinary(population).write(file);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReaderBinary(scenario).readFile(file);
+		Population read = scenario.getPopulation();
+
+		Person person = read.getPersons().get(Id.createPersonId("1"));
+		Assertions.assertEquals(2, person.getPlans().size());
+		Assertions.assertSame(person.getPlans().get(1), person.getSelectedPlan());
+		Assertions.assertEquals(42, person.getAttributes().getAttribute("age"));
+		Assertions.assertEquals(123456789012L, person.getAttributes().getAttribute("long"));
+		Assertions.assertEquals(Boolean.TRUE, person.getAttributes().getAttribute("hasLicense"));
+
+		Plan plan = person.getSelectedPlan();
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		Assertions.assertEquals(-17.5, home.getCoord().getZ(), 0.0);
+		Leg leg = (Leg) plan.getPlanElements().get(1);
+		Assertions.assertEquals(TransportMode.car, leg.getRoutingMode());
+		NetworkRoute route = (NetworkRoute) leg.getRoute();
+		Assertions.assertEquals(List.of(Id.createLinkId("2"), Id.createLinkId("3")), route.getLinkIds());
+		Assertions.assertEquals(Id.create("v1", Vehicle.class), route.getVehicleId());
+		Assertions.assertSame(Id.createLinkId("2"), route.getLinkIds().get(0), "link ids should be interned");
+		Activity interaction = (Activity) plan.getPlanElements().get(2);
+		Assertions.assertSame(PopulationUtils.createInteractionActivityFromLinkId("car interaction", Id.createLinkId("4")).getClass(), interaction.getClass());
+	}
+
+	@Test
+	void testStreaming() {
+		Population population = createPopulation();
+		String file = utils.getOutputDirectory() + "/plans.bin";
+		new PopulationWriterBinary(population).write(file);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		StreamingPopulationReader reader = new StreamingPopulationReader(scenario);
+		List<Id<Person>> ids = new ArrayList<>();
+		reader.addAlgorithm(person -> ids.add(person.getId()));
+		reader.readFile(file);
+
+		Assertions.assertEquals(new ArrayList<>(population.getPersons().keySet()), ids);
+	}
+
+	private static String toXml(Population population) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.setName("binary test population");
+		population.getAttributes().putAttribute("description", "some persons");
+		PopulationFactory pf = population.getFactory();
+
+		for (int i = 0; i < 20; i++) {
+			Person person = pf.createPerson(Id.createPersonId(Integer.toString(i)));
+			person.getAttributes().putAttribute("age", 30 + i + (i == 1 ? 11 : 0));
+			person.getAttributes().putAttribute("long", 123456789012L);
+			person.getAttributes().putAttribute("hasLicense", i % 2 == 1);
+			person.getAttributes().putAttribute("income", 1000.5 * i);
+			person.getAttributes().putAttribute("home", new Coord(i, -i));
+			population.addPerson(person);
+
+			Plan unselected = pf.createPlan();
+			unselected.addActivity(pf.createActivityFromLinkId("home", Id.createLinkId("1")));
+			person.addPlan(unselected);
+
+			Plan plan = pf.createPlan();
+			plan.setScore(i % 3 == 0 ? null : 12.25 * i);
+			plan.setType(i % 4 == 0 ? "special" : null);
+			plan.getAttributes().putAttribute("iteration", i);
+			person.addPlan(plan);
+			person.setSelectedPlan(plan);
+
+			Activity home = pf.createActivityFromCoord("home", new Coord(100 * i, 200, -17.5));
+			home.setLinkId(Id.createLinkId("1"));
+			home.setEndTime(7 * 3600 + i);
+			home.getAttributes().putAttribute("note", "morning ünïcödé");
+			plan.addActivity(home);
+
+			Leg car = pf.createLeg(TransportMode.car);
+			car.setRoutingMode(TransportMode.car);
+			car.setDepartureTime(7 * 3600 + i);
+			car.setTravelTime(600);
+			car.getAttributes().putAttribute("legAttribute", 0.5);
+			NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"), List.of(Id.createLinkId("2"), Id.createLinkId("3")), Id.createLinkId("4"));
+			route.setTravelTime(590);
+			route.setDistance(1234.5);
+			route.setVehicleId(Id.create("v1", Vehicle.class));
+			car.setRoute(route);
+			plan.addLeg(car);
+
+			plan.addActivity(PopulationUtils.createInteractionActivityFromLinkId("car interaction", Id.createLinkId("4")));
+
+			Leg walk = pf.createLeg(TransportMode.walk);
+			walk.setRoutingMode(TransportMode.car);
+			GenericRouteImpl walkRoute = new GenericRouteImpl(Id.createLinkId("4"), Id.createLinkId("5"));
+			walkRoute.setDistance(80);
+			walkRoute.setTravelTimeUndefined();
+			walkRoute.setRouteDescription("some description");
+			walk.setRoute(walkRoute);
+			plan.addLeg(walk);
+
+			Activity work = pf.createActivityFromActivityFacilityId("work", Id.create("f" + i, ActivityFacility.class));
+			work.setStartTime(8 * 3600);
+			work.setMaximumDuration(8 * 3600);
+			plan.addActivity(work);
+
+			Leg pt = pf.createLeg(TransportMode.pt);
+			plan.addLeg(pt);
+
+			plan.addActivity(pf.createActivityFromLinkId("home", Id.<Link>createLinkId("1")));
+		}
+		return population;
+	}
+}
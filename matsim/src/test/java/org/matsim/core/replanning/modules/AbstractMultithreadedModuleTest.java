@@ -27,7 +27,16 @@ import org.junit.jupiter.api.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.replanning.ReplanningWorkerPool;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author mrieser
@@ -61,6 +70,101 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	void testWorkerPool() {
+		ReplanningWorkerPool pool = new ReplanningWorkerPool(3);
+		ReplanningContext context = () -> 0;
+		ReplanningContext poolContext = new ReplanningContext() {
+			@Override
+			public int getIteration() {
+				return 0;
+			}
+
+			@Override
+			public ReplanningWorkerPool getReplanningWorkerPool() {
+				return pool;
+			}
+		};
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+
+		for (boolean reusable : new boolean[] {false, true}) {
+			CountingModule testee = new CountingModule(2, reusable);
+			runModule(testee, context, plans);
+			Assertions.assertEquals(2, testee.instances.get());
+			Assertions.assertEquals(plans.size(), testee.handledPlans.size());
+
+			testee = new CountingModule(2, reusable);
+			runModule(testee, poolContext, plans);
+			Assertions.assertEquals(3, testee.instances.get());
+			Assertions.assertEquals(plans.size(), testee.handledPlans.size());
+			for (Plan plan : plans) {
+				Assertions.assertEquals(1, testee.handledPlans.get(plan).get());
+			}
+
+			runModule(testee, poolContext, plans);
+			Assertions.assertEquals(reusable ? 3 : 6, testee.instances.get());
+			for (Plan plan : plans) {
+				Assertions.assertEquals(2, testee.handledPlans.get(plan).get());
+			}
+		}
+	}
+
+	@Test
+	void testCrashingWorker() {
+		ReplanningWorkerPool pool = new ReplanningWorkerPool(2);
+		DummyCrashingModule testee = new DummyCrashingModule(2);
+		testee.prepareReplanning(new ReplanningContext() {
+			@Override
+			public int getIteration() {
+				return 0;
+			}
+
+			@Override
+			public ReplanningWorkerPool getReplanningWorkerPool() {
+				return pool;
+			}
+		});
+		testee.handlePlan(null);
+		testee.handlePlan(null);
+		testee.handlePlan(null);
+		Assertions.assertThrows(RuntimeException.class, testee::finishReplanning);
+	}
+
+	private static void runModule(AbstractMultithreadedModule module, ReplanningContext context, List<Plan> plans) {
+		module.prepareReplanning(context);
+		for (Plan plan : plans) {
+			module.handlePlan(plan);
+		}
+		module.finishReplanning();
+	}
+
+	private static class CountingModule extends AbstractMultithreadedModule {
+		private final boolean reusable;
+		private final AtomicInteger instances = new AtomicInteger();
+		private final Map<Plan, AtomicInteger> handledPlans = new IdentityHashMap<>();
+
+		public CountingModule(final int nOfThreads, boolean reusable) {
+			super(nOfThreads);
+			this.reusable = reusable;
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			this.instances.incrementAndGet();
+			return plan -> {
+				synchronized (this.handledPlans) {
+					this.handledPlans.computeIfAbsent(plan, p -> new AtomicInteger()).incrementAndGet();
+				}
+			};
+		}
+		@Override
+		protected boolean isPlanAlgoInstanceReusable() {
+			return this.reusable;
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -0,0 +1,95 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalReRouteTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TravelTimeChangeTracker;
+
+public class IncrementalReRouteTest {
+
+	@Test
+	void testNeedsReRoute() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("1"), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("2"), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId("3"), new Coord(2000, 0));
+		Node n4 = NetworkUtils.createAndAddNode(network, Id.createNodeId("4"), new Coord(3000, 0));
+		Link l1 = NetworkUtils.createAndAddLink(network, Id.createLinkId("1"), n1, n2, 1000, 10, 1000, 1);
+		Link l2 = NetworkUtils.createAndAddLink(network, Id.createLinkId("2"), n2, n3, 1000, 10, 1000, 1);
+		Link l3 = NetworkUtils.createAndAddLink(network, Id.createLinkId("3"), n3, n4, 1000, 10, 1000, 1);
+
+		double[] travelTimeL2 = {100.0};
+		TravelTime travelTime = (link, time, person, vehicle) -> link == l2 ? travelTimeL2[0] : 100.0;
+		Map<String, TravelTime> travelTimes = new HashMap<>();
+		travelTimes.put(TransportMode.car, travelTime);
+		TravelTimeChangeTracker tracker = new TravelTimeChangeTracker(network, travelTimes, new TravelTimeCalculatorConfigGroup());
+		IncrementalReRoute module = new IncrementalReRoute(null, null, new GlobalConfigGroup(), null, tracker);
+
+		Plan plan = PopulationUtils.createPlan();
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "h", l1.getId());
+		Leg leg = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "w", l3.getId());
+
+		tracker.update(1);
+		module.setRoutingIteration(plan, 1);
+		assertTrue(module.needsReRoute(plan, 2), "leg without route");
+
+		leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(l1.getId(), List.of(l2.getId()), l3.getId()));
+		assertFalse(module.needsReRoute(plan, 2));
+		assertTrue(module.needsReRoute(plan, 0), "routed in a later iteration, e.g. by a previous run");
+
+		module.setRoutingIteration(plan, 0);
+		assertTrue(module.needsReRoute(plan, 2), "routed before the first update of the tracker");
+
+		module.setRoutingIteration(plan, null);
+		assertTrue(module.needsReRoute(plan, 2), "never routed by this module");
+
+		module.setRoutingIteration(plan, 1);
+		travelTimeL2[0] = 200.0;
+		tracker.update(2);
+		assertTrue(module.needsReRoute(plan, 2), "route uses a changed link");
+
+		leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(l1.getId(), l3.getId()));
+		assertFalse(module.needsReRoute(plan, 2), "route does not use the changed link");
+	}
+
+}
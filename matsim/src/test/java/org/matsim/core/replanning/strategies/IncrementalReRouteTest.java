@@ -0,0 +1,121 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalReRouteTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.strategies;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TravelTimeChangeTracker;
+import org.matsim.core.utils.timing.TimeInterpretation;
+import org.matsim.facilities.FacilitiesUtils;
+
+public class IncrementalReRouteTest {
+
+	@Test
+	void testSelectedPlanIsNotCopiedIfNotReRouted() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("1"), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("2"), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId("3"), new Coord(2000, 0));
+		Node n4 = NetworkUtils.createAndAddNode(network, Id.createNodeId("4"), new Coord(3000, 0));
+		Link l1 = NetworkUtils.createAndAddLink(network, Id.createLinkId("1"), n1, n2, 1000, 10, 1000, 1);
+		Link l2 = NetworkUtils.createAndAddLink(network, Id.createLinkId("2"), n2, n3, 1000, 10, 1000, 1);
+		Link l3 = NetworkUtils.createAndAddLink(network, Id.createLinkId("3"), n3, n4, 1000, 10, 1000, 1);
+
+		double[] travelTimeL2 = {100.0};
+		TravelTime travelTime = (link, time, person, vehicle) -> link == l2 ? travelTimeL2[0] : 100.0;
+		Map<String, TravelTime> travelTimes = new HashMap<>();
+		travelTimes.put(TransportMode.car, travelTime);
+		TravelTimeChangeTracker tracker = new TravelTimeChangeTracker(network, travelTimes, new TravelTimeCalculatorConfigGroup());
+
+		TripRouter tripRouter = new TripRouter.Builder(ConfigUtils.createConfig())
+				.setRoutingModule(TransportMode.car, request -> {
+					Leg leg = PopulationUtils.createLeg(TransportMode.car);
+					leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(l1.getId(), List.of(l2.getId()), l3.getId()));
+					return List.of(leg);
+				})
+				.build();
+		GlobalConfigGroup globalConfig = new GlobalConfigGroup();
+		globalConfig.setNumberOfThreads(0);
+		IncrementalReRoute.IncrementalReRouteStrategy strategy = new IncrementalReRoute.IncrementalReRouteStrategy(
+				new org.matsim.core.replanning.modules.IncrementalReRoute(FacilitiesUtils.createActivityFacilities(), () -> tripRouter,
+						globalConfig, TimeInterpretation.create(ConfigUtils.createConfig()), tracker));
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("1"));
+		Plan inputPlan = PopulationUtils.createPlan(person);
+		PopulationUtils.createAndAddActivityFromLinkId(inputPlan, "h", l1.getId()).setEndTime(8 * 3600);
+		PopulationUtils.createAndAddLeg(inputPlan, TransportMode.car);
+		PopulationUtils.createAndAddActivityFromLinkId(inputPlan, "w", l3.getId());
+		person.addPlan(inputPlan);
+		inputPlan.setScore(0.0);
+
+		// the input plan was not routed by this strategy yet
+		runIteration(strategy, tracker, person, 1);
+		assertEquals(2, person.getPlans().size());
+		Plan routedPlan = person.getSelectedPlan();
+		assertNotSame(inputPlan, routedPlan);
+		person.removePlan(inputPlan);
+
+		// no travel time changed, the selected plan is kept as it is
+		runIteration(strategy, tracker, person, 2);
+		assertEquals(1, person.getPlans().size(), "no copy should be added to the choice set");
+		assertSame(routedPlan, person.getSelectedPlan());
+
+		// the route uses a changed link
+		travelTimeL2[0] = 200.0;
+		runIteration(strategy, tracker, person, 3);
+		assertEquals(2, person.getPlans().size());
+		assertNotSame(routedPlan, person.getSelectedPlan());
+	}
+
+	private static void runIteration(IncrementalReRoute.IncrementalReRouteStrategy strategy, TravelTimeChangeTracker tracker,
+			Person person, int iteration) {
+		tracker.update(iteration);
+		strategy.init(() -> iteration);
+		strategy.run(person);
+		strategy.finish();
+		person.getSelectedPlan().setScore(0.0);
+	}
+
+}
@@ -0,0 +1,144 @@
+package org.matsim.core.router.speedy;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.ScoringConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LeastCostPathTreeBatchTest {
+
+	@Test
+	void testMatrixSameAsSingleTrees() {
+		Network network = createRandomGrid(15, 42);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		SpeedyGraph graph = SpeedyGraphBuilder.build(network);
+
+		Random r = new Random(1);
+		Node[] nodes = network.getNodes().values().toArray(Node[]::new);
+		Node[] origins = new Node[10];
+		Node[] destinations = new Node[7];
+		for (int i = 0; i < origins.length; i++) {
+			origins[i] = nodes[r.nextInt(nodes.length)];
+		}
+		for (int i = 0; i < destinations.length; i++) {
+			destinations[i] = nodes[r.nextInt(nodes.length)];
+		}
+		double[] departureTimes = {0, 8 * 3600};
+
+		float[] times;
+		float[] costs;
+		float[] distances;
+		try (LeastCostPathTreeBatch batch = new LeastCostPathTreeBatch(graph, tc, tc, 3)) {
+			times = batch.calculateMatrix(origins, destinations, departureTimes, null, null, Double.POSITIVE_INFINITY, LeastCostPathTreeBatch.Indicator.TRAVEL_TIME);
+			costs = batch.calculateMatrix(origins, destinations, departureTimes, null, null, Double.POSITIVE_INFINITY, LeastCostPathTreeBatch.Indicator.TRAVEL_COST);
+			distances = batch.calculateMatrix(origins, destinations, departureTimes, null, null, Double.POSITIVE_INFINITY, LeastCostPathTreeBatch.Indicator.DISTANCE);
+		}
+
+		LeastCostPathTree tree = new LeastCostPathTree(graph, tc, tc);
+		for (int t = 0; t < departureTimes.length; t++) {
+			for (int o = 0; o < origins.length; o++) {
+				tree.calculate(origins[o].getId().index(), departureTimes[t], null, null);
+				for (int d = 0; d < destinations.length; d++) {
+					int index = (t * origins.length + o) * destinations.length + d;
+					int node = destinations[d].getId().index();
+					Assertions.assertEquals(tree.getTime(node).seconds() - departureTimes[t], times[index], 1e-2);
+					Assertions.assertEquals(tree.getCost(node), costs[index], 1e-3);
+					Assertions.assertEquals(tree.getDistance(node), distances[index], 1e-2);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testMaxCost() {
+		Network network = createRandomGrid(10, 7);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		SpeedyGraph graph = SpeedyGraphBuilder.build(network);
+		Node[] nodes = network.getNodes().values().toArray(Node[]::new);
+		Node[] origins = {network.getNodes().get(Id.createNodeId("0_0"))};
+		double[] departureTimes = {0};
+
+		LeastCostPathTree tree = new LeastCostPathTree(graph, tc, tc);
+		tree.calculate(origins[0].getId().index(), 0, null, null);
+		double maxCost = tree.getCost(network.getNodes().get(Id.createNodeId("5_5")).getId().index());
+
+		float[] costs;
+		try (LeastCostPathTreeBatch batch = new LeastCostPathTreeBatch(graph, tc, tc, 2)) {
+			costs = batch.calculateMatrix(origins, nodes, departureTimes, null, null, maxCost, LeastCostPathTreeBatch.Indicator.TRAVEL_COST);
+		}
+		for (int d = 0; d < nodes.length; d++) {
+			double expected = tree.getCost(nodes[d].getId().index());
+			if (expected <= maxCost) {
+				Assertions.assertEquals(expected, costs[d], 1e-3);
+			} else {
+				Assertions.assertEquals(Float.POSITIVE_INFINITY, costs[d]);
+			}
+		}
+	}
+
+	@Test
+	void testTreesAreStreamed() {
+		Network network = createRandomGrid(8, 3);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		SpeedyGraph graph = SpeedyGraphBuilder.build(network);
+		Node[] nodes = network.getNodes().values().toArray(Node[]::new);
+		Node target = network.getNodes().get(Id.createNodeId("7_7"));
+		double[] departureTimes = {0, 3600, 7200};
+
+		LeastCostPathTree reference = new LeastCostPathTree(graph, tc, tc);
+		AtomicInteger count = new AtomicInteger();
+		try (LeastCostPathTreeBatch batch = new LeastCostPathTreeBatch(graph, tc, tc, 4)) {
+			batch.calculate(nodes, departureTimes, null, null, Double.POSITIVE_INFINITY, new Node[] {target}, (o, t, tree) -> {
+				count.incrementAndGet();
+				double expected;
+				synchronized (reference) {
+					reference.calculate(nodes[o].getId().index(), departureTimes[t], null, null);
+					expected = reference.getCost(target.getId().index());
+				}
+				Assertions.assertEquals(expected, tree.getCost(target.getId().index()), 1e-9);
+			});
+		}
+		Assertions.assertEquals(nodes.length * departureTimes.length, count.get());
+	}
+
+	/**
+	 * Creates a grid network with links in both directions between neighboring nodes, and random lengths and speeds.
+	 */
+	private static Network createRandomGrid(int size, long seed) {
+		Random r = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLink(network, nodes[x][y], nodes[x + 1][y], r);
+					addLink(network, nodes[x + 1][y], nodes[x][y], r);
+				}
+				if (y + 1 < size) {
+					addLink(network, nodes[x][y], nodes[x][y + 1], r);
+					addLink(network, nodes[x][y + 1], nodes[x][y], r);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLink(Network network, Node from, Node to, Random r) {
+		Id<Link> id = Id.createLinkId(from.getId() + "-" + to.getId());
+		NetworkUtils.createAndAddLink(network, id, from, to, 100 + r.nextInt(200), 5 + r.nextInt(25), 1000, 1);
+	}
+}
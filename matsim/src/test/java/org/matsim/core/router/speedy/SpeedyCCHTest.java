@@ -0,0 +1,290 @@
+package org.matsim.core.router.speedy;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ScoringConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.AbstractLeastCostPathCalculatorTestWithTurnRestrictions;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.Random;
+
+public class SpeedyCCHTest extends AbstractLeastCostPathCalculatorTestWithTurnRestrictions {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		return new SpeedyCCHFactory(2).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	@Test
+	void testSameCostsAsDijkstra() {
+		Network network = createRandomGrid(25, 4711);
+		// make some links one-way, and add a few loops and parallel links
+		Random r = new Random(42);
+		for (Link link : network.getLinks().values().toArray(Link[]::new)) {
+			if (r.nextDouble() < 0.1) {
+				network.removeLink(link.getId());
+			} else if (r.nextDouble() < 0.02) {
+				NetworkUtils.createAndAddLink(network, Id.createLinkId(link.getId() + "_loop"), link.getFromNode(), link.getFromNode(), 50, 10, 1000, 1);
+			} else if (r.nextDouble() < 0.02) {
+				NetworkUtils.createAndAddLink(network, Id.createLinkId(link.getId() + "_parallel"), link.getFromNode(), link.getToNode(), 100, 30, 1000, 1);
+			}
+		}
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+
+		LeastCostPathCalculator cch = new SpeedyCCHFactory(2).createPathCalculator(network, tc, tc);
+		Assertions.assertInstanceOf(SpeedyCCH.class, cch);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(SpeedyGraphBuilder.build(network), tc, tc);
+
+		Node[] nodes = network.getNodes().values().toArray(Node[]::new);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[r.nextInt(nodes.length)];
+			Node to = nodes[r.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path actual = cch.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			if (expected == null) {
+				Assertions.assertNull(actual);
+				continue;
+			}
+
+			Assertions.assertEquals(expected.travelCost, actual.travelCost, 1e-4, "from " + from.getId() + " to " + to.getId());
+			Assertions.assertEquals(expected.travelTime, actual.travelTime, 1e-4);
+			assertConsistentPath(actual, from, to);
+		}
+	}
+
+	@Test
+	void testTimeDependentCosts() {
+		Network network = createRandomGrid(20, 815);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		SlicedCongestion congestion = new SlicedCongestion(network, tc, 24, 3);
+
+		LeastCostPathCalculator cch = new SpeedyCCHFactory(2).createPathCalculator(network, congestion, tc);
+		Assertions.assertInstanceOf(SpeedyCCH.class, cch);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(SpeedyGraphBuilder.build(network), tc, congestion);
+
+		Random r = new Random(4);
+		Node[] nodes = network.getNodes().values().toArray(Node[]::new);
+		for (int i = 0; i < 300; i++) {
+			Node from = nodes[r.nextInt(nodes.length)];
+			Node to = nodes[r.nextInt(nodes.length)];
+			double departureTime = r.nextInt(24 * 3600);
+
+			// the path must be optimal with the costs at the time each link is entered, also across hours
+			Path expected = dijkstra.calcLeastCostPath(from, to, departureTime, null, null);
+			Path actual = cch.calcLeastCostPath(from, to, departureTime, null, null);
+			assertConsistentPath(actual, from, to);
+			Assertions.assertEquals(expected.travelCost, actual.travelCost, 1e-6, "from " + from.getId() + " to " + to.getId() + " at " + departureTime);
+
+			// the reported costs must be evaluated along the path
+			double time = departureTime;
+			double cost = 0;
+			for (Link link : actual.links) {
+				cost += congestion.getLinkTravelDisutility(link, time, null, null);
+				time += tc.getLinkTravelTime(link, time, null, null);
+			}
+			Assertions.assertEquals(cost, actual.travelCost, 1e-6);
+			Assertions.assertEquals(time - departureTime, actual.travelTime, 1e-6);
+		}
+	}
+
+	@Test
+	void testReuseCustomization() {
+		Network network = createRandomGrid(10, 99);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		SpeedyCCHFactory factory = new SpeedyCCHFactory(1);
+
+		SpeedyCCHMetric metric1 = getMetric(factory.createPathCalculator(network, tc, tc));
+		SpeedyCCHMetric metric2 = getMetric(factory.createPathCalculator(network, tc, tc));
+		Assertions.assertSame(metric1, metric2, "unchanged link costs should not require a new customization");
+
+		SlicedCongestion congestion = new SlicedCongestion(network, tc, 24, 7);
+		SpeedyCCHMetric metric3 = getMetric(factory.createPathCalculator(network, congestion, tc));
+		Assertions.assertSame(metric1, metric3, "the same minimal link costs should not require a new customization");
+
+		SpeedyCCHMetric metric4 = getMetric(factory.createPathCalculator(network, new SlicedCongestion(network, tc, 24, 7, 0.5), tc));
+		Assertions.assertNotSame(metric1, metric4);
+		Assertions.assertSame(metric1.cch, metric4.cch, "the metric-independent preprocessing should be reused");
+	}
+
+	@Test
+	void testMetricPerTravelDisutility() {
+		Network network = createRandomGrid(10, 12);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		SlicedCongestion congestionA = new SlicedCongestion(network, tc, 24, 1, 1.0);
+		SlicedCongestion congestionB = new SlicedCongestion(network, tc, 24, 2, 0.5);
+		SpeedyCCHFactory factory = new SpeedyCCHFactory(1, () -> 0);
+
+		SpeedyCCHMetric metricA = getMetric(factory.createPathCalculator(network, congestionA, tc));
+		SpeedyCCHMetric metricB = getMetric(factory.createPathCalculator(network, congestionB, tc));
+		Assertions.assertNotSame(metricA, metricB);
+		Assertions.assertSame(metricA, getMetric(factory.createPathCalculator(network, congestionA, tc)), "travel disutilities should not replace each other's metric");
+		Assertions.assertSame(metricB, getMetric(factory.createPathCalculator(network, congestionB, tc)), "travel disutilities should not replace each other's metric");
+	}
+
+	@Test
+	void testLinkCostsAreSampledOncePerIteration() {
+		Network network = createRandomGrid(10, 5);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		SlicedCongestion congestion = new SlicedCongestion(network, tc, 24, 3);
+		int[] iteration = {0};
+		SpeedyCCHFactory factory = new SpeedyCCHFactory(1, () -> iteration[0]);
+
+		SpeedyCCHMetric metric1 = getMetric(factory.createPathCalculator(network, congestion, tc));
+		congestion.minFactor = 0.5;
+		SpeedyCCHMetric metric2 = getMetric(factory.createPathCalculator(network, congestion, tc));
+		Assertions.assertSame(metric1, metric2, "link costs should not be sampled again in the same iteration");
+
+		iteration[0] = 1;
+		SpeedyCCHMetric metric3 = getMetric(factory.createPathCalculator(network, congestion, tc));
+		Assertions.assertNotSame(metric1, metric3, "link costs should be sampled again in a new iteration");
+	}
+
+	@Test
+	void testRandomizingTravelDisutility() {
+		Network network = createRandomGrid(5, 1);
+		Config config = ConfigUtils.createConfig();
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(config.scoring());
+		TravelDisutility randomizing = new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, config).createTravelDisutility(tc);
+		LeastCostPathCalculator cch = new SpeedyCCHFactory(1).createPathCalculator(network, randomizing, tc);
+		Assertions.assertInstanceOf(SpeedyCCH.class, cch, "the person is only needed during the search, not for the customization");
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("1"));
+		Node from = network.getNodes().get(Id.createNodeId("0_0"));
+		Node to = network.getNodes().get(Id.createNodeId("4_4"));
+		Path path = cch.calcLeastCostPath(from, to, 0, person, null);
+		assertConsistentPath(path, from, to);
+		double cost = 0;
+		for (Link link : path.links) {
+			cost += randomizing.getLinkTravelDisutility(link, 0, person, null);
+		}
+		Assertions.assertEquals(cost, path.travelCost, 1e-6);
+	}
+
+	@Test
+	void testFallbackForNegativeMinimalCosts() {
+		Network network = createRandomGrid(5, 1);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		SlicedCongestion negative = new SlicedCongestion(network, tc, 24, 1, -1.0);
+		Assertions.assertInstanceOf(SpeedyALT.class, new SpeedyCCHFactory(1).createPathCalculator(network, negative, tc));
+	}
+
+	@Test
+	void testNoRoute() {
+		Network network = createRandomGrid(5, 1);
+		Node isolated = NetworkUtils.createAndAddNode(network, Id.createNodeId("isolated"), new Coord(-1000, -1000));
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+
+		LeastCostPathCalculator cch = new SpeedyCCHFactory(1).createPathCalculator(network, tc, tc);
+		Node from = network.getNodes().get(Id.createNodeId("0_0"));
+		Assertions.assertNull(cch.calcLeastCostPath(from, isolated, 0, null, null));
+		Assertions.assertNull(cch.calcLeastCostPath(isolated, from, 0, null, null));
+		Assertions.assertEquals(0, cch.calcLeastCostPath(from, from, 0, null, null).links.size());
+	}
+
+	private static SpeedyCCHMetric getMetric(LeastCostPathCalculator calculator) {
+		try {
+			java.lang.reflect.Field field = SpeedyCCH.class.getDeclaredField("metric");
+			field.setAccessible(true);
+			return (SpeedyCCHMetric) field.get(calculator);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void assertConsistentPath(Path path, Node from, Node to) {
+		Assertions.assertEquals(from, path.getFromNode());
+		Assertions.assertEquals(to, path.getToNode());
+		Assertions.assertEquals(path.links.size() + 1, path.nodes.size());
+		for (int l = 0; l < path.links.size(); l++) {
+			Link link = path.links.get(l);
+			Assertions.assertEquals(path.nodes.get(l), link.getFromNode());
+			Assertions.assertEquals(path.nodes.get(l + 1), link.getToNode());
+		}
+	}
+
+	/**
+	 * Multiplies the free speed costs of every link with a random factor between 1 and 5 per hour, and the minimal
+	 * costs with a fixed factor.
+	 */
+	private static class SlicedCongestion implements TravelDisutility {
+		private final TravelDisutility delegate;
+		private final double[][] factors;
+		private double minFactor;
+
+		SlicedCongestion(Network network, TravelDisutility delegate, int hours, long seed) {
+			this(network, delegate, hours, seed, 1.0);
+		}
+
+		SlicedCongestion(Network network, TravelDisutility delegate, int hours, long seed, double minFactor) {
+			this.delegate = delegate;
+			this.minFactor = minFactor;
+			this.factors = new double[hours][Id.getNumberOfIds(Link.class)];
+			Random r = new Random(seed);
+			for (double[] hourFactors : this.factors) {
+				for (int i = 0; i < hourFactors.length; i++) {
+					hourFactors[i] = 1.0 + 4.0 * r.nextDouble();
+				}
+			}
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			int hour = Math.min((int) (time / 3600), this.factors.length - 1);
+			return this.factors[hour][link.getId().index()] * this.delegate.getLinkTravelDisutility(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return this.minFactor * this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+	}
+
+	/**
+	 * Creates a grid network with links in both directions between neighboring nodes, and random lengths and speeds.
+	 */
+	private static Network createRandomGrid(int size, long seed) {
+		Random r = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLink(network, nodes[x][y], nodes[x + 1][y], r);
+					addLink(network, nodes[x + 1][y], nodes[x][y], r);
+				}
+				if (y + 1 < size) {
+					addLink(network, nodes[x][y], nodes[x][y + 1], r);
+					addLink(network, nodes[x][y + 1], nodes[x][y], r);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLink(Network network, Node from, Node to, Random r) {
+		Id<Link> id = Id.createLinkId(from.getId() + "-" + to.getId());
+		NetworkUtils.createAndAddLink(network, id, from, to, 100 + r.nextInt(200), 5 + r.nextInt(25), 1000, 1);
+	}
+}
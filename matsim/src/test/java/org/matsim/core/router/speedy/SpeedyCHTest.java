@@ -0,0 +1,217 @@
+package org.matsim.core.router.speedy;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.ScoringConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.AbstractLeastCostPathCalculatorTestWithTurnRestrictions;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.StaticTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SpeedyCHTest extends AbstractLeastCostPathCalculatorTestWithTurnRestrictions {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		return new SpeedyCHFactory(2, null).createPathCalculator(network, StaticTravelDisutility.of(travelTimeCostCalculator), travelTimeCostCalculator);
+	}
+
+	@Test
+	void testSameCostsAsDijkstra() {
+		Network network = createRandomGrid(25, 4711);
+		// make some links one-way, and add a few loops and parallel links
+		Random r = new Random(42);
+		for (Link link : network.getLinks().values().toArray(Link[]::new)) {
+			if (r.nextDouble() < 0.1) {
+				network.removeLink(link.getId());
+			} else if (r.nextDouble() < 0.02) {
+				NetworkUtils.createAndAddLink(network, Id.createLinkId(link.getId() + "_loop"), link.getFromNode(), link.getFromNode(), 50, 10, 1000, 1);
+			} else if (r.nextDouble() < 0.02) {
+				NetworkUtils.createAndAddLink(network, Id.createLinkId(link.getId() + "_parallel"), link.getFromNode(), link.getToNode(), 100, 30, 1000, 1);
+			}
+		}
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+
+		LeastCostPathCalculator ch = new SpeedyCHFactory(4, null).createPathCalculator(network, StaticTravelDisutility.of(tc), tc);
+		Assertions.assertInstanceOf(SpeedyCH.class, ch);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(SpeedyGraphBuilder.build(network), tc, tc);
+
+		Node[] nodes = network.getNodes().values().toArray(Node[]::new);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[r.nextInt(nodes.length)];
+			Node to = nodes[r.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			if (expected == null) {
+				Assertions.assertNull(actual);
+				continue;
+			}
+
+			Assertions.assertEquals(expected.travelCost, actual.travelCost, 1e-6, "from " + from.getId() + " to " + to.getId());
+			Assertions.assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+			Assertions.assertEquals(from, actual.getFromNode());
+			Assertions.assertEquals(to, actual.getToNode());
+			Assertions.assertEquals(actual.links.size() + 1, actual.nodes.size());
+			for (int l = 0; l < actual.links.size(); l++) {
+				Link link = actual.links.get(l);
+				Assertions.assertEquals(actual.nodes.get(l), link.getFromNode());
+				Assertions.assertEquals(actual.nodes.get(l + 1), link.getToNode());
+			}
+		}
+	}
+
+	@Test
+	void testNoRoute() {
+		Network network = createRandomGrid(5, 1);
+		Node isolated = NetworkUtils.createAndAddNode(network, Id.createNodeId("isolated"), new Coord(-1000, -1000));
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+
+		LeastCostPathCalculator ch = new SpeedyCHFactory(1, null).createPathCalculator(network, StaticTravelDisutility.of(tc), tc);
+		Node from = network.getNodes().get(Id.createNodeId("0_0"));
+		Assertions.assertNull(ch.calcLeastCostPath(from, isolated, 0, null, null));
+		Assertions.assertNull(ch.calcLeastCostPath(isolated, from, 0, null, null));
+		Assertions.assertEquals(0, ch.calcLeastCostPath(from, from, 0, null, null).links.size());
+	}
+
+	@Test
+	void testCacheOnDisk() {
+		Network network = createRandomGrid(10, 1234);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		java.nio.file.Path cacheDir = java.nio.file.Path.of(this.utils.getOutputDirectory());
+
+		SpeedyCH ch1 = (SpeedyCH) new SpeedyCHFactory(2, cacheDir).createPathCalculator(network, StaticTravelDisutility.of(tc), tc);
+		File[] files = cacheDir.toFile().listFiles((dir, name) -> name.startsWith("speedy-ch-") && name.endsWith(".bin"));
+		Assertions.assertEquals(1, files.length);
+		long lastModified = files[0].lastModified();
+
+		SpeedyCH ch2 = (SpeedyCH) new SpeedyCHFactory(2, cacheDir).createPathCalculator(network, StaticTravelDisutility.of(tc), tc);
+		files = cacheDir.toFile().listFiles((dir, name) -> name.startsWith("speedy-ch-") && name.endsWith(".bin"));
+		Assertions.assertEquals(1, files.length);
+		Assertions.assertEquals(lastModified, files[0].lastModified(), "cached data should have been read, not written again");
+
+		Node from = network.getNodes().get(Id.createNodeId("0_0"));
+		Node to = network.getNodes().get(Id.createNodeId("9_9"));
+		Path path1 = ch1.calcLeastCostPath(from, to, 0, null, null);
+		Path path2 = ch2.calcLeastCostPath(from, to, 0, null, null);
+		Assertions.assertEquals(path1.links, path2.links);
+		Assertions.assertEquals(path1.travelCost, path2.travelCost, 1e-9);
+	}
+
+	@Test
+	void testFallbackForCostsNotDeclaredStatic() {
+		Network network = createRandomGrid(5, 1);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		TravelDisutility peakHourCosts = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				double factor = time >= 7 * 3600 && time < 9 * 3600 ? 2.0 : 1.0;
+				return factor * tc.getLinkTravelDisutility(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return tc.getLinkMinimumTravelDisutility(link);
+			}
+		};
+		SpeedyCHFactory factory = new SpeedyCHFactory(1, null);
+		Assertions.assertInstanceOf(SpeedyALT.class, factory.createPathCalculator(network, peakHourCosts, tc));
+		Assertions.assertInstanceOf(SpeedyALT.class, factory.createPathCalculator(network, tc, tc));
+		Assertions.assertInstanceOf(SpeedyCH.class, factory.createPathCalculator(network, StaticTravelDisutility.of(tc), tc));
+	}
+
+	@Test
+	void testErrorsOfStaticCostsAreNotHidden() {
+		Network network = createRandomGrid(5, 1);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		StaticTravelDisutility brokenCosts = new StaticTravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				throw new IllegalStateException("broken");
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return 0;
+			}
+		};
+		SpeedyCHFactory factory = new SpeedyCHFactory(1, null);
+		Assertions.assertThrows(IllegalStateException.class, () -> factory.createPathCalculator(network, brokenCosts, tc));
+	}
+
+	@Test
+	void testLinkCostsAreSampledOncePerIteration() {
+		Network network = createRandomGrid(5, 2);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		AtomicInteger evaluations = new AtomicInteger();
+		StaticTravelDisutility countingCosts = new StaticTravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				evaluations.incrementAndGet();
+				return tc.getLinkTravelDisutility(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return tc.getLinkMinimumTravelDisutility(link);
+			}
+		};
+		int[] iteration = {0};
+		SpeedyCHFactory factory = new SpeedyCHFactory(1, null, () -> iteration[0]);
+
+		Assertions.assertInstanceOf(SpeedyCH.class, factory.createPathCalculator(network, countingCosts, tc));
+		int sampled = evaluations.get();
+		Assertions.assertEquals(network.getLinks().size(), sampled, "each link should be evaluated once");
+		Assertions.assertInstanceOf(SpeedyCH.class, factory.createPathCalculator(network, countingCosts, tc));
+		Assertions.assertEquals(sampled, evaluations.get(), "link costs should not be sampled again in the same iteration");
+
+		iteration[0] = 1;
+		Assertions.assertInstanceOf(SpeedyCH.class, factory.createPathCalculator(network, countingCosts, tc));
+		Assertions.assertEquals(2 * sampled, evaluations.get(), "link costs should be sampled again in a new iteration");
+	}
+
+	/**
+	 * Creates a grid network with links in both directions between neighboring nodes, and random lengths and speeds.
+	 */
+	private static Network createRandomGrid(int size, long seed) {
+		Random r = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLink(network, nodes[x][y], nodes[x + 1][y], r);
+					addLink(network, nodes[x + 1][y], nodes[x][y], r);
+				}
+				if (y + 1 < size) {
+					addLink(network, nodes[x][y], nodes[x][y + 1], r);
+					addLink(network, nodes[x][y + 1], nodes[x][y], r);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLink(Network network, Node from, Node to, Random r) {
+		Id<Link> id = Id.createLinkId(from.getId() + "-" + to.getId());
+		NetworkUtils.createAndAddLink(network, id, from, to, 100 + r.nextInt(200), 5 + r.nextInt(25), 1000, 1);
+	}
+}
@@ -27,21 +27,41 @@ import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonScoreEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ScoringConfigGroup;
 import org.matsim.core.controler.ControlerListenerManagerImpl;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.HashMap;
+import java.util.Map;
 
 	/**
  * @author mrieser / Simunto GmbH
@@ -134,6 +154,100 @@ public class ScoringFunctionsForPopulationTest {
 		Assertions.assertEquals(1.234+2.345, rsf.separateScoreSum, 1e-7);
 	}
 
+	@Test
+	void testShardedScoring() {
+		Map<Id<Person>, Double> scores = calcScores(1);
+		Map<Id<Person>, Double> shardedScores = calcScores(3);
+
+		Assertions.assertEquals(60, scores.size());
+		Assertions.assertEquals(scores.size(), shardedScores.size());
+		for (Map.Entry<Id<Person>, Double> e : scores.entrySet()) {
+			Assertions.assertEquals(e.getValue(), shardedScores.get(e.getKey()), 1e-10, "different score for person " + e.getKey());
+		}
+	}
+
+	/**
+	 * Every driver takes a passenger along in the morning, so drivers and passengers are usually assigned to different
+	 * shards. In the evening, everybody walks back home.
+	 */
+	private static Map<Id<Person>, Double> calcScores(int scoringShards) {
+		Config config = ConfigUtils.createConfig();
+		config.controller().setScoringShards(scoringShards);
+		ScoringConfigGroup.ActivityParams home = new ScoringConfigGroup.ActivityParams("home");
+		home.setTypicalDuration(14 * 3600);
+		config.scoring().addActivityParams(home);
+		ScoringConfigGroup.ActivityParams work = new ScoringConfigGroup.ActivityParams("work");
+		work.setTypicalDuration(8 * 3600);
+		config.scoring().addActivityParams(work);
+		config.scoring().getOrCreateModeParams(TransportMode.car).setMonetaryDistanceRate(-0.0002);
+		config.scoring().getOrCreateModeParams(TransportMode.ride).setMonetaryDistanceRate(-0.0001);
+
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node[] nodes = new Node[6];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = network.getFactory().createNode(Id.createNodeId(i), new Coord(i * 1000, 0));
+			network.addNode(nodes[i]);
+		}
+		for (int i = 1; i < nodes.length; i++) {
+			Link link = network.getFactory().createLink(Id.createLinkId(i), nodes[i - 1], nodes[i]);
+			link.setLength(i * 500);
+			network.addLink(link);
+		}
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < 60; i++) {
+			population.addPerson(population.getFactory().createPerson(Id.createPersonId("sharded_" + i)));
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsToScore e2s = EventsToScore.createWithoutScoreUpdating(scenario, new CharyparNagelScoringFunctionFactory(scenario), events);
+		e2s.beginIteration(0, false);
+		events.initProcessing();
+		Id<Link> homeLinkId = Id.createLinkId(1);
+		Id<Link> workLinkId = Id.createLinkId(5);
+		for (int i = 0; i < 60; i += 2) {
+			Id<Person> driverId = Id.createPersonId("sharded_" + i);
+			Id<Person> passengerId = Id.createPersonId("sharded_" + (i + 1));
+			Id<Vehicle> vehicleId = Id.createVehicleId("sharded_" + i);
+			double time = 6 * 3600 + i * 60;
+			events.processEvent(new ActivityEndEvent(time, driverId, homeLinkId, null, "home"));
+			events.processEvent(new ActivityEndEvent(time, passengerId, homeLinkId, null, "home"));
+			events.processEvent(new PersonDepartureEvent(time, driverId, homeLinkId, TransportMode.car, TransportMode.car));
+			events.processEvent(new PersonDepartureEvent(time, passengerId, homeLinkId, TransportMode.ride, TransportMode.ride));
+			events.processEvent(new PersonEntersVehicleEvent(time + 60, driverId, vehicleId));
+			events.processEvent(new PersonEntersVehicleEvent(time + 60, passengerId, vehicleId));
+			events.processEvent(new VehicleEntersTrafficEvent(time + 60, driverId, homeLinkId, vehicleId, TransportMode.car, 1.0));
+			for (int l = 2; l <= 5; l++) {
+				events.processEvent(new LinkEnterEvent(time + 60 + l * 100, vehicleId, Id.createLinkId(l)));
+			}
+			events.processEvent(new VehicleLeavesTrafficEvent(time + 600, driverId, workLinkId, vehicleId, TransportMode.car, 1.0));
+			events.processEvent(new PersonLeavesVehicleEvent(time + 600, passengerId, vehicleId));
+			events.processEvent(new PersonLeavesVehicleEvent(time + 600, driverId, vehicleId));
+			events.processEvent(new PersonArrivalEvent(time + 600, passengerId, workLinkId, TransportMode.ride));
+			events.processEvent(new PersonArrivalEvent(time + 600, driverId, workLinkId, TransportMode.car));
+			events.processEvent(new ActivityStartEvent(time + 600, passengerId, workLinkId, null, "work"));
+			events.processEvent(new ActivityStartEvent(time + 600, driverId, workLinkId, null, "work"));
+			events.processEvent(new PersonMoneyEvent(time + 600, passengerId, -1.5 - i * 0.1, "fare", "driver"));
+		}
+		for (int i = 0; i < 60; i++) {
+			Id<Person> personId = Id.createPersonId("sharded_" + i);
+			double time = 16 * 3600 + i * 60;
+			events.processEvent(new ActivityEndEvent(time, personId, workLinkId, null, "work"));
+			events.processEvent(new PersonDepartureEvent(time, personId, workLinkId, TransportMode.walk, TransportMode.walk));
+			events.processEvent(new TeleportationArrivalEvent(time + 3000 + i, personId, 4000 + i * 10, TransportMode.walk));
+			events.processEvent(new PersonArrivalEvent(time + 3000 + i, personId, homeLinkId, TransportMode.walk));
+			events.processEvent(new ActivityStartEvent(time + 3000 + i, personId, homeLinkId, null, "home"));
+		}
+		events.finishProcessing();
+		e2s.finish();
+
+		Map<Id<Person>, Double> scores = new HashMap<>();
+		for (Person person : population.getPersons().values()) {
+			scores.put(person.getId(), e2s.getAgentScore(person.getId()));
+		}
+		return scores;
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
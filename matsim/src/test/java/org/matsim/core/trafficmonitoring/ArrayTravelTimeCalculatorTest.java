@@ -0,0 +1,260 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrayTravelTimeCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Injector;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioByInstanceModule;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+import com.google.inject.Key;
+import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+
+public class ArrayTravelTimeCalculatorTest {
+
+	@ParameterizedTest
+	@CsvSource({"average,1", "average,3", "linearinterpolation,1", "linearinterpolation,2"})
+	void testSameTravelTimesAsTravelTimeCalculator(String travelTimeGetter, int shards) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/input/org/matsim/core/trafficmonitoring/TravelTimeCalculatorTest/link10_network.xml");
+		TravelTimeCalculatorConfigGroup ttcConfig = scenario.getConfig().travelTimeCalculator();
+		ttcConfig.setTravelTimeGetterType(travelTimeGetter);
+		ttcConfig.setTraveltimeBinSize(300);
+		ttcConfig.setNumberOfShards(shards);
+
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(network);
+		builder.setTimeslice(ttcConfig.getTraveltimeBinSize());
+		builder.setMaxTime(ttcConfig.getMaxTime());
+		builder.configure(ttcConfig);
+		TravelTimeCalculator expected = builder.build();
+
+		ArrayTravelTimeCalculator.Builder arrayBuilder = new ArrayTravelTimeCalculator.Builder(network);
+		arrayBuilder.configure(ttcConfig);
+		ArrayTravelTimeCalculator actual = arrayBuilder.build();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(expected);
+		actual.addEventHandlersTo(events);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile("test/input/org/matsim/core/trafficmonitoring/TravelTimeCalculatorTest/link10_events.xml");
+		events.finishProcessing();
+
+		TravelTime expectedTimes = expected.getLinkTravelTimes();
+		TravelTime actualTimes = actual.getLinkTravelTimes();
+		for (Link link : network.getLinks().values()) {
+			for (double time = 0; time < 30 * 3600; time += 120) {
+				assertEquals(expectedTimes.getLinkTravelTime(link, time, null, null), actualTimes.getLinkTravelTime(link, time, null, null), 1e-3,
+						"wrong travel time on link " + link.getId() + " at " + time);
+			}
+		}
+	}
+
+	@Test
+	void testLongTravelTimeInEmptySlot() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		final Node fromNode = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		final Node toNode = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), fromNode, toNode, 1000.0, 100.0, 3600.0, 1.0);
+		double freeSpeedTT = NetworkUtils.getFreespeedTravelTime(link1);
+		Id<Vehicle> vehId = Id.create("1", Vehicle.class);
+
+		int timeBinSize = 15 * 60;
+		ArrayTravelTimeCalculator.Builder builder = new ArrayTravelTimeCalculator.Builder(network);
+		builder.setTimeslice(timeBinSize);
+		builder.setMaxTime(12 * 3600);
+		ArrayTravelTimeCalculator ttcalc = builder.build();
+		EventsManager events = EventsUtils.createEventsManager();
+		ttcalc.addEventHandlersTo(events);
+
+		double firstTimeBinStart = 7.0 * 3600;
+		double linkTravelTime1 = 50.0 * 60;
+		double linkTravelTime2 = 10.0 * 60;
+		events.processEvent(new LinkEnterEvent(firstTimeBinStart, vehId, link1.getId()));
+		events.processEvent(new LinkLeaveEvent(firstTimeBinStart + linkTravelTime1, vehId, link1.getId()));
+		events.processEvent(new LinkEnterEvent(firstTimeBinStart + 3 * timeBinSize, vehId, link1.getId()));
+		events.processEvent(new LinkLeaveEvent(firstTimeBinStart + 3 * timeBinSize + linkTravelTime2, vehId, link1.getId()));
+
+		TravelTime travelTimes = ttcalc.getLinkTravelTimes();
+		double offset = 5 * 60;
+		assertEquals(freeSpeedTT, travelTimes.getLinkTravelTime(link1, firstTimeBinStart - timeBinSize + offset, null, null), 1e-3);
+		assertEquals(linkTravelTime1, travelTimes.getLinkTravelTime(link1, firstTimeBinStart + offset, null, null), 1e-3);
+		assertEquals(linkTravelTime1 - timeBinSize, travelTimes.getLinkTravelTime(link1, firstTimeBinStart + timeBinSize + offset, null, null), 1e-3);
+		assertEquals(linkTravelTime1 - 2 * timeBinSize, travelTimes.getLinkTravelTime(link1, firstTimeBinStart + 2 * timeBinSize + offset, null, null), 1e-3);
+		assertEquals(linkTravelTime2, travelTimes.getLinkTravelTime(link1, firstTimeBinStart + 3 * timeBinSize + offset, null, null), 1e-3);
+		assertEquals(freeSpeedTT, travelTimes.getLinkTravelTime(link1, firstTimeBinStart + 4 * timeBinSize + offset, null, null), 1e-3);
+
+		// new events after the travel times were queried are taken into account
+		events.processEvent(new LinkEnterEvent(firstTimeBinStart + 4 * timeBinSize, vehId, link1.getId()));
+		events.processEvent(new LinkLeaveEvent(firstTimeBinStart + 4 * timeBinSize + 200, vehId, link1.getId()));
+		assertEquals(200, travelTimes.getLinkTravelTime(link1, firstTimeBinStart + 4 * timeBinSize + offset, null, null), 1e-3);
+
+		// and are forgotten after a reset
+		events.resetHandlers(1);
+		assertEquals(freeSpeedTT, travelTimes.getLinkTravelTime(link1, firstTimeBinStart + offset, null, null), 1e-3);
+	}
+
+	@Test
+	void testManyVehiclesOnLinkAndVeryLongTravelTimes() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create(1, Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create(2, Node.class), new Coord(1000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.create(1, Link.class), n1, n2, 1000.0, 10.0, 3600.0, 1.0);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.create(2, Link.class), n2, n1, 1000.0, 10.0, 3600.0, 1.0);
+
+		ArrayTravelTimeCalculator.Builder builder = new ArrayTravelTimeCalculator.Builder(network);
+		builder.setTimeslice(900);
+		builder.setNumberOfShards(2);
+		ArrayTravelTimeCalculator ttc = builder.build();
+		EventsManager events = EventsUtils.createEventsManager();
+		ttc.addEventHandlersTo(events);
+
+		// many vehicles are on the link at the same time and leave it in reverse order
+		int vehicles = 1000;
+		for (int i = 0; i < vehicles; i++) {
+			events.processEvent(new LinkEnterEvent(3600, Id.create("v" + i, Vehicle.class), link1.getId()));
+		}
+		double sum = 0;
+		for (int i = vehicles - 1; i >= 0; i--) {
+			double travelTime = 100 + i;
+			events.processEvent(new LinkLeaveEvent(3600 + travelTime, Id.create("v" + i, Vehicle.class), link1.getId()));
+			sum += travelTime;
+		}
+		assertEquals(sum / vehicles, ttc.getLinkTravelTimes().getLinkTravelTime(link1, 3700, null, null), 1e-3);
+
+		// a travel time sum that does not fit into milliseconds with 40 bits
+		for (int i = 0; i < 3; i++) {
+			events.processEvent(new LinkEnterEvent(0, Id.create("v" + i, Vehicle.class), link2.getId()));
+			events.processEvent(new LinkLeaveEvent(1e9, Id.create("v" + i, Vehicle.class), link2.getId()));
+		}
+		assertEquals(1e9, ttc.getLinkTravelTimes().getLinkTravelTime(link2, 0, null, null), 1e3);
+	}
+
+	@Test
+	void testIgnorePtVehiclesAtStopAndFilterModes() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = network.getFactory().createNode(Id.create(1, Node.class), new Coord(0, 0));
+		Node n2 = network.getFactory().createNode(Id.create(2, Node.class), new Coord(1000, 0));
+		network.addNode(n1);
+		network.addNode(n2);
+		Link link1 = network.getFactory().createLink(Id.create(1, Link.class), n1, n2);
+		network.addLink(link1);
+
+		ArrayTravelTimeCalculator.Builder builder = new ArrayTravelTimeCalculator.Builder(network);
+		builder.setFilterModes(true);
+		builder.setAnalyzedModes(new LinkedHashSet<>(Arrays.asList(TransportMode.car, TransportMode.pt)));
+		builder.setNumberOfShards(2);
+		ArrayTravelTimeCalculator ttc = builder.build();
+		EventsManager events = EventsUtils.createEventsManager();
+		ttc.addEventHandlersTo(events);
+
+		Id<Vehicle> ptVehId = Id.create("ptVeh", Vehicle.class);
+		Id<Vehicle> ivVehId = Id.create("ivVeh", Vehicle.class);
+		Id<Vehicle> bikeId = Id.create("bike", Vehicle.class);
+
+		events.processEvent(new VehicleEntersTrafficEvent(90, null, link1.getId(), bikeId, TransportMode.bike, 1.0));
+		events.processEvent(new LinkEnterEvent(90, bikeId, link1.getId()));
+		events.processEvent(new LinkEnterEvent(100, ivVehId, link1.getId()));
+		events.processEvent(new LinkEnterEvent(150, ptVehId, link1.getId()));
+		events.processEvent(new LinkLeaveEvent(200, ivVehId, link1.getId()));
+		events.processEvent(new VehicleArrivesAtFacilityEvent(240, ptVehId, Id.create("stop", TransitStopFacility.class), 0));
+		events.processEvent(new LinkLeaveEvent(350, ptVehId, link1.getId()));
+		events.processEvent(new LinkLeaveEvent(890, bikeId, link1.getId()));
+		events.processEvent(new VehicleLeavesTrafficEvent(890, null, link1.getId(), bikeId, TransportMode.bike, 1.0));
+
+		assertEquals(100.0, ttc.getLinkTravelTimes().getLinkTravelTime(link1, 200, null, null), 1e-8);
+	}
+
+	@Test
+	void testSelectableViaConfig() {
+		Config config = ConfigUtils.createConfig();
+		config.travelTimeCalculator().setCalculatorType(TravelTimeCalculatorConfigGroup.CalculatorType.ArrayTravelTimeCalculator);
+		config.travelTimeCalculator().setNumberOfShards(2);
+		config.travelTimeCalculator().setAnalyzedModesAsString("car,bike");
+		config.routing().setNetworkModes(new LinkedHashSet<>(Arrays.asList(TransportMode.car, TransportMode.bike)));
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Node node0 = scenario.getNetwork().getFactory().createNode(Id.createNodeId(0), new Coord(0, 0));
+		Node node1 = scenario.getNetwork().getFactory().createNode(Id.createNodeId(1), new Coord(1, 0));
+		scenario.getNetwork().addNode(node0);
+		scenario.getNetwork().addNode(node1);
+		Id<Link> linkId = Id.createLinkId(0);
+		Link link = scenario.getNetwork().getFactory().createLink(linkId, node0, node1);
+		scenario.getNetwork().addLink(link);
+		var eventsManagerModule = new AbstractModule() {
+			@Override
+			public void install() {
+				bind(EventsManager.class).to(EventsManagerImpl.class).in(Singleton.class);
+			}
+		};
+		com.google.inject.Injector injector = Injector.createInjector(config, new TravelTimeCalculatorModule(), eventsManagerModule, new ScenarioByInstanceModule(scenario));
+		ArrayTravelTimeCalculator car = injector.getInstance(Key.get(ArrayTravelTimeCalculator.class, Names.named(TransportMode.car)));
+		Map<String, TravelTime> travelTimes = injector.getInstance(Key.get(new TypeLiteral<Map<String, TravelTime>>() {}));
+		EventsManager events = injector.getInstance(EventsManager.class);
+		events.processEvent(new VehicleEntersTrafficEvent(0.0, Id.createPersonId(0), linkId, Id.createVehicleId(0), "car", 0.0));
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), linkId));
+		events.processEvent(new LinkLeaveEvent(2.0, Id.createVehicleId(0), linkId));
+		events.processEvent(new VehicleLeavesTrafficEvent(2.0, Id.createPersonId(0), linkId, Id.createVehicleId(0), "car", 0.0));
+
+		events.processEvent(new VehicleEntersTrafficEvent(0.0, Id.createPersonId(1), linkId, Id.createVehicleId(1), "bike", 0.0));
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(1), linkId));
+		events.processEvent(new LinkLeaveEvent(8.0, Id.createVehicleId(1), linkId));
+		events.processEvent(new VehicleLeavesTrafficEvent(8.0, Id.createPersonId(1), linkId, Id.createVehicleId(1), "bike", 0.0));
+
+		assertEquals(2.0, car.getLinkTravelTimes().getLinkTravelTime(link, 0.0, null, null), 1e-8);
+		assertEquals(8.0, travelTimes.get(TransportMode.bike).getLinkTravelTime(link, 0.0, null, null), 1e-8);
+	}
+}
@@ -0,0 +1,126 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeChangeTrackerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+
+public class TravelTimeChangeTrackerTest {
+
+	@Test
+	void testChangedLinks() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("1"), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("2"), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId("3"), new Coord(2000, 0));
+		Link l1 = NetworkUtils.createAndAddLink(network, Id.createLinkId("1"), n1, n2, 1000, 10, 1000, 1);
+		Link l2 = NetworkUtils.createAndAddLink(network, Id.createLinkId("2"), n2, n3, 1000, 10, 1000, 1);
+
+		// travel time of link 1 is 100s, but slower in the evening; link 2 is fixed at 100s
+		double[] eveningTravelTime = {100.0};
+		TravelTime travelTime = (link, time, person, vehicle) ->
+				link == l1 && time > 17 * 3600 && time < 18 * 3600 ? eveningTravelTime[0] : 100.0;
+		Map<String, TravelTime> travelTimes = new HashMap<>();
+		travelTimes.put(TransportMode.car, travelTime);
+
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		config.setChangedLinksThreshold(0.1);
+		TravelTimeChangeTracker tracker = new TravelTimeChangeTracker(network, travelTimes, config);
+		assertEquals(-1, tracker.getFirstIteration());
+		assertTrue(tracker.hasChangedSince(TransportMode.car, l1.getId(), 0), "nothing is known yet");
+
+		tracker.update(3);
+		assertEquals(3, tracker.getFirstIteration());
+		assertTrue(tracker.hasChangedSince(TransportMode.car, l1.getId(), 2), "changes before the first update are not known");
+		assertFalse(tracker.hasChangedSince(TransportMode.car, l1.getId(), 3));
+		assertTrue(tracker.hasChangedSince(TransportMode.walk, l1.getId(), 3), "mode is not tracked");
+
+		// below the threshold
+		eveningTravelTime[0] = 105.0;
+		tracker.update(4);
+		assertFalse(tracker.hasChangedSince(TransportMode.car, l1.getId(), 3));
+
+		// below the threshold, but sums up with the previous change
+		eveningTravelTime[0] = 112.0;
+		tracker.update(5);
+		assertTrue(tracker.hasChangedSince(TransportMode.car, l1.getId(), 3));
+		assertTrue(tracker.hasChangedSince(TransportMode.car, l1.getId(), 4));
+		assertFalse(tracker.hasChangedSince(TransportMode.car, l1.getId(), 5));
+		assertFalse(tracker.hasChangedSince(TransportMode.car, l2.getId(), 3));
+
+		// the reference was updated in iteration 5
+		eveningTravelTime[0] = 115.0;
+		tracker.update(6);
+		assertFalse(tracker.hasChangedSince(TransportMode.car, l1.getId(), 5));
+
+		// a second update for the same iteration is ignored
+		eveningTravelTime[0] = 200.0;
+		tracker.update(6);
+		assertFalse(tracker.hasChangedSince(TransportMode.car, l1.getId(), 5));
+		tracker.update(7);
+		assertTrue(tracker.hasChangedSince(TransportMode.car, l1.getId(), 6));
+	}
+
+	@Test
+	void testChangedLinksWithSeveralThreads() {
+		Network network = NetworkUtils.createNetwork();
+		Node previous = NetworkUtils.createAndAddNode(network, Id.createNodeId("0"), new Coord(0, 0));
+		for (int i = 1; i <= 100; i++) {
+			Node node = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 1000, 0));
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(i), previous, node, 1000, 10, 1000, 1);
+			previous = node;
+		}
+
+		// every third link is congested in the morning, link 50 becomes slower in iteration 2
+		double[] travelTimeLink50 = {100.0};
+		TravelTime travelTime = (link, time, person, vehicle) -> {
+			int index = Integer.parseInt(link.getId().toString());
+			double tt = index == 50 ? travelTimeLink50[0] : 100.0;
+			return index % 3 == 0 && time > 7 * 3600 && time < 9 * 3600 ? 2 * tt : tt;
+		};
+		Map<String, TravelTime> travelTimes = new HashMap<>();
+		travelTimes.put(TransportMode.car, travelTime);
+
+		TravelTimeChangeTracker tracker = new TravelTimeChangeTracker(network, travelTimes, new TravelTimeCalculatorConfigGroup(), 3);
+		tracker.update(1);
+		travelTimeLink50[0] = 150.0;
+		tracker.update(2);
+		for (int i = 1; i <= 100; i++) {
+			assertEquals(i == 50, tracker.hasChangedSince(TransportMode.car, Id.createLinkId(i), 1), "link " + i);
+		}
+	}
+
+}